@@ -154,25 +154,108 @@ NGS_SRC =                  \
 	FragmentIterator       \
 	Read                   \
 	ReadIterator           \
+	ReadBatch              \
+	PrefetchOptions        \
+	PrefetchReadIterator   \
+	ReadFilter             \
+	FilteredReadIterator   \
 	ReadGroup              \
 	ReadGroupIterator      \
 	Alignment              \
 	AlignmentIterator      \
+	AlignmentBatch         \
+	Cigar                  \
+	Phred                  \
 	PileupEvent            \
 	PileupEventIterator    \
 	Pileup                 \
 	PileupIterator         \
+	PileupSummary          \
 	Reference              \
 	ReferenceIterator      \
 	ReadCollection         \
+	CollectionDictionary   \
+	RangeSpliterator       \
+	CursorSpliterator      \
+	ReadRangeSpliterator   \
+	AlignmentRangeSpliterator \
+	AlignmentSliceSpliterator \
+	PileupSliceSpliterator \
+	UncheckedErrorMsg      \
+	Ascii                  \
 	Package
 
+# helpers shared by the implementations, not part of the API
+INTERNAL_SRC =             \
+	Bounds                 \
+	Tasks
+
 NGS_SRC_PATH = \
-	$(addprefix $(SRCDIR)/ngs/,$(addsuffix .java,$(NGS_SRC)))
+	$(addprefix $(SRCDIR)/ngs/,$(addsuffix .java,$(NGS_SRC))) \
+	$(addprefix $(SRCDIR)/ngs/internal/,$(addsuffix .java,$(INTERNAL_SRC)))
 
 $(CLSDIR)/ngs-java-api: $(NGS_SRC_PATH)
 	$(JAVAC) $(DBG) $^ -d $(CLSDIR) $(CLSPATH) $(SRCINC) && touch $@
 
+# java utilities built upon the API
+UTIL_SRC =                 \
+	PileupEngine           \
+	PackedBases            \
+	ReferenceCache         \
+	CachedReference        \
+	FastaWriter            \
+	Bgzf                   \
+	FastqExporter          \
+	LookupService
+
+UTIL_SRC_PATH = \
+	$(addprefix $(SRCDIR)/ngs/util/,$(addsuffix .java,$(UTIL_SRC)))
+
+$(CLSDIR)/ngs-java-util: $(CLSDIR)/ngs-java-api $(UTIL_SRC_PATH)
+	$(JAVAC) $(DBG) $(UTIL_SRC_PATH) -d $(CLSDIR) $(CLSPATH) $(SRCINC) && touch $@
+
+# pure-Java in-memory implementation of the API
+MEM_SRC =                  \
+	MemData                \
+	MemBuilder             \
+	MemGenerator           \
+	MemReadCollection      \
+	MemReadGroupIterator   \
+	MemStatistics          \
+	MemReferenceIterator   \
+	MemReadIterator        \
+	MemAlignmentIterator   \
+	MemPileupIterator
+
+MEM_SRC_PATH = \
+	$(addprefix $(SRCDIR)/ngs/mem/,$(addsuffix .java,$(MEM_SRC)))
+
+$(CLSDIR)/ngs-java-mem: $(CLSDIR)/ngs-java-api $(MEM_SRC_PATH)
+	$(JAVAC) $(DBG) $(MEM_SRC_PATH) -d $(CLSDIR) $(CLSPATH) $(SRCINC) && touch $@
+
+# pure-Java BAM file implementation of the API
+BAM_SRC =                  \
+	BamFile                \
+	BgzfInput              \
+	BamIndex               \
+	BamRecordView          \
+	BamRecordAlignment     \
+	BamAlignmentIterator   \
+	BamReferenceIterator   \
+	BamReadGroupIterator   \
+	BamReadCollection      \
+	BamIndexBuilder        \
+	BamEncoder             \
+	BamWriter              \
+	SortedAlignmentIterator \
+	AlignmentSorter
+
+BAM_SRC_PATH = \
+	$(addprefix $(SRCDIR)/ngs/bam/,$(addsuffix .java,$(BAM_SRC)))
+
+$(CLSDIR)/ngs-java-bam: $(CLSDIR)/ngs-java-api $(BAM_SRC_PATH)
+	$(JAVAC) $(DBG) $(BAM_SRC_PATH) -d $(CLSDIR) $(CLSPATH) $(SRCINC) && touch $@
+
 # java language bindings
 ITF_SRC =                  \
 	Refcount               \
@@ -203,6 +286,7 @@ $(CLSDIR)/ngs-java-itf: $(CLSDIR)/ngs-java-api $(ITF_SRC_PATH)
 NCBI_SRC =                 \
 	DownloadManager        \
 	FileCreator            \
+	HandleCache            \
 	HttpManager            \
 	LibDependencies        \
 	LibManager             \
@@ -232,10 +316,10 @@ $(CLSDIR)/ngs-java-ncbi: $(CLSDIR)/ngs-java-itf $(NCBI_SRC_PATH)
 	$(JAVAC) $(DBG) $(NCBI_SRC_PATH) -d $(CLSDIR) $(CLSPATH) $(SRCINC) && touch $@
 
 # rule to produce the jar
-$(LIBDIR)/ngs-java.jar: $(CLSDIR)/ngs-java-api $(CLSDIR)/ngs-java-itf $(CLSDIR)/ngs-java-ncbi
+$(LIBDIR)/ngs-java.jar: $(CLSDIR)/ngs-java-api $(CLSDIR)/ngs-java-util $(CLSDIR)/ngs-java-mem $(CLSDIR)/ngs-java-bam $(CLSDIR)/ngs-java-itf $(CLSDIR)/ngs-java-ncbi
 	( cd $(CLSDIR); $(JAR) $@ `find . -name "*.class"`; chmod -x,o-w,g+w $@ ) || ( rm -f $@ && false )
 
-$(LIBDIR)/ngs-src.jar: $(ITF_SRC_PATH) $(NCBI_SRC_PATH)
+$(LIBDIR)/ngs-src.jar: $(UTIL_SRC_PATH) $(MEM_SRC_PATH) $(BAM_SRC_PATH) $(ITF_SRC_PATH) $(NCBI_SRC_PATH)
 	( cd $(SRCDIR); $(JAR) $@ `find gov ngs -name "*.java"`; chmod -x,o-w,g+w $@ ) || ( rm -f $@ && false )
 
 #-------------------------------------------------------------------------------
@@ -307,7 +391,7 @@ endif
 #
 $(LIBDIR)/ngs-doc.jar :
 	@ echo "Generating javadocs..."
-	@ javadoc -quiet -notimestamp $(CLSPATH) -sourcepath . gov.nih.nlm.ncbi.ngs ngs -d $(LIBDIR)/javadoc
+	@ javadoc -quiet -notimestamp $(CLSPATH) -sourcepath . gov.nih.nlm.ncbi.ngs ngs ngs.util ngs.mem ngs.bam -d $(LIBDIR)/javadoc
 	( cd $(LIBDIR)/javadoc ; $(JAR) $@ `find . -type f`; chmod -x,o-w,g+w $@  ) || ( rm -f $@ && false )
 
 .PHONY: javadoc
@@ -0,0 +1,105 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package benchmarks;
+
+import ngs.Alignment;
+import ngs.AlignmentBatch;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Alignment slices, comparing per-alignment accessors
+ * against AlignmentIterator.nextAlignmentBatch.
+ */
+@BenchmarkMode ( Mode . Throughput )
+@OutputTimeUnit ( TimeUnit . SECONDS )
+@Warmup ( iterations = 3 )
+@Measurement ( iterations = 5 )
+@Fork ( 1 )
+public class AlignmentBenchmark
+{
+    @Benchmark
+    public long sliceAccessors ( Source src, Blackhole bh )
+        throws ErrorMsg
+    {
+        long n = 0;
+        AlignmentIterator it = src . ref . getAlignmentSlice ( src . start, src . length, Alignment . all );
+        try
+        {
+            while ( it . nextAlignment () )
+            {
+                bh . consume ( it . getAlignmentPosition () );
+                bh . consume ( it . getAlignmentLength () );
+                bh . consume ( it . getMappingQuality () );
+                bh . consume ( it . getShortCigar ( false ) );
+                ++ n;
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return n;
+    }
+
+    @Benchmark
+    public long sliceBatch ( Source src, Blackhole bh )
+        throws ErrorMsg
+    {
+        long n = 0;
+        AlignmentBatch batch = new AlignmentBatch ();
+        AlignmentIterator it = src . ref . getAlignmentSlice ( src . start, src . length, Alignment . all );
+        try
+        {
+            int count;
+            while ( ( count = it . nextAlignmentBatch ( batch, 1024 ) ) != 0 )
+            {
+                bh . consume ( batch . getPositions () );
+                bh . consume ( batch . getCigarOps () );
+                n += count;
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,189 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package benchmarks;
+
+import ngs.ErrorMsg;
+import ngs.Read;
+import ngs.ReadBatch;
+import ngs.ReadIterator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Read and fragment iteration, comparing String accessors
+ * against the bulk byte [] and batch accessors.
+ * Each invocation visits "reads" Reads from the start of the collection.
+ */
+@BenchmarkMode ( Mode . Throughput )
+@OutputTimeUnit ( TimeUnit . SECONDS )
+@Warmup ( iterations = 3 )
+@Measurement ( iterations = 5 )
+@Fork ( 1 )
+public class ReadBenchmark
+{
+    @Benchmark
+    public long readBasesString ( Source src, Blackhole bh )
+        throws ErrorMsg
+    {
+        long n = 0;
+        ReadIterator it = src . coll . getReadRange ( 1, src . reads, Read . all );
+        try
+        {
+            while ( it . nextRead () )
+            {
+                bh . consume ( it . getReadBases () );
+                bh . consume ( it . getReadQualities () );
+                ++ n;
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return n;
+    }
+
+    @Benchmark
+    public long readBasesBytes ( Source src, Blackhole bh )
+        throws ErrorMsg
+    {
+        long n = 0;
+        byte [] buf = new byte [ 1024 ];
+        ReadIterator it = src . coll . getReadRange ( 1, src . reads, Read . all );
+        try
+        {
+            while ( it . nextRead () )
+            {
+                int len = it . getReadBases ( buf, 0 );
+                if ( len > buf . length )
+                {
+                    buf = new byte [ len * 2 ];
+                    len = it . getReadBases ( buf, 0 );
+                }
+                bh . consume ( buf );
+                it . getReadQualities ( buf, 0 );
+                bh . consume ( buf );
+                n += len;
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return n;
+    }
+
+    @Benchmark
+    public long readBatch ( Source src, Blackhole bh )
+        throws ErrorMsg
+    {
+        long n = 0;
+        ReadBatch batch = new ReadBatch ();
+        ReadIterator it = src . coll . getReadRange ( 1, src . reads, Read . all );
+        try
+        {
+            int count;
+            while ( ( count = it . nextReadBatch ( batch, 1024 ) ) != 0 )
+            {
+                bh . consume ( batch . getBases () );
+                bh . consume ( batch . getQualities () );
+                n += count;
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return n;
+    }
+
+    @Benchmark
+    public long fragmentBasesString ( Source src, Blackhole bh )
+        throws ErrorMsg
+    {
+        long n = 0;
+        ReadIterator it = src . coll . getReadRange ( 1, src . reads, Read . all );
+        try
+        {
+            while ( it . nextRead () )
+            {
+                while ( it . nextFragment () )
+                {
+                    bh . consume ( it . getFragmentBases () );
+                    ++ n;
+                }
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return n;
+    }
+
+    @Benchmark
+    public long fragmentBasesBytes ( Source src, Blackhole bh )
+        throws ErrorMsg
+    {
+        long n = 0;
+        byte [] buf = new byte [ 1024 ];
+        ReadIterator it = src . coll . getReadRange ( 1, src . reads, Read . all );
+        try
+        {
+            while ( it . nextRead () )
+            {
+                while ( it . nextFragment () )
+                {
+                    int len = it . getFragmentBases ( buf, 0 );
+                    if ( len > buf . length )
+                    {
+                        buf = new byte [ len * 2 ];
+                        it . getFragmentBases ( buf, 0 );
+                    }
+                    bh . consume ( buf );
+                    ++ n;
+                }
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return n;
+    }
+}
@@ -0,0 +1,105 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package benchmarks;
+
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.Reference;
+import ngs.mem.MemGenerator;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * The data measured by all benchmarks.
+ * Each parameter may be overridden on the JMH command line,
+ * e.g. "-p spec=SRR1121656 -p reference=1".
+ */
+@State ( Scope . Benchmark )
+public class Source
+{
+    /**
+     * accession or path of the ReadCollection, or "mem:" followed by
+     * MemGenerator settings for synthetic data, e.g. "mem:coverage=30",
+     * whose References are named "chr1", "chr2" and so on
+     */
+    @Param ( { "SRR1121656" } )
+    public String spec;
+
+    /** name of the Reference used by slice, pileup and base benchmarks */
+    @Param ( { "1" } )
+    public String reference;
+
+    /** 0-based start of the window on the Reference */
+    @Param ( { "0" } )
+    public long start;
+
+    /** number of bases in the window */
+    @Param ( { "100000" } )
+    public long length;
+
+    /** number of Reads visited by read and fragment benchmarks */
+    @Param ( { "100000" } )
+    public long reads;
+
+    static final String memPrefix = "mem:";
+
+    ReadCollection coll;
+    Reference ref;
+
+    @Setup ( Level . Trial )
+    public void open ()
+        throws ErrorMsg
+    {
+        coll = open ( spec );
+        ref = coll . getReference ( reference );
+    }
+
+    @TearDown ( Level . Trial )
+    public void close ()
+    {
+        ref . close ();
+        coll . close ();
+    }
+
+    /* open
+     *  resolve a spec to a ReadCollection
+     */
+    static ReadCollection open ( String spec )
+        throws ErrorMsg
+    {
+        if ( spec . startsWith ( memPrefix ) )
+            return MemGenerator . parse ( spec . substring ( memPrefix . length () ) ) . generate ();
+        return gov . nih . nlm . ncbi . ngs . NGS . openReadCollection ( spec );
+    }
+}
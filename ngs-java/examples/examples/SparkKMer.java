@@ -84,17 +84,14 @@ public final class SparkKMer {
 	//Map
 	//
 	JavaRDD<String> kmers = jobs.flatMap(new FlatMapFunction<LongRange, String>() {
-	  ReadCollection  run=null;
 	  @Override
       public Iterable<String> call(LongRange s) {
 		//Executes on task nodes
 		List<String>	ret = new ArrayList<String>();
-		try {
+		//tasks on the same executor share one opened accession
+		try ( ReadCollection run = gov.nih.nlm.ncbi.ngs.NGS.getHandleCache ().openReadCollection ( acc ) ) {
 			long	first = s.getMinimumLong();
 			long	last  = s.getMaximumLong();
-			if(run==null) {
-				run = gov.nih.nlm.ncbi.ngs.NGS.openReadCollection ( acc ); 
-			}
 			ReadIterator it = run.getReadRange ( first, last-first+1, Read.all );
 			while(it.nextRead ()){
 				//iterate through fragments
@@ -0,0 +1,488 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package gov.nih.nlm.ncbi.ngs;
+
+
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.ReferenceSequence;
+import ngs.itf.ReadCollectionItf;
+import ngs.itf.ReferenceSequenceItf;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Timer;
+import java.util.TimerTask;
+
+
+/**
+ *<p>
+ * Keeps ReadCollections and ReferenceSequences open between uses,
+ * keyed by spec, so that resolving an accession and opening its
+ * database is paid once per process rather than once per task.
+ * The cache of the process is obtained through NGS.getHandleCache.
+ *</p>
+ *<p>
+ * Every open returns a new handle holding its own reference to the
+ * cached native object, to be closed by the caller. A handle stays
+ * valid after its entry has been evicted, since the native object
+ * lives until its last reference is released. An entry with no open
+ * handles is evicted once idle for longer than the idle timeout.
+ * When more than "maxOpen" entries exist, the least recently used
+ * are evicted, preferring those without open handles.
+ *</p>
+ */
+public class HandleCache
+{
+
+    /** default bound on cached entries */
+    public static final int defaultMaxOpen = 64;
+
+    /** default idle timeout in milliseconds */
+    public static final long defaultIdleTimeout = 60 * 1000;
+
+    /**
+     * Open a ReadCollection through the cache
+     * @param spec may be a path to an object or may be an id, accession, or URL
+     * @return a new handle onto the cached read-collection, to be closed by the caller
+     * @throws ErrorMsg if object cannot be located or opened
+     */
+    public ReadCollection openReadCollection ( String spec )
+        throws ErrorMsg
+    {
+        Entry e = acquire ( "R:" + spec );
+        try
+        {
+            synchronized ( e )
+            {
+                if ( e . master == null )
+                    e . master = mgr . openReadCollection ( spec );
+                ReadCollection lease = new ReadCollectionLease ( ( ReadCollectionItf ) e . master, e );
+
+                // evicted while opening: only the new handle keeps it
+                if ( e . evicted )
+                {
+                    ( ( ReadCollectionItf ) e . master ) . close ();
+                    e . master = null;
+                }
+                return lease;
+            }
+        }
+        catch ( ErrorMsg | RuntimeException x )
+        {
+            fail ( e );
+            throw x;
+        }
+    }
+
+    /**
+     * Open a ReferenceSequence through the cache
+     * @param spec may be a path to an object or may be an id, accession, or URL
+     * @return a new handle onto the cached reference, to be closed by the caller
+     * @throws ErrorMsg if object cannot be located or opened
+     */
+    public ReferenceSequence openReferenceSequence ( String spec )
+        throws ErrorMsg
+    {
+        Entry e = acquire ( "S:" + spec );
+        try
+        {
+            synchronized ( e )
+            {
+                if ( e . master == null )
+                    e . master = mgr . openReferenceSequence ( spec );
+                ReferenceSequence lease = new ReferenceSequenceLease ( ( ReferenceSequenceItf ) e . master, e );
+
+                // evicted while opening: only the new handle keeps it
+                if ( e . evicted )
+                {
+                    ( ( ReferenceSequenceItf ) e . master ) . close ();
+                    e . master = null;
+                }
+                return lease;
+            }
+        }
+        catch ( ErrorMsg | RuntimeException x )
+        {
+            fail ( e );
+            throw x;
+        }
+    }
+
+    /**
+     * @param maxOpen bound on cached entries, &gt; 0
+     */
+    public void setMaxOpen ( int maxOpen )
+    {
+        if ( maxOpen <= 0 )
+            throw new IllegalArgumentException ( "maxOpen " + maxOpen + " is not positive" );
+
+        ArrayList < Entry > evicted;
+        synchronized ( this )
+        {
+            this . maxOpen = maxOpen;
+            evicted = trim ();
+        }
+        close ( evicted );
+    }
+
+    /**
+     * @param millis time after which an entry without open handles
+     *  is evicted, &gt; 0
+     */
+    public synchronized void setIdleTimeout ( long millis )
+    {
+        if ( millis <= 0 )
+            throw new IllegalArgumentException ( "idle timeout " + millis + " is not positive" );
+        this . idleTimeout = millis;
+        if ( timer != null )
+            schedule ();
+    }
+
+    /**
+     * @return the number of cached entries
+     */
+    public synchronized int getOpenCount ()
+    {
+        return entries . size ();
+    }
+
+    /**
+     * @return the number of handles currently open through the cache
+     */
+    public synchronized int getLeaseCount ()
+    {
+        int n = 0;
+        for ( Entry e : entries . values () )
+            n += e . leases;
+        return n + orphans;
+    }
+
+    /**
+     * @return the number of opens served by a cached entry
+     */
+    public synchronized long getHits ()
+    {
+        return hits;
+    }
+
+    /**
+     * @return the number of opens that had to open a new entry
+     */
+    public synchronized long getMisses ()
+    {
+        return misses;
+    }
+
+    /**
+     * Evict every entry; open handles remain valid
+     */
+    public void clear ()
+    {
+        ArrayList < Entry > evicted;
+        synchronized ( this )
+        {
+            evicted = new ArrayList < Entry > ( entries . values () );
+            for ( Entry e : evicted )
+                orphans += e . leases;
+            entries . clear ();
+        }
+        close ( evicted );
+    }
+
+    HandleCache ( Manager mgr )
+    {
+        this . mgr = mgr;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Entry
+     *  a cached native object and the handles open onto it
+     */
+    static class Entry
+    {
+        Entry ( String key )
+        {
+            this . key = key;
+        }
+
+        final String key;
+        AutoCloseable master;
+        boolean evicted;
+        int leases;
+        long lastUsed;
+    }
+
+    /* acquire
+     *  find or create the entry for "key" and count a lease on it
+     */
+    Entry acquire ( String key )
+    {
+        ArrayList < Entry > evicted = null;
+        Entry e;
+        synchronized ( this )
+        {
+            e = entries . get ( key );
+            if ( e != null )
+                ++ hits;
+            else
+            {
+                ++ misses;
+                e = new Entry ( key );
+                entries . put ( key, e );
+                if ( timer == null )
+                    schedule ();
+            }
+            ++ e . leases;
+            e . lastUsed = System . currentTimeMillis ();
+            evicted = trim ();
+        }
+        close ( evicted );
+        return e;
+    }
+
+    /* returned
+     *  a handle onto "e" was closed
+     */
+    synchronized void returned ( Entry e )
+    {
+        if ( entries . get ( e . key ) != e )
+        {
+            -- orphans;
+            return;
+        }
+        -- e . leases;
+        e . lastUsed = System . currentTimeMillis ();
+    }
+
+    /* fail
+     *  opening failed; drop the lease, and the entry if never opened
+     */
+    private void fail ( Entry e )
+    {
+        boolean opened;
+        synchronized ( e )
+        {
+            opened = e . master != null;
+        }
+
+        synchronized ( this )
+        {
+            returned ( e );
+            if ( ! opened && e . leases == 0 && entries . get ( e . key ) == e )
+                entries . remove ( e . key );
+        }
+    }
+
+    /* trim
+     *  choose least recently used entries beyond maxOpen,
+     *  idle ones first
+     */
+    private ArrayList < Entry > trim ()
+    {
+        ArrayList < Entry > evicted = new ArrayList < Entry > ();
+        for ( int pass = 0; pass < 2 && entries . size () > maxOpen; ++ pass )
+        {
+            Iterator < Entry > it = entries . values () . iterator ();
+            while ( entries . size () > maxOpen && it . hasNext () )
+            {
+                Entry e = it . next ();
+                if ( pass == 0 && e . leases > 0 )
+                    continue;
+                orphans += e . leases;
+                evicted . add ( e );
+                it . remove ();
+            }
+        }
+        return evicted;
+    }
+
+    /* sweep
+     *  evict entries idle for longer than the timeout
+     */
+    void sweep ()
+    {
+        ArrayList < Entry > evicted = new ArrayList < Entry > ();
+        synchronized ( this )
+        {
+            long now = System . currentTimeMillis ();
+            Iterator < Entry > it = entries . values () . iterator ();
+            while ( it . hasNext () )
+            {
+                Entry e = it . next ();
+                if ( e . leases == 0 && now - e . lastUsed >= idleTimeout )
+                {
+                    evicted . add ( e );
+                    it . remove ();
+                }
+            }
+            if ( entries . isEmpty () && timer != null )
+            {
+                timer . cancel ();
+                timer = null;
+            }
+        }
+        close ( evicted );
+    }
+
+    /* schedule
+     *  run "sweep" periodically while entries exist
+     */
+    private void schedule ()
+    {
+        if ( timer != null )
+            timer . cancel ();
+
+        long period = Math . max ( 1, idleTimeout / 2 );
+        timer = new Timer ( "ngs-handle-cache", true );
+        timer . schedule ( new TimerTask ()
+            {
+                public void run ()
+                {
+                    sweep ();
+                }
+            }, period, period );
+    }
+
+    /* close
+     *  release the cache's own references, outside of the lock
+     */
+    private static void close ( ArrayList < Entry > evicted )
+    {
+        if ( evicted == null )
+            return;
+        for ( Entry e : evicted )
+        {
+            AutoCloseable master;
+            synchronized ( e )
+            {
+                master = e . master;
+                e . master = null;
+                e . evicted = true;
+            }
+            try
+            {
+                if ( master != null )
+                    master . close ();
+            }
+            catch ( Exception x )
+            {
+                Logger . warning ( "failed to close " + e . key + ": " + x );
+            }
+        }
+    }
+
+    /*----------------------------------------------------------------------
+     * leases
+     *  handles that report their closing to the cache; a handle
+     *  dropped without being closed is reported by the Cleaner once
+     *  unreachable, so that it does not keep its entry from eviction
+     */
+    private class ReadCollectionLease
+        extends ReadCollectionItf
+    {
+        public void close ()
+        {
+            super . close ();
+            returner . clean ();
+        }
+
+        ReadCollectionLease ( ReadCollectionItf master, Entry entry )
+            throws ErrorMsg
+        {
+            super ( master );
+            this . returner = register ( this, entry );
+        }
+
+        private final Cleaner . Cleanable returner;
+    }
+
+    private class ReferenceSequenceLease
+        extends ReferenceSequenceItf
+    {
+        public void close ()
+        {
+            super . close ();
+            returner . clean ();
+        }
+
+        ReferenceSequenceLease ( ReferenceSequenceItf master, Entry entry )
+            throws ErrorMsg
+        {
+            super ( master );
+            this . returner = register ( this, entry );
+        }
+
+        private final Cleaner . Cleanable returner;
+    }
+
+    /* register
+     *  have "entry" returned once "lease" is closed or unreachable;
+     *  cleaning the result returns it at most once
+     */
+    Cleaner . Cleanable register ( Object lease, Entry entry )
+    {
+        return cleaner . register ( lease, new Return ( this, entry ) );
+    }
+
+    /* Return
+     *  cleaning action of a lease, run at most once;
+     *  must not refer to the lease itself
+     */
+    private static class Return
+        implements Runnable
+    {
+        Return ( HandleCache cache, Entry entry )
+        {
+            this . cache = cache;
+            this . entry = entry;
+        }
+
+        public void run ()
+        {
+            cache . returned ( entry );
+        }
+
+        private final HandleCache cache;
+        private final Entry entry;
+    }
+
+    private static final Cleaner cleaner = Cleaner . create ();
+
+    private final Manager mgr;
+    private final LinkedHashMap < String, Entry > entries = new LinkedHashMap < String, Entry > ( 16, 0.75f, true );
+    private int maxOpen = defaultMaxOpen;
+    private long idleTimeout = defaultIdleTimeout;
+    private int orphans;
+    private long hits;
+    private long misses;
+    private Timer timer;
+}
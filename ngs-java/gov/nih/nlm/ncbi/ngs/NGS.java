@@ -105,6 +105,19 @@ public class NGS
     }
 
 
+    /**
+     * Access the process-wide cache of opened objects.
+     * Opening a ReadCollection or ReferenceSequence through the cache
+     * reuses an already opened database for the same spec.
+     *
+     * @return the cache shared by the process
+     */
+    static public HandleCache getHandleCache ()
+    {
+        return cache;
+    }
+
+
     /**
      * Check to see if spec string represents an SRA archive
      *
@@ -118,6 +131,7 @@ public class NGS
 
 
     private static Manager mgr = new Manager ();
+    private static HandleCache cache = new HandleCache ( mgr );
 
 
     private static void test(String s, boolean expected) {
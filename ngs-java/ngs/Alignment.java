@@ -26,6 +26,8 @@
 
 package ngs;
 
+import ngs.internal.Bounds;
+
 
 
 /**
@@ -111,6 +113,24 @@ public interface Alignment
     String getClippedFragmentQualities ()
         throws ErrorMsg;
 
+    /**
+     * getClippedFragmentQualityScores into a byte array as raw phred scores
+     * @param dst receives one phred quality score per byte
+     * @param dstOffset is the zero-based position in dst of the first score
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of clipped qualities; if it exceeds
+     *  the space available, only as many as fit have been copied
+     * @throws ErrorMsg if the property cannot be retrieved
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getClippedFragmentQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Phred . copy ( getClippedFragmentQualities (), binning, dst, dstOffset );
+    }
+
     /** 
      * getAlignedFragmentBases
      * @return fragment bases in their aligned orientation
@@ -211,6 +231,57 @@ public interface Alignment
     String getLongCigar ( boolean clipped )
         throws ErrorMsg;
 
+    /**
+     * getCigarOps
+     * the short CIGAR as packed operations ( length &lt;&lt; 4 ) | op, see {@link Cigar}
+     * @param clipped selects if clipping has to be applied
+     * @param dst receives packed operations
+     * @return the number of operations; if it exceeds
+     *  the space available, only as many as fit have been stored
+     * @throws ErrorMsg if the property cannot be retrieved
+     */
+    default int getCigarOps ( boolean clipped, int [] dst )
+        throws ErrorMsg
+    {
+        return getCigarOps ( clipped, dst, 0 );
+    }
+
+    /**
+     * getCigarOps
+     * the short CIGAR as packed operations ( length &lt;&lt; 4 ) | op, see {@link Cigar}
+     * @param clipped selects if clipping has to be applied
+     * @param dst receives packed operations
+     * @param dstOffset is the zero-based position in dst of the first operation
+     * @return the number of operations; if it exceeds
+     *  the space available, only as many as fit have been stored
+     * @throws ErrorMsg if the property cannot be retrieved
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getCigarOps ( boolean clipped, int [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Cigar . encode ( getShortCigar ( clipped ), dst, dstOffset );
+    }
+
+    /**
+     * getLongCigarOps
+     * the long CIGAR as packed operations ( length &lt;&lt; 4 ) | op, see {@link Cigar}
+     * @param clipped selects if clipping has to be applied
+     * @param dst receives packed operations
+     * @param dstOffset is the zero-based position in dst of the first operation
+     * @return the number of operations; if it exceeds
+     *  the space available, only as many as fit have been stored
+     * @throws ErrorMsg if the property cannot be retrieved
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getLongCigarOps ( boolean clipped, int [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Cigar . encode ( getLongCigar ( clipped ), dst, dstOffset );
+    }
+
     /**
      * getRNAOrientation
      * @return '+' if positive strand is transcribed
@@ -263,4 +334,90 @@ public interface Alignment
      */
     boolean getMateIsReversedOrientation ()
         throws ErrorMsg;
+
+
+    /*----------------------------------------------------------------------
+     * names as bytes and as dictionary indices
+     *  the byte forms copy ASCII names into caller-supplied storage,
+     *  returning the full length of the name; if it exceeds the space
+     *  available, only as many bytes as fit have been copied
+     */
+
+    /**
+     * getReferenceSpec into a byte array
+     * @param dst receives the name of the reference
+     * @param dstOffset is the zero-based position in dst of the first byte
+     * @return the length of the name
+     * @throws ErrorMsg if the property cannot be retrieved
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getReferenceSpec ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getReferenceSpec (), dst, dstOffset );
+    }
+
+    /**
+     * getMateReferenceSpec into a byte array
+     * @param dst receives the name of the reference the mate is aligned at
+     * @param dstOffset is the zero-based position in dst of the first byte
+     * @return the length of the name
+     * @throws ErrorMsg if the property cannot be retrieved
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getMateReferenceSpec ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getMateReferenceSpec (), dst, dstOffset );
+    }
+
+    /**
+     * getReadGroup into a byte array
+     * @param dst receives the name of the read-group
+     * @param dstOffset is the zero-based position in dst of the first byte
+     * @return the length of the name
+     * @throws ErrorMsg if the property cannot be retrieved
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getReadGroup ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getReadGroup (), dst, dstOffset );
+    }
+
+    /**
+     * getReferenceIndex
+     * @param dict the dictionary of the ReadCollection
+     * @return the index of the reference, or -1 if not in dict
+     * @throws ErrorMsg if the property cannot be retrieved
+     */
+    default int getReferenceIndex ( CollectionDictionary dict )
+        throws ErrorMsg
+    {
+        return dict . referenceIndex ( this :: getReferenceSpec );
+    }
+
+    /**
+     * getMateReferenceIndex
+     * @param dict the dictionary of the ReadCollection
+     * @return the index of the reference the mate is aligned at, or -1 if not in dict
+     * @throws ErrorMsg if the property cannot be retrieved
+     */
+    default int getMateReferenceIndex ( CollectionDictionary dict )
+        throws ErrorMsg
+    {
+        return dict . referenceIndex ( this :: getMateReferenceSpec );
+    }
+
+    /**
+     * getReadGroupIndex
+     * @param dict the dictionary of the ReadCollection
+     * @return the index of the read-group, or -1 if not in dict
+     * @throws ErrorMsg if the property cannot be retrieved
+     */
+    default int getReadGroupIndex ( CollectionDictionary dict )
+        throws ErrorMsg
+    {
+        return dict . readGroupIndex ( this :: getReadGroup );
+    }
 }
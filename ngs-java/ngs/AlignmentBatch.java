@@ -0,0 +1,349 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+
+/**
+ *<p>
+ * A columnar buffer of Alignments filled by
+ * {@link AlignmentIterator#nextAlignmentBatch AlignmentIterator.nextAlignmentBatch}.
+ *</p>
+ *<p>
+ * Each property is held in its own primitive array.
+ * Reference specs are interned into a dictionary that persists
+ * for the lifetime of the batch, so that getReferenceIndexes ()
+ * holds small stable integers rather than Strings.
+ * CIGARs are stored back to back as packed operations ( see {@link Cigar} );
+ * Alignment <em>i</em> occupies the range
+ * [ getCigarOffsets () [ i ], getCigarOffsets () [ i + 1 ] ) of getCigarOps ().
+ *</p>
+ */
+public class AlignmentBatch
+{
+
+    /* AlignmentFlags
+     *  bits of getFlags ()
+     */
+    public static final int reversed         = 1;   // getIsReversedOrientation
+    public static final int hasMate          = 2;   // hasMate
+    public static final int mateReversed     = 4;   // getMateIsReversedOrientation
+
+    /**
+     * Create a batch with default capacity and unclipped CIGARs
+     */
+    public AlignmentBatch ()
+    {
+        this ( 1024, 8 * 1024, false );
+    }
+
+    /**
+     * Create a batch with given initial capacity
+     * @param alignmentCapacity the initial number of Alignments
+     * @param cigarCapacity the initial number of CIGAR operations for all Alignments together
+     * @param clipped selects if clipping has to be applied to CIGARs
+     */
+    public AlignmentBatch ( int alignmentCapacity, int cigarCapacity, boolean clipped )
+    {
+        if ( alignmentCapacity < 0 )
+            throw new IllegalArgumentException ( "alignment capacity " + alignmentCapacity + " is negative" );
+        if ( cigarCapacity < 0 )
+            throw new IllegalArgumentException ( "cigar capacity " + cigarCapacity + " is negative" );
+
+        this . clipped = clipped;
+        positions = new long [ alignmentCapacity ];
+        lengths = new long [ alignmentCapacity ];
+        mapq = new int [ alignmentCapacity ];
+        categories = new int [ alignmentCapacity ];
+        flags = new int [ alignmentCapacity ];
+        refIndexes = new int [ alignmentCapacity ];
+        cigarOffsets = new int [ alignmentCapacity + 1 ];
+        cigarOps = new int [ cigarCapacity ];
+    }
+
+    /**
+     * @return true if CIGARs are clipped
+     */
+    public boolean isClipped ()
+    {
+        return clipped;
+    }
+
+    /**
+     * @return the number of Alignments in the batch
+     */
+    public int size ()
+    {
+        return size;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * reference dictionary
+     */
+
+    /**
+     * @param refIndex an entry of getReferenceIndexes ()
+     * @return the reference spec
+     * @throws IndexOutOfBoundsException upon invalid refIndex
+     */
+    public String getReferenceSpec ( int refIndex )
+        throws IndexOutOfBoundsException
+    {
+        return referenceSpecs . get ( refIndex );
+    }
+
+    /**
+     * @return all reference specs seen so far, in index order
+     */
+    public List < String > getReferenceSpecs ()
+    {
+        return Collections . unmodifiableList ( referenceSpecs );
+    }
+
+    /**
+     * Look up or assign the index of a reference spec
+     * @param spec a reference spec
+     * @return its index in the dictionary
+     */
+    public int internReferenceSpec ( String spec )
+    {
+        Integer idx = referenceIndex . get ( spec );
+        if ( idx == null )
+        {
+            idx = referenceSpecs . size ();
+            referenceSpecs . add ( spec );
+            referenceIndex . put ( spec, idx );
+        }
+        return idx;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * columnar access
+     *  the arrays returned are owned by the batch
+     *  and are valid until the batch is refilled
+     */
+
+    /**
+     * @return 0-based reference positions, as in Alignment.getAlignmentPosition
+     */
+    public long [] getPositions ()
+    {
+        return positions;
+    }
+
+    /**
+     * @return projected lengths, as in Alignment.getAlignmentLength
+     */
+    public long [] getLengths ()
+    {
+        return lengths;
+    }
+
+    /**
+     * @return mapping qualities
+     */
+    public int [] getMappingQualities ()
+    {
+        return mapq;
+    }
+
+    /**
+     * @return Alignment categories
+     */
+    public int [] getCategories ()
+    {
+        return categories;
+    }
+
+    /**
+     * @return AlignmentFlags bits
+     */
+    public int [] getFlags ()
+    {
+        return flags;
+    }
+
+    /**
+     * @return indexes into the reference dictionary
+     */
+    public int [] getReferenceIndexes ()
+    {
+        return refIndexes;
+    }
+
+    /**
+     * @return CIGAR offsets of all Alignments, having size () + 1 valid entries
+     */
+    public int [] getCigarOffsets ()
+    {
+        return cigarOffsets;
+    }
+
+    /**
+     * @return packed CIGAR operations of all Alignments
+     */
+    public int [] getCigarOps ()
+    {
+        return cigarOps;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * filling
+     *  used by AlignmentIterator implementations
+     */
+
+    /**
+     * Empty the batch, retaining its storage and reference dictionary
+     */
+    public void clear ()
+    {
+        size = 0;
+        cigarOffsets [ 0 ] = 0;
+    }
+
+    /**
+     * Grow storage if necessary, retaining contents
+     * @param alignmentCapacity the number of Alignments required
+     * @param cigarCapacity the number of CIGAR operations required for all Alignments together
+     */
+    public void ensureCapacity ( int alignmentCapacity, int cigarCapacity )
+    {
+        if ( alignmentCapacity > positions . length )
+        {
+            int cap = Math . max ( alignmentCapacity, positions . length * 2 );
+            positions = Arrays . copyOf ( positions, cap );
+            lengths = Arrays . copyOf ( lengths, cap );
+            mapq = Arrays . copyOf ( mapq, cap );
+            categories = Arrays . copyOf ( categories, cap );
+            flags = Arrays . copyOf ( flags, cap );
+            refIndexes = Arrays . copyOf ( refIndexes, cap );
+            cigarOffsets = Arrays . copyOf ( cigarOffsets, cap + 1 );
+        }
+        if ( cigarCapacity > cigarOps . length )
+        {
+            int cap = ( int ) Math . min ( Integer . MAX_VALUE - 8,
+                Math . max ( ( long ) cigarCapacity, ( long ) cigarOps . length * 2 ) );
+            cigarOps = Arrays . copyOf ( cigarOps, cap );
+        }
+    }
+
+    /**
+     * Set the number of valid Alignments after filling the arrays directly
+     * @param size the number of Alignments in the batch
+     * @throws IndexOutOfBoundsException if size exceeds capacity
+     */
+    public void setSize ( int size )
+        throws IndexOutOfBoundsException
+    {
+        if ( size < 0 || size > positions . length )
+            throw new IndexOutOfBoundsException ( "size " + size + " exceeds capacity " + positions . length );
+        this . size = size;
+    }
+
+    /**
+     * Scratch storage for the reference specs an implementation
+     * receives while filling, retained between fills
+     * @param count the number of specs required
+     * @return an array of at least "count" elements
+     */
+    public String [] getSpecBuffer ( int count )
+    {
+        if ( count > specBuffer . length )
+            specBuffer = new String [ Math . max ( count, specBuffer . length * 2 ) ];
+        return specBuffer;
+    }
+
+    /**
+     * Scratch storage for the status an implementation
+     * receives while filling, retained between fills
+     * @return an array of 2 elements
+     */
+    public int [] getStatusBuffer ()
+    {
+        return statusBuffer;
+    }
+
+    /**
+     * Append the current Alignment of an iterator
+     * @param align the Alignment to copy
+     * @throws ErrorMsg upon an error accessing data
+     */
+    public void add ( Alignment align )
+        throws ErrorMsg
+    {
+        ensureCapacity ( size + 1, 0 );
+
+        int start = cigarOffsets [ size ];
+        int count = align . getCigarOps ( clipped, cigarOps, start );
+        if ( start + count > cigarOps . length )
+        {
+            ensureCapacity ( size + 1, start + count );
+            align . getCigarOps ( clipped, cigarOps, start );
+        }
+
+        int bits = 0;
+        if ( align . getIsReversedOrientation () )
+            bits |= reversed;
+        if ( align . hasMate () )
+        {
+            bits |= hasMate;
+            if ( align . getMateIsReversedOrientation () )
+                bits |= mateReversed;
+        }
+
+        positions [ size ] = align . getAlignmentPosition ();
+        lengths [ size ] = align . getAlignmentLength ();
+        mapq [ size ] = align . getMappingQuality ();
+        categories [ size ] = align . getAlignmentCategory ();
+        flags [ size ] = bits;
+        refIndexes [ size ] = internReferenceSpec ( align . getReferenceSpec () );
+        cigarOffsets [ ++ size ] = start + count;
+    }
+
+    private final boolean clipped;
+    private int size;
+    private long [] positions;
+    private long [] lengths;
+    private int [] mapq;
+    private int [] categories;
+    private int [] flags;
+    private int [] refIndexes;
+    private int [] cigarOffsets;
+    private int [] cigarOps;
+    private String [] specBuffer = new String [ 0 ];
+    private final int [] statusBuffer = new int [ 2 ];
+    private final ArrayList < String > referenceSpecs = new ArrayList < String > ();
+    private final HashMap < String, Integer > referenceIndex = new HashMap < String, Integer > ();
+}
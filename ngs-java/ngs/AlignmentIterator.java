@@ -26,6 +26,8 @@
 
 package ngs;
 
+import java.util.Spliterator;
+
 
 /**
  * Iterates across a list of Alignments
@@ -42,4 +44,40 @@ public interface AlignmentIterator
      */
     boolean nextAlignment ()
         throws ErrorMsg;
+
+    /**
+     *  Advance by up to "max" Alignments, copying each into "batch".
+     *  The batch is cleared first and grows as needed.
+     *  Upon return, the iterator is positioned on the last Alignment copied.
+     *  @param batch receives the Alignments
+     *  @param max the maximum number of Alignments to copy
+     *  @return the number of Alignments copied, 0 if no more Alignments are available.
+     *  @throws ErrorMsg if more Alignments should be available, but could not be accessed.
+     */
+    default int nextAlignmentBatch ( AlignmentBatch batch, int max )
+        throws ErrorMsg
+    {
+        if ( max < 0 )
+            throw new IllegalArgumentException ( "max " + max + " is negative" );
+
+        batch . clear ();
+        while ( batch . size () < max && nextAlignment () )
+            batch . add ( this );
+        return batch . size ();
+    }
+
+    /**
+     * Adapt this iterator to a Spliterator, suitable for
+     * java.util.stream.StreamSupport.stream ( spliterator, false ).
+     * Each advance of the Spliterator advances this iterator.
+     * The Spliterator cannot be split; see ReadCollection.alignmentSpliterator and Reference.alignmentSpliterator
+     * for parallel traversal.
+     * The Alignment handed to an action is this iterator itself,
+     * and is only valid for the duration of the call.
+     * @return a Spliterator of Alignments
+     */
+    default Spliterator < Alignment > spliterator ()
+    {
+        return new CursorSpliterator < Alignment, AlignmentIterator > ( this, AlignmentIterator :: nextAlignment );
+    }
 }
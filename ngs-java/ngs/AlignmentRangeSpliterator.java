@@ -0,0 +1,75 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+
+/*==========================================================================
+ * AlignmentRangeSpliterator
+ *  splits a range of Alignment ids of a ReadCollection
+ *  each part reads through its own getAlignmentRange iterator
+ */
+class AlignmentRangeSpliterator
+    extends RangeSpliterator < Alignment, AlignmentIterator >
+{
+
+    /* parts smaller than this are not split further */
+    static final long minAlignments = 1024;
+
+    AlignmentRangeSpliterator ( ReadCollection coll, long first, long count, int categories )
+    {
+        // the exact number of Alignments is known only when none are filtered
+        super ( first, count, categories == Alignment . all, minAlignments );
+        this . coll = coll;
+        this . categories = categories;
+    }
+
+    AlignmentIterator open ( long first, long count )
+        throws ErrorMsg
+    {
+        return coll . getAlignmentRange ( first, count, categories );
+    }
+
+    boolean advance ( AlignmentIterator it )
+        throws ErrorMsg
+    {
+        return it . nextAlignment ();
+    }
+
+    void release ( AlignmentIterator it )
+    {
+        it . close ();
+    }
+
+    RangeSpliterator < Alignment, AlignmentIterator > part ( long first, long count )
+    {
+        return new AlignmentRangeSpliterator ( coll, first, count, categories );
+    }
+
+    private final ReadCollection coll;
+    private final int categories;
+}
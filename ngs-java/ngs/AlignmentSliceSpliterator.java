@@ -0,0 +1,93 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+
+/*==========================================================================
+ * AlignmentSliceSpliterator
+ *  splits a window of a Reference by position
+ *  each part reads through its own getFilteredAlignmentSlice iterator,
+ *  selecting only Alignments that start within the part,
+ *  so that no Alignment is seen by two parts
+ */
+class AlignmentSliceSpliterator
+    extends RangeSpliterator < Alignment, AlignmentIterator >
+{
+
+    /* parts shorter than this many bases are not split further */
+    static final long minBases = 64 * 1024;
+
+    /* over
+     *  create a spliterator over a window, estimating its size
+     *  from the Alignment count of the whole Reference
+     */
+    static AlignmentSliceSpliterator over ( Reference ref, long start, long length, int categories )
+        throws ErrorMsg
+    {
+        AlignmentSliceSpliterator s = new AlignmentSliceSpliterator ( ref, start, length, categories );
+
+        long total = ref . getLength ();
+        long count = ref . getAlignmentCount ( categories );
+        if ( total > length )
+            count = ( long ) ( ( double ) count * length / total );
+        s . estimate ( count );
+        return s;
+    }
+
+    AlignmentSliceSpliterator ( Reference ref, long start, long length, int categories )
+    {
+        super ( start, length, false, minBases );
+        this . ref = ref;
+        this . categories = categories;
+    }
+
+    AlignmentIterator open ( long start, long length )
+        throws ErrorMsg
+    {
+        return ref . getFilteredAlignmentSlice ( start, length, categories, Alignment . startWithinSlice, 0 );
+    }
+
+    boolean advance ( AlignmentIterator it )
+        throws ErrorMsg
+    {
+        return it . nextAlignment ();
+    }
+
+    void release ( AlignmentIterator it )
+    {
+        it . close ();
+    }
+
+    RangeSpliterator < Alignment, AlignmentIterator > part ( long start, long length )
+    {
+        return new AlignmentSliceSpliterator ( ref, start, length, categories );
+    }
+
+    private final Reference ref;
+    private final int categories;
+}
@@ -0,0 +1,79 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs;
+
+import ngs.internal.Bounds;
+
+import java.nio.ByteBuffer;
+
+
+/*==========================================================================
+ * Ascii
+ *  copies ASCII text such as bases and qualities into byte storage
+ *  used by the default bulk accessors of Fragment, Read and Reference
+ */
+final class Ascii
+{
+
+    /* copy
+     *  copy "src" into "dst" starting at "dstOffset"
+     *  copies no more than fits into "dst"
+     *  returns the full length of "src"
+     */
+    static int copy ( String src, byte [] dst, int dstOffset )
+        throws IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        int length = src . length ();
+        int toCopy = Math . min ( length, dst . length - dstOffset );
+        for ( int i = 0; i < toCopy; ++ i )
+            dst [ dstOffset + i ] = ( byte ) src . charAt ( i );
+
+        return length;
+    }
+
+    /* copy
+     *  copy "src" into "dst" at its current position
+     *  copies no more than "dst . remaining ()" bytes
+     *  and advances the position of "dst" by the number copied
+     *  returns the full length of "src"
+     */
+    static int copy ( String src, ByteBuffer dst )
+    {
+        int length = src . length ();
+        int toCopy = Math . min ( length, dst . remaining () );
+        for ( int i = 0; i < toCopy; ++ i )
+            dst . put ( ( byte ) src . charAt ( i ) );
+
+        return length;
+    }
+
+    private Ascii ()
+    {
+    }
+}
@@ -0,0 +1,327 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs;
+
+import ngs.internal.Bounds;
+
+
+/**
+ *<p>
+ * Encoding of CIGAR strings as packed operations,
+ * using the same layout as the BAM format:
+ * each operation is an int holding ( length &lt;&lt; 4 ) | op.
+ *</p>
+ *<p>
+ * An instance is a reusable view of the operations of one Alignment
+ * at a time, loaded through {@link Alignment#getCigarOps Alignment.getCigarOps}
+ * into storage that grows as needed and is kept from load to load.
+ *</p>
+ */
+public final class Cigar
+{
+
+    /* CigarOp
+     *  operation codes, as in BAM
+     */
+    public static final int match       = 0;   // M
+    public static final int insertion   = 1;   // I
+    public static final int deletion    = 2;   // D
+    public static final int skip        = 3;   // N
+    public static final int softClip    = 4;   // S
+    public static final int hardClip    = 5;   // H
+    public static final int padding     = 6;   // P
+    public static final int seqMatch    = 7;   // =
+    public static final int seqMismatch = 8;   // X
+
+    private static final String opChars = "MIDNSHP=X";
+
+    /**
+     * @param packed a packed CIGAR operation
+     * @return the operation code
+     */
+    public static int op ( int packed )
+    {
+        return packed & 0xF;
+    }
+
+    /**
+     * @param packed a packed CIGAR operation
+     * @return the operation length
+     */
+    public static int opLength ( int packed )
+    {
+        return packed >>> 4;
+    }
+
+    /**
+     * @param op an operation code
+     * @return the CIGAR character for the operation
+     * @throws IllegalArgumentException upon an unknown op
+     */
+    public static char opChar ( int op )
+    {
+        if ( op < 0 || op >= opChars . length () )
+            throw new IllegalArgumentException ( "unknown CIGAR operation " + op );
+        return opChars . charAt ( op );
+    }
+
+    /**
+     * Encode CIGAR text into packed operations
+     * @param text CIGAR text as returned by Alignment.getShortCigar or getLongCigar
+     * @param dst receives packed operations
+     * @param dstOffset is the zero-based position in dst of the first operation
+     * @return the number of operations in text; if it exceeds
+     *  the space available, only as many as fit have been stored
+     * @throws ErrorMsg if the text is not a valid CIGAR string
+     */
+    public static int encode ( String text, int [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        int count = 0;
+        int length = 0;
+        boolean haveLength = false;
+        for ( int i = 0; i < text . length (); ++ i )
+        {
+            char ch = text . charAt ( i );
+            if ( ch >= '0' && ch <= '9' )
+            {
+                length = length * 10 + ( ch - '0' );
+                haveLength = true;
+                continue;
+            }
+
+            int op = opChars . indexOf ( ch );
+            if ( op < 0 || ! haveLength )
+                throw new ErrorMsg ( "invalid CIGAR string '" + text + "'" );
+
+            if ( dstOffset + count < dst . length )
+                dst [ dstOffset + count ] = ( length << 4 ) | op;
+            ++ count;
+
+            length = 0;
+            haveLength = false;
+        }
+
+        if ( haveLength )
+            throw new ErrorMsg ( "invalid CIGAR string '" + text + "'" );
+
+        return count;
+    }
+
+    /**
+     * Decode packed operations into CIGAR text
+     * @param ops packed operations
+     * @param offset is the zero-based position in ops of the first operation
+     * @param count the number of operations
+     * @return CIGAR text
+     */
+    public static String decode ( int [] ops, int offset, int count )
+    {
+        StringBuilder text = new StringBuilder ( count * 4 );
+        for ( int i = 0; i < count; ++ i )
+        {
+            int packed = ops [ offset + i ];
+            text . append ( opLength ( packed ) ) . append ( opChar ( op ( packed ) ) );
+        }
+        return text . toString ();
+    }
+
+    /*----------------------------------------------------------------------
+     * view
+     */
+
+    /**
+     * Create an empty view
+     */
+    public Cigar ()
+    {
+        ops = new int [ 16 ];
+    }
+
+    /**
+     * Load the short CIGAR of an Alignment
+     * @param align the Alignment
+     * @param clipped selects if clipping has to be applied
+     * @return this view
+     * @throws ErrorMsg if the property cannot be retrieved
+     */
+    public Cigar load ( Alignment align, boolean clipped )
+        throws ErrorMsg
+    {
+        size = align . getCigarOps ( clipped, ops, 0 );
+        if ( size > ops . length )
+        {
+            ops = new int [ Math . max ( size, ops . length * 2 ) ];
+            size = align . getCigarOps ( clipped, ops, 0 );
+        }
+        return this;
+    }
+
+    /**
+     * Load the long CIGAR of an Alignment
+     * @param align the Alignment
+     * @param clipped selects if clipping has to be applied
+     * @return this view
+     * @throws ErrorMsg if the property cannot be retrieved
+     */
+    public Cigar loadLong ( Alignment align, boolean clipped )
+        throws ErrorMsg
+    {
+        size = align . getLongCigarOps ( clipped, ops, 0 );
+        if ( size > ops . length )
+        {
+            ops = new int [ Math . max ( size, ops . length * 2 ) ];
+            size = align . getLongCigarOps ( clipped, ops, 0 );
+        }
+        return this;
+    }
+
+    /**
+     * Load CIGAR text
+     * @param text CIGAR text
+     * @return this view
+     * @throws ErrorMsg if the text is not a valid CIGAR string
+     */
+    public Cigar load ( String text )
+        throws ErrorMsg
+    {
+        size = encode ( text, ops, 0 );
+        if ( size > ops . length )
+        {
+            ops = new int [ Math . max ( size, ops . length * 2 ) ];
+            size = encode ( text, ops, 0 );
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of operations loaded
+     */
+    public int size ()
+    {
+        return size;
+    }
+
+    /**
+     * @param idx zero-based index of an operation
+     * @return the packed operation
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public int getPacked ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        if ( idx < 0 || idx >= size )
+            throw new IndexOutOfBoundsException ( "operation " + idx + " is out of range" );
+        return ops [ idx ];
+    }
+
+    /**
+     * @param idx zero-based index of an operation
+     * @return the operation code
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public int getOp ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        return op ( getPacked ( idx ) );
+    }
+
+    /**
+     * @param idx zero-based index of an operation
+     * @return the operation length
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public int getOpLength ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        return opLength ( getPacked ( idx ) );
+    }
+
+    /**
+     * @return the storage holding the packed operations
+     *  in its first size () entries; replaced when it has to grow
+     */
+    public int [] getOps ()
+    {
+        return ops;
+    }
+
+    /**
+     * @return the number of Reference bases covered: M, D, N, = and X
+     */
+    public long getReferenceLength ()
+    {
+        long len = 0;
+        for ( int i = 0; i < size; ++ i )
+        {
+            switch ( op ( ops [ i ] ) )
+            {
+            case match:
+            case deletion:
+            case skip:
+            case seqMatch:
+            case seqMismatch:
+                len += opLength ( ops [ i ] );
+            }
+        }
+        return len;
+    }
+
+    /**
+     * @return the number of read bases covered: M, I, S, = and X
+     */
+    public long getQueryLength ()
+    {
+        long len = 0;
+        for ( int i = 0; i < size; ++ i )
+        {
+            switch ( op ( ops [ i ] ) )
+            {
+            case match:
+            case insertion:
+            case softClip:
+            case seqMatch:
+            case seqMismatch:
+                len += opLength ( ops [ i ] );
+            }
+        }
+        return len;
+    }
+
+    /**
+     * @return the operations loaded, as CIGAR text
+     */
+    public String toString ()
+    {
+        return decode ( ops, 0, size );
+    }
+
+    private int [] ops;
+    private int size;
+}
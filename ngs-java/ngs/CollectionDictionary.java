@@ -0,0 +1,274 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+
+/**
+ *<p>
+ * Numbers the References and ReadGroups of a ReadCollection,
+ * so that records can be grouped by int keys rather than by name.
+ * References are numbered in the order of ReadCollection.getReferences,
+ * ReadGroups in the order of ReadCollection.getReadGroups, from 0.
+ *</p>
+ *<p>
+ * Indices of records are found through accessors such as
+ * {@link Alignment#getReferenceIndex Alignment.getReferenceIndex},
+ * which copy the name of each record into a reusable per-thread buffer
+ * and look it up without creating a String.
+ * A name that is not in the dictionary has the index -1.
+ *</p>
+ */
+public class CollectionDictionary
+{
+
+    /**
+     * Build the dictionary of a ReadCollection
+     * @param coll the ReadCollection
+     * @return its dictionary
+     * @throws ErrorMsg upon an error accessing data
+     */
+    public static CollectionDictionary of ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        ArrayList < String > refs = new ArrayList < String > ();
+        ReferenceIterator ri = coll . getReferences ();
+        try
+        {
+            while ( ri . nextReference () )
+                refs . add ( ri . getCanonicalName () );
+        }
+        finally
+        {
+            ri . close ();
+        }
+
+        ArrayList < String > groups = new ArrayList < String > ();
+        ReadGroupIterator gi = coll . getReadGroups ();
+        try
+        {
+            while ( gi . nextReadGroup () )
+                groups . add ( gi . getName () );
+        }
+        finally
+        {
+            gi . close ();
+        }
+
+        return new CollectionDictionary ( refs . toArray ( new String [ refs . size () ] ),
+            groups . toArray ( new String [ groups . size () ] ) );
+    }
+
+    /**
+     * Create a dictionary from lists of names
+     * @param references Reference names, in index order
+     * @param readGroups ReadGroup names, in index order
+     */
+    public CollectionDictionary ( String [] references, String [] readGroups )
+    {
+        this . references = new Table ( references );
+        this . readGroups = new Table ( readGroups );
+    }
+
+    /**
+     * @return the number of References
+     */
+    public int getReferenceCount ()
+    {
+        return references . names . length;
+    }
+
+    /**
+     * @param index a Reference index
+     * @return the name of the Reference
+     * @throws IndexOutOfBoundsException upon invalid index
+     */
+    public String getReferenceName ( int index )
+    {
+        return references . names [ index ];
+    }
+
+    /**
+     * @param name a Reference name
+     * @return its index, or -1
+     */
+    public int getReferenceIndex ( String name )
+    {
+        return references . find ( name );
+    }
+
+    /**
+     * @return the number of ReadGroups
+     */
+    public int getReadGroupCount ()
+    {
+        return readGroups . names . length;
+    }
+
+    /**
+     * @param index a ReadGroup index
+     * @return the name of the ReadGroup
+     * @throws IndexOutOfBoundsException upon invalid index
+     */
+    public String getReadGroupName ( int index )
+    {
+        return readGroups . names [ index ];
+    }
+
+    /**
+     * @param name a ReadGroup name
+     * @return its index, or -1
+     */
+    public int getReadGroupIndex ( String name )
+    {
+        return readGroups . find ( name );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * package access for the default index accessors
+     */
+
+    /* Name
+     *  copies a name as bytes, returning its full length
+     */
+    interface Name
+    {
+        int copy ( byte [] dst, int dstOffset )
+            throws ErrorMsg;
+    }
+
+    int referenceIndex ( Name name )
+        throws ErrorMsg
+    {
+        return lookup ( references, name );
+    }
+
+    int readGroupIndex ( Name name )
+        throws ErrorMsg
+    {
+        return lookup ( readGroups, name );
+    }
+
+    private static int lookup ( Table table, Name name )
+        throws ErrorMsg
+    {
+        byte [] buf = scratch . get ();
+        int len = name . copy ( buf, 0 );
+        if ( len > buf . length )
+        {
+            buf = new byte [ Math . max ( len, buf . length * 2 ) ];
+            scratch . set ( buf );
+            len = name . copy ( buf, 0 );
+        }
+        return table . find ( buf, 0, len );
+    }
+
+    /*----------------------------------------------------------------------
+     * Table
+     *  open addressing over the UTF-8 bytes of the names
+     */
+    private static final class Table
+    {
+        Table ( String [] names )
+        {
+            this . names = names . clone ();
+            this . bytes = new byte [ names . length ] [];
+
+            int cap = 4;
+            while ( cap < names . length * 2 )
+                cap <<= 1;
+            this . slots = new int [ cap ];
+            Arrays . fill ( slots, -1 );
+
+            for ( int i = 0; i < names . length; ++ i )
+            {
+                byte [] b = names [ i ] . getBytes ( StandardCharsets . UTF_8 );
+                bytes [ i ] = b;
+
+                // the first of duplicate names keeps its index
+                if ( find ( b, 0, b . length ) >= 0 )
+                    continue;
+                int s = hash ( b, 0, b . length ) & ( cap - 1 );
+                while ( slots [ s ] >= 0 )
+                    s = ( s + 1 ) & ( cap - 1 );
+                slots [ s ] = i;
+            }
+        }
+
+        int find ( String name )
+        {
+            byte [] b = name . getBytes ( StandardCharsets . UTF_8 );
+            return find ( b, 0, b . length );
+        }
+
+        int find ( byte [] b, int off, int len )
+        {
+            int mask = slots . length - 1;
+            for ( int s = hash ( b, off, len ) & mask; ; s = ( s + 1 ) & mask )
+            {
+                int i = slots [ s ];
+                if ( i < 0 )
+                    return -1;
+                byte [] n = bytes [ i ];
+                if ( n . length == len && equal ( n, b, off ) )
+                    return i;
+            }
+        }
+
+        private static boolean equal ( byte [] n, byte [] b, int off )
+        {
+            for ( int i = 0; i < n . length; ++ i )
+            {
+                if ( n [ i ] != b [ off + i ] )
+                    return false;
+            }
+            return true;
+        }
+
+        private static int hash ( byte [] b, int off, int len )
+        {
+            int h = 0;
+            for ( int i = 0; i < len; ++ i )
+                h = h * 31 + b [ off + i ];
+            return h ^ ( h >>> 16 );
+        }
+
+        final String [] names;
+        final byte [] [] bytes;
+        final int [] slots;
+    }
+
+    private static final ThreadLocal < byte [] > scratch = ThreadLocal . withInitial ( () -> new byte [ 256 ] );
+
+    private final Table references;
+    private final Table readGroups;
+}
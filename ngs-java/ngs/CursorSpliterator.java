@@ -0,0 +1,108 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+
+/*==========================================================================
+ * CursorSpliterator
+ *  adapts an existing iterator to a Spliterator
+ *  the iterator cannot be divided, so trySplit always refuses;
+ *  use the range and slice Spliterators of ReadCollection and Reference
+ *  to obtain parts that can be traversed in parallel
+ *
+ *  the element handed to an action is the iterator itself,
+ *  positioned on the current item and valid only during the call
+ */
+class CursorSpliterator < T, I extends T >
+    implements Spliterator < T >
+{
+
+    /* Advance
+     *  the "next" method of an iterator
+     */
+    interface Advance < C >
+    {
+        boolean next ( C it )
+            throws ErrorMsg;
+    }
+
+    CursorSpliterator ( I it, Advance < I > next )
+    {
+        this . it = it;
+        this . next = next;
+    }
+
+    public boolean tryAdvance ( Consumer < ? super T > action )
+    {
+        try
+        {
+            if ( ! next . next ( it ) )
+                return false;
+            action . accept ( it );
+            return true;
+        }
+        catch ( ErrorMsg x )
+        {
+            throw new UncheckedErrorMsg ( x );
+        }
+    }
+
+    public void forEachRemaining ( Consumer < ? super T > action )
+    {
+        try
+        {
+            while ( next . next ( it ) )
+                action . accept ( it );
+        }
+        catch ( ErrorMsg x )
+        {
+            throw new UncheckedErrorMsg ( x );
+        }
+    }
+
+    public Spliterator < T > trySplit ()
+    {
+        return null;
+    }
+
+    public long estimateSize ()
+    {
+        return Long . MAX_VALUE;
+    }
+
+    public int characteristics ()
+    {
+        return ORDERED | NONNULL;
+    }
+
+    private final I it;
+    private final Advance < I > next;
+}
@@ -0,0 +1,411 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+import java.nio.ByteBuffer;
+
+
+/*==========================================================================
+ * FilteredReadIterator
+ *  a ReadIterator passing only those Reads of an underlying
+ *  iterator that are accepted by a ReadFilter
+ *
+ *  used by providers that cannot evaluate a ReadFilter themselves;
+ *  every other property is served by the underlying iterator
+ */
+final class FilteredReadIterator
+    implements ReadIterator
+{
+
+    /*----------------------------------------------------------------------
+     * ReadIterator
+     */
+
+    public boolean nextRead ()
+        throws ErrorMsg
+    {
+        while ( it . nextRead () )
+        {
+            if ( accepted () )
+                return true;
+        }
+        return false;
+    }
+
+    public void close ()
+    {
+        it . close ();
+    }
+
+    /*----------------------------------------------------------------------
+     * Fragment
+     */
+
+    public String getFragmentId ()
+        throws ErrorMsg
+    {
+        return it . getFragmentId ();
+    }
+
+    public String getFragmentBases ()
+        throws ErrorMsg
+    {
+        return it . getFragmentBases ();
+    }
+
+    public String getFragmentBases ( long offset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentBases ( offset );
+    }
+
+    public String getFragmentBases ( long offset, long length )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentBases ( offset, length );
+    }
+
+    public String getFragmentQualities ()
+        throws ErrorMsg
+    {
+        return it . getFragmentQualities ();
+    }
+
+    public String getFragmentQualities ( long offset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualities ( offset );
+    }
+
+    public String getFragmentQualities ( long offset, long length )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualities ( offset, length );
+    }
+
+    public int getFragmentBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentBases ( dst, dstOffset );
+    }
+
+    public int getFragmentBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentBases ( offset, length, dst, dstOffset );
+    }
+
+    public int getFragmentBases ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return it . getFragmentBases ( dst );
+    }
+
+    public int getFragmentBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentBases ( offset, length, dst );
+    }
+
+    public int getFragmentQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualities ( dst, dstOffset );
+    }
+
+    public int getFragmentQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualities ( offset, length, dst, dstOffset );
+    }
+
+    public int getFragmentQualities ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return it . getFragmentQualities ( dst );
+    }
+
+    public int getFragmentQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualities ( offset, length, dst );
+    }
+
+    public int getFragmentQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualityScores ( dst, dstOffset, binning );
+    }
+
+    public int getFragmentQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualityScores ( offset, length, dst, dstOffset, binning );
+    }
+
+    public int getFragmentQualityScores ( ByteBuffer dst, int binning )
+        throws ErrorMsg
+    {
+        return it . getFragmentQualityScores ( dst, binning );
+    }
+
+    public int getFragmentQualityScores ( long offset, long length, ByteBuffer dst, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getFragmentQualityScores ( offset, length, dst, binning );
+    }
+
+    public boolean isPaired ()
+        throws ErrorMsg
+    {
+        return it . isPaired ();
+    }
+
+    public boolean isAligned ()
+        throws ErrorMsg
+    {
+        return it . isAligned ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * FragmentIterator
+     */
+
+    public boolean nextFragment ()
+        throws ErrorMsg
+    {
+        return it . nextFragment ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Read
+     */
+
+    public String getReadId ()
+        throws ErrorMsg
+    {
+        return it . getReadId ();
+    }
+
+    public int getNumFragments ()
+        throws ErrorMsg
+    {
+        return it . getNumFragments ();
+    }
+
+    public boolean fragmentIsAligned ( int fragIdx )
+        throws ErrorMsg
+    {
+        return it . fragmentIsAligned ( fragIdx );
+    }
+
+    public int getReadCategory ()
+        throws ErrorMsg
+    {
+        return it . getReadCategory ();
+    }
+
+    public String getReadGroup ()
+        throws ErrorMsg
+    {
+        return it . getReadGroup ();
+    }
+
+    public String getReadName ()
+        throws ErrorMsg
+    {
+        return it . getReadName ();
+    }
+
+    public String getReadBases ()
+        throws ErrorMsg
+    {
+        return it . getReadBases ();
+    }
+
+    public String getReadBases ( long offset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadBases ( offset );
+    }
+
+    public String getReadBases ( long offset, long length )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadBases ( offset, length );
+    }
+
+    public String getReadQualities ()
+        throws ErrorMsg
+    {
+        return it . getReadQualities ();
+    }
+
+    public String getReadQualities ( long offset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualities ( offset );
+    }
+
+    public String getReadQualities ( long offset, long length )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualities ( offset, length );
+    }
+
+    public int getReadBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadBases ( dst, dstOffset );
+    }
+
+    public int getReadBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadBases ( offset, length, dst, dstOffset );
+    }
+
+    public int getReadBases ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return it . getReadBases ( dst );
+    }
+
+    public int getReadBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadBases ( offset, length, dst );
+    }
+
+    public int getReadQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualities ( dst, dstOffset );
+    }
+
+    public int getReadQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualities ( offset, length, dst, dstOffset );
+    }
+
+    public int getReadQualities ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return it . getReadQualities ( dst );
+    }
+
+    public int getReadQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualities ( offset, length, dst );
+    }
+
+    public int getReadQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualityScores ( dst, dstOffset, binning );
+    }
+
+    public int getReadQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualityScores ( offset, length, dst, dstOffset, binning );
+    }
+
+    public int getReadQualityScores ( ByteBuffer dst, int binning )
+        throws ErrorMsg
+    {
+        return it . getReadQualityScores ( dst, binning );
+    }
+
+    public int getReadQualityScores ( long offset, long length, ByteBuffer dst, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return it . getReadQualityScores ( offset, length, dst, binning );
+    }
+
+    FilteredReadIterator ( ReadIterator it, ReadFilter filter )
+    {
+        this . it = it;
+        this . filter = filter . copy ();
+        this . bases = filter . needsSequence () ? new byte [ 256 ] : null;
+        this . qualities = filter . getMinMeanQuality () > 0 ? new byte [ 256 ] : null;
+    }
+
+    /* accepted
+     *  fetch only those properties of the current Read that
+     *  the filter looks at, cheapest first
+     */
+    private boolean accepted ()
+        throws ErrorMsg
+    {
+        int fragments = filter . isPairedOnly () ? it . getNumFragments () : 2;
+        if ( fragments < 2 )
+            return false;
+
+        String group = filter . getReadGroup () != null ? it . getReadGroup () : null;
+        if ( bases == null )
+            return filter . accepts ( group, 0, 0, 0, fragments );
+
+        int length = it . getReadBases ( bases, 0 );
+        if ( length > bases . length )
+        {
+            bases = new byte [ Math . max ( length, bases . length * 2 ) ];
+            it . getReadBases ( bases, 0 );
+        }
+
+        long nCount = 0;
+        for ( int i = 0; i < length; ++ i )
+        {
+            if ( bases [ i ] == 'N' || bases [ i ] == 'n' )
+                ++ nCount;
+        }
+
+        long qualitySum = ( long ) Phred . maxScore * length;
+        if ( qualities != null )
+        {
+            if ( length > qualities . length )
+                qualities = new byte [ bases . length ];
+            it . getReadQualityScores ( qualities, 0, Phred . raw );
+
+            qualitySum = 0;
+            for ( int i = 0; i < length; ++ i )
+                qualitySum += qualities [ i ];
+        }
+
+        return filter . accepts ( group, length, qualitySum, nCount, fragments );
+    }
+
+    private final ReadIterator it;
+    private final ReadFilter filter;
+    private byte [] bases;
+    private byte [] qualities;
+}
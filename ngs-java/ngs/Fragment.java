@@ -26,11 +26,15 @@
 
 package ngs;
 
+import ngs.internal.Bounds;
+
+import java.nio.ByteBuffer;
 
 /**
  * Represents an NGS biological fragment
  */
 public interface Fragment
+    extends AutoCloseable
 {
 
     /**
@@ -104,6 +108,206 @@ public interface Fragment
     String getFragmentQualities ( long offset, long length )
         throws ErrorMsg, IndexOutOfBoundsException;
 
+
+    /*------------------------------------------------------------------
+     * bulk access
+     *  copy ASCII bases or qualities into caller-supplied storage
+     *  without creating a String. each returns the full length of
+     *  the requested data; if it exceeds the space available,
+     *  only as many bytes as fit have been copied.
+     */
+
+    /**
+     * getFragmentBases into a byte array
+     * @param dst receives sequence bases as ASCII bytes
+     * @param dstOffset is the zero-based position in dst of the first base
+     * @return the number of bases in the fragment
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getFragmentBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getFragmentBases (), dst, dstOffset );
+    }
+
+    /**
+     * getFragmentBases into a byte array
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives sequence bases as ASCII bytes
+     * @param dstOffset is the zero-based position in dst of the first base
+     * @return the number of bases within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length/dstOffset
+     */
+    default int getFragmentBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getFragmentBases ( offset, length ), dst, dstOffset );
+    }
+
+    /**
+     * getFragmentBases into a ByteBuffer
+     * the position of dst is advanced by the number of bytes copied
+     * @param dst receives sequence bases as ASCII bytes
+     * @return the number of bases in the fragment
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default int getFragmentBases ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return Ascii . copy ( getFragmentBases (), dst );
+    }
+
+    /**
+     * getFragmentBases into a ByteBuffer
+     * the position of dst is advanced by the number of bytes copied
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives sequence bases as ASCII bytes
+     * @return the number of bases within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length
+     */
+    default int getFragmentBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getFragmentBases ( offset, length ), dst );
+    }
+
+    /**
+     * getFragmentQualities into a byte array using ASCII offset of 33
+     * @param dst receives phred quality values as ASCII bytes
+     * @param dstOffset is the zero-based position in dst of the first quality
+     * @return the number of qualities in the fragment
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getFragmentQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getFragmentQualities (), dst, dstOffset );
+    }
+
+    /**
+     * getFragmentQualities into a byte array using ASCII offset of 33
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives phred quality values as ASCII bytes
+     * @param dstOffset is the zero-based position in dst of the first quality
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length/dstOffset
+     */
+    default int getFragmentQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getFragmentQualities ( offset, length ), dst, dstOffset );
+    }
+
+    /**
+     * getFragmentQualities into a ByteBuffer using ASCII offset of 33
+     * the position of dst is advanced by the number of bytes copied
+     * @param dst receives phred quality values as ASCII bytes
+     * @return the number of qualities in the fragment
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default int getFragmentQualities ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return Ascii . copy ( getFragmentQualities (), dst );
+    }
+
+    /**
+     * getFragmentQualities into a ByteBuffer using ASCII offset of 33
+     * the position of dst is advanced by the number of bytes copied
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives phred quality values as ASCII bytes
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length
+     */
+    default int getFragmentQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getFragmentQualities ( offset, length ), dst );
+    }
+
+    /**
+     * getFragmentQualityScores into a byte array as raw phred scores
+     * @param dst receives one phred quality score per byte
+     * @param dstOffset is the zero-based position in dst of the first score
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities in the fragment
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getFragmentQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Phred . copy ( getFragmentQualities (), binning, dst, dstOffset );
+    }
+
+    /**
+     * getFragmentQualityScores into a byte array as raw phred scores
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives one phred quality score per byte
+     * @param dstOffset is the zero-based position in dst of the first score
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length/dstOffset
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getFragmentQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Phred . copy ( getFragmentQualities ( offset, length ), binning, dst, dstOffset );
+    }
+
+    /**
+     * getFragmentQualityScores into a ByteBuffer as raw phred scores
+     * the position of dst is advanced by the number of bytes copied
+     * @param dst receives one phred quality score per byte
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities in the fragment
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getFragmentQualityScores ( ByteBuffer dst, int binning )
+        throws ErrorMsg
+    {
+        return Phred . copy ( getFragmentQualities (), binning, dst );
+    }
+
+    /**
+     * getFragmentQualityScores into a ByteBuffer as raw phred scores
+     * the position of dst is advanced by the number of bytes copied
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives one phred quality score per byte
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getFragmentQualityScores ( long offset, long length, ByteBuffer dst, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Phred . copy ( getFragmentQualities ( offset, length ), binning, dst );
+    }
+
     /**
      * isPaired
      * @return true if fragment has a mate
@@ -120,4 +324,13 @@ public interface Fragment
      */
     boolean isAligned ()
         throws ErrorMsg;
+
+    /**
+     * Release the native resources held by this Fragment
+     * without waiting for garbage collection.
+     * The object must not be used after it has been closed.
+     * Alignments and Reads, including iterators, share this method.
+     * Implementations without native resources need not override it.
+     */
+    default void close () {}
 }
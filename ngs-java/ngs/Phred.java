@@ -0,0 +1,157 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+import ngs.internal.Bounds;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ *<p>
+ * Binary phred quality scores.
+ *</p>
+ *<p>
+ * The quality score accessors store one raw phred value ( 0..93 )
+ * per byte instead of ASCII text offset by 33, optionally reduced
+ * to a few representative values by a binning scheme.
+ *</p>
+ */
+public final class Phred
+{
+
+    /* Binning
+     *  schemes applied while copying quality scores
+     */
+    public static final int raw       = 0;   // scores unchanged
+    public static final int illumina8 = 1;   // 8-level: 6, 15, 22, 27, 33, 37, 40
+    public static final int illumina4 = 2;   // 4-level: 12, 23, 37
+
+    /**
+     * offset of quality scores encoded as ASCII text
+     */
+    public static final int asciiOffset = 33;
+
+    /**
+     * the highest score that can be encoded as ASCII text
+     */
+    public static final int maxScore = 93;
+
+    /**
+     * bin
+     *  scores below 3 mark no-calls and are never changed
+     * @param binning one of raw, illumina8 or illumina4
+     * @param score a phred quality score
+     * @return the representative score of its bin
+     * @throws IllegalArgumentException upon an unknown binning scheme
+     */
+    public static int bin ( int binning, int score )
+    {
+        if ( score < 3 )
+            return score;
+
+        switch ( binning )
+        {
+        case raw:
+            return score;
+        case illumina8:
+            if ( score < 10 )
+                return 6;
+            if ( score < 20 )
+                return 15;
+            if ( score < 25 )
+                return 22;
+            if ( score < 30 )
+                return 27;
+            if ( score < 35 )
+                return 33;
+            if ( score < 40 )
+                return 37;
+            return 40;
+        case illumina4:
+            if ( score < 15 )
+                return 12;
+            if ( score < 31 )
+                return 23;
+            return 37;
+        }
+
+        throw new IllegalArgumentException ( "unknown binning " + binning );
+    }
+
+    /* checkBinning
+     *  validate a binning scheme
+     */
+    static void checkBinning ( int binning )
+        throws IllegalArgumentException
+    {
+        if ( binning < raw || binning > illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+    }
+
+    /* copy
+     *  copy ASCII qualities "src" as binned scores into "dst" starting at "dstOffset"
+     *  copies no more than fits into "dst"
+     *  returns the full length of "src"
+     */
+    static int copy ( String src, int binning, byte [] dst, int dstOffset )
+        throws IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        checkBinning ( binning );
+
+        int length = src . length ();
+        int toCopy = Math . min ( length, dst . length - dstOffset );
+        for ( int i = 0; i < toCopy; ++ i )
+            dst [ dstOffset + i ] = ( byte ) bin ( binning, src . charAt ( i ) - asciiOffset );
+
+        return length;
+    }
+
+    /* copy
+     *  copy ASCII qualities "src" as binned scores into "dst" at its current position
+     *  copies no more than "dst . remaining ()" bytes
+     *  and advances the position of "dst" by the number copied
+     *  returns the full length of "src"
+     */
+    static int copy ( String src, int binning, ByteBuffer dst )
+    {
+        checkBinning ( binning );
+
+        int length = src . length ();
+        int toCopy = Math . min ( length, dst . remaining () );
+        for ( int i = 0; i < toCopy; ++ i )
+            dst . put ( ( byte ) bin ( binning, src . charAt ( i ) - asciiOffset ) );
+
+        return length;
+    }
+
+    private Phred ()
+    {
+    }
+}
@@ -46,6 +46,33 @@ public interface Pileup
     String getReferenceSpec ()
         throws ErrorMsg;
 
+    /**
+     * getReferenceSpec into a byte array
+     * @param dst receives the name of the Reference
+     * @param dstOffset is the zero-based position in dst of the first byte
+     * @return the length of the name; if it exceeds the space available,
+     *  only as many bytes as fit have been copied
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     */
+    default int getReferenceSpec ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getReferenceSpec (), dst, dstOffset );
+    }
+
+    /**
+     * getReferenceIndex
+     * @param dict the dictionary of the ReadCollection
+     * @return the index of the Reference, or -1 if not in dict
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default int getReferenceIndex ( CollectionDictionary dict )
+        throws ErrorMsg
+    {
+        return dict . referenceIndex ( this :: getReferenceSpec );
+    }
+
     /**
      * getReferencePosition
      * @return current position on the Reference
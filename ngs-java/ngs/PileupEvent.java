@@ -32,6 +32,7 @@ package ngs;
  *  and stacked Alignments on the other axis
  */
 public interface PileupEvent
+    extends AutoCloseable
 {
 
     /*----------------------------------------------------------------------
@@ -141,6 +142,19 @@ public interface PileupEvent
     char getAlignmentQuality ()
         throws ErrorMsg;
 
+    /**
+     * getAlignmentQualityScore
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return phred quality score of the base aligned at current Reference position
+     * @throws ErrorMsg if event is an insertion or deletion
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getAlignmentQualityScore ( int binning )
+        throws ErrorMsg
+    {
+        return Phred . bin ( binning, getAlignmentQuality () - Phred . asciiOffset );
+    }
+
 
     /**
      * getInsertionBases
@@ -197,4 +211,12 @@ public interface PileupEvent
      */
     int getEventIndelType ()
         throws ErrorMsg;
+
+    /**
+     * Release the native resources held by this PileupEvent
+     * without waiting for garbage collection.
+     * The object must not be used after it has been closed.
+     * Implementations without native resources need not override it.
+     */
+    default void close () {}
 }
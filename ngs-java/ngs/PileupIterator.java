@@ -26,6 +26,8 @@
 
 package ngs;
 
+import java.util.Spliterator;
+
 
 /**
  * Iterates across a list of Pileups
@@ -41,4 +43,19 @@ public interface PileupIterator
      */
     boolean nextPileup ()
         throws ErrorMsg;
+
+    /**
+     * Adapt this iterator to a Spliterator, suitable for
+     * java.util.stream.StreamSupport.stream ( spliterator, false ).
+     * Each advance of the Spliterator advances this iterator.
+     * The Spliterator cannot be split; see Reference.pileupSpliterator
+     * for parallel traversal.
+     * The Pileup handed to an action is this iterator itself,
+     * and is only valid for the duration of the call.
+     * @return a Spliterator of Pileups
+     */
+    default Spliterator < Pileup > spliterator ()
+    {
+        return new CursorSpliterator < Pileup, PileupIterator > ( this, PileupIterator :: nextPileup );
+    }
 }
@@ -0,0 +1,74 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+
+/*==========================================================================
+ * PileupSliceSpliterator
+ *  splits a window of a Reference by position
+ *  each part reads through its own getPileupSlice iterator
+ */
+class PileupSliceSpliterator
+    extends RangeSpliterator < Pileup, PileupIterator >
+{
+
+    /* parts shorter than this many bases are not split further */
+    static final long minBases = 16 * 1024;
+
+    PileupSliceSpliterator ( Reference ref, long start, long length, int categories )
+    {
+        super ( start, length, false, minBases );
+        this . ref = ref;
+        this . categories = categories;
+    }
+
+    PileupIterator open ( long start, long length )
+        throws ErrorMsg
+    {
+        return ref . getPileupSlice ( start, length, categories );
+    }
+
+    boolean advance ( PileupIterator it )
+        throws ErrorMsg
+    {
+        return it . nextPileup ();
+    }
+
+    void release ( PileupIterator it )
+    {
+        it . close ();
+    }
+
+    RangeSpliterator < Pileup, PileupIterator > part ( long start, long length )
+    {
+        return new PileupSliceSpliterator ( ref, start, length, categories );
+    }
+
+    private final Reference ref;
+    private final int categories;
+}
@@ -0,0 +1,176 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+
+/**
+ *<p>
+ * Per-position counts over a window of a Reference, produced by
+ * {@link Reference#getPileupSummary Reference.getPileupSummary}.
+ *</p>
+ *<p>
+ * Counts are held in a single int array with one row of
+ * {@link #columns} entries per position of the window:
+ * the row of position <em>p</em> begins at
+ * ( p - getStart () ) * columns, and the entry for column <em>c</em>
+ * follows at offset <em>c</em>. Positions without coverage hold zeros.
+ *</p>
+ */
+public class PileupSummary
+{
+
+    /* columns of a row */
+    public static final int baseA            = 0;   // A aligned to the position
+    public static final int baseC            = 1;   // C aligned to the position
+    public static final int baseG            = 2;   // G aligned to the position
+    public static final int baseT            = 3;   // T aligned to the position
+    public static final int baseN            = 4;   // any other base
+    public static final int deletion         = 5;   // deletion of the reference base
+    public static final int insertion        = 6;   // insertion before the position
+    public static final int depth            = 7;   // getPileupDepth
+
+    /** number of columns in a row */
+    public static final int columns          = 8;
+
+    /**
+     * Create an empty summary of a window
+     * @param start is the signed starting position on reference
+     * @param length is the number of positions in the window
+     */
+    public PileupSummary ( long start, long length )
+    {
+        if ( length < 0 || length > Integer . MAX_VALUE / columns )
+            throw new IllegalArgumentException ( "length " + length + " is out of range" );
+
+        this . start = start;
+        this . counts = new int [ ( int ) length * columns ];
+    }
+
+    /**
+     * @return the first position of the window
+     */
+    public long getStart ()
+    {
+        return start;
+    }
+
+    /**
+     * @return the number of positions in the window
+     */
+    public int getLength ()
+    {
+        return counts . length / columns;
+    }
+
+    /**
+     * @param position a position on the Reference within the window
+     * @param column one of the column constants
+     * @return the count of "column" at "position"
+     */
+    public int getCount ( long position, int column )
+    {
+        return counts [ row ( position ) + column ];
+    }
+
+    /**
+     * @param position a position on the Reference within the window
+     * @return the coverage depth at "position"
+     */
+    public int getDepth ( long position )
+    {
+        return counts [ row ( position ) + depth ];
+    }
+
+    /**
+     * @return the rows of all positions, back to back;
+     *  the array is not copied
+     */
+    public int [] getCounts ()
+    {
+        return counts;
+    }
+
+    /**
+     * Count a single PileupEvent
+     * @param index the 0-based index of the position within the window
+     * @param eventType as returned by PileupEvent.getEventType
+     * @param base the aligned base, used only for match and mismatch events
+     */
+    void addEvent ( int index, int eventType, char base )
+    {
+        int row = index * columns;
+        if ( ( eventType & PileupEvent . insertion ) != 0 )
+            ++ counts [ row + insertion ];
+
+        int evt = eventType & 7;
+        if ( evt == PileupEvent . deletion )
+            ++ counts [ row + deletion ];
+        else if ( evt == PileupEvent . match || evt == PileupEvent . mismatch )
+            ++ counts [ row + column ( base ) ];
+    }
+
+    /**
+     * Record the coverage depth of a position
+     * @param index the 0-based index of the position within the window
+     * @param value as returned by Pileup.getPileupDepth
+     */
+    void setDepth ( int index, int value )
+    {
+        counts [ index * columns + depth ] = value;
+    }
+
+    /* column
+     *  the column counting a base
+     */
+    static int column ( char base )
+    {
+        switch ( base )
+        {
+        case 'A': case 'a':
+            return baseA;
+        case 'C': case 'c':
+            return baseC;
+        case 'G': case 'g':
+            return baseG;
+        case 'T': case 't':
+            return baseT;
+        }
+        return baseN;
+    }
+
+    private int row ( long position )
+    {
+        long index = position - start;
+        if ( index < 0 || index >= getLength () )
+            throw new IndexOutOfBoundsException ( "position " + position + " is outside of window" );
+        return ( int ) index * columns;
+    }
+
+    private final long start;
+    private final int [] counts;
+}
@@ -0,0 +1,142 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+import java.util.concurrent.Executor;
+
+
+/**
+ * Settings for
+ * {@link ReadCollection#getReads(int,PrefetchOptions) ReadCollection.getReads ( categories, options )}
+ */
+public class PrefetchOptions
+{
+
+    /** default number of Reads captured into a batch */
+    public static final int defaultBatchSize = 1024;
+
+    /** default number of batches prepared ahead of the consumer */
+    public static final int defaultDepth = 4;
+
+    /** capture the id of each Read */
+    public static final int readId = 1;
+
+    /** capture the name of each Read */
+    public static final int readName = 2;
+
+    /** capture the ReadGroup name of each Read */
+    public static final int readGroup = 4;
+
+    /** capture the id of each Fragment */
+    public static final int fragmentId = 8;
+
+    /** capture every String property, the default */
+    public static final int allFields = readId | readName | readGroup | fragmentId;
+
+    /**
+     * @return the number of Reads captured into a batch
+     */
+    public int getBatchSize ()
+    {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize the number of Reads captured into a batch, &gt; 0
+     */
+    public void setBatchSize ( int batchSize )
+    {
+        if ( batchSize <= 0 )
+            throw new IllegalArgumentException ( "batch size " + batchSize + " is not positive" );
+        this . batchSize = batchSize;
+    }
+
+    /**
+     * @return the number of batches prepared ahead of the consumer
+     */
+    public int getDepth ()
+    {
+        return depth;
+    }
+
+    /**
+     * @param depth the number of batches prepared ahead of the consumer, &gt; 0
+     */
+    public void setDepth ( int depth )
+    {
+        if ( depth <= 0 )
+            throw new IllegalArgumentException ( "depth " + depth + " is not positive" );
+        this . depth = depth;
+    }
+
+    /**
+     * @return the String properties captured, a combination of
+     *  readId, readName, readGroup and fragmentId
+     */
+    public int getFields ()
+    {
+        return fields;
+    }
+
+    /**
+     * Properties that are not captured are not fetched from the
+     * underlying iterator; asking for them throws ErrorMsg.
+     * Bases, qualities, categories and counts are always captured.
+     * @param fields the String properties to capture, a combination of
+     *  readId, readName, readGroup and fragmentId
+     */
+    public void setFields ( int fields )
+    {
+        if ( ( fields & ~ allFields ) != 0 )
+            throw new IllegalArgumentException ( "fields " + fields + " are not known" );
+        this . fields = fields;
+    }
+
+    /**
+     * @return the Executor running the producer,
+     *  or null for a daemon thread of its own
+     */
+    public Executor getExecutor ()
+    {
+        return executor;
+    }
+
+    /**
+     * @param executor runs the producer for the lifetime of the iterator,
+     *  occupying one of its threads; null for a daemon thread of its own
+     */
+    public void setExecutor ( Executor executor )
+    {
+        this . executor = executor;
+    }
+
+    private int batchSize = defaultBatchSize;
+    private int depth = defaultDepth;
+    private int fields = allFields;
+    private Executor executor;
+}
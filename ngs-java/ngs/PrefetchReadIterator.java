@@ -0,0 +1,694 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+import ngs.internal.Bounds;
+
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/*==========================================================================
+ * PrefetchReadIterator
+ *  a ReadIterator served from batches of Reads captured
+ *  by a producer thread that owns the underlying iterator
+ *
+ *  the producer copies the properties of each Read and of its
+ *  Fragments into a batch, so that the consumer never touches the
+ *  underlying iterator; String properties are copied only when
+ *  asked for by the options. batches cycle between a queue of
+ *  filled batches and a queue of free ones, bounding memory to
+ *  "depth" + 2 batches
+ */
+final class PrefetchReadIterator
+    implements ReadIterator
+{
+
+    /*----------------------------------------------------------------------
+     * ReadIterator
+     */
+
+    public boolean nextRead ()
+        throws ErrorMsg
+    {
+        if ( batch == null )
+            return false;
+
+        frag = -1;
+        if ( ++ read < batch . size )
+            return true;
+
+        // hand the exhausted batch back and take the next
+        Batch done = batch;
+        batch = null;
+        if ( done != initial )
+            state . free . offer ( done );
+
+        Batch next;
+        try
+        {
+            next = state . full . take ();
+        }
+        catch ( InterruptedException x )
+        {
+            Thread . currentThread () . interrupt ();
+            close ();
+            throw new ErrorMsg ( "interrupted while waiting for Reads" );
+        }
+
+        if ( next . error != null )
+        {
+            close ();
+            if ( next . error instanceof ErrorMsg )
+                throw ( ErrorMsg ) next . error;
+            if ( next . error instanceof RuntimeException )
+                throw ( RuntimeException ) next . error;
+            throw ( Error ) next . error;
+        }
+        if ( next . size == 0 )
+            return false;
+
+        batch = next;
+        read = 0;
+        return true;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Read
+     */
+
+    public String getReadId ()
+        throws ErrorMsg
+    {
+        return captured ( current () . ids, PrefetchOptions . readId, "Read ids" ) [ read ];
+    }
+
+    public int getNumFragments ()
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return b . alignedStart [ read + 1 ] - b . alignedStart [ read ];
+    }
+
+    public boolean fragmentIsAligned ( int fragIdx )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        int start = b . alignedStart [ read ];
+        if ( fragIdx < 0 || fragIdx >= b . alignedStart [ read + 1 ] - start )
+            throw new ErrorMsg ( "fragment index " + fragIdx + " is out of range" );
+        return b . aligned [ start + fragIdx ];
+    }
+
+    public int getReadCategory ()
+        throws ErrorMsg
+    {
+        return current () . categories [ read ];
+    }
+
+    public String getReadGroup ()
+        throws ErrorMsg
+    {
+        return captured ( current () . groups, PrefetchOptions . readGroup, "ReadGroups" ) [ read ];
+    }
+
+    public String getReadName ()
+        throws ErrorMsg
+    {
+        return captured ( current () . names, PrefetchOptions . readName, "Read names" ) [ read ];
+    }
+
+    public String getReadBases ()
+        throws ErrorMsg
+    {
+        return getReadBases ( 0, Long . MAX_VALUE );
+    }
+
+    public String getReadBases ( long offset )
+        throws ErrorMsg
+    {
+        return getReadBases ( offset, Long . MAX_VALUE );
+    }
+
+    public String getReadBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return ascii ( b . bases, b . readStart [ read ], b . readStart [ read + 1 ], offset, length );
+    }
+
+    public String getReadQualities ()
+        throws ErrorMsg
+    {
+        return getReadQualities ( 0, Long . MAX_VALUE );
+    }
+
+    public String getReadQualities ( long offset )
+        throws ErrorMsg
+    {
+        return getReadQualities ( offset, Long . MAX_VALUE );
+    }
+
+    public String getReadQualities ( long offset, long length )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return ascii ( b . qualities, b . readStart [ read ], b . readStart [ read + 1 ], offset, length );
+    }
+
+    public int getReadBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return copy ( b . bases, b . readStart [ read ], b . readStart [ read + 1 ], dst, dstOffset );
+    }
+
+    public int getReadQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return copy ( b . qualities, b . readStart [ read ], b . readStart [ read + 1 ], dst, dstOffset );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * FragmentIterator
+     */
+
+    public boolean nextFragment ()
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        int count = b . fragStart [ read + 1 ] - b . fragStart [ read ];
+        if ( frag + 1 >= count )
+        {
+            frag = count;
+            return false;
+        }
+        ++ frag;
+        return true;
+    }
+
+    public String getFragmentId ()
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return captured ( b . fragIds, PrefetchOptions . fragmentId, "Fragment ids" ) [ fragment ( b ) ];
+    }
+
+    public String getFragmentBases ()
+        throws ErrorMsg
+    {
+        return getFragmentBases ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentBases ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        int f = fragment ( b );
+        return ascii ( b . fragBases, b . fragOffset [ f ], b . fragOffset [ f + 1 ], offset, length );
+    }
+
+    public String getFragmentQualities ()
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset, long length )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        int f = fragment ( b );
+        return ascii ( b . fragQualities, b . fragOffset [ f ], b . fragOffset [ f + 1 ], offset, length );
+    }
+
+    public int getFragmentBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        int f = fragment ( b );
+        return copy ( b . fragBases, b . fragOffset [ f ], b . fragOffset [ f + 1 ], dst, dstOffset );
+    }
+
+    public int getFragmentQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        int f = fragment ( b );
+        return copy ( b . fragQualities, b . fragOffset [ f ], b . fragOffset [ f + 1 ], dst, dstOffset );
+    }
+
+    public boolean isPaired ()
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return b . fragPaired [ fragment ( b ) ];
+    }
+
+    public boolean isAligned ()
+        throws ErrorMsg
+    {
+        Batch b = current ();
+        return b . fragAligned [ fragment ( b ) ];
+    }
+
+    /* close
+     *  stops the producer, which closes the underlying iterator
+     */
+    public void close ()
+    {
+        batch = null;
+        stopper . clean ();
+        state . full . clear ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * PrefetchReadIterator
+     */
+
+    PrefetchReadIterator ( ReadIterator source, PrefetchOptions options )
+    {
+        this . state = new State ( options . getDepth () );
+        this . fields = options . getFields ();
+
+        // an empty batch that is never recycled stands in until the first take
+        this . initial = new Batch ();
+        this . batch = initial;
+        this . read = -1;
+        this . frag = -1;
+
+        // a consumer dropped without being closed stops the producer as well
+        this . stopper = cleaner . register ( this, state :: stop );
+
+        Producer p = new Producer ( source, state, options . getBatchSize (), fields );
+        if ( options . getExecutor () != null )
+        {
+            options . getExecutor () . execute ( p );
+        }
+        else
+        {
+            Thread t = new Thread ( p, "ngs-prefetch-" + threads . incrementAndGet () );
+            t . setDaemon ( true );
+            t . start ();
+        }
+    }
+
+    private Batch current ()
+        throws ErrorMsg
+    {
+        if ( batch == null || read < 0 || read >= batch . size )
+            throw new ErrorMsg ( "no current Read" );
+        return batch;
+    }
+
+    private String [] captured ( String [] values, int field, String what )
+        throws ErrorMsg
+    {
+        if ( ( fields & field ) == 0 )
+            throw new ErrorMsg ( what + " were not prefetched" );
+        return values;
+    }
+
+    private int fragment ( Batch b )
+        throws ErrorMsg
+    {
+        int start = b . fragStart [ read ];
+        if ( frag < 0 || frag >= b . fragStart [ read + 1 ] - start )
+            throw new ErrorMsg ( "no current Fragment" );
+        return start + frag;
+    }
+
+    private static String ascii ( byte [] src, int start, int end, long offset, long length )
+    {
+        if ( offset < 0 || length < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " or length " + length + " is negative" );
+        long len = end - start;
+        if ( offset >= len )
+            return "";
+        int n = ( int ) Math . min ( length, len - offset );
+        return new String ( src, start + ( int ) offset, n, StandardCharsets . US_ASCII );
+    }
+
+    private static int copy ( byte [] src, int start, int end, byte [] dst, int dstOffset )
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        int len = end - start;
+        System . arraycopy ( src, start, dst, dstOffset, Math . min ( len, dst . length - dstOffset ) );
+        return len;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Batch
+     *  captured Reads, columnar; entries [ i ] .. [ i + 1 ]
+     *  of the start/offset arrays delimit Read or Fragment i
+     */
+    private static final class Batch
+    {
+        void clear ()
+        {
+            size = 0;
+            fragCount = 0;
+            alignedCount = 0;
+            error = null;
+        }
+
+        /* capture
+         *  copy the current Read of "it" into the batch,
+         *  with the String properties given by "fields"
+         */
+        void capture ( ReadIterator it, int fields )
+            throws ErrorMsg
+        {
+            if ( size + 1 >= readStart . length )
+            {
+                int cap = readStart . length * 2;
+                ids = Arrays . copyOf ( ids, cap );
+                names = Arrays . copyOf ( names, cap );
+                groups = Arrays . copyOf ( groups, cap );
+                categories = Arrays . copyOf ( categories, cap );
+                readStart = Arrays . copyOf ( readStart, cap );
+                fragStart = Arrays . copyOf ( fragStart, cap );
+                alignedStart = Arrays . copyOf ( alignedStart, cap );
+            }
+
+            int i = size;
+            if ( ( fields & PrefetchOptions . readId ) != 0 )
+                ids [ i ] = it . getReadId ();
+            if ( ( fields & PrefetchOptions . readName ) != 0 )
+                names [ i ] = it . getReadName ();
+            if ( ( fields & PrefetchOptions . readGroup ) != 0 )
+                groups [ i ] = it . getReadGroup ();
+            categories [ i ] = it . getReadCategory ();
+
+            int baseEnd = readStart [ i ];
+            while ( true )
+            {
+                int n = it . getReadBases ( bases, baseEnd );
+                if ( baseEnd + n <= bases . length )
+                {
+                    qualities = ensure ( qualities, baseEnd + n );
+                    it . getReadQualities ( qualities, baseEnd );
+                    readStart [ i + 1 ] = baseEnd + n;
+                    break;
+                }
+                bases = ensure ( bases, baseEnd + n );
+            }
+
+            int numFragments = it . getNumFragments ();
+            aligned = ensure ( aligned, alignedCount + numFragments );
+            for ( int f = 0; f < numFragments; ++ f )
+                aligned [ alignedCount ++ ] = it . fragmentIsAligned ( f );
+            alignedStart [ i + 1 ] = alignedCount;
+
+            while ( it . nextFragment () )
+            {
+                if ( fragCount + 1 >= fragOffset . length )
+                {
+                    int cap = fragOffset . length * 2;
+                    fragIds = Arrays . copyOf ( fragIds, cap );
+                    fragPaired = Arrays . copyOf ( fragPaired, cap );
+                    fragAligned = Arrays . copyOf ( fragAligned, cap );
+                    fragOffset = Arrays . copyOf ( fragOffset, cap );
+                }
+
+                int f = fragCount;
+                if ( ( fields & PrefetchOptions . fragmentId ) != 0 )
+                    fragIds [ f ] = it . getFragmentId ();
+                fragPaired [ f ] = it . isPaired ();
+                fragAligned [ f ] = it . isAligned ();
+
+                int start = fragOffset [ f ];
+                while ( true )
+                {
+                    int n = it . getFragmentBases ( fragBases, start );
+                    if ( start + n <= fragBases . length )
+                    {
+                        fragQualities = ensure ( fragQualities, fragBases . length );
+                        it . getFragmentQualities ( fragQualities, start );
+                        fragOffset [ f + 1 ] = start + n;
+                        break;
+                    }
+                    fragBases = ensure ( fragBases, start + n );
+                }
+                ++ fragCount;
+            }
+            fragStart [ i + 1 ] = fragCount;
+
+            ++ size;
+        }
+
+        private static byte [] ensure ( byte [] a, int size )
+        {
+            return size <= a . length ? a : Arrays . copyOf ( a, Math . max ( size, a . length * 2 ) );
+        }
+
+        private static boolean [] ensure ( boolean [] a, int size )
+        {
+            return size <= a . length ? a : Arrays . copyOf ( a, Math . max ( size, a . length * 2 ) );
+        }
+
+        int size;
+        Throwable error;
+
+        String [] ids = new String [ 64 ];
+        String [] names = new String [ 64 ];
+        String [] groups = new String [ 64 ];
+        int [] categories = new int [ 64 ];
+        int [] readStart = new int [ 64 ];
+        byte [] bases = new byte [ 16 * 1024 ];
+        byte [] qualities = new byte [ 16 * 1024 ];
+
+        int [] alignedStart = new int [ 64 ];
+        boolean [] aligned = new boolean [ 128 ];
+        int alignedCount;
+
+        int [] fragStart = new int [ 64 ];
+        String [] fragIds = new String [ 128 ];
+        boolean [] fragPaired = new boolean [ 128 ];
+        boolean [] fragAligned = new boolean [ 128 ];
+        int [] fragOffset = new int [ 128 ];
+        byte [] fragBases = new byte [ 16 * 1024 ];
+        byte [] fragQualities = new byte [ 16 * 1024 ];
+        int fragCount;
+    }
+
+    /*----------------------------------------------------------------------
+     * State
+     *  shared by consumer and producer
+     */
+    private static final class State
+    {
+        State ( int depth )
+        {
+            // one more than depth for the end or error marker
+            this . full = new ArrayBlockingQueue < Batch > ( depth + 1 );
+            this . free = new ArrayBlockingQueue < Batch > ( depth + 2 );
+            this . spare = depth + 2;
+        }
+
+        /* start
+         *  record the thread running the producer,
+         *  unless the consumer was closed before it ran
+         */
+        synchronized boolean start ()
+        {
+            if ( closed )
+                return false;
+            runner = Thread . currentThread ();
+            return true;
+        }
+
+        /* finish
+         *  forget the producer thread, clearing an interrupt
+         *  meant for the producer before the thread moves on
+         */
+        synchronized void finish ()
+        {
+            runner = null;
+            Thread . interrupted ();
+        }
+
+        /* stop
+         *  interrupt the producer wherever it waits
+         */
+        synchronized void stop ()
+        {
+            closed = true;
+            if ( runner != null )
+                runner . interrupt ();
+        }
+
+        final ArrayBlockingQueue < Batch > full;
+        final ArrayBlockingQueue < Batch > free;
+        private boolean closed;
+        private Thread runner;
+        int spare;
+    }
+
+    /*----------------------------------------------------------------------
+     * Producer
+     *  does not refer to the consumer, and stops when it is
+     *  exhausted or the consumer is closed or collected
+     */
+    private static final class Producer
+        implements Runnable
+    {
+        public void run ()
+        {
+            if ( ! state . start () )
+            {
+                source . close ();
+                return;
+            }
+
+            try
+            {
+                while ( true )
+                {
+                    Batch b = take ();
+                    if ( b == null )
+                        return;
+
+                    while ( b . size < batchSize && source . nextRead () )
+                        b . capture ( source, fields );
+
+                    boolean end = b . size < batchSize;
+                    if ( ! put ( b ) )
+                        return;
+                    if ( end )
+                    {
+                        if ( b . size > 0 )
+                        {
+                            Batch marker = take ();
+                            if ( marker != null )
+                                put ( marker );
+                        }
+                        return;
+                    }
+                }
+            }
+            catch ( ErrorMsg | RuntimeException | Error x )
+            {
+                Batch b = new Batch ();
+                b . error = x;
+                put ( b );
+            }
+            finally
+            {
+                source . close ();
+                state . finish ();
+            }
+        }
+
+        /* take
+         *  a cleared batch, new while fewer than depth + 2 exist
+         */
+        private Batch take ()
+        {
+            Batch b;
+            if ( state . spare > 0 )
+            {
+                -- state . spare;
+                b = new Batch ();
+            }
+            else
+            {
+                try
+                {
+                    b = state . free . take ();
+                }
+                catch ( InterruptedException x )
+                {
+                    return null;
+                }
+            }
+            b . clear ();
+            return b;
+        }
+
+        /* put
+         *  hand a batch to the consumer; false once it is closed
+         */
+        private boolean put ( Batch b )
+        {
+            try
+            {
+                state . full . put ( b );
+                return true;
+            }
+            catch ( InterruptedException x )
+            {
+                return false;
+            }
+        }
+
+        Producer ( ReadIterator source, State state, int batchSize, int fields )
+        {
+            this . source = source;
+            this . state = state;
+            this . batchSize = batchSize;
+            this . fields = fields;
+        }
+
+        private final ReadIterator source;
+        private final State state;
+        private final int batchSize;
+        private final int fields;
+    }
+
+    private static final AtomicInteger threads = new AtomicInteger ();
+    private static final Cleaner cleaner = Cleaner . create ();
+
+    private final State state;
+    private final Cleaner . Cleanable stopper;
+    private final int fields;
+    private final Batch initial;
+    private Batch batch;
+    private int read;
+    private int frag;
+}
@@ -0,0 +1,186 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+
+/*==========================================================================
+ * RangeSpliterator
+ *  splits a contiguous range of ids or reference positions in half
+ *  until it is traversed; each part opens its own cursor
+ *  upon first traversal, so parts may be consumed on different threads
+ *
+ *  the element handed to an action is the cursor itself,
+ *  positioned on the current item and valid only during the call
+ */
+abstract class RangeSpliterator < T, I extends T >
+    implements Spliterator < T >
+{
+
+    /* open
+     *  create a cursor over "count" items starting at "first"
+     */
+    abstract I open ( long first, long count )
+        throws ErrorMsg;
+
+    /* advance
+     *  move cursor to its next item
+     */
+    abstract boolean advance ( I it )
+        throws ErrorMsg;
+
+    /* release
+     *  close a cursor created by "open"
+     */
+    abstract void release ( I it );
+
+    /* part
+     *  create a spliterator of the same kind over a sub-range
+     */
+    abstract RangeSpliterator < T, I > part ( long first, long count );
+
+    public boolean tryAdvance ( Consumer < ? super T > action )
+    {
+        try
+        {
+            I cursor = cursor ();
+            if ( cursor != null && advance ( cursor ) )
+            {
+                if ( remaining > 0 )
+                    -- remaining;
+                action . accept ( cursor );
+                return true;
+            }
+            done ();
+            return false;
+        }
+        catch ( ErrorMsg x )
+        {
+            throw new UncheckedErrorMsg ( x );
+        }
+    }
+
+    public void forEachRemaining ( Consumer < ? super T > action )
+    {
+        try
+        {
+            I cursor = cursor ();
+            if ( cursor != null )
+            {
+                while ( advance ( cursor ) )
+                    action . accept ( cursor );
+            }
+            done ();
+        }
+        catch ( ErrorMsg x )
+        {
+            throw new UncheckedErrorMsg ( x );
+        }
+    }
+
+    public Spliterator < T > trySplit ()
+    {
+        // once traversal has begun, the cursor cannot be divided
+        if ( it != null || finished || count < minSplit * 2 )
+            return null;
+
+        long half = count / 2;
+        long ratio = remaining == count ? half : ( long ) ( ( double ) remaining * half / count );
+        RangeSpliterator < T, I > prefix = part ( first, half );
+        prefix . remaining = ratio;
+        first += half;
+        count -= half;
+        remaining -= ratio;
+        return prefix;
+    }
+
+    public long estimateSize ()
+    {
+        return remaining;
+    }
+
+    public int characteristics ()
+    {
+        return exact ? ORDERED | NONNULL | SIZED | SUBSIZED : ORDERED | NONNULL;
+    }
+
+    /* constructor
+     *  "first" and "count" describe the range in ids or positions
+     *  "exact" tells whether every id in the range yields exactly one item
+     *  "minSplit" is the size below which parts are not divided further
+     */
+    RangeSpliterator ( long first, long count, boolean exact, long minSplit )
+    {
+        this . first = first;
+        this . count = count;
+        this . remaining = count;
+        this . exact = exact;
+        this . minSplit = minSplit;
+    }
+
+    /* estimate
+     *  replace the initial size, for ranges that do not
+     *  yield exactly one item per id or position
+     *  parts receive a share in proportion to their length
+     */
+    final void estimate ( long items )
+    {
+        remaining = items;
+    }
+
+    /* cursor
+     *  create the cursor upon first traversal
+     *  returns null once the range has been consumed
+     */
+    private I cursor ()
+        throws ErrorMsg
+    {
+        if ( it == null && ! finished )
+            it = open ( first, count );
+        return it;
+    }
+
+    private void done ()
+    {
+        if ( it != null )
+            release ( it );
+        it = null;
+        finished = true;
+        remaining = 0;
+    }
+
+    final boolean exact;
+    final long minSplit;
+    private long first;
+    private long count;
+    private long remaining;
+    private boolean finished;
+    private I it;
+}
@@ -26,6 +26,9 @@
 
 package ngs;
 
+import ngs.internal.Bounds;
+
+import java.nio.ByteBuffer;
 
 /*==========================================================================
  * Read
@@ -163,4 +166,204 @@ public interface Read
      */
     String getReadQualities ( long offset, long length )
         throws ErrorMsg, IndexOutOfBoundsException;
+
+
+    /*----------------------------------------------------------------------
+     * bulk access
+     *  copy ASCII bases or qualities into caller-supplied storage
+     *  without creating a String. each returns the full length of
+     *  the requested data; if it exceeds the space available,
+     *  only as many bytes as fit have been copied.
+     */
+
+    /**
+     * getReadBases into a byte array
+     * @param dst receives sequence bases as ASCII bytes
+     * @param dstOffset is the zero-based position in dst of the first base
+     * @return the number of bases in the read
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if dstOffset is invalid
+     */
+    default int getReadBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getReadBases (), dst, dstOffset );
+    }
+
+    /**
+     * getReadBases into a byte array
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives sequence bases as ASCII bytes
+     * @param dstOffset is the zero-based position in dst of the first base
+     * @return the number of bases within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if offset/length/dstOffset are invalid
+     */
+    default int getReadBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getReadBases ( offset, length ), dst, dstOffset );
+    }
+
+    /**
+     * getReadBases into a ByteBuffer
+     * the position of dst is advanced by the number of bytes copied
+     * @param dst receives sequence bases as ASCII bytes
+     * @return the number of bases in the read
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default int getReadBases ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return Ascii . copy ( getReadBases (), dst );
+    }
+
+    /**
+     * getReadBases into a ByteBuffer
+     * the position of dst is advanced by the number of bytes copied
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives sequence bases as ASCII bytes
+     * @return the number of bases within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if offset/length are invalid
+     */
+    default int getReadBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getReadBases ( offset, length ), dst );
+    }
+
+    /**
+     * getReadQualities into a byte array
+     * @param dst receives phred quality values using ASCII offset of 33
+     * @param dstOffset is the zero-based position in dst of the first quality
+     * @return the number of qualities in the read
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if dstOffset is invalid
+     */
+    default int getReadQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getReadQualities (), dst, dstOffset );
+    }
+
+    /**
+     * getReadQualities into a byte array
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives phred quality values using ASCII offset of 33
+     * @param dstOffset is the zero-based position in dst of the first quality
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if offset/length/dstOffset are invalid
+     */
+    default int getReadQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getReadQualities ( offset, length ), dst, dstOffset );
+    }
+
+    /**
+     * getReadQualities into a ByteBuffer
+     * the position of dst is advanced by the number of bytes copied
+     * @param dst receives phred quality values using ASCII offset of 33
+     * @return the number of qualities in the read
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default int getReadQualities ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return Ascii . copy ( getReadQualities (), dst );
+    }
+
+    /**
+     * getReadQualities into a ByteBuffer
+     * the position of dst is advanced by the number of bytes copied
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives phred quality values using ASCII offset of 33
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if offset/length are invalid
+     */
+    default int getReadQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Ascii . copy ( getReadQualities ( offset, length ), dst );
+    }
+
+    /**
+     * getReadQualityScores into a byte array as raw phred scores
+     * @param dst receives one phred quality score per byte
+     * @param dstOffset is the zero-based position in dst of the first score
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities in the read
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid dstOffset
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getReadQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Phred . copy ( getReadQualities (), binning, dst, dstOffset );
+    }
+
+    /**
+     * getReadQualityScores into a byte array as raw phred scores
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives one phred quality score per byte
+     * @param dstOffset is the zero-based position in dst of the first score
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length/dstOffset
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getReadQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Phred . copy ( getReadQualities ( offset, length ), binning, dst, dstOffset );
+    }
+
+    /**
+     * getReadQualityScores into a ByteBuffer as raw phred scores
+     * the position of dst is advanced by the number of bytes copied
+     * @param dst receives one phred quality score per byte
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities in the read
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getReadQualityScores ( ByteBuffer dst, int binning )
+        throws ErrorMsg
+    {
+        return Phred . copy ( getReadQualities (), binning, dst );
+    }
+
+    /**
+     * getReadQualityScores into a ByteBuffer as raw phred scores
+     * the position of dst is advanced by the number of bytes copied
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives one phred quality score per byte
+     * @param binning one of Phred.raw, Phred.illumina8 or Phred.illumina4
+     * @return the number of qualities within the requested range
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length
+     * @throws IllegalArgumentException upon an unknown binning
+     */
+    default int getReadQualityScores ( long offset, long length, ByteBuffer dst, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        return Phred . copy ( getReadQualities ( offset, length ), binning, dst );
+    }
 }
@@ -0,0 +1,307 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ *<p>
+ * A columnar buffer of Reads filled by
+ * {@link ReadIterator#nextReadBatch ReadIterator.nextReadBatch}.
+ *</p>
+ *<p>
+ * Bases and qualities of all Reads in the batch are stored back to back
+ * in shared byte arrays, using ASCII bases and qualities with an offset of 33.
+ * Read <em>i</em> occupies the range
+ * [ getOffsets () [ i ], getOffsets () [ i + 1 ] ) of both arrays.
+ * The arrays are reused from batch to batch and grow as needed,
+ * so a single ReadBatch may serve an entire scan without further allocation.
+ *</p>
+ */
+public class ReadBatch
+{
+
+    /**
+     * Create a batch with default capacity
+     */
+    public ReadBatch ()
+    {
+        this ( 1024, 256 * 1024 );
+    }
+
+    /**
+     * Create a batch with given initial capacity
+     * @param readCapacity the initial number of Reads
+     * @param baseCapacity the initial number of bases for all Reads together
+     */
+    public ReadBatch ( int readCapacity, int baseCapacity )
+    {
+        if ( readCapacity < 0 )
+            throw new IllegalArgumentException ( "read capacity " + readCapacity + " is negative" );
+        if ( baseCapacity < 0 )
+            throw new IllegalArgumentException ( "base capacity " + baseCapacity + " is negative" );
+
+        offsets = new int [ readCapacity + 1 ];
+        categories = new int [ readCapacity ];
+        fragments = new int [ readCapacity ];
+        bases = new byte [ baseCapacity ];
+        qualities = new byte [ baseCapacity ];
+    }
+
+
+    /*----------------------------------------------------------------------
+     * per-Read access
+     */
+
+    /**
+     * @return the number of Reads in the batch
+     */
+    public int size ()
+    {
+        return size;
+    }
+
+    /**
+     * @param idx zero-based index of a Read in the batch
+     * @return the category of the Read, as in Read.getReadCategory
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public int getReadCategory ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        check ( idx );
+        return categories [ idx ];
+    }
+
+    /**
+     * @param idx zero-based index of a Read in the batch
+     * @return the number of biological Fragments in the Read
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public int getNumFragments ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        check ( idx );
+        return fragments [ idx ];
+    }
+
+    /**
+     * @param idx zero-based index of a Read in the batch
+     * @return the offset of the first base of the Read within getBases ()
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public int getReadOffset ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        check ( idx );
+        return offsets [ idx ];
+    }
+
+    /**
+     * @param idx zero-based index of a Read in the batch
+     * @return the number of bases in the Read
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public int getReadLength ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        check ( idx );
+        return offsets [ idx + 1 ] - offsets [ idx ];
+    }
+
+    /**
+     * Convenience accessor; creates a String
+     * @param idx zero-based index of a Read in the batch
+     * @return sequence bases of the Read
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public String getReadBases ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        check ( idx );
+        return new String ( bases, offsets [ idx ], offsets [ idx + 1 ] - offsets [ idx ], StandardCharsets . US_ASCII );
+    }
+
+    /**
+     * Convenience accessor; creates a String
+     * @param idx zero-based index of a Read in the batch
+     * @return phred quality values of the Read using ASCII offset of 33
+     * @throws IndexOutOfBoundsException upon invalid idx
+     */
+    public String getReadQualities ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        check ( idx );
+        return new String ( qualities, offsets [ idx ], offsets [ idx + 1 ] - offsets [ idx ], StandardCharsets . US_ASCII );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * columnar access
+     *  the arrays returned are owned by the batch
+     *  and are valid until the batch is refilled
+     */
+
+    /**
+     * @return base offsets of all Reads, having size () + 1 valid entries
+     */
+    public int [] getOffsets ()
+    {
+        return offsets;
+    }
+
+    /**
+     * @return read categories, having size () valid entries
+     */
+    public int [] getReadCategories ()
+    {
+        return categories;
+    }
+
+    /**
+     * @return fragment counts, having size () valid entries
+     */
+    public int [] getFragmentCounts ()
+    {
+        return fragments;
+    }
+
+    /**
+     * @return ASCII bases of all Reads, having getOffsets () [ size () ] valid entries
+     */
+    public byte [] getBases ()
+    {
+        return bases;
+    }
+
+    /**
+     * @return ASCII qualities of all Reads, having getOffsets () [ size () ] valid entries
+     */
+    public byte [] getQualities ()
+    {
+        return qualities;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * filling
+     *  used by ReadIterator implementations
+     */
+
+    /**
+     * Empty the batch, retaining its storage
+     */
+    public void clear ()
+    {
+        size = 0;
+        offsets [ 0 ] = 0;
+    }
+
+    /**
+     * Grow storage if necessary, retaining contents
+     * @param readCapacity the number of Reads required
+     * @param baseCapacity the number of bases required for all Reads together
+     */
+    public void ensureCapacity ( int readCapacity, int baseCapacity )
+    {
+        if ( readCapacity > categories . length )
+        {
+            int cap = Math . max ( readCapacity, categories . length * 2 );
+            offsets = Arrays . copyOf ( offsets, cap + 1 );
+            categories = Arrays . copyOf ( categories, cap );
+            fragments = Arrays . copyOf ( fragments, cap );
+        }
+        if ( baseCapacity > bases . length )
+        {
+            int cap = ( int ) Math . min ( Integer . MAX_VALUE - 8,
+                Math . max ( ( long ) baseCapacity, ( long ) bases . length * 2 ) );
+            bases = Arrays . copyOf ( bases, cap );
+            qualities = Arrays . copyOf ( qualities, cap );
+        }
+    }
+
+    /**
+     * Set the number of valid Reads after filling the arrays directly
+     * @param size the number of Reads in the batch
+     * @throws IndexOutOfBoundsException if size exceeds capacity
+     */
+    public void setSize ( int size )
+        throws IndexOutOfBoundsException
+    {
+        if ( size < 0 || size > categories . length )
+            throw new IndexOutOfBoundsException ( "size " + size + " exceeds capacity " + categories . length );
+        this . size = size;
+    }
+
+    /**
+     * Scratch storage for the status an implementation
+     * receives while filling, retained between fills
+     * @return an array of 1 element
+     */
+    public int [] getStatusBuffer ()
+    {
+        return statusBuffer;
+    }
+
+    /**
+     * Append a single Read
+     * @param category the Read category
+     * @param numFragments the number of biological Fragments
+     * @param readBases sequence bases
+     * @param readQualities phred quality values using ASCII offset of 33
+     */
+    public void add ( int category, int numFragments, String readBases, String readQualities )
+    {
+        int start = offsets [ size ];
+        int length = readBases . length ();
+        ensureCapacity ( size + 1, start + length );
+
+        Ascii . copy ( readBases, bases, start );
+        Ascii . copy ( readQualities . length () > length ? readQualities . substring ( 0, length ) : readQualities,
+            qualities, start );
+
+        categories [ size ] = category;
+        fragments [ size ] = numFragments;
+        offsets [ ++ size ] = start + length;
+    }
+
+    private void check ( int idx )
+        throws IndexOutOfBoundsException
+    {
+        if ( idx < 0 || idx >= size )
+            throw new IndexOutOfBoundsException ( "read index " + idx + " is out of range" );
+    }
+
+    private int size;
+    private int [] offsets;
+    private int [] categories;
+    private int [] fragments;
+    private byte [] bases;
+    private byte [] qualities;
+    private final int [] statusBuffer = new int [ 1 ];
+}
@@ -26,6 +26,7 @@
 
 package ngs;
 
+import java.util.Spliterator;
 
 /**
  *<p>
@@ -45,6 +46,7 @@ package ngs;
  *</p>
  */
 public interface ReadCollection
+    extends AutoCloseable
 {
 
     /**
@@ -229,6 +231,37 @@ public interface ReadCollection
     ReadIterator getReads ( int categories )
         throws ErrorMsg;
 
+    /**
+     * getReads with prefetching:
+     * a producer thread advances an iterator of getReads ( categories )
+     * and captures Reads with their Fragments into batches ahead of
+     * the consumer, so that decoding overlaps with processing.
+     * The producer stops and releases its iterator when the result is
+     * closed or exhausted.
+     * @param categories provides a means of filtering by ReadCategory
+     * @param options batch size, depth, captured fields and executor of the producer
+     * @return an iterator of all contained machine Reads
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default ReadIterator getReads ( int categories, PrefetchOptions options )
+        throws ErrorMsg
+    {
+        return new PrefetchReadIterator ( getReads ( categories ), options );
+    }
+
+    /**
+     * getReads passing a ReadFilter
+     * @param categories provides a means of filtering by ReadCategory
+     * @param filter further criteria a Read has to meet
+     * @return an iterator of the accepted machine Reads
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default ReadIterator getReads ( int categories, ReadFilter filter )
+        throws ErrorMsg
+    {
+        return new FilteredReadIterator ( getReads ( categories ), filter );
+    }
+
     /**
      * getReadCount
      * @return the number of reads in the collection
@@ -265,4 +298,150 @@ public interface ReadCollection
      */
     ReadIterator getReadRange ( long first, long count, int categories )
         throws ErrorMsg;
+
+    /**
+     * getReadRange passing a ReadFilter
+     * @param first is an unsigned ordinal into set
+     * @param count the number of reads
+     * @param categories provides an optional means of filtering by ReadCategory
+     * @param filter further criteria a Read has to meet
+     * @return an iterator across the accepted Reads of a range
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default ReadIterator getReadRange ( long first, long count, int categories, ReadFilter filter )
+        throws ErrorMsg
+    {
+        return new FilteredReadIterator ( getReadRange ( first, count, categories ), filter );
+    }
+
+
+
+    /*----------------------------------------------------------------------
+     * PARALLEL ACCESS
+     */
+
+    /**
+     * Divide all Reads into balanced, contiguous ranges,
+     * each with its own independent iterator.
+     * The iterators may be consumed concurrently on different threads.
+     * @param parts the desired number of ranges, &gt; 0
+     * @return between 1 and "parts" iterators, in Read order
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default ReadIterator [] split ( int parts )
+        throws ErrorMsg
+    {
+        return split ( parts, Read . all );
+    }
+
+    /**
+     * Divide all Reads into balanced, contiguous ranges,
+     * each with its own independent iterator.
+     * Ranges are balanced by Read ids, before filtering by category.
+     * @param parts the desired number of ranges, &gt; 0
+     * @param categories provides a means of filtering by ReadCategory
+     * @return between 1 and "parts" iterators, in Read order
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default ReadIterator [] split ( int parts, int categories )
+        throws ErrorMsg
+    {
+        if ( parts <= 0 )
+            throw new IllegalArgumentException ( "parts " + parts + " is not positive" );
+
+        long total = getReadCount ();
+        int n = ( int ) Math . max ( 1, Math . min ( parts, total ) );
+
+        // the first "total % n" ranges hold one extra Read
+        long size = total / n;
+        long extra = total % n;
+
+        ReadIterator [] its = new ReadIterator [ n ];
+        long first = 1;
+        for ( int i = 0; i < n; ++ i )
+        {
+            long count = size + ( i < extra ? 1 : 0 );
+            its [ i ] = getReadRange ( first, count, categories );
+            first += count;
+        }
+        return its;
+    }
+
+    /**
+     * Create a Spliterator over all Reads of every category.
+     * @return a SIZED Spliterator of Reads
+     * @throws ErrorMsg upon an error accessing data
+     * @see #spliterator(int)
+     */
+    default Spliterator < Read > spliterator ()
+        throws ErrorMsg
+    {
+        return spliterator ( Read . all );
+    }
+
+    /**
+     * Create a Spliterator over all Reads, suitable for
+     * java.util.stream.StreamSupport.stream ( spliterator, true ).
+     * Each part obtained through trySplit opens its own iterator.
+     * The Read handed to an action is only valid for the duration of the call.
+     * @param categories provides a means of filtering by ReadCategory
+     * @return a Spliterator of Reads; it reports SIZED
+     *  only if categories is Read.all
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default Spliterator < Read > spliterator ( int categories )
+        throws ErrorMsg
+    {
+        return new ReadRangeSpliterator ( this, 1, getReadCount (), categories );
+    }
+
+    /**
+     * Create a Spliterator over all Alignments of every category.
+     * @return a SIZED Spliterator of Alignments
+     * @throws ErrorMsg upon an error accessing data
+     * @see #alignmentSpliterator(int)
+     */
+    default Spliterator < Alignment > alignmentSpliterator ()
+        throws ErrorMsg
+    {
+        return alignmentSpliterator ( Alignment . all );
+    }
+
+    /**
+     * Create a Spliterator over all Alignments, suitable for
+     * java.util.stream.StreamSupport.stream ( spliterator, true ).
+     * Alignments are divided by id, and each part obtained
+     * through trySplit opens its own iterator.
+     * The Alignment handed to an action is only valid for the duration of the call.
+     * @param categories provides a means of filtering by AlignmentCategory
+     * @return a Spliterator of Alignments; it reports SIZED
+     *  only if categories is Alignment.all
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default Spliterator < Alignment > alignmentSpliterator ( int categories )
+        throws ErrorMsg
+    {
+        return new AlignmentRangeSpliterator ( this, 1, getAlignmentCount (), categories );
+    }
+
+    /**
+     * Number the References and ReadGroups of this ReadCollection.
+     * The dictionary is built anew upon every call, and is meant to be kept.
+     * @return the dictionary
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default CollectionDictionary getDictionary ()
+        throws ErrorMsg
+    {
+        return CollectionDictionary . of ( this );
+    }
+
+    /**
+     * Release the native resources held by this ReadCollection
+     * without waiting for garbage collection.
+     * The object must not be used after it has been closed.
+     * Objects obtained from it hold their own references and remain valid.
+     * Implementations without native resources need not override it.
+     */
+    default void close () {}
 }
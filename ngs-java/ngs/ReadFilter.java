@@ -0,0 +1,183 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs;
+
+
+/**
+ * Criteria for
+ * {@link ReadCollection#getReads(int,ReadFilter) ReadCollection.getReads ( categories, filter )}
+ * and {@link ReadCollection#getReadRange(long,long,int,ReadFilter) getReadRange},
+ * evaluated in addition to the Read categories.
+ *<p>
+ * Native implementations evaluate the criteria on their side of
+ * the interface, so rejected Reads are never copied into Java.
+ * The criteria are captured when the iterator is created;
+ * later changes to a ReadFilter do not affect existing iterators.
+ *</p>
+ */
+public class ReadFilter
+{
+
+    /**
+     * @return the name of the only ReadGroup accepted, or null for any
+     */
+    public String getReadGroup ()
+    {
+        return readGroup;
+    }
+
+    /**
+     * @param readGroup the name of the only ReadGroup accepted, or null for any
+     */
+    public void setReadGroup ( String readGroup )
+    {
+        this . readGroup = readGroup;
+    }
+
+    /**
+     * @return the minimum number of bases in an accepted Read
+     */
+    public long getMinLength ()
+    {
+        return minLength;
+    }
+
+    /**
+     * @param minLength the minimum number of bases in an accepted Read, &ge; 0
+     */
+    public void setMinLength ( long minLength )
+    {
+        if ( minLength < 0 )
+            throw new IllegalArgumentException ( "minimum length " + minLength + " is negative" );
+        this . minLength = minLength;
+    }
+
+    /**
+     * @return the minimum mean phred quality of an accepted Read
+     */
+    public int getMinMeanQuality ()
+    {
+        return minMeanQuality;
+    }
+
+    /**
+     * @param minMeanQuality the minimum mean phred quality of an accepted Read,
+     *  0 .. Phred.maxScore
+     */
+    public void setMinMeanQuality ( int minMeanQuality )
+    {
+        if ( minMeanQuality < 0 || minMeanQuality > Phred . maxScore )
+            throw new IllegalArgumentException ( "minimum mean quality " + minMeanQuality + " is out of range" );
+        this . minMeanQuality = minMeanQuality;
+    }
+
+    /**
+     * @return the maximum fraction of 'N' bases in an accepted Read
+     */
+    public double getMaxNFraction ()
+    {
+        return maxNFraction;
+    }
+
+    /**
+     * @param maxNFraction the maximum fraction of 'N' bases in an accepted Read, 0 .. 1
+     */
+    public void setMaxNFraction ( double maxNFraction )
+    {
+        if ( ! ( maxNFraction >= 0 && maxNFraction <= 1 ) )
+            throw new IllegalArgumentException ( "maximum N fraction " + maxNFraction + " is out of range" );
+        this . maxNFraction = maxNFraction;
+    }
+
+    /**
+     * @return true if only Reads having two or more biological Fragments are accepted
+     */
+    public boolean isPairedOnly ()
+    {
+        return pairedOnly;
+    }
+
+    /**
+     * @param pairedOnly true to accept only Reads having two or more biological Fragments
+     */
+    public void setPairedOnly ( boolean pairedOnly )
+    {
+        this . pairedOnly = pairedOnly;
+    }
+
+    /**
+     * @return true if the criteria need the bases or qualities of a Read
+     */
+    public boolean needsSequence ()
+    {
+        return minLength > 0 || minMeanQuality > 0 || maxNFraction < 1;
+    }
+
+    /**
+     * accepts
+     *  applies the criteria to the given properties of a Read
+     * @param readGroup name of the ReadGroup of the Read
+     * @param length number of bases in the Read
+     * @param qualitySum sum of the phred qualities of the Read
+     * @param nCount number of 'N' bases in the Read
+     * @param fragments number of biological Fragments in the Read
+     * @return true if the Read is accepted
+     */
+    public boolean accepts ( String readGroup, long length, long qualitySum, long nCount, int fragments )
+    {
+        if ( pairedOnly && fragments < 2 )
+            return false;
+        if ( this . readGroup != null && ! this . readGroup . equals ( readGroup ) )
+            return false;
+        if ( length < minLength )
+            return false;
+        if ( qualitySum < ( long ) minMeanQuality * length )
+            return false;
+        return nCount <= maxNFraction * length;
+    }
+
+    /**
+     * @return a copy of these criteria
+     */
+    public ReadFilter copy ()
+    {
+        ReadFilter c = new ReadFilter ();
+        c . readGroup = readGroup;
+        c . minLength = minLength;
+        c . minMeanQuality = minMeanQuality;
+        c . maxNFraction = maxNFraction;
+        c . pairedOnly = pairedOnly;
+        return c;
+    }
+
+    private String readGroup;
+    private long minLength;
+    private int minMeanQuality;
+    private double maxNFraction = 1;
+    private boolean pairedOnly;
+}
@@ -31,6 +31,7 @@ package ngs;
  * Represents an NGS-capable object with a group of Reads
  */
 public interface ReadGroup
+    extends AutoCloseable
 {
 
     /**
@@ -53,4 +54,12 @@ public interface ReadGroup
      */
     Statistics getStatistics ()
         throws ErrorMsg;
+
+    /**
+     * Release the native resources held by this ReadGroup
+     * without waiting for garbage collection.
+     * The object must not be used after it has been closed.
+     * Implementations without native resources need not override it.
+     */
+    default void close () {}
 }
@@ -26,6 +26,8 @@
 
 package ngs;
 
+import java.util.Spliterator;
+
 
 /**
  * Iterates across a list of ReadGroups
@@ -42,4 +44,18 @@ public interface ReadGroupIterator
      */
     boolean nextReadGroup ()
         throws ErrorMsg;
+
+    /**
+     * Adapt this iterator to a Spliterator, suitable for
+     * java.util.stream.StreamSupport.stream ( spliterator, false ).
+     * Each advance of the Spliterator advances this iterator.
+     * The Spliterator cannot be split.
+     * The ReadGroup handed to an action is this iterator itself,
+     * and is only valid for the duration of the call.
+     * @return a Spliterator of ReadGroups
+     */
+    default Spliterator < ReadGroup > spliterator ()
+    {
+        return new CursorSpliterator < ReadGroup, ReadGroupIterator > ( this, ReadGroupIterator :: nextReadGroup );
+    }
 }
@@ -26,6 +26,8 @@
 
 package ngs;
 
+import java.util.Spliterator;
+
 
 /*--------------------------------------------------------------------------
  * ReadIterator
@@ -43,4 +45,43 @@ public interface ReadIterator
      */
     boolean nextRead ()
         throws ErrorMsg;
+
+    /**
+     * Advance by up to "max" Reads, copying each into "batch".
+     * The batch is cleared first and grows as needed.
+     * Upon return, the iterator is positioned on the last Read copied.
+     * @param batch receives the Reads
+     * @param max the maximum number of Reads to copy
+     * @return the number of Reads copied, 0 if no more Reads are available.
+     * @throws ErrorMsg if more Reads should be available, but could not be accessed.
+     */
+    default int nextReadBatch ( ReadBatch batch, int max )
+        throws ErrorMsg
+    {
+        if ( max < 0 )
+            throw new IllegalArgumentException ( "max " + max + " is negative" );
+
+        batch . clear ();
+        while ( batch . size () < max && nextRead () )
+        {
+            batch . add ( getReadCategory (), getNumFragments (),
+                getReadBases (), getReadQualities () );
+        }
+        return batch . size ();
+    }
+
+    /**
+     * Adapt this iterator to a Spliterator, suitable for
+     * java.util.stream.StreamSupport.stream ( spliterator, false ).
+     * Each advance of the Spliterator advances this iterator.
+     * The Spliterator cannot be split; see ReadCollection.spliterator
+     * for parallel traversal.
+     * The Read handed to an action is this iterator itself,
+     * and is only valid for the duration of the call.
+     * @return a Spliterator of Reads
+     */
+    default Spliterator < Read > spliterator ()
+    {
+        return new CursorSpliterator < Read, ReadIterator > ( this, ReadIterator :: nextRead );
+    }
 }
@@ -26,11 +26,16 @@
 
 package ngs;
 
+import ngs.internal.Bounds;
+
+import java.util.Spliterator;
+
 
 /**
  * Represents a reference sequence
  */
 public interface Reference
+    extends AutoCloseable
 {
 
     /**
@@ -127,6 +132,24 @@ public interface Reference
     String getReferenceChunk ( long offset, long length )
         throws ErrorMsg;
 
+    /**
+     * getReferenceBases into a byte array
+     * @param offset is zero-based and non-negative
+     * @param length must be &ge; 0
+     * @param dst receives sequence bases as ASCII bytes
+     * @param dstOffset is the zero-based position in dst of the first base
+     * @return the number of bases within the requested range;
+     *  if it exceeds the space available, only as many bytes as fit have been copied
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException upon invalid offset/length/dstOffset
+     */
+    default int getReferenceBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        return Ascii . copy ( getReferenceBases ( offset, length ), dst, dstOffset );
+    }
+
     /*----------------------------------------------------------------------
      * ALIGNMENTS
      */
@@ -207,6 +230,27 @@ public interface Reference
         throws ErrorMsg;
 
 
+    /**
+     * Create a Spliterator over the Alignments within a window of the Reference,
+     * suitable for java.util.stream.StreamSupport.stream ( spliterator, true ).
+     * The window is divided by position, and each part obtained
+     * through trySplit opens its own iterator over the Alignments
+     * that start within it, so that every Alignment is seen exactly once.
+     * Its size is estimated from getAlignmentCount.
+     * The Alignment handed to an action is only valid for the duration of the call.
+     * @param start is a signed 0-based offset from the start of the Reference
+     * @param length is the length of the window
+     * @param categories provides a means of filtering by AlignmentCategory
+     * @return a Spliterator of Alignments
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default Spliterator < Alignment > alignmentSpliterator ( long start, long length, int categories )
+        throws ErrorMsg
+    {
+        return AlignmentSliceSpliterator . over ( this, start, length, categories );
+    }
+
+
     /*----------------------------------------------------------------------
      * PILEUP
      */
@@ -270,4 +314,78 @@ public interface Reference
     PileupIterator getFilteredPileupSlice ( long start, long length,
             int categories, int filters, int mappingQuality )
         throws ErrorMsg;
+
+    /**
+     * getPileupSummary
+     * Count bases, insertions and deletions at every position of a window,
+     * without creating a PileupEvent per base.
+     * @param start is the signed starting position on reference
+     * @param length is the unsigned number of bases in the window
+     * @param categories provides a means of filtering by AlignmentCategory
+     * @param filters is a set of filter bits defined in Alignment
+     * @param minMapQ when &gt; 0, only Alignments with at least this
+     *  mapping quality are counted, as with Alignment.minMapQuality
+     * @return per-position counts
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default PileupSummary getPileupSummary ( long start, long length, int categories, int filters, int minMapQ )
+        throws ErrorMsg
+    {
+        PileupSummary summary = new PileupSummary ( start, length );
+        if ( minMapQ > 0 )
+            filters |= Alignment . minMapQuality;
+
+        PileupIterator it = getFilteredPileupSlice ( start, length, categories, filters, minMapQ );
+        try
+        {
+            while ( it . nextPileup () )
+            {
+                long index = it . getReferencePosition () - start;
+                if ( index < 0 || index >= length )
+                    continue;
+
+                int i = ( int ) index;
+                summary . setDepth ( i, it . getPileupDepth () );
+                while ( it . nextPileupEvent () )
+                {
+                    int e = it . getEventType ();
+                    int evt = e & 7;
+                    char base = evt == PileupEvent . match || evt == PileupEvent . mismatch ?
+                        it . getAlignmentBase () : 0;
+                    summary . addEvent ( i, e, base );
+                }
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return summary;
+    }
+
+    /**
+     * Create a Spliterator over the Pileups within a window of the Reference,
+     * suitable for java.util.stream.StreamSupport.stream ( spliterator, true ).
+     * The window is divided by position, and each part obtained
+     * through trySplit opens its own iterator.
+     * The Pileup handed to an action is only valid for the duration of the call.
+     * @param start is the signed starting position on reference
+     * @param length is the unsigned number of bases in the window
+     * @param categories provides a means of filtering by AlignmentCategory
+     * @return a Spliterator of Pileups, estimating one per position
+     * @throws ErrorMsg upon an error accessing data
+     */
+    default Spliterator < Pileup > pileupSpliterator ( long start, long length, int categories )
+        throws ErrorMsg
+    {
+        return new PileupSliceSpliterator ( this, start, length, categories );
+    }
+
+    /**
+     * Release the native resources held by this Reference
+     * without waiting for garbage collection.
+     * The object must not be used after it has been closed.
+     * Implementations without native resources need not override it.
+     */
+    default void close () {}
 }
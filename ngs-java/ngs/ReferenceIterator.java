@@ -26,6 +26,8 @@
 
 package ngs;
 
+import java.util.Spliterator;
+
 
 /** 
  * Iterates across a list of References
@@ -41,4 +43,18 @@ public interface ReferenceIterator
      */
     boolean nextReference ()
         throws ErrorMsg;
+
+    /**
+     * Adapt this iterator to a Spliterator, suitable for
+     * java.util.stream.StreamSupport.stream ( spliterator, false ).
+     * Each advance of the Spliterator advances this iterator.
+     * The Spliterator cannot be split.
+     * The Reference handed to an action is this iterator itself,
+     * and is only valid for the duration of the call.
+     * @return a Spliterator of References
+     */
+    default Spliterator < Reference > spliterator ()
+    {
+        return new CursorSpliterator < Reference, ReferenceIterator > ( this, ReferenceIterator :: nextReference );
+    }
 }
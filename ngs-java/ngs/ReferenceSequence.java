@@ -31,6 +31,7 @@ package ngs;
  * Represents a reference sequence standalone object
  */
 public interface ReferenceSequence
+    extends AutoCloseable
 {
     /** 
      * getCanonicalName
@@ -106,4 +107,12 @@ public interface ReferenceSequence
      */
     String getReferenceChunk ( long offset, long length )
         throws ErrorMsg;
+
+    /**
+     * Release the native resources held by this ReferenceSequence
+     * without waiting for garbage collection.
+     * The object must not be used after it has been closed.
+     * Implementations without native resources need not override it.
+     */
+    default void close () {}
 }
@@ -31,6 +31,7 @@ package ngs;
  * Statistical data container
  */
 public interface Statistics
+    extends AutoCloseable
 {
 
     /**
@@ -92,4 +93,12 @@ public interface Statistics
      * @return null if no more paths, or a valid path string
      */
     String nextPath ( String path );
+
+    /**
+     * Release the native resources held by this Statistics
+     * without waiting for garbage collection.
+     * The object must not be used after it has been closed.
+     * Implementations without native resources need not override it.
+     */
+    default void close () {}
 }
@@ -0,0 +1,457 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.internal.Tasks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/**
+ *<p>
+ * Sorts Alignments by Reference, in the order of their ReadCollection,
+ * and by position, within a bounded amount of memory.
+ *</p>
+ *<p>
+ * Alignments are encoded on the calling thread as BAM records into
+ * buffers carved out of the memory budget. A full buffer is sorted and
+ * spilled to a temporary file on a pool thread, while the next one
+ * fills up. The runs so produced are memory-mapped and merged as the
+ * returned iterator advances; the last buffer is merged straight from
+ * memory, so input that fits the budget never touches the disk.
+ * Alignments equal in Reference and position keep their input order.
+ *</p>
+ *<p>
+ * The sorted Alignments are read from their records: their ids are kept
+ * with them, while Reference bases and mate Alignments are not available.
+ * Closing the iterator deletes its temporary files.
+ *</p>
+ */
+public class AlignmentSorter
+    implements AutoCloseable
+{
+
+    /** default bytes of memory for buffering records */
+    public static final long defaultMemoryBudget = 1L << 30;
+
+    /**
+     * Create a sorter with its own pool of daemon threads,
+     * shut down by "close".
+     * @param threads the number of threads sorting and spilling buffers, &gt; 0
+     */
+    public AlignmentSorter ( int threads )
+    {
+        if ( threads <= 0 )
+            throw new IllegalArgumentException ( "threads " + threads + " is not positive" );
+
+        this . pool = Tasks . daemonPool ( threads, "ngs-sort-" );
+        this . owned = true;
+        this . parallelism = threads;
+    }
+
+    /**
+     * Create a sorter that sorts and spills on an existing pool,
+     * which is left running by "close".
+     * @param pool sorts and spills buffers
+     * @param parallelism the number of threads expected to serve the sorter, &gt; 0
+     */
+    public AlignmentSorter ( ExecutorService pool, int parallelism )
+    {
+        if ( parallelism <= 0 )
+            throw new IllegalArgumentException ( "parallelism " + parallelism + " is not positive" );
+
+        this . pool = pool;
+        this . owned = false;
+        this . parallelism = parallelism;
+    }
+
+    /**
+     * @param bytes the memory for buffering records, shared by
+     *  parallelism + 1 buffers; at least 16MB
+     */
+    public void setMemoryBudget ( long bytes )
+    {
+        if ( bytes < minMemoryBudget )
+            throw new IllegalArgumentException ( "memory budget " + bytes + " is below " + minMemoryBudget );
+        this . memoryBudget = bytes;
+    }
+
+    /**
+     * @param dir the directory receiving the runs spilled to disk
+     */
+    public void setTempDirectory ( Path dir )
+    {
+        this . tempDirectory = dir;
+    }
+
+    /**
+     * Sort the Alignments of a ReadCollection
+     * @param coll the ReadCollection
+     * @param categories the categories of Alignments to sort
+     * @return the sorted Alignments
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error spilling to disk
+     */
+    public AlignmentIterator sort ( ReadCollection coll, int categories )
+        throws ErrorMsg, IOException
+    {
+        AlignmentIterator it = coll . getAlignments ( categories );
+        try
+        {
+            return sort ( coll, it );
+        }
+        finally
+        {
+            it . close ();
+        }
+    }
+
+    /**
+     * Sort Alignments from an iterator
+     * @param coll the ReadCollection declaring the References
+     * @param it delivers the Alignments, in any order
+     * @return the sorted Alignments
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error spilling to disk
+     */
+    public AlignmentIterator sort ( ReadCollection coll, AlignmentIterator it )
+        throws ErrorMsg, IOException
+    {
+        BamEncoder enc = new BamEncoder ( coll );
+
+        // Alignments read from BAM records have no ids to keep
+        boolean ids = ! ( it instanceof BamRecordAlignment );
+        enc . setIds ( ids );
+
+        long share = memoryBudget / ( parallelism + 1 ) / 4 * 3;
+        int capacity = ( int ) Math . min ( share, maxBufferSize );
+        Session s = new Session ( capacity );
+        try
+        {
+            Buffer b = s . take ();
+            while ( it . nextAlignment () )
+            {
+                int size = enc . encode ( it );
+                long key = ( long ) enc . refId << 32 | ( enc . pos & 0xffffffffL );
+                if ( b . add ( enc . record (), size, key ) )
+                    continue;
+
+                if ( b . count == 0 )
+                    throw new ErrorMsg ( "an Alignment of " + size + " bytes does not fit the sort buffers of " + capacity );
+                s . spill ( b );
+                b = s . take ();
+                b . add ( enc . record (), size, key );
+            }
+
+            // the last buffer is merged from memory
+            while ( ! s . inflight . isEmpty () )
+                s . drain ();
+            b . sort ();
+            s . runs . add ( new SortedAlignmentIterator . Run ( s . runs . size (),
+                b . view, Arrays . copyOf ( b . offsets, b . count ), b . count, null ) );
+
+            ArrayList < SortedAlignmentIterator . Run > runs = s . runs;
+            s . runs = null;
+            return new SortedAlignmentIterator ( enc . names, runs, ids );
+        }
+        finally
+        {
+            s . abandon ();
+        }
+    }
+
+    /**
+     * Shut down the pool, if it was created by this sorter.
+     */
+    public void close ()
+    {
+        if ( owned )
+            pool . shutdown ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Buffer
+     *  encoded records in input order, with their sort keys and offsets
+     */
+    private static class Buffer
+    {
+        boolean add ( byte [] record, int size, long key )
+        {
+            if ( used + size > data . length )
+                return false;
+            if ( count == keys . length )
+            {
+                keys = Arrays . copyOf ( keys, count * 2 );
+                offsets = Arrays . copyOf ( offsets, count * 2 );
+            }
+            keys [ count ] = key;
+            offsets [ count ] = used;
+            ++ count;
+            System . arraycopy ( record, 0, data, used, size );
+            used += size;
+            return true;
+        }
+
+        /* sort
+         *  the offsets by key, stably
+         */
+        void sort ()
+        {
+            if ( tmpKeys . length < count )
+            {
+                tmpKeys = new long [ keys . length ];
+                tmpOffsets = new int [ keys . length ];
+            }
+            mergeSort ( 0, count );
+        }
+
+        void clear ()
+        {
+            count = 0;
+            used = 0;
+        }
+
+        Buffer ( int capacity )
+        {
+            data = new byte [ capacity ];
+            view = ByteBuffer . wrap ( data ) . order ( ByteOrder . LITTLE_ENDIAN );
+        }
+
+        private void mergeSort ( int lo, int hi )
+        {
+            if ( hi - lo < 2 )
+                return;
+            int mid = ( lo + hi ) >>> 1;
+            mergeSort ( lo, mid );
+            mergeSort ( mid, hi );
+            if ( keys [ mid - 1 ] <= keys [ mid ] )
+                return;
+
+            int i = lo, j = mid, k = lo;
+            while ( i < mid && j < hi )
+            {
+                if ( keys [ j ] < keys [ i ] )
+                {
+                    tmpKeys [ k ] = keys [ j ];
+                    tmpOffsets [ k ++ ] = offsets [ j ++ ];
+                }
+                else
+                {
+                    tmpKeys [ k ] = keys [ i ];
+                    tmpOffsets [ k ++ ] = offsets [ i ++ ];
+                }
+            }
+            while ( i < mid )
+            {
+                tmpKeys [ k ] = keys [ i ];
+                tmpOffsets [ k ++ ] = offsets [ i ++ ];
+            }
+            System . arraycopy ( tmpKeys, lo, keys, lo, j - lo );
+            System . arraycopy ( tmpOffsets, lo, offsets, lo, j - lo );
+        }
+
+        final byte [] data;
+        final ByteBuffer view;
+        int used;
+        int count;
+        long [] keys = new long [ 1024 ];
+        int [] offsets = new int [ 1024 ];
+        private long [] tmpKeys = new long [ 0 ];
+        private int [] tmpOffsets = new int [ 0 ];
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Spilled
+     *  a buffer written out as a run, and the file holding it
+     */
+    private static class Spilled
+    {
+        Spilled ( Buffer buffer, Path file )
+        {
+            this . buffer = buffer;
+            this . file = file;
+        }
+
+        final Buffer buffer;
+        final Path file;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Session
+     *  the buffers and runs of one sort
+     */
+    private class Session
+    {
+        /* take
+         *  an empty buffer, waiting for one to be spilled if all are in use
+         */
+        Buffer take ()
+            throws ErrorMsg, IOException
+        {
+            if ( free . isEmpty () && allocated < parallelism + 1 )
+            {
+                ++ allocated;
+                return new Buffer ( capacity );
+            }
+            while ( free . isEmpty () )
+                drain ();
+            Buffer b = free . poll ();
+            b . clear ();
+            return b;
+        }
+
+        /* spill
+         *  sort and write a buffer on the pool
+         */
+        void spill ( Buffer b )
+            throws ErrorMsg, IOException
+        {
+            Path file = Files . createTempFile ( tempDirectory, "ngs-sort-", ".run" );
+            files . add ( file );
+            inflight . add ( pool . submit ( () -> write ( b, file ) ) );
+        }
+
+        /* drain
+         *  map the oldest run spilled, taking its buffer back
+         */
+        void drain ()
+            throws ErrorMsg, IOException
+        {
+            Spilled s = Tasks . awaitIO ( inflight . poll (), "sorted run" );
+            ByteBuffer map;
+            try ( FileChannel ch = FileChannel . open ( s . file, StandardOpenOption . READ ) )
+            {
+                map = ch . map ( FileChannel . MapMode . READ_ONLY, 0, ch . size () ) . order ( ByteOrder . LITTLE_ENDIAN );
+            }
+            runs . add ( new SortedAlignmentIterator . Run ( runs . size (), map, null, 0, s . file ) );
+            free . add ( s . buffer );
+        }
+
+        /* abandon
+         *  after a failure: let spills finish, then delete their files
+         */
+        void abandon ()
+        {
+            if ( runs == null )
+                return;
+            Tasks . abandon ( inflight, false );
+            for ( Path file : files )
+            {
+                try
+                {
+                    Files . deleteIfExists ( file );
+                }
+                catch ( IOException x )
+                {
+                    // left to the temporary directory
+                }
+            }
+        }
+
+        Session ( int capacity )
+        {
+            this . capacity = capacity;
+        }
+
+        final int capacity;
+        final ArrayDeque < Future < Spilled > > inflight = new ArrayDeque < Future < Spilled > > ();
+        final ArrayDeque < Buffer > free = new ArrayDeque < Buffer > ();
+        final ArrayList < Path > files = new ArrayList < Path > ();
+        ArrayList < SortedAlignmentIterator . Run > runs = new ArrayList < SortedAlignmentIterator . Run > ();
+        int allocated;
+    }
+
+    /* write
+     *  sort a buffer and write its records in order, on a pool thread
+     */
+    private static Spilled write ( Buffer b, Path file )
+        throws IOException
+    {
+        b . sort ();
+
+        ByteBuffer stage = ByteBuffer . allocate ( stageSize );
+        try ( FileChannel out = FileChannel . open ( file, StandardOpenOption . WRITE, StandardOpenOption . TRUNCATE_EXISTING ) )
+        {
+            for ( int i = 0; i < b . count; ++ i )
+            {
+                int at = b . offsets [ i ];
+                int size = 4 + b . view . getInt ( at );
+                if ( stage . remaining () < size )
+                    flush ( out, stage );
+                if ( size > stage . capacity () )
+                {
+                    ByteBuffer big = ByteBuffer . wrap ( b . data, at, size );
+                    while ( big . hasRemaining () )
+                        out . write ( big );
+                    continue;
+                }
+                stage . put ( b . data, at, size );
+            }
+            flush ( out, stage );
+        }
+        return new Spilled ( b, file );
+    }
+
+    private static void flush ( FileChannel out, ByteBuffer stage )
+        throws IOException
+    {
+        stage . flip ();
+        while ( stage . hasRemaining () )
+            out . write ( stage );
+        stage . clear ();
+    }
+
+    private static final long minMemoryBudget = 16L << 20;
+    private static final long maxBufferSize = 1L << 30;
+    private static final int stageSize = 1 << 20;
+
+    private final ExecutorService pool;
+    private final boolean owned;
+    private final int parallelism;
+    private long memoryBudget = defaultMemoryBudget;
+    private Path tempDirectory = Paths . get ( System . getProperty ( "java.io.tmpdir" ) );
+}
@@ -0,0 +1,174 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+
+
+/*==========================================================================
+ * BamAlignmentIterator
+ *  iterates the mapped records of a BamFile, either all of them in
+ *  file order or those overlapping a slice of one Reference,
+ *  read from the ranges of virtual offsets the index points to
+ */
+class BamAlignmentIterator
+    extends BamRecordAlignment
+    implements AlignmentIterator
+{
+
+    /*----------------------------------------------------------------------
+     * AlignmentIterator
+     */
+
+    public boolean nextAlignment ()
+        throws ErrorMsg
+    {
+        if ( done )
+            return false;
+
+        rec = null;
+        if ( in == null )
+        {
+            in = new BgzfInput ( file, file . ahead );
+            in . seek ( chunks == null ? file . firstRecord : chunks [ 0 ] );
+        }
+
+        while ( true )
+        {
+            // move on to the next range once past the end of this one
+            if ( chunks != null && Long . compareUnsigned ( in . tell (), chunks [ chunk + 1 ] ) >= 0 )
+            {
+                chunk += 2;
+                if ( chunk >= chunks . length )
+                    return finish ();
+                in . seek ( chunks [ chunk ] );
+            }
+
+            if ( ! buf . read ( in ) )
+                return finish ();
+
+            int sel = select ( buf );
+            if ( sel > 0 )
+            {
+                rec = buf;
+                return true;
+            }
+            if ( sel < 0 )
+                return finish ();
+        }
+    }
+
+    public void close ()
+    {
+        finish ();
+    }
+
+    /* constructor
+     *  all records if "chunks" is null, otherwise the records within
+     *  the ranges of virtual offsets; if "ref" is not negative, only
+     *  those of that Reference overlapping [ start, end ), or starting
+     *  within it when filters include startWithinSlice.
+     *  a "sorted" input ends at the first record past the slice
+     */
+    BamAlignmentIterator ( BamFile file, long [] chunks, int categories, int filters, int mappingQuality,
+                           int ref, long start, long end, boolean sorted )
+    {
+        super ( file . refNames );
+        this . file = file;
+        this . chunks = chunks;
+        this . categories = categories;
+        this . filters = filters;
+        this . mappingQuality = mappingQuality;
+        this . ref = ref;
+        this . start = start;
+        this . end = end;
+        this . sorted = sorted;
+        this . done = chunks != null && chunks . length == 0;
+    }
+
+    /* select
+     *  1 to pass a record, 0 to skip it, -1 if no more can pass
+     */
+    private int select ( BamRecordView r )
+    {
+        int flag = r . flag ();
+        if ( ( flag & BamRecordView . unmapped ) != 0 || r . refId () < 0 )
+            return 0;
+
+        if ( ref >= 0 )
+        {
+            if ( r . refId () != ref )
+                return sorted ? -1 : 0;
+            long pos = r . pos ();
+            if ( pos >= end )
+                return sorted ? -1 : 0;
+            if ( ( filters & Alignment . startWithinSlice ) != 0 ? pos < start : pos + r . refLength () <= start )
+                return 0;
+        }
+
+        if ( ( category ( r ) & categories ) == 0 )
+            return 0;
+        if ( ( flag & BamRecordView . qcFail ) != 0 && ( filters & Alignment . passFailed ) == 0 )
+            return 0;
+        if ( ( flag & BamRecordView . duplicate ) != 0 && ( filters & Alignment . passDuplicates ) == 0 )
+            return 0;
+        if ( ( filters & Alignment . minMapQuality ) != 0 && r . mapq () < mappingQuality )
+            return 0;
+        if ( ( filters & Alignment . maxMapQuality ) != 0 && r . mapq () > mappingQuality )
+            return 0;
+        return 1;
+    }
+
+    private boolean finish ()
+    {
+        done = true;
+        rec = null;
+        if ( in != null )
+        {
+            in . close ();
+            in = null;
+        }
+        return false;
+    }
+
+    private final BamFile file;
+    private final long [] chunks;
+    private final int categories;
+    private final int filters;
+    private final int mappingQuality;
+    private final int ref;
+    private final long start;
+    private final long end;
+    private final boolean sorted;
+
+    private final BamRecordView buf = new BamRecordView ();
+    private BgzfInput in;
+    private int chunk;          // index into chunks of the current range
+}
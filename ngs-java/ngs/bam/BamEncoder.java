@@ -0,0 +1,361 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.ErrorMsg;
+import ngs.Phred;
+import ngs.ReadCollection;
+import ngs.ReadGroupIterator;
+import ngs.ReferenceIterator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+
+/*==========================================================================
+ * BamEncoder
+ *  encodes Alignments as BAM records, against the References and
+ *  ReadGroups of a ReadCollection, in its order
+ *
+ *  bases and qualities are copied through the byte array accessors
+ *  into buffers reused from record to record. the ids of an Alignment,
+ *  its Fragment and its mate may be kept as the local tags "ai", "fi"
+ *  and "mi", which BamRecordView based iterators give back
+ */
+final class BamEncoder
+{
+
+    /* local tags of the ids */
+    static final String alignmentIdTag = "ai";
+    static final String fragmentIdTag = "fi";
+    static final String mateIdTag = "mi";
+
+    final String [] names;
+    final long [] lengths;
+    final boolean [] circular;
+    final String [] groups;
+
+    /* of the last record encoded */
+    int refId;
+    long pos;
+    long refLength;
+
+    BamEncoder ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        ArrayList < String > names = new ArrayList < String > ();
+        ArrayList < Long > lengths = new ArrayList < Long > ();
+        ArrayList < Boolean > circular = new ArrayList < Boolean > ();
+        ReferenceIterator ref = coll . getReferences ();
+        while ( ref . nextReference () )
+        {
+            String name = ref . getCanonicalName ();
+            index . put ( name, names . size () );
+            index . putIfAbsent ( ref . getCommonName (), names . size () );
+            names . add ( name );
+            lengths . add ( ref . getLength () );
+            circular . add ( ref . getIsCircular () );
+        }
+
+        ArrayList < String > groups = new ArrayList < String > ();
+        ReadGroupIterator rg = coll . getReadGroups ();
+        while ( rg . nextReadGroup () )
+        {
+            String name = rg . getName ();
+            if ( ! name . isEmpty () )
+                groups . add ( name );
+        }
+
+        this . names = names . toArray ( new String [ names . size () ] );
+        this . lengths = new long [ names . size () ];
+        this . circular = new boolean [ names . size () ];
+        for ( int i = 0; i < this . names . length; ++ i )
+        {
+            this . lengths [ i ] = lengths . get ( i );
+            this . circular [ i ] = circular . get ( i );
+        }
+        this . groups = groups . toArray ( new String [ groups . size () ] );
+    }
+
+    /* setIds
+     *  keep the ids of Alignments in local tags
+     */
+    void setIds ( boolean ids )
+    {
+        this . ids = ids;
+    }
+
+    /* header
+     *  the magic, the SAM text and the Reference dictionary
+     */
+    byte [] header ()
+    {
+        StringBuilder text = new StringBuilder ( "@HD\tVN:1.6\tSO:coordinate\n" );
+        for ( int i = 0; i < names . length; ++ i )
+        {
+            text . append ( "@SQ\tSN:" ) . append ( names [ i ] ) . append ( "\tLN:" ) . append ( lengths [ i ] );
+            if ( circular [ i ] )
+                text . append ( "\tTP:circular" );
+            text . append ( '\n' );
+        }
+        for ( String g : groups )
+            text . append ( "@RG\tID:" ) . append ( g ) . append ( '\n' );
+
+        byte [] t = text . toString () . getBytes ( StandardCharsets . UTF_8 );
+        int size = 12 + t . length;
+        for ( String name : names )
+            size += 9 + name . getBytes ( StandardCharsets . UTF_8 ) . length;
+
+        ByteBuffer h = ByteBuffer . allocate ( size ) . order ( ByteOrder . LITTLE_ENDIAN );
+        h . put ( new byte [] { 'B', 'A', 'M', 1 } );
+        h . putInt ( t . length );
+        h . put ( t );
+        h . putInt ( names . length );
+        for ( int i = 0; i < names . length; ++ i )
+        {
+            byte [] name = names [ i ] . getBytes ( StandardCharsets . UTF_8 );
+            h . putInt ( name . length + 1 );
+            h . put ( name );
+            h . put ( ( byte ) 0 );
+            h . putInt ( ( int ) Math . min ( lengths [ i ], Integer . MAX_VALUE ) );
+        }
+        return h . array ();
+    }
+
+    /* encode
+     *  the current Alignment, block_size included, into "record ()"
+     *  returns the size of the record
+     */
+    int encode ( Alignment a )
+        throws ErrorMsg
+    {
+        Integer id = index . get ( a . getReferenceSpec () );
+        if ( id == null )
+            throw new ErrorMsg ( "Reference not found: '" + a . getReferenceSpec () + "'" );
+        refId = id;
+        pos = a . getAlignmentPosition ();
+        refLength = a . getAlignmentLength ();
+
+        boolean rev = a . getIsReversedOrientation ();
+        int cigarCount = cigar ( a );
+        int seqLength = bases ( a, rev );
+
+        int flag = 0;
+        if ( a . isPaired () )
+            flag |= BamRecordView . paired;
+        boolean mate = a . hasMate ();
+        int nextRef = -1;
+        long nextPos = -1;
+        long tlen = 0;
+        if ( mate )
+        {
+            if ( a . getMateIsReversedOrientation () )
+                flag |= BamRecordView . mateReversed;
+            Integer m = index . get ( a . getMateReferenceSpec () );
+            nextRef = m == null ? -1 : m;
+            nextPos = matePosition ( a );
+            tlen = a . getTemplateLength ();
+        }
+        else if ( ( flag & BamRecordView . paired ) != 0 )
+            flag |= BamRecordView . mateUnmapped;
+        if ( rev )
+            flag |= BamRecordView . reversed;
+        if ( a . getAlignmentCategory () == Alignment . secondaryAlignment )
+            flag |= BamRecordView . secondary;
+
+        String name = a . getReadId ();
+        int nameLength = Math . min ( name . length (), 254 );
+        String group = a . getReadGroup ();
+        String alignmentId = ids ? a . getAlignmentId () : "";
+        String fragmentId = ids ? a . getFragmentId () : "";
+        String mateId = ids && mate ? a . getMateAlignmentId () : "";
+        ensure ( 60 + nameLength + cigarCount * 4 + seqLength * 2 + group . length ()
+                 + alignmentId . length () + fragmentId . length () + mateId . length () );
+
+        // bins beyond the reach of .bai hold the place of an unknown one
+        long end = pos + Math . max ( refLength, 1 );
+        int bin = end <= baiLimit ? ( int ) BamIndexBuilder . reg2bin ( pos, end, 5 ) : 4680;
+
+        rec . clear ();
+        rec . putInt ( 0 );     // block_size, set below
+        rec . putInt ( refId );
+        rec . putInt ( ( int ) pos );
+        rec . put ( ( byte ) ( nameLength + 1 ) );
+        rec . put ( ( byte ) Math . min ( a . getMappingQuality (), 255 ) );
+        rec . putShort ( ( short ) bin );
+        rec . putShort ( ( short ) cigarCount );
+        rec . putShort ( ( short ) flag );
+        rec . putInt ( seqLength );
+        rec . putInt ( nextRef );
+        rec . putInt ( ( int ) nextPos );
+        rec . putInt ( ( int ) tlen );
+        for ( int i = 0; i < nameLength; ++ i )
+            rec . put ( ( byte ) name . charAt ( i ) );
+        rec . put ( ( byte ) 0 );
+        for ( int i = 0; i < cigarCount; ++ i )
+            rec . putInt ( cigar [ i ] );
+        for ( int i = 0; i < seqLength; i += 2 )
+        {
+            int hi = BamRecordView . seqCodes [ bases [ i ] & 0x7f ];
+            int lo = i + 1 < seqLength ? BamRecordView . seqCodes [ bases [ i + 1 ] & 0x7f ] : 0;
+            rec . put ( ( byte ) ( hi << 4 | lo ) );
+        }
+        rec . put ( quals, 0, seqLength );
+        stringTag ( "RG", group );
+        stringTag ( alignmentIdTag, alignmentId );
+        stringTag ( fragmentIdTag, fragmentId );
+        stringTag ( mateIdTag, mateId );
+        rec . putInt ( 0, rec . position () - 4 );
+
+        return rec . position ();
+    }
+
+    /* record
+     *  the storage of the last record encoded
+     */
+    byte [] record ()
+    {
+        return rec . array ();
+    }
+
+    /* stringTag
+     *  a 'Z' field, unless "value" is empty
+     */
+    private void stringTag ( String tag, String value )
+    {
+        if ( value . isEmpty () )
+            return;
+        rec . put ( ( byte ) tag . charAt ( 0 ) ) . put ( ( byte ) tag . charAt ( 1 ) ) . put ( ( byte ) 'Z' );
+        for ( int i = 0; i < value . length (); ++ i )
+            rec . put ( ( byte ) value . charAt ( i ) );
+        rec . put ( ( byte ) 0 );
+    }
+
+    /* cigar
+     *  the unclipped CIGAR into "cigar", growing it as needed
+     */
+    private int cigar ( Alignment a )
+        throws ErrorMsg
+    {
+        int n = a . getCigarOps ( false, cigar, 0 );
+        if ( n > cigar . length )
+        {
+            cigar = new int [ n ];
+            n = a . getCigarOps ( false, cigar, 0 );
+        }
+        return n;
+    }
+
+    /* bases
+     *  bases and raw scores in the orientation of the Reference,
+     *  into "bases" and "quals"; scores of 0xff if there are none
+     */
+    private int bases ( Alignment a, boolean rev )
+        throws ErrorMsg
+    {
+        int n = a . getFragmentBases ( bases, 0 );
+        if ( n > bases . length )
+        {
+            bases = new byte [ n * 2 ];
+            quals = new byte [ n * 2 ];
+            a . getFragmentBases ( bases, 0 );
+        }
+        if ( a . getFragmentQualityScores ( quals, 0, Phred . raw ) != n )
+            Arrays . fill ( quals, 0, n, ( byte ) 0xff );
+
+        if ( rev )
+        {
+            for ( int i = 0, j = n - 1; i <= j; ++ i, -- j )
+            {
+                byte b = BamRecordView . complement [ bases [ i ] & 0x7f ];
+                bases [ i ] = BamRecordView . complement [ bases [ j ] & 0x7f ];
+                bases [ j ] = b;
+                byte q = quals [ i ];
+                quals [ i ] = quals [ j ];
+                quals [ j ] = q;
+            }
+        }
+        return n;
+    }
+
+    /* matePosition
+     *  read from the record of a BAM-backed Alignment; otherwise left
+     *  by the mate when it was encoded first, else looked up, in which
+     *  case this position is left for the mate; -1 if the mate cannot
+     *  be looked up
+     */
+    private long matePosition ( Alignment a )
+    {
+        try
+        {
+            if ( a instanceof BamRecordAlignment )
+                return ( ( BamRecordAlignment ) a ) . matePosition ();
+
+            Long left = mates . remove ( a . getAlignmentId () );
+            if ( left != null )
+                return left;
+
+            try ( Alignment mate = a . getMateAlignment () )
+            {
+                long p = mate . getAlignmentPosition ();
+                mates . put ( a . getMateAlignmentId (), pos );
+                return p;
+            }
+        }
+        catch ( ErrorMsg x )
+        {
+            return -1;
+        }
+    }
+
+    /* ensure
+     *  room for a record of "size" bytes
+     */
+    private void ensure ( int size )
+    {
+        if ( rec . capacity () < size )
+            rec = ByteBuffer . allocate ( Math . max ( size, rec . capacity () * 2 ) ) . order ( ByteOrder . LITTLE_ENDIAN );
+    }
+
+    /* the end of the positions .bai can bin */
+    private static final long baiLimit = 1L << 29;
+
+    private final HashMap < String, Integer > index = new HashMap < String, Integer > ();
+    private final HashMap < String, Long > mates = new HashMap < String, Long > ();   // positions by mate id
+    private boolean ids;
+
+    private ByteBuffer rec = ByteBuffer . allocate ( 64 * 1024 ) . order ( ByteOrder . LITTLE_ENDIAN );
+    private int [] cigar = new int [ 64 ];
+    private byte [] bases = new byte [ 1024 ];
+    private byte [] quals = new byte [ 1024 ];
+}
@@ -0,0 +1,256 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.ErrorMsg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+
+
+/*==========================================================================
+ * BamFile
+ *  a BAM file mapped into memory, with its header and optional index
+ *  shared by all objects of a BamReadCollection
+ *
+ *  the file is mapped read-only in segments, since a single mapping
+ *  cannot exceed 2GB; readers copy what they need out of duplicates of
+ *  the segments, so that any number of them may work concurrently
+ */
+final class BamFile
+{
+
+    /* size of the mapped segments */
+    static final int segmentSize = 1 << 30;
+
+    final Path path;
+    final long size;
+
+    /* header */
+    String text;
+    String [] refNames;
+    long [] refLengths;
+    boolean [] refCircular;
+    HashMap < String, Integer > refIndex;
+    String [] groupNames;
+    HashMap < String, Integer > groupIndex;
+
+    /* virtual offset of the first record */
+    long firstRecord;
+
+    /* the index, or null */
+    BamIndex index;
+
+    /* inflates blocks ahead of the readers */
+    final ExecutorService pool;
+    final int ahead;
+
+    BamFile ( Path path, ExecutorService pool, int ahead )
+        throws ErrorMsg
+    {
+        this . path = path;
+        this . pool = pool;
+        this . ahead = ahead;
+
+        try ( FileChannel ch = FileChannel . open ( path, StandardOpenOption . READ ) )
+        {
+            size = ch . size ();
+            int count = ( int ) ( ( size + segmentSize - 1 ) / segmentSize );
+            segments = new MappedByteBuffer [ count ];
+            for ( int i = 0; i < count; ++ i )
+            {
+                long start = ( long ) i * segmentSize;
+                segments [ i ] = ch . map ( FileChannel . MapMode . READ_ONLY, start, Math . min ( segmentSize, size - start ) );
+            }
+        }
+        catch ( IOException x )
+        {
+            throw new ErrorMsg ( "The file '" + path + "' could not be opened: " + x . getMessage () );
+        }
+
+        readHeader ();
+    }
+
+    /* read
+     *  copy "len" bytes of the file starting at "pos" into "dst"
+     */
+    void read ( long pos, byte [] dst, int off, int len )
+        throws ErrorMsg
+    {
+        if ( pos < 0 || pos + len > size )
+            throw new ErrorMsg ( "file is truncated" );
+
+        while ( len > 0 )
+        {
+            ByteBuffer seg = segments [ ( int ) ( pos / segmentSize ) ] . duplicate ();
+            int at = ( int ) ( pos % segmentSize );
+            int n = Math . min ( len, seg . limit () - at );
+            seg . position ( at );
+            seg . get ( dst, off, n );
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /* loadIndex
+     *  from "index", or from the file name with ".bai" or ".csi"
+     *  appended; the file is used without an index if there is none
+     */
+    void loadIndex ( Path index )
+        throws ErrorMsg
+    {
+        if ( index != null )
+        {
+            this . index = BamIndex . load ( index, refNames . length );
+            return;
+        }
+
+        for ( String ext : new String [] { ".bai", ".csi" } )
+        {
+            Path p = path . resolveSibling ( path . getFileName () + ext );
+            if ( Files . isReadable ( p ) )
+            {
+                this . index = BamIndex . load ( p, refNames . length );
+                return;
+            }
+        }
+    }
+
+    /* reference
+     *  index of a Reference by name
+     */
+    int reference ( String spec )
+        throws ErrorMsg
+    {
+        Integer idx = refIndex . get ( spec );
+        if ( idx == null )
+            throw new ErrorMsg ( "Reference not found: '" + spec + "'" );
+        return idx;
+    }
+
+    private void readHeader ()
+        throws ErrorMsg
+    {
+        BgzfInput in = new BgzfInput ( this, 1 );
+        try
+        {
+            in . seek ( 0 );
+
+            byte [] magic = new byte [ 4 ];
+            if ( ! in . readFully ( magic, 0, 4 ) || magic [ 0 ] != 'B' || magic [ 1 ] != 'A' || magic [ 2 ] != 'M' || magic [ 3 ] != 1 )
+                throw new ErrorMsg ( "The file '" + path + "' is not a BAM file" );
+
+            int lText = readCount ( in, "header text length" );
+            byte [] t = new byte [ lText ];
+            readFully ( in, t, lText );
+            int end = 0;
+            while ( end < lText && t [ end ] != 0 )
+                ++ end;
+            text = new String ( t, 0, end, StandardCharsets . UTF_8 );
+
+            int nRef = readCount ( in, "header reference count" );
+            refNames = new String [ nRef ];
+            refLengths = new long [ nRef ];
+            refCircular = new boolean [ nRef ];
+            refIndex = new HashMap <> ();
+            for ( int i = 0; i < nRef; ++ i )
+            {
+                int lName = readCount ( in, "header reference name length" );
+                byte [] name = new byte [ lName ];
+                readFully ( in, name, lName );
+                refNames [ i ] = new String ( name, 0, Math . max ( lName - 1, 0 ), StandardCharsets . US_ASCII );
+                refLengths [ i ] = readCount ( in, "header reference length" );
+                refIndex . put ( refNames [ i ], i );
+            }
+
+            firstRecord = in . tell ();
+        }
+        finally
+        {
+            in . close ();
+        }
+
+        // read groups are declared by @RG header lines,
+        // circular references marked by @SQ lines
+        ArrayList < String > groups = new ArrayList <> ();
+        groupIndex = new HashMap <> ();
+        for ( String line : text . split ( "\n" ) )
+        {
+            if ( line . startsWith ( "@SQ\t" ) && line . contains ( "\tTP:circular" ) )
+            {
+                for ( String field : line . split ( "\t" ) )
+                {
+                    Integer idx = field . startsWith ( "SN:" ) ? refIndex . get ( field . substring ( 3 ) ) : null;
+                    if ( idx != null )
+                        refCircular [ idx ] = true;
+                }
+            }
+            if ( ! line . startsWith ( "@RG\t" ) )
+                continue;
+            for ( String field : line . split ( "\t" ) )
+            {
+                if ( field . startsWith ( "ID:" ) && ! groupIndex . containsKey ( field . substring ( 3 ) ) )
+                {
+                    groupIndex . put ( field . substring ( 3 ), groups . size () );
+                    groups . add ( field . substring ( 3 ) );
+                }
+            }
+        }
+        groupNames = groups . toArray ( new String [ groups . size () ] );
+    }
+
+    private static int readCount ( BgzfInput in, String what )
+        throws ErrorMsg
+    {
+        byte [] b = new byte [ 4 ];
+        readFully ( in, b, 4 );
+        int v = BamRecordView . getInt ( b, 0 );
+        if ( v < 0 )
+            throw new ErrorMsg ( what + " < 0" );
+        return v;
+    }
+
+    private static void readFully ( BgzfInput in, byte [] b, int len )
+        throws ErrorMsg
+    {
+        if ( ! in . readFully ( b, 0, len ) )
+            throw new ErrorMsg ( "file is truncated" );
+    }
+
+    private final MappedByteBuffer [] segments;
+}
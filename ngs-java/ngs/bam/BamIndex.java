@@ -0,0 +1,445 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.ErrorMsg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+
+/*==========================================================================
+ * BamIndex
+ *  the binning index of a coordinate-sorted BAM file, from a .bai or
+ *  a .csi file
+ *
+ *  a slice query collects the chunks of all bins that may hold
+ *  alignments overlapping the region, drops those ending before the
+ *  smallest offset of an alignment overlapping its start, and merges
+ *  what remains into ascending, disjoint ranges of virtual offsets.
+ *  that smallest offset comes from the linear index of a .bai file,
+ *  or from the bins of a .csi file, which has none
+ *
+ *  nothing is decoded when the index is opened: a .bai file is mapped
+ *  into memory, a .csi file is inflated into it. the sections of the
+ *  References are located and their bins sorted on first use only, and
+ *  chunks and linear index entries are read in place by each query
+ */
+final class BamIndex
+{
+
+    /* load
+     *  open a .bai or .csi file for "refCount" references
+     */
+    static BamIndex load ( Path path, int refCount )
+        throws ErrorMsg
+    {
+        ByteBuffer b;
+        try
+        {
+            b = open ( path );
+        }
+        catch ( IOException x )
+        {
+            throw new ErrorMsg ( "The index '" + path + "' could not be read: " + x . getMessage () );
+        }
+        b . order ( ByteOrder . LITTLE_ENDIAN );
+
+        try
+        {
+            int magic = b . getInt ( 0 );
+            if ( magic == baiMagic )
+            {
+                if ( b . getInt ( 4 ) != refCount )
+                    throw new ErrorMsg ( "The index '" + path + "' does not match its BAM file" );
+                return new BamIndex ( path, b, false, 14, 5, 8, refCount );
+            }
+            if ( magic == csiMagic )
+            {
+                int minShift = b . getInt ( 4 );
+                int depth = b . getInt ( 8 );
+                int aux = b . getInt ( 12 );
+                if ( minShift <= 0 || depth <= 0 || depth > 10 || minShift + depth * 3 > 62 || aux < 0 )
+                    throw new ErrorMsg ( "The index '" + path + "' is not a valid CSI index" );
+                if ( b . getInt ( 16 + aux ) != refCount )
+                    throw new ErrorMsg ( "The index '" + path + "' does not match its BAM file" );
+                return new BamIndex ( path, b, true, minShift, depth, 20 + aux, refCount );
+            }
+        }
+        catch ( IndexOutOfBoundsException x )
+        {
+            throw new ErrorMsg ( "The index '" + path + "' is truncated" );
+        }
+        throw new ErrorMsg ( "The file '" + path + "' is not a BAM index" );
+    }
+
+    /* slice
+     *  ranges of virtual offsets, as pairs [ begin, end ),
+     *  holding every alignment of "ref" overlapping [ beg, end )
+     */
+    long [] slice ( int ref, long beg, long end )
+        throws ErrorMsg
+    {
+        beg = Math . max ( beg, 0 );
+        end = Math . min ( end, maxPosition );
+        if ( ref < 0 || ref >= refCount || beg >= end )
+            return new long [ 0 ];
+
+        Section s = section ( ref );
+        try
+        {
+            long min = csi ? binOffset ( s, beg ) : linearOffset ( s, beg );
+
+            long [] found = new long [ 16 ];
+            int n = 0;
+            for ( long bin : reg2bins ( beg, end ) )
+            {
+                int at = s . find ( bin );
+                if ( at < 0 )
+                    continue;
+                int count = map . getInt ( at );
+                at += 4;
+                for ( int k = 0; k < count; ++ k, at += 16 )
+                {
+                    long cEnd = map . getLong ( at + 8 );
+                    if ( Long . compareUnsigned ( cEnd, min ) <= 0 )
+                        continue;
+                    if ( n + 2 > found . length )
+                        found = Arrays . copyOf ( found, found . length * 2 );
+                    found [ n ++ ] = map . getLong ( at );
+                    found [ n ++ ] = cEnd;
+                }
+            }
+
+            return merge ( found, n );
+        }
+        catch ( IndexOutOfBoundsException x )
+        {
+            throw truncated ();
+        }
+    }
+
+    /* merge
+     *  sort chunks by their start and join those that overlap or touch
+     */
+    static long [] merge ( long [] found, int n )
+    {
+        int count = n / 2;
+        Integer [] order = new Integer [ count ];
+        for ( int i = 0; i < count; ++ i )
+            order [ i ] = i;
+        Arrays . sort ( order, ( x, y ) -> Long . compareUnsigned ( found [ x * 2 ], found [ y * 2 ] ) );
+
+        long [] out = new long [ n ];
+        int m = 0;
+        for ( int i = 0; i < count; ++ i )
+        {
+            long b = found [ order [ i ] * 2 ];
+            long e = found [ order [ i ] * 2 + 1 ];
+            if ( m > 0 && Long . compareUnsigned ( b, out [ m - 1 ] ) <= 0 )
+            {
+                if ( Long . compareUnsigned ( e, out [ m - 1 ] ) > 0 )
+                    out [ m - 1 ] = e;
+                continue;
+            }
+            out [ m ++ ] = b;
+            out [ m ++ ] = e;
+        }
+        return Arrays . copyOf ( out, m );
+    }
+
+    /* reg2bins
+     *  the bins that may hold alignments overlapping [ beg, end ),
+     *  as in the SAM specification, for this index's binning scheme
+     */
+    long [] reg2bins ( long beg, long end )
+    {
+        long [] list = new long [ 64 ];
+        int n = 0;
+        -- end;
+        long first = 0;
+        for ( int level = 0, shift = minShift + depth * 3; level <= depth; ++ level, shift -= 3 )
+        {
+            for ( long k = first + ( beg >> shift ); k <= first + ( end >> shift ); ++ k )
+            {
+                if ( n == list . length )
+                    list = Arrays . copyOf ( list, n * 2 );
+                list [ n ++ ] = k;
+            }
+            first += 1L << ( level * 3 );
+        }
+        return Arrays . copyOf ( list, n );
+    }
+
+    /* mapped
+     *  the number of mapped alignments of "ref", or -1 if not recorded
+     */
+    long mapped ( int ref )
+        throws ErrorMsg
+    {
+        return section ( ref ) . mapped;
+    }
+
+    /* unmapped
+     *  the number of unmapped reads placed on "ref", or -1 if not recorded
+     */
+    long unmapped ( int ref )
+        throws ErrorMsg
+    {
+        return section ( ref ) . unmapped;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Section
+     *  the bins of one Reference, as ( bin << 32 | position ) sorted by
+     *  bin, where "position" is that of the bin's chunk count
+     */
+    private static final class Section
+    {
+        int find ( long bin )
+        {
+            int i = Arrays . binarySearch ( bins, bin << 32 );
+            if ( i < 0 )
+                i = - i - 1;
+            if ( i == bins . length || bins [ i ] >>> 32 != bin )
+                return -1;
+            return ( int ) bins [ i ];
+        }
+
+        long [] bins;
+
+        /* the linear index of a .bai file */
+        int linear;
+        int intervals;
+
+        long mapped = -1;
+        long unmapped = -1;
+    }
+
+    /* section
+     *  locate and sort the bins of "ref" on first use, locating the
+     *  sections of the References before it on the way
+     */
+    private synchronized Section section ( int ref )
+        throws ErrorMsg
+    {
+        Section s = sections [ ref ];
+        if ( s != null )
+            return s;
+
+        try
+        {
+            while ( located <= ref )
+            {
+                starts [ located + 1 ] = skip ( starts [ located ] );
+                ++ located;
+            }
+
+            s = new Section ();
+            int at = starts [ ref ];
+            int count = map . getInt ( at );
+            at += 4;
+            long [] bins = new long [ count ];
+            int kept = 0;
+            for ( int i = 0; i < count; ++ i )
+            {
+                long bin = map . getInt ( at ) & 0xffffffffL;
+                at += csi ? 12 : 4;
+                int chunks = map . getInt ( at );
+                if ( chunks < 0 )
+                    throw truncated ();
+                if ( bin == metaBin && chunks == 2 )
+                {
+                    s . mapped = map . getLong ( at + 4 + 16 );
+                    s . unmapped = map . getLong ( at + 4 + 24 );
+                }
+                else
+                {
+                    bins [ kept ++ ] = bin << 32 | at;
+                }
+                at += 4 + chunks * 16;
+            }
+            s . bins = Arrays . copyOf ( bins, kept );
+            if ( count == 0 )
+            {
+                // nothing at all is placed on the Reference
+                s . mapped = 0;
+                s . unmapped = 0;
+            }
+            Arrays . sort ( s . bins );
+
+            if ( ! csi )
+            {
+                s . intervals = map . getInt ( at );
+                s . linear = at + 4;
+            }
+        }
+        catch ( IndexOutOfBoundsException | NegativeArraySizeException x )
+        {
+            throw truncated ();
+        }
+
+        sections [ ref ] = s;
+        return s;
+    }
+
+    /* skip
+     *  the position following the section starting at "at"
+     */
+    private int skip ( int at )
+        throws ErrorMsg
+    {
+        int count = map . getInt ( at );
+        at += 4;
+        for ( int i = 0; i < count; ++ i )
+        {
+            at += csi ? 12 : 4;
+            int chunks = map . getInt ( at );
+            if ( chunks < 0 )
+                throw truncated ();
+            at += 4 + chunks * 16;
+        }
+        if ( ! csi )
+            at += 4 + map . getInt ( at ) * 8;
+        if ( at < 0 || at > map . limit () )
+            throw truncated ();
+        return at;
+    }
+
+    /* linearOffset
+     *  the smallest offset of an alignment overlapping "beg", from the
+     *  linear index of a .bai file, searching back past empty windows
+     */
+    private long linearOffset ( Section s, long beg )
+    {
+        if ( s . intervals <= 0 )
+            return 0;
+        for ( int w = ( int ) Math . min ( beg >> 14, s . intervals - 1 ); w >= 0; -- w )
+        {
+            long min = map . getLong ( s . linear + w * 8 );
+            if ( min != 0 )
+                return min;
+        }
+        return 0;
+    }
+
+    /* binOffset
+     *  the smallest offset of an alignment overlapping "beg", from the
+     *  nearest bin of a .csi file that holds "beg" at its finest level
+     */
+    private long binOffset ( Section s, long beg )
+    {
+        long first = ( ( 1L << ( depth * 3 ) ) - 1 ) / 7;
+        for ( long bin = first + ( beg >> minShift ); ; bin = ( bin - 1 ) >> 3 )
+        {
+            int at = s . find ( bin );
+            if ( at >= 0 )
+                return map . getLong ( at - 8 );
+            if ( bin == 0 )
+                return 0;
+        }
+    }
+
+    private ErrorMsg truncated ()
+    {
+        return new ErrorMsg ( "The index '" + path + "' is truncated" );
+    }
+
+    /* open
+     *  map an uncompressed index, or inflate a BGZF-compressed one,
+     *  which is the usual form of .csi files
+     */
+    private static ByteBuffer open ( Path path )
+        throws IOException
+    {
+        try ( FileChannel ch = FileChannel . open ( path, StandardOpenOption . READ ) )
+        {
+            long size = ch . size ();
+            if ( size > Integer . MAX_VALUE )
+                throw new IOException ( "the file is too large" );
+            ByteBuffer b = ch . map ( FileChannel . MapMode . READ_ONLY, 0, size );
+            if ( size < 2 || ( b . get ( 0 ) & 0xff ) != 0x1f || ( b . get ( 1 ) & 0xff ) != 0x8b )
+                return b;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        try ( InputStream in = new GZIPInputStream ( Files . newInputStream ( path ), 1 << 16 ) )
+        {
+            byte [] buf = new byte [ 1 << 16 ];
+            for ( int n; ( n = in . read ( buf ) ) > 0; )
+                out . write ( buf, 0, n );
+        }
+        return ByteBuffer . wrap ( out . toByteArray () );
+    }
+
+    private BamIndex ( Path path, ByteBuffer map, boolean csi, int minShift, int depth, int first, int refCount )
+    {
+        this . path = path;
+        this . map = map;
+        this . csi = csi;
+        this . minShift = minShift;
+        this . depth = depth;
+        this . refCount = refCount;
+        this . maxPosition = 1L << ( minShift + depth * 3 );
+        this . metaBin = ( ( 1L << ( depth * 3 + 3 ) ) - 1 ) / 7 + 1;
+        this . sections = new Section [ refCount ];
+        this . starts = new int [ refCount + 1 ];
+        this . starts [ 0 ] = first;
+    }
+
+    /* "BAI\1" and "CSI\1", read little-endian */
+    private static final int baiMagic = 0x01494142;
+    private static final int csiMagic = 0x01495343;
+
+    private final Path path;
+    private final ByteBuffer map;
+    private final boolean csi;
+    private final int minShift;
+    private final int depth;
+    private final int refCount;
+
+    /* the largest position the binning scheme covers,
+       and the bin holding per-reference metadata rather than chunks */
+    private final long maxPosition;
+    private final long metaBin;
+
+    /* sections decoded so far, and the start of the first "located" + 1 */
+    private final Section [] sections;
+    private final int [] starts;
+    private int located;
+}
@@ -0,0 +1,337 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.util.Bgzf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/*==========================================================================
+ * BamIndexBuilder
+ *  builds the binning index of a BAM file as its records are written,
+ *  in coordinate order, and writes it as .bai, or as .csi when a
+ *  Reference is too long for the fixed binning scheme of .bai
+ *
+ *  records are placed by "pseudo" virtual offsets: the ordinal of the
+ *  uncompressed block shifted left by 16, or'ed with the offset within
+ *  it. those are known as soon as a record is encoded, while blocks are
+ *  still being compressed; they are translated into file offsets once
+ *  every block has been written
+ */
+final class BamIndexBuilder
+{
+
+    /* the smallest bin of either scheme covers 2^minShift positions */
+    static final int minShift = 14;
+
+    /* add
+     *  a record of "ref" covering [ beg, end ), stored at [ vbeg, vend )
+     */
+    void add ( int ref, long beg, long end, long vbeg, long vend )
+    {
+        if ( end <= beg )
+            end = beg + 1;
+
+        RefIndex r = refs [ ref ];
+        if ( r == null )
+        {
+            r = refs [ ref ] = new RefIndex ();
+            r . first = vbeg;
+        }
+        r . last = vend;
+        ++ r . mapped;
+
+        long bin = reg2bin ( beg, end, depth );
+        long [] chunks = r . bins . get ( bin );
+        if ( chunks == null )
+        {
+            chunks = new long [ 3 ];
+            r . bins . put ( bin, chunks );
+        }
+        int n = ( int ) chunks [ 0 ];
+        if ( n > 0 && ( chunks [ n ] >>> 16 ) == ( vbeg >>> 16 ) )
+        {
+            // within the block the previous chunk ends in
+            chunks [ n ] = vend;
+        }
+        else
+        {
+            if ( n + 3 > chunks . length )
+            {
+                chunks = Arrays . copyOf ( chunks, chunks . length * 2 + 1 );
+                r . bins . put ( bin, chunks );
+            }
+            chunks [ n + 1 ] = vbeg;
+            chunks [ n + 2 ] = vend;
+            chunks [ 0 ] = n + 2;
+        }
+
+        int last = ( int ) ( ( end - 1 ) >> minShift );
+        if ( last >= r . linear . length )
+        {
+            int size = Math . max ( last + 1, r . linear . length * 2 );
+            int from = r . linear . length;
+            r . linear = Arrays . copyOf ( r . linear, size );
+            Arrays . fill ( r . linear, from, size, -1 );
+        }
+        for ( int w = ( int ) ( beg >> minShift ); w <= last; ++ w )
+        {
+            if ( r . linear [ w ] == -1 )
+                r . linear [ w ] = vbeg;
+        }
+        r . windows = Math . max ( r . windows, last + 1 );
+    }
+
+    /* csi
+     *  true if the index must be written as .csi
+     */
+    boolean csi ()
+    {
+        return depth > baiDepth;
+    }
+
+    /* write
+     *  the index into "path", translating block ordinals through "blockOffsets"
+     */
+    void write ( Path path, long [] blockOffsets )
+        throws IOException
+    {
+        Out out = new Out ();
+        if ( csi () )
+        {
+            out . putInt ( 0x01495343 );    // "CSI\1"
+            out . putInt ( minShift );
+            out . putInt ( depth );
+            out . putInt ( 0 );
+        }
+        else
+        {
+            out . putInt ( 0x01494142 );    // "BAI\1"
+        }
+        out . putInt ( refs . length );
+
+        long metaBin = ( ( 1L << ( depth * 3 + 3 ) ) - 1 ) / 7 + 1;
+        for ( RefIndex r : refs )
+        {
+            if ( r == null )
+            {
+                out . putInt ( 0 );
+                if ( ! csi () )
+                    out . putInt ( 0 );
+                continue;
+            }
+
+            // fill windows without records from the one before, which is safe
+            for ( int w = 0; w < r . windows; ++ w )
+            {
+                if ( r . linear [ w ] == -1 )
+                    r . linear [ w ] = w == 0 ? 0 : r . linear [ w - 1 ];
+            }
+
+            long [] bins = new long [ r . bins . size () ];
+            int i = 0;
+            for ( long bin : r . bins . keySet () )
+                bins [ i ++ ] = bin;
+            Arrays . sort ( bins );
+
+            out . putInt ( bins . length + 1 );
+            for ( long bin : bins )
+            {
+                long [] chunks = r . bins . get ( bin );
+                int n = ( int ) chunks [ 0 ];
+                out . putInt ( ( int ) bin );
+                if ( csi () )
+                    out . putLong ( translate ( binOffset ( r, bin ), blockOffsets ) );
+                out . putInt ( n / 2 );
+                for ( int k = 1; k <= n; ++ k )
+                    out . putLong ( translate ( chunks [ k ], blockOffsets ) );
+            }
+
+            // the pseudo-bin: span of the Reference's records, and counts
+            out . putInt ( ( int ) metaBin );
+            if ( csi () )
+                out . putLong ( 0 );
+            out . putInt ( 2 );
+            out . putLong ( translate ( r . first, blockOffsets ) );
+            out . putLong ( translate ( r . last, blockOffsets ) );
+            out . putLong ( r . mapped );
+            out . putLong ( 0 );
+
+            if ( ! csi () )
+            {
+                out . putInt ( r . windows );
+                for ( int w = 0; w < r . windows; ++ w )
+                    out . putLong ( translate ( r . linear [ w ], blockOffsets ) );
+            }
+        }
+
+        // no records without coordinates
+        out . putLong ( 0 );
+
+        try ( FileChannel ch = FileChannel . open ( path, StandardOpenOption . CREATE,
+                StandardOpenOption . WRITE, StandardOpenOption . TRUNCATE_EXISTING ) )
+        {
+            if ( csi () )
+                out . compress ();
+            ByteBuffer b = ByteBuffer . wrap ( out . data, 0, out . size );
+            while ( b . hasRemaining () )
+                ch . write ( b );
+        }
+    }
+
+    /* reg2bin
+     *  the smallest bin holding [ beg, end ), as in the SAM specification
+     */
+    static long reg2bin ( long beg, long end, int depth )
+    {
+        -- end;
+        int s = minShift;
+        long t = ( ( 1L << ( depth * 3 ) ) - 1 ) / 7;
+        for ( int l = depth; l > 0; -- l, s += 3, t -= 1L << ( l * 3 ) )
+        {
+            if ( beg >> s == end >> s )
+                return t + ( beg >> s );
+        }
+        return 0;
+    }
+
+    /* constructor
+     *  for References of the given lengths
+     */
+    BamIndexBuilder ( long [] lengths )
+    {
+        long max = 0;
+        for ( long len : lengths )
+            max = Math . max ( max, len );
+
+        int d = baiDepth;
+        while ( ( 1L << ( minShift + d * 3 ) ) < max )
+            ++ d;
+        this . depth = d;
+        this . refs = new RefIndex [ lengths . length ];
+    }
+
+    /*----------------------------------------------------------------------
+     * RefIndex
+     *  bins as chunk lists, [ 0 ] holding the number of offsets used,
+     *  and the linear index, -1 where no record has been seen
+     */
+    private static final class RefIndex
+    {
+        final HashMap < Long, long [] > bins = new HashMap < Long, long [] > ();
+        long [] linear = new long [ 0 ];
+        int windows;
+        long first;
+        long last;
+        long mapped;
+    }
+
+    /* binOffset
+     *  for a .csi bin, the smallest offset of a record overlapping its start
+     */
+    private long binOffset ( RefIndex r, long bin )
+    {
+        int level = 0;
+        long first = 0;
+        while ( first + ( 1L << ( level * 3 ) ) <= bin )
+        {
+            first += 1L << ( level * 3 );
+            ++ level;
+        }
+        long start = ( bin - first ) << ( minShift + 3 * ( depth - level ) );
+        int w = ( int ) Math . min ( start >> minShift, r . windows - 1 );
+        return r . linear [ w ];
+    }
+
+    private static long translate ( long pseudo, long [] blockOffsets )
+    {
+        return blockOffsets [ ( int ) ( pseudo >>> 16 ) ] << 16 | ( pseudo & 0xffff );
+    }
+
+    /* Out
+     *  a growing little-endian buffer
+     */
+    private static final class Out
+    {
+        void putInt ( int v )
+        {
+            ensure ( 4 );
+            ByteBuffer . wrap ( data, size, 4 ) . order ( ByteOrder . LITTLE_ENDIAN ) . putInt ( v );
+            size += 4;
+        }
+
+        void putLong ( long v )
+        {
+            ensure ( 8 );
+            ByteBuffer . wrap ( data, size, 8 ) . order ( ByteOrder . LITTLE_ENDIAN ) . putLong ( v );
+            size += 8;
+        }
+
+        /* compress
+         *  replace the contents by BGZF blocks, as .csi files are kept
+         */
+        void compress ()
+        {
+            byte [] packed = new byte [ ( int ) Bgzf . bound ( size ) + Bgzf . maxBlockSize ];
+            Deflater d = new Deflater ( Deflater . DEFAULT_COMPRESSION, true );
+            CRC32 crc = new CRC32 ();
+            int n = 0;
+            for ( int off = 0; off < size; off += Bgzf . maxInputSize )
+                n += Bgzf . compress ( d, crc, data, off, Math . min ( Bgzf . maxInputSize, size - off ), packed, n );
+            d . end ();
+            byte [] eof = Bgzf . eof ();
+            System . arraycopy ( eof, 0, packed, n, eof . length );
+            data = packed;
+            size = n + eof . length;
+        }
+
+        private void ensure ( int more )
+        {
+            if ( size + more > data . length )
+                data = Arrays . copyOf ( data, Math . max ( data . length * 2, size + more ) );
+        }
+
+        byte [] data = new byte [ 64 * 1024 ];
+        int size;
+    }
+
+    private static final int baiDepth = 5;
+
+    private final int depth;
+    private final RefIndex [] refs;
+}
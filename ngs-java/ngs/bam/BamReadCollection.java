@@ -0,0 +1,298 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.ReadGroup;
+import ngs.ReadGroupIterator;
+import ngs.Reference;
+import ngs.ReferenceIterator;
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.Read;
+import ngs.ReadIterator;
+import ngs.internal.Tasks;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+
+/**
+ *<p>
+ * A ReadCollection over a local BAM file, requiring no native library.
+ *</p>
+ *<p>
+ * The file is memory-mapped. Its BGZF blocks are inflated on a pool
+ * of threads, each iterator keeping 2 &times; parallelism blocks in
+ * flight ahead of the record it decodes. Alignment slices of a
+ * coordinate-sorted file are served from its .bai or .csi index, found
+ * next to the file or given to {@link #setIndex setIndex}; without one,
+ * slices scan the whole file. The index is mapped rather than read, and
+ * only the parts a query touches are decoded.
+ *</p>
+ *<p>
+ * It offers what a BAM file holds, as the native ngs-bam library does:
+ * References by name and length, mapped Alignments and ReadGroups
+ * declared by the header. Reads, Pileups, Reference bases and ids of
+ * Alignments are not available and raise ErrorMsg.
+ * Objects obtained from it may be used concurrently from different
+ * threads; each iterator must still be used by one thread at a time.
+ *</p>
+ */
+public class BamReadCollection
+    implements ReadCollection
+{
+
+    /**
+     * Open a BAM file, inflating on a pool of daemon threads of its own
+     * that is shut down by "close"
+     * @param path the BAM file
+     * @param threads the number of threads inflating blocks, &gt; 0
+     * @throws ErrorMsg if the file cannot be opened or is not BAM
+     */
+    public BamReadCollection ( Path path, int threads )
+        throws ErrorMsg
+    {
+        if ( threads <= 0 )
+            throw new IllegalArgumentException ( "threads " + threads + " is not positive" );
+
+        ExecutorService pool = Tasks . daemonPool ( threads, "ngs-bam-" );
+        try
+        {
+            this . file = new BamFile ( path, pool, 2 * threads );
+            this . file . loadIndex ( null );
+        }
+        catch ( ErrorMsg | RuntimeException x )
+        {
+            pool . shutdownNow ();
+            throw x;
+        }
+        this . owned = true;
+    }
+
+    /**
+     * Open a BAM file, inflating on an existing pool,
+     * which is left running by "close"
+     * @param path the BAM file
+     * @param pool executes the inflation of blocks
+     * @param parallelism the number of threads expected to serve the file, &gt; 0
+     * @throws ErrorMsg if the file cannot be opened or is not BAM
+     */
+    public BamReadCollection ( Path path, ExecutorService pool, int parallelism )
+        throws ErrorMsg
+    {
+        if ( parallelism <= 0 )
+            throw new IllegalArgumentException ( "parallelism " + parallelism + " is not positive" );
+
+        this . file = new BamFile ( path, pool, 2 * parallelism );
+        this . file . loadIndex ( null );
+        this . owned = false;
+    }
+
+    /**
+     * @param index the .bai or .csi index to serve slices from,
+     *  instead of the one found next to the BAM file
+     * @throws ErrorMsg if the index cannot be read or does not match
+     */
+    public void setIndex ( Path index )
+        throws ErrorMsg
+    {
+        file . loadIndex ( index );
+    }
+
+    /**
+     * @return true if slices are served from an index
+     */
+    public boolean hasIndex ()
+    {
+        return file . index != null;
+    }
+
+    public String getName ()
+    {
+        return file . path . getFileName () . toString ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * READ GROUPS
+     */
+
+    public ReadGroupIterator getReadGroups ()
+    {
+        return new BamReadGroupIterator ( file, 0, file . groupNames . length );
+    }
+
+    public boolean hasReadGroup ( String spec )
+    {
+        return file . groupIndex . containsKey ( spec );
+    }
+
+    public ReadGroup getReadGroup ( String spec )
+        throws ErrorMsg
+    {
+        Integer idx = file . groupIndex . get ( spec );
+        if ( idx == null )
+            throw new ErrorMsg ( "ReadGroup not found: '" + spec + "'" );
+        return BamReadGroupIterator . single ( file, idx );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * REFERENCES
+     */
+
+    public ReferenceIterator getReferences ()
+    {
+        return new BamReferenceIterator ( file, 0, file . refNames . length );
+    }
+
+    public boolean hasReference ( String spec )
+    {
+        return file . refIndex . containsKey ( spec );
+    }
+
+    public Reference getReference ( String spec )
+        throws ErrorMsg
+    {
+        return BamReferenceIterator . single ( file, file . reference ( spec ) );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * ALIGNMENTS
+     */
+
+    public Alignment getAlignment ( String alignmentId )
+        throws ErrorMsg
+    {
+        throw unavailable ( "alignment id" );
+    }
+
+    public AlignmentIterator getAlignments ( int categories )
+    {
+        return new BamAlignmentIterator ( file, null, categories, Alignment . passFailed | Alignment . passDuplicates,
+            0, -1, 0, Long . MAX_VALUE, false );
+    }
+
+    public long getAlignmentCount ()
+        throws ErrorMsg
+    {
+        return getAlignmentCount ( Alignment . all );
+    }
+
+    public long getAlignmentCount ( int categories )
+        throws ErrorMsg
+    {
+        // the index counts mapped records without telling their categories
+        if ( file . index == null || ( categories & Alignment . all ) != Alignment . all )
+            throw unavailable ( "alignment count" );
+
+        long count = 0;
+        for ( int ref = 0; ref < file . refNames . length; ++ ref )
+        {
+            long mapped = file . index . mapped ( ref );
+            if ( mapped < 0 )
+                throw unavailable ( "alignment count" );
+            count += mapped;
+        }
+        return count;
+    }
+
+    public AlignmentIterator getAlignmentRange ( long first, long count )
+        throws ErrorMsg
+    {
+        throw unavailable ( "alignment range" );
+    }
+
+    public AlignmentIterator getAlignmentRange ( long first, long count, int categories )
+        throws ErrorMsg
+    {
+        throw unavailable ( "alignment range" );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * READS
+     */
+
+    public Read getRead ( String readId )
+        throws ErrorMsg
+    {
+        throw unavailable ( "read" );
+    }
+
+    public ReadIterator getReads ( int categories )
+        throws ErrorMsg
+    {
+        throw unavailable ( "read" );
+    }
+
+    public long getReadCount ()
+        throws ErrorMsg
+    {
+        throw unavailable ( "read count" );
+    }
+
+    public long getReadCount ( int categories )
+        throws ErrorMsg
+    {
+        throw unavailable ( "read count" );
+    }
+
+    public ReadIterator getReadRange ( long first, long count )
+        throws ErrorMsg
+    {
+        throw unavailable ( "read" );
+    }
+
+    public ReadIterator getReadRange ( long first, long count, int categories )
+        throws ErrorMsg
+    {
+        throw unavailable ( "read" );
+    }
+
+    /**
+     * Shut down the pool of threads if it was created by this object;
+     * the file stays mapped until the collection is no longer reachable
+     */
+    public void close ()
+    {
+        if ( owned )
+            file . pool . shutdownNow ();
+    }
+
+    private static ErrorMsg unavailable ( String what )
+    {
+        return new ErrorMsg ( "The " + what + " is not available from a BAM file" );
+    }
+
+    private final BamFile file;
+    private final boolean owned;
+}
@@ -0,0 +1,486 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.internal.Bounds;
+import ngs.Cigar;
+import ngs.ErrorMsg;
+import ngs.Phred;
+
+import java.nio.charset.StandardCharsets;
+
+
+/*==========================================================================
+ * BamRecordAlignment
+ *  the properties of an Alignment, read from the BamRecordView that
+ *  a subclass positions on a record
+ *
+ *  records are viewed in place and decoded only as properties are
+ *  asked for; the byte array accessors decode straight into their
+ *  destination. properties that a BAM record does not carry are not
+ *  available
+ */
+abstract class BamRecordAlignment
+    implements Alignment
+{
+
+    /*----------------------------------------------------------------------
+     * Fragment
+     */
+
+    public String getFragmentId ()
+        throws ErrorMsg
+    {
+        throw unavailable ( "fragment id" );
+    }
+
+    public String getFragmentBases ()
+        throws ErrorMsg
+    {
+        return getFragmentBases ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentBases ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        // as sequenced, undoing the reversal of the record
+        BamRecordView r = current ();
+        int len = r . seqLength ();
+        boolean rev = ( r . flag () & BamRecordView . reversed ) != 0;
+        byte [] out = new byte [ len ];
+        for ( int i = 0; i < len; ++ i )
+            out [ i ] = rev ? BamRecordView . complement [ r . seq ( len - 1 - i ) ] : r . seq ( i );
+        return substring ( out, 0, len, offset, length );
+    }
+
+    public String getFragmentQualities ()
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset, long length )
+        throws ErrorMsg
+    {
+        BamRecordView r = current ();
+        byte [] q = qualities ( r );
+        if ( ( r . flag () & BamRecordView . reversed ) != 0 )
+        {
+            for ( int i = 0, j = q . length - 1; i < j; ++ i, -- j )
+            {
+                byte t = q [ i ];
+                q [ i ] = q [ j ];
+                q [ j ] = t;
+            }
+        }
+        return substring ( q, 0, q . length, offset, length );
+    }
+
+    public int getFragmentBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        return copyBases ( 0, Long . MAX_VALUE, dst, dstOffset );
+    }
+
+    public int getFragmentBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative" );
+        return copyBases ( offset, length, dst, dstOffset );
+    }
+
+    public int getFragmentQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        return copyScores ( 0, Long . MAX_VALUE, dst, dstOffset, Phred . raw, Phred . asciiOffset );
+    }
+
+    public int getFragmentQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative" );
+        return copyScores ( offset, length, dst, dstOffset, Phred . raw, Phred . asciiOffset );
+    }
+
+    public int getFragmentQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg
+    {
+        return copyScores ( 0, Long . MAX_VALUE, dst, dstOffset, binning, 0 );
+    }
+
+    public int getFragmentQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg
+    {
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative" );
+        return copyScores ( offset, length, dst, dstOffset, binning, 0 );
+    }
+
+    public boolean isPaired ()
+        throws ErrorMsg
+    {
+        return ( current () . flag () & BamRecordView . paired ) != 0;
+    }
+
+    public boolean isAligned ()
+        throws ErrorMsg
+    {
+        current ();
+        return true;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Alignment
+     */
+
+    public String getAlignmentId ()
+        throws ErrorMsg
+    {
+        throw unavailable ( "alignment id" );
+    }
+
+    public String getReferenceSpec ()
+        throws ErrorMsg
+    {
+        return refNames [ current () . refId () ];
+    }
+
+    public int getMappingQuality ()
+        throws ErrorMsg
+    {
+        return current () . mapq ();
+    }
+
+    public String getReferenceBases ()
+        throws ErrorMsg
+    {
+        throw unavailable ( "reference bases" );
+    }
+
+    public String getReadGroup ()
+        throws ErrorMsg
+    {
+        String rg = current () . stringTag ( 'R', 'G' );
+        return rg == null ? "" : rg;
+    }
+
+    public String getReadId ()
+        throws ErrorMsg
+    {
+        return current () . readName ();
+    }
+
+    public String getClippedFragmentBases ()
+        throws ErrorMsg
+    {
+        BamRecordView r = current ();
+        int len = r . seqLength ();
+        int left = r . softClip ( Alignment . clipLeft );
+        int right = r . softClip ( Alignment . clipRight );
+        byte [] out = new byte [ Math . max ( len - left - right, 0 ) ];
+        for ( int i = 0; i < out . length; ++ i )
+            out [ i ] = r . seq ( left + i );
+        return new String ( out, StandardCharsets . US_ASCII );
+    }
+
+    public String getClippedFragmentQualities ()
+        throws ErrorMsg
+    {
+        BamRecordView r = current ();
+        byte [] q = qualities ( r );
+        if ( q . length == 0 )
+            return "";
+        int left = r . softClip ( Alignment . clipLeft );
+        int right = r . softClip ( Alignment . clipRight );
+        return new String ( q, left, Math . max ( q . length - left - right, 0 ), StandardCharsets . US_ASCII );
+    }
+
+    public String getAlignedFragmentBases ()
+        throws ErrorMsg
+    {
+        BamRecordView r = current ();
+        byte [] out = new byte [ r . seqLength () ];
+        for ( int i = 0; i < out . length; ++ i )
+            out [ i ] = r . seq ( i );
+        return new String ( out, StandardCharsets . US_ASCII );
+    }
+
+    public int getAlignmentCategory ()
+        throws ErrorMsg
+    {
+        return category ( current () );
+    }
+
+    public long getAlignmentPosition ()
+        throws ErrorMsg
+    {
+        return current () . pos ();
+    }
+
+    public long getAlignmentLength ()
+        throws ErrorMsg
+    {
+        return current () . refLength ();
+    }
+
+    public boolean getIsReversedOrientation ()
+        throws ErrorMsg
+    {
+        return ( current () . flag () & BamRecordView . reversed ) != 0;
+    }
+
+    public int getSoftClip ( int edge )
+        throws ErrorMsg
+    {
+        return current () . softClip ( edge );
+    }
+
+    public long getTemplateLength ()
+        throws ErrorMsg
+    {
+        return current () . tlen ();
+    }
+
+    public String getShortCigar ( boolean clipped )
+        throws ErrorMsg
+    {
+        BamRecordView r = current ();
+        int [] ops = new int [ r . cigarCount () ];
+        int n = getCigarOps ( clipped, ops, 0 );
+        return Cigar . decode ( ops, 0, n );
+    }
+
+    public String getLongCigar ( boolean clipped )
+        throws ErrorMsg
+    {
+        throw unavailable ( "long CIGAR" );
+    }
+
+    /* getCigarOps
+     *  copied straight from the record
+     */
+    public int getCigarOps ( boolean clipped, int [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        BamRecordView r = current ();
+        int count = 0;
+        for ( int i = 0, n = r . cigarCount (); i < n; ++ i )
+        {
+            int packed = r . cigar ( i );
+            if ( clipped && Cigar . op ( packed ) == Cigar . softClip )
+                continue;
+            if ( dstOffset + count < dst . length )
+                dst [ dstOffset + count ] = packed;
+            ++ count;
+        }
+        return count;
+    }
+
+    public char getRNAOrientation ()
+        throws ErrorMsg
+    {
+        current ();
+        return '?';
+    }
+
+    public boolean hasMate ()
+    {
+        if ( rec == null )
+            return false;
+        int flag = rec . flag ();
+        int ends = flag & ( BamRecordView . firstOfPair | BamRecordView . lastOfPair );
+        return ( flag & BamRecordView . paired ) != 0 && ends != 0 && ends != ( BamRecordView . firstOfPair | BamRecordView . lastOfPair );
+    }
+
+    public String getMateAlignmentId ()
+        throws ErrorMsg
+    {
+        throw unavailable ( "mate alignment id" );
+    }
+
+    public Alignment getMateAlignment ()
+        throws ErrorMsg
+    {
+        throw unavailable ( "mate alignment" );
+    }
+
+    public String getMateReferenceSpec ()
+        throws ErrorMsg
+    {
+        int ref = current () . nextRefId ();
+        return ref < 0 ? "" : refNames [ ref ];
+    }
+
+    public boolean getMateIsReversedOrientation ()
+        throws ErrorMsg
+    {
+        return ( current () . flag () & BamRecordView . mateReversed ) != 0;
+    }
+
+
+    /* matePosition
+     *  of the mate, as recorded, or -1
+     */
+    long matePosition ()
+        throws ErrorMsg
+    {
+        return current () . nextPos ();
+    }
+
+    BamRecordAlignment ( String [] refNames )
+    {
+        this . refNames = refNames;
+    }
+
+    BamRecordView current ()
+        throws ErrorMsg
+    {
+        if ( rec == null )
+        {
+            if ( done )
+                throw new ErrorMsg ( "No more rows available" );
+            throw new ErrorMsg ( "Alignment accessed before a call to AlignmentIterator.nextAlignment()" );
+        }
+        return rec;
+    }
+
+    static int category ( BamRecordView r )
+    {
+        return ( r . flag () & ( BamRecordView . secondary | BamRecordView . supplementary ) ) != 0
+            ? Alignment . secondaryAlignment : Alignment . primaryAlignment;
+    }
+
+    /* qualities
+     *  ASCII qualities in the orientation of the record,
+     *  empty if the record has none
+     */
+    private static byte [] qualities ( BamRecordView r )
+    {
+        if ( ! r . hasQualities () )
+            return new byte [ 0 ];
+        byte [] q = new byte [ r . seqLength () ];
+        for ( int i = 0; i < q . length; ++ i )
+            q [ i ] = ( byte ) ( Math . min ( r . qual ( i ), Phred . maxScore ) + Phred . asciiOffset );
+        return q;
+    }
+
+    /* copyBases
+     *  decode bases [ offset, offset + length ) as sequenced into "dst"
+     *  returns the number within the range, copying no more than fits
+     */
+    private int copyBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        BamRecordView r = current ();
+        int len = r . seqLength ();
+        int first = range ( len, offset );
+        int count = ( int ) Math . min ( length, len - first );
+        boolean rev = ( r . flag () & BamRecordView . reversed ) != 0;
+        for ( int i = 0, n = Math . min ( count, dst . length - dstOffset ); i < n; ++ i )
+        {
+            int at = first + i;
+            dst [ dstOffset + i ] = rev ? BamRecordView . complement [ r . seq ( len - 1 - at ) ] : r . seq ( at );
+        }
+        return count;
+    }
+
+    /* copyScores
+     *  decode qualities [ offset, offset + length ) as sequenced into "dst",
+     *  as binned scores plus "ascii"
+     *  returns the number within the range, copying no more than fits
+     */
+    private int copyScores ( long offset, long length, byte [] dst, int dstOffset, int binning, int ascii )
+        throws ErrorMsg
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        BamRecordView r = current ();
+        int len = r . hasQualities () ? r . seqLength () : 0;
+        int first = range ( len, offset );
+        int count = ( int ) Math . min ( length, len - first );
+        boolean rev = ( r . flag () & BamRecordView . reversed ) != 0;
+        for ( int i = 0, n = Math . min ( count, dst . length - dstOffset ); i < n; ++ i )
+        {
+            int at = first + i;
+            int q = Math . min ( r . qual ( rev ? len - 1 - at : at ), Phred . maxScore );
+            dst [ dstOffset + i ] = ( byte ) ( Phred . bin ( binning, q ) + ascii );
+        }
+        return count;
+    }
+
+    /* range
+     *  the first position of a range starting at "offset" within "len"
+     */
+    private static int range ( int len, long offset )
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        return ( int ) Math . min ( offset, len );
+    }
+
+    private static String substring ( byte [] src, int start, int len, long offset, long length )
+    {
+        if ( offset < 0 || length < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " or length " + length + " is negative" );
+        if ( offset >= len )
+            return "";
+        long n = Math . min ( length, len - offset );
+        return new String ( src, start + ( int ) offset, ( int ) n, StandardCharsets . US_ASCII );
+    }
+
+    static ErrorMsg unavailable ( String what )
+    {
+        return new ErrorMsg ( "The " + what + " is not available from a BAM file" );
+    }
+
+    final String [] refNames;
+
+    BamRecordView rec;  // while positioned on a record
+    boolean done;
+}
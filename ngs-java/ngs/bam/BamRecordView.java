@@ -0,0 +1,521 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Cigar;
+import ngs.ErrorMsg;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/*==========================================================================
+ * BamRecordView
+ *  a flyweight over one BAM record, without its leading block_size,
+ *  decoding its fields in place and only when asked
+ *
+ *  a record lying within one inflated block is viewed right there;
+ *  only one straddling two blocks is copied, into storage reused from
+ *  record to record. so scanning records allocates nothing, and the
+ *  view is valid until the next call to "read"
+ */
+final class BamRecordView
+{
+
+    /* flag bits */
+    static final int paired       = 0x0001;
+    static final int unmapped     = 0x0004;
+    static final int mateUnmapped = 0x0008;
+    static final int reversed     = 0x0010;
+    static final int mateReversed = 0x0020;
+    static final int firstOfPair  = 0x0040;
+    static final int lastOfPair   = 0x0080;
+    static final int secondary    = 0x0100;
+    static final int qcFail       = 0x0200;
+    static final int duplicate    = 0x0400;
+    static final int supplementary = 0x0800;
+
+    /* size of the fixed part of a record */
+    static final int fixedSize = 32;
+
+    /* read
+     *  view the next record from "in"
+     *  returns false at the end of the data
+     */
+    boolean read ( BgzfInput in )
+        throws ErrorMsg
+    {
+        int n;
+        int at = in . inPlace ( 4 );
+        if ( at >= 0 )
+            n = in . buffer () . getInt ( at );
+        else if ( in . readFully ( spill . array (), 0, 4 ) )
+            n = spill . getInt ( 0 );
+        else
+            return false;
+
+        if ( n < fixedSize )
+            throw new ErrorMsg ( "file is corrupt: record size " + n );
+
+        at = in . inPlace ( n );
+        if ( at >= 0 )
+        {
+            buf = in . buffer ();
+            base = at;
+        }
+        else
+        {
+            if ( n > spill . capacity () )
+                spill = ByteBuffer . allocate ( Math . max ( n, spill . capacity () * 2 ) ) . order ( ByteOrder . LITTLE_ENDIAN );
+            if ( ! in . readFully ( spill . array (), 0, n ) )
+                throw new ErrorMsg ( "file is truncated" );
+            buf = spill;
+            base = 0;
+        }
+
+        size = n;
+        return true;
+    }
+
+    /* view
+     *  the record of "size" bytes at "base" in "buf", which is little-endian
+     */
+    void view ( ByteBuffer buf, int base, int size )
+    {
+        this . buf = buf;
+        this . base = base;
+        this . size = size;
+    }
+
+    /* size
+     *  of the record in bytes
+     */
+    int size ()
+    {
+        return size;
+    }
+
+    int refId ()
+    {
+        return buf . getInt ( base );
+    }
+
+    int pos ()
+    {
+        return buf . getInt ( base + 4 );
+    }
+
+    int mapq ()
+    {
+        return buf . get ( base + 9 ) & 0xff;
+    }
+
+    int flag ()
+    {
+        return buf . getShort ( base + 14 ) & 0xffff;
+    }
+
+    int seqLength ()
+    {
+        return buf . getInt ( base + 16 );
+    }
+
+    int nextRefId ()
+    {
+        return buf . getInt ( base + 20 );
+    }
+
+    int nextPos ()
+    {
+        return buf . getInt ( base + 24 );
+    }
+
+    int tlen ()
+    {
+        return buf . getInt ( base + 28 );
+    }
+
+    String readName ()
+    {
+        // l_read_name includes the terminating NUL
+        int len = Math . max ( nameSize () - 1, 0 );
+        byte [] b = new byte [ len ];
+        for ( int i = 0; i < len; ++ i )
+            b [ i ] = buf . get ( base + fixedSize + i );
+        return new String ( b, StandardCharsets . US_ASCII );
+    }
+
+    int cigarCount ()
+    {
+        return buf . getShort ( base + 12 ) & 0xffff;
+    }
+
+    /* cigar
+     *  packed as ( length << 4 ) | op, the same as ngs.Cigar
+     */
+    int cigar ( int i )
+    {
+        return buf . getInt ( cigarStart () + i * 4 );
+    }
+
+    /* refLength
+     *  the number of Reference bases covered
+     */
+    int refLength ()
+    {
+        int len = 0;
+        for ( int i = 0, n = cigarCount (); i < n; ++ i )
+        {
+            int c = cigar ( i );
+            switch ( Cigar . op ( c ) )
+            {
+            case Cigar . match:
+            case Cigar . deletion:
+            case Cigar . skip:
+            case Cigar . seqMatch:
+            case Cigar . seqMismatch:
+                len += Cigar . opLength ( c );
+            }
+        }
+        return len;
+    }
+
+    /* softClip
+     *  the number of bases soft-clipped on the left ( 0 ) or right ( 1 ) edge
+     */
+    int softClip ( int edge )
+    {
+        int n = cigarCount ();
+        int step = edge == 0 ? 1 : -1;
+        for ( int i = edge == 0 ? 0 : n - 1; i >= 0 && i < n; i += step )
+        {
+            int c = cigar ( i );
+            if ( Cigar . op ( c ) == Cigar . softClip )
+                return Cigar . opLength ( c );
+            if ( Cigar . op ( c ) != Cigar . hardClip )
+                break;
+        }
+        return 0;
+    }
+
+    /* packedBase
+     *  4-bit code of the base at "i", in the orientation of the Reference
+     */
+    int packedBase ( int i )
+    {
+        int b = buf . get ( seqStart () + ( i >> 1 ) );
+        return ( i & 1 ) == 0 ? ( b >> 4 ) & 0xf : b & 0xf;
+    }
+
+    /* seq
+     *  ASCII base at "i", in the orientation of the Reference
+     */
+    byte seq ( int i )
+    {
+        return seqChars [ packedBase ( i ) ];
+    }
+
+    /* hasQualities
+     *  false if the record carries none, marked by a first score of 0xff
+     */
+    boolean hasQualities ()
+    {
+        return seqLength () > 0 && ( buf . get ( qualStart () ) & 0xff ) != 0xff;
+    }
+
+    /* qual
+     *  raw phred score at "i", in the orientation of the Reference
+     */
+    int qual ( int i )
+    {
+        return buf . get ( qualStart () + i ) & 0xff;
+    }
+
+    /* fields
+     *  a cursor over the optional fields, reset to before the first;
+     *  the cursor is owned by the view and reused
+     */
+    Field fields ()
+    {
+        fields . at = -1;
+        return fields;
+    }
+
+    /* stringTag
+     *  the value of a 'Z' optional field, or null
+     */
+    String stringTag ( char c0, char c1 )
+    {
+        Field f = fields ();
+        while ( f . next () )
+        {
+            if ( f . is ( c0, c1 ) )
+                return f . type () == 'Z' ? f . string () : null;
+        }
+        return null;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Field
+     *  a cursor over the optional fields of the record, after
+     *  BAMRecord :: OptionalField of ngs-bam: a tag, a value type,
+     *  and one or more elements of that type
+     */
+    final class Field
+    {
+        /* next
+         *  move to the next field
+         *  returns false past the last one, or at a malformed field
+         */
+        boolean next ()
+        {
+            int end = base + size;
+            if ( at < 0 )
+                at = auxStart ();
+            else if ( at < end )
+                at = skip ();
+            if ( at < 0 || at + 4 > end || skip () < 0 )
+            {
+                at = end;
+                return false;
+            }
+            return true;
+        }
+
+        boolean is ( char c0, char c1 )
+        {
+            return buf . get ( at ) == c0 && buf . get ( at + 1 ) == c1;
+        }
+
+        /* tag
+         *  the two characters of the tag
+         */
+        String tag ()
+        {
+            return new String ( new char [] { ( char ) buf . get ( at ), ( char ) buf . get ( at + 1 ) } );
+        }
+
+        /* type
+         *  the value type, or that of the elements of a 'B' array
+         */
+        char type ()
+        {
+            byte t = buf . get ( at + 2 );
+            return ( char ) ( t == 'B' ? buf . get ( at + 3 ) : t );
+        }
+
+        boolean isArray ()
+        {
+            return buf . get ( at + 2 ) == 'B';
+        }
+
+        /* count
+         *  the number of elements: 1 unless an array
+         */
+        int count ()
+        {
+            return isArray () ? buf . getInt ( at + 4 ) : 1;
+        }
+
+        /* element
+         *  the integer element at "i", for types c, C, s, S, i, I and A
+         */
+        long element ( int i )
+        {
+            int p = value () + i * width ( ( byte ) type () );
+            switch ( type () )
+            {
+            case 'c':
+                return buf . get ( p );
+            case 'A':
+            case 'C':
+                return buf . get ( p ) & 0xff;
+            case 's':
+                return buf . getShort ( p );
+            case 'S':
+                return buf . getShort ( p ) & 0xffff;
+            case 'i':
+                return buf . getInt ( p );
+            case 'I':
+                return buf . getInt ( p ) & 0xffffffffL;
+            }
+            throw new IllegalStateException ( "field " + tag () + " of type " + type () + " is not an integer" );
+        }
+
+        /* floatElement
+         *  the element at "i", for type f
+         */
+        float floatElement ( int i )
+        {
+            return buf . getFloat ( value () + i * 4 );
+        }
+
+        /* string
+         *  the value of a 'Z' or 'H' field
+         */
+        String string ()
+        {
+            int start = at + 3;
+            int len = 0;
+            while ( buf . get ( start + len ) != 0 )
+                ++ len;
+            byte [] b = new byte [ len ];
+            for ( int i = 0; i < len; ++ i )
+                b [ i ] = buf . get ( start + i );
+            return new String ( b, StandardCharsets . UTF_8 );
+        }
+
+        /* value
+         *  position of the first element
+         */
+        private int value ()
+        {
+            return isArray () ? at + 8 : at + 3;
+        }
+
+        /* skip
+         *  position of the field after this one, or -1 if malformed
+         */
+        private int skip ()
+        {
+            int end = base + size;
+            byte t = buf . get ( at + 2 );
+            if ( t == 'Z' || t == 'H' )
+            {
+                for ( int p = at + 3; p < end; ++ p )
+                {
+                    if ( buf . get ( p ) == 0 )
+                        return p + 1;
+                }
+                return -1;
+            }
+
+            long next;
+            if ( t == 'B' )
+            {
+                if ( at + 8 > end )
+                    return -1;
+                next = at + 8L + ( long ) buf . getInt ( at + 4 ) * width ( buf . get ( at + 3 ) );
+                if ( width ( buf . get ( at + 3 ) ) == 0 || buf . getInt ( at + 4 ) < 0 )
+                    return -1;
+            }
+            else
+            {
+                if ( width ( t ) == 0 )
+                    return -1;
+                next = at + 3L + width ( t );
+            }
+            return next > end ? -1 : ( int ) next;
+        }
+
+        private int at = -1;
+    }
+
+    static int getInt ( byte [] b, int off )
+    {
+        return ( b [ off ] & 0xff ) | ( b [ off + 1 ] & 0xff ) << 8 | ( b [ off + 2 ] & 0xff ) << 16 | b [ off + 3 ] << 24;
+    }
+
+    private int nameSize ()
+    {
+        return buf . get ( base + 8 ) & 0xff;
+    }
+
+    private int cigarStart ()
+    {
+        return base + fixedSize + nameSize ();
+    }
+
+    private int seqStart ()
+    {
+        return cigarStart () + cigarCount () * 4;
+    }
+
+    private int qualStart ()
+    {
+        return seqStart () + ( seqLength () + 1 ) / 2;
+    }
+
+    private int auxStart ()
+    {
+        return qualStart () + seqLength ();
+    }
+
+    private static int width ( byte type )
+    {
+        switch ( type )
+        {
+        case 'A': case 'c': case 'C':
+            return 1;
+        case 's': case 'S':
+            return 2;
+        case 'i': case 'I': case 'f':
+            return 4;
+        }
+        return 0;
+    }
+
+    /* complement
+     *  of an ASCII base, IUPAC codes included
+     */
+    static final byte [] complement = new byte [ 128 ];
+
+    /* seqCodes
+     *  the 4-bit code of an ASCII base, 'N' for anything unknown
+     */
+    static final byte [] seqCodes = new byte [ 128 ];
+
+    private static final byte [] seqChars = "=ACMGRSVTWYHKDBN" . getBytes ( StandardCharsets . US_ASCII );
+
+    static
+    {
+        for ( int i = 0; i < complement . length; ++ i )
+            complement [ i ] = ( byte ) i;
+        String from = "ACGTMRWSYKVHDBN";
+        String to   = "TGCAKYWSRMBDHVN";
+        for ( int i = 0; i < from . length (); ++ i )
+            complement [ from . charAt ( i ) ] = ( byte ) to . charAt ( i );
+
+        Arrays . fill ( seqCodes, ( byte ) 15 );
+        for ( int i = 0; i < seqChars . length; ++ i )
+        {
+            seqCodes [ seqChars [ i ] ] = ( byte ) i;
+            seqCodes [ Character . toLowerCase ( seqChars [ i ] ) ] = ( byte ) i;
+        }
+    }
+
+    private final Field fields = new Field ();
+
+    private ByteBuffer buf;     // the inflated block holding the record, or spill
+    private int base;           // the start of the record within buf
+    private int size;
+    private ByteBuffer spill = ByteBuffer . allocate ( 1024 ) . order ( ByteOrder . LITTLE_ENDIAN );
+}
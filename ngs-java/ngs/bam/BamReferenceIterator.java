@@ -0,0 +1,254 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+import ngs.PileupIterator;
+import ngs.ReferenceIterator;
+
+
+/*==========================================================================
+ * BamReferenceIterator
+ *  iterates the References declared by the header of a BamFile,
+ *  or stands for a single Reference
+ *
+ *  slices are served from the index when there is one,
+ *  otherwise by scanning the whole file
+ */
+class BamReferenceIterator
+    implements ReferenceIterator
+{
+
+    public String getCommonName ()
+        throws ErrorMsg
+    {
+        return file . refNames [ current () ];
+    }
+
+    public String getCanonicalName ()
+        throws ErrorMsg
+    {
+        return file . refNames [ current () ];
+    }
+
+    public boolean getIsCircular ()
+        throws ErrorMsg
+    {
+        return file . refCircular [ current () ];
+    }
+
+    public boolean getIsLocal ()
+        throws ErrorMsg
+    {
+        current ();
+        return false;
+    }
+
+    public long getLength ()
+        throws ErrorMsg
+    {
+        return file . refLengths [ current () ];
+    }
+
+    public String getReferenceBases ( long offset )
+        throws ErrorMsg
+    {
+        throw unavailable ( "reference bases" );
+    }
+
+    public String getReferenceBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        throw unavailable ( "reference bases" );
+    }
+
+    public String getReferenceChunk ( long offset )
+        throws ErrorMsg
+    {
+        throw unavailable ( "reference bases" );
+    }
+
+    public String getReferenceChunk ( long offset, long length )
+        throws ErrorMsg
+    {
+        throw unavailable ( "reference bases" );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * ALIGNMENTS
+     */
+
+    public long getAlignmentCount ()
+        throws ErrorMsg
+    {
+        return getAlignmentCount ( Alignment . all );
+    }
+
+    public long getAlignmentCount ( int categories )
+        throws ErrorMsg
+    {
+        // the index counts mapped records without telling their categories
+        int ref = current ();
+        long mapped = file . index == null ? -1 : file . index . mapped ( ref );
+        if ( mapped < 0 || ( categories & Alignment . all ) != Alignment . all )
+            throw unavailable ( "alignment count" );
+        return mapped;
+    }
+
+    public Alignment getAlignment ( String alignmentId )
+        throws ErrorMsg
+    {
+        throw unavailable ( "alignment id" );
+    }
+
+    public AlignmentIterator getAlignments ( int categories )
+        throws ErrorMsg
+    {
+        return slice ( 0, file . refLengths [ current () ], categories, Alignment . passFailed | Alignment . passDuplicates, 0 );
+    }
+
+    public AlignmentIterator getAlignmentSlice ( long start, long length )
+        throws ErrorMsg
+    {
+        return getAlignmentSlice ( start, length, Alignment . all );
+    }
+
+    public AlignmentIterator getAlignmentSlice ( long start, long length, int categories )
+        throws ErrorMsg
+    {
+        return slice ( start, start + length, categories, Alignment . passFailed | Alignment . passDuplicates, 0 );
+    }
+
+    public AlignmentIterator getFilteredAlignmentSlice ( long start, long length, int categories, int filters, int mappingQuality )
+        throws ErrorMsg
+    {
+        return slice ( start, start + length, categories, filters, mappingQuality );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * PILEUP
+     */
+
+    public PileupIterator getPileups ( int categories )
+        throws ErrorMsg
+    {
+        throw unavailable ( "pileup" );
+    }
+
+    public PileupIterator getFilteredPileups ( int categories, int filters, int mappingQuality )
+        throws ErrorMsg
+    {
+        throw unavailable ( "pileup" );
+    }
+
+    public PileupIterator getPileupSlice ( long start, long length )
+        throws ErrorMsg
+    {
+        throw unavailable ( "pileup" );
+    }
+
+    public PileupIterator getPileupSlice ( long start, long length, int categories )
+        throws ErrorMsg
+    {
+        throw unavailable ( "pileup" );
+    }
+
+    public PileupIterator getFilteredPileupSlice ( long start, long length, int categories, int filters, int mappingQuality )
+        throws ErrorMsg
+    {
+        throw unavailable ( "pileup" );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * iteration
+     */
+
+    public boolean nextReference ()
+    {
+        if ( idx < end )
+            ++ idx;
+        return idx < end;
+    }
+
+    static BamReferenceIterator single ( BamFile file, int ref )
+    {
+        BamReferenceIterator it = new BamReferenceIterator ( file, ref, ref + 1 );
+        it . idx = ref;
+        return it;
+    }
+
+    BamReferenceIterator ( BamFile file, int first, int end )
+    {
+        this . file = file;
+        this . first = first;
+        this . end = end;
+        this . idx = first - 1;
+    }
+
+    /* slice
+     *  the Alignments of the current Reference overlapping [ start, stop )
+     */
+    private AlignmentIterator slice ( long start, long stop, int categories, int filters, int mappingQuality )
+        throws ErrorMsg
+    {
+        int ref = current ();
+        start = Math . max ( start, 0 );
+        stop = Math . min ( stop, file . refLengths [ ref ] );
+
+        if ( file . index == null )
+            return new BamAlignmentIterator ( file, null, categories, filters, mappingQuality, ref, start, stop, false );
+
+        long [] chunks = start < stop ? file . index . slice ( ref, start, stop ) : new long [ 0 ];
+        return new BamAlignmentIterator ( file, chunks, categories, filters, mappingQuality, ref, start, stop, true );
+    }
+
+    private int current ()
+        throws ErrorMsg
+    {
+        if ( idx < first )
+            throw new ErrorMsg ( "Reference accessed before a call to ReferenceIterator.nextReference()" );
+        if ( idx >= end )
+            throw new ErrorMsg ( "No more rows available" );
+        return idx;
+    }
+
+    private static ErrorMsg unavailable ( String what )
+    {
+        return new ErrorMsg ( "The " + what + " is not available from a BAM file" );
+    }
+
+    private final BamFile file;
+    private final int first;
+    private final int end;
+    private int idx;
+}
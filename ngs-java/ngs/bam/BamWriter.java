@@ -0,0 +1,440 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.ReferenceIterator;
+import ngs.util.Bgzf;
+import ngs.internal.Tasks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/**
+ *<p>
+ * Writes coordinate-sorted BAM from the Alignments of a ReadCollection,
+ * or from an AlignmentIterator delivering them in coordinate order.
+ *</p>
+ *<p>
+ * Records are encoded on the calling thread into 64KB blocks, copying
+ * bases and qualities straight into reusable buffers. Full blocks are
+ * compressed on a pool of threads and written in order by the calling
+ * thread; at most twice as many blocks as threads are in flight. The
+ * index is built as records are encoded and written next to the BAM
+ * file when it is complete: as .bai, or as .csi when a Reference is
+ * longer than the 512Mbp that .bai can address.
+ *</p>
+ *<p>
+ * The header declares every Reference of the ReadCollection, in its
+ * order, and its named ReadGroups. Alignments of a ReadGroup carry it
+ * as an RG tag. Which end of a pair an Alignment belongs to is not
+ * known to the API, so flags 0x40 and 0x80 are never set.
+ *</p>
+ */
+public class BamWriter
+    implements AutoCloseable
+{
+
+    /**
+     * Create a writer with its own pool of daemon threads,
+     * shut down by "close".
+     * @param threads the number of compressing threads, &gt; 0
+     */
+    public BamWriter ( int threads )
+    {
+        if ( threads <= 0 )
+            throw new IllegalArgumentException ( "threads " + threads + " is not positive" );
+
+        this . pool = Tasks . daemonPool ( threads, "ngs-bam-gz-" );
+        this . owned = true;
+        this . parallelism = threads;
+    }
+
+    /**
+     * Create a writer that compresses on an existing pool,
+     * which is left running by "close".
+     * @param pool compresses blocks
+     * @param parallelism the number of threads expected to serve the writer, &gt; 0
+     */
+    public BamWriter ( ExecutorService pool, int parallelism )
+    {
+        if ( parallelism <= 0 )
+            throw new IllegalArgumentException ( "parallelism " + parallelism + " is not positive" );
+
+        this . pool = pool;
+        this . owned = false;
+        this . parallelism = parallelism;
+    }
+
+    /**
+     * @param level a Deflater compression level, 0 through 9
+     */
+    public void setCompressionLevel ( int level )
+    {
+        if ( level < 0 || level > 9 )
+            throw new IllegalArgumentException ( "compression level " + level + " is out of range" );
+        this . level = level;
+    }
+
+    /**
+     * @param categories the categories of Alignments exported from a ReadCollection
+     */
+    public void setCategories ( int categories )
+    {
+        this . categories = categories;
+    }
+
+    /**
+     * @param index false to write no index next to the BAM file
+     */
+    public void setIndex ( boolean index )
+    {
+        this . index = index;
+    }
+
+    /**
+     * Export the Alignments of every Reference of a ReadCollection
+     * @param coll the ReadCollection
+     * @param bam the file to create or replace
+     * @return the number of records written
+     * @throws ErrorMsg upon an error accessing data, or if the Alignments
+     *  of a Reference are not sorted by position
+     * @throws IOException upon an error writing
+     */
+    public long export ( ReadCollection coll, Path bam )
+        throws ErrorMsg, IOException
+    {
+        return write ( new BamEncoder ( coll ), bam, s ->
+        {
+            ReferenceIterator ref = coll . getReferences ();
+            while ( ref . nextReference () )
+            {
+                AlignmentIterator it = ref . getAlignments ( categories );
+                try
+                {
+                    while ( it . nextAlignment () )
+                        s . record ( it );
+                }
+                finally
+                {
+                    it . close ();
+                }
+            }
+        } );
+    }
+
+    /**
+     * Export Alignments from an iterator
+     * @param coll the ReadCollection declaring the References and ReadGroups
+     * @param it delivers the Alignments sorted by Reference, in the order
+     *  of the ReadCollection, and by position
+     * @param bam the file to create or replace
+     * @return the number of records written
+     * @throws ErrorMsg upon an error accessing data, or if the Alignments
+     *  are not sorted
+     * @throws IOException upon an error writing
+     */
+    public long export ( ReadCollection coll, AlignmentIterator it, Path bam )
+        throws ErrorMsg, IOException
+    {
+        return write ( new BamEncoder ( coll ), bam, s ->
+        {
+            while ( it . nextAlignment () )
+                s . record ( it );
+        } );
+    }
+
+    /**
+     * Shut down the pool, if it was created by this writer.
+     */
+    public void close ()
+    {
+        if ( owned )
+            pool . shutdown ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Source
+     *  feeds the Alignments to a Session
+     */
+    private interface Source
+    {
+        void run ( Session s )
+            throws ErrorMsg, IOException;
+    }
+
+    private long write ( BamEncoder enc, Path bam, Source source )
+        throws ErrorMsg, IOException
+    {
+        try ( FileChannel out = FileChannel . open ( bam, StandardOpenOption . CREATE,
+                StandardOpenOption . WRITE, StandardOpenOption . TRUNCATE_EXISTING ) )
+        {
+            Session s = new Session ( enc, out );
+            try
+            {
+                s . header ();
+                source . run ( s );
+                s . finish ();
+            }
+            finally
+            {
+                s . abandon ();
+            }
+
+            if ( index )
+            {
+                String ext = s . index . csi () ? ".csi" : ".bai";
+                s . index . write ( bam . resolveSibling ( bam . getFileName () + ext ),
+                    Arrays . copyOf ( s . blockOffsets, s . written ) );
+            }
+            return s . records;
+        }
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Block
+     *  uncompressed data and its BGZF block, reused from block to block
+     */
+    private static class Block
+    {
+        final byte [] data = new byte [ Bgzf . maxInputSize ];
+        int size;
+        final byte [] packed = new byte [ Bgzf . maxBlockSize ];
+        int packedSize;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Session
+     *  the writing of one file
+     */
+    private class Session
+    {
+        /* header
+         *  in blocks of its own
+         */
+        void header ()
+            throws ErrorMsg, IOException
+        {
+            byte [] h = enc . header ();
+            append ( h, h . length );
+            flush ();
+        }
+
+        /* record
+         *  encode the current Alignment
+         */
+        void record ( Alignment a )
+            throws ErrorMsg, IOException
+        {
+            int size = enc . encode ( a );
+            int refId = enc . refId;
+            long pos = enc . pos;
+            if ( refId < lastRef || ( refId == lastRef && pos < lastPos ) )
+                throw new ErrorMsg ( "Alignments are not sorted by coordinate: " + enc . names [ refId ] + ":" + pos
+                                     + " follows " + enc . names [ lastRef ] + ":" + lastPos );
+            lastRef = refId;
+            lastPos = pos;
+
+            // keep a record within one block when it fits into one
+            if ( block . size + size > Bgzf . maxInputSize && size <= Bgzf . maxInputSize )
+                flush ();
+            long vbeg = pseudoOffset ();
+            append ( enc . record (), size );
+            index . add ( refId, pos, pos + enc . refLength, vbeg, pseudoOffset () );
+            ++ records;
+        }
+
+        /* finish
+         *  write the remaining blocks and the end-of-file marker
+         */
+        void finish ()
+            throws ErrorMsg, IOException
+        {
+            flush ();
+            while ( ! inflight . isEmpty () )
+                drain ();
+
+            // a record ending a full block ends at the start of the next,
+            // which is the end-of-file marker after the last one
+            byte [] eof = Bgzf . eof ();
+            mark ();
+            write ( eof, eof . length );
+        }
+
+        /* abandon
+         *  let blocks still compressing finish, after a failure
+         */
+        void abandon ()
+        {
+            Tasks . abandon ( inflight, false );
+            inflight . clear ();
+        }
+
+        Session ( BamEncoder enc, FileChannel out )
+        {
+            this . enc = enc;
+            this . out = out;
+            this . index = new BamIndexBuilder ( enc . lengths );
+            this . block = take ();
+        }
+
+        private long pseudoOffset ()
+        {
+            return submitted << 16 | block . size;
+        }
+
+        /* append
+         *  copy into blocks, submitting each as it fills up
+         */
+        private void append ( byte [] src, int len )
+            throws ErrorMsg, IOException
+        {
+            for ( int off = 0; off < len; )
+            {
+                int n = Math . min ( len - off, Bgzf . maxInputSize - block . size );
+                System . arraycopy ( src, off, block . data, block . size, n );
+                block . size += n;
+                off += n;
+                if ( block . size == Bgzf . maxInputSize )
+                    flush ();
+            }
+        }
+
+        /* flush
+         *  submit the current block for compression, if it holds data
+         */
+        private void flush ()
+            throws ErrorMsg, IOException
+        {
+            if ( block . size == 0 )
+                return;
+
+            final Block b = block;
+            final int level = BamWriter . this . level;
+            inflight . add ( pool . submit ( () -> compress ( b, level ) ) );
+            ++ submitted;
+            block = take ();
+
+            while ( inflight . size () >= parallelism * 2 )
+                drain ();
+        }
+
+        /* drain
+         *  write the oldest block, recording where it went
+         */
+        private void drain ()
+            throws ErrorMsg, IOException
+        {
+            Block b = Tasks . await ( inflight . poll (), "BGZF block" );
+            mark ();
+            write ( b . packed, b . packedSize );
+            free . add ( b );
+        }
+
+        /* mark
+         *  the offset of the next block written
+         */
+        private void mark ()
+        {
+            if ( written == blockOffsets . length )
+                blockOffsets = Arrays . copyOf ( blockOffsets, written * 2 );
+            blockOffsets [ written ++ ] = position;
+        }
+
+        private void write ( byte [] data, int size )
+            throws IOException
+        {
+            ByteBuffer buf = ByteBuffer . wrap ( data, 0, size );
+            while ( buf . hasRemaining () )
+                out . write ( buf );
+            position += size;
+        }
+
+        final BamEncoder enc;
+        final FileChannel out;
+        final BamIndexBuilder index;
+        final ArrayDeque < Future < Block > > inflight = new ArrayDeque < Future < Block > > ();
+
+        long records;
+        long [] blockOffsets = new long [ 1024 ];
+        int written;            // blocks written, the end-of-file marker included
+
+        private Block block;    // the block being filled
+        private long submitted; // blocks submitted, the ordinal of "block"
+        private long position;  // the file offset of the next block
+        private int lastRef = -1;
+        private long lastPos;
+    }
+
+    private Block take ()
+    {
+        Block b = free . poll ();
+        if ( b == null )
+            b = new Block ();
+        b . size = 0;
+        return b;
+    }
+
+    /* compress
+     *  one block, on a pool thread
+     */
+    private Block compress ( Block b, int level )
+    {
+        Deflater d = deflater . get ();
+        d . setLevel ( level );
+        b . packedSize = Bgzf . compress ( d, crc32 . get (), b . data, 0, b . size, b . packed, 0 );
+        return b;
+    }
+
+    private final ExecutorService pool;
+    private final boolean owned;
+    private final int parallelism;
+    private final ConcurrentLinkedQueue < Block > free = new ConcurrentLinkedQueue < Block > ();
+    private final ThreadLocal < Deflater > deflater = ThreadLocal . withInitial ( () -> new Deflater ( Deflater . DEFAULT_COMPRESSION, true ) );
+    private final ThreadLocal < CRC32 > crc32 = ThreadLocal . withInitial ( CRC32 :: new );
+    private int level = Deflater . DEFAULT_COMPRESSION;
+    private int categories = Alignment . all;
+    private boolean index = true;
+}
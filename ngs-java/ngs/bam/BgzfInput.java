@@ -0,0 +1,301 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.ErrorMsg;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/*==========================================================================
+ * BgzfInput
+ *  a cursor over the uncompressed contents of a BGZF file,
+ *  positioned by BGZF virtual offsets: the file offset of a block
+ *  shifted left by 16, or'ed with an offset into its uncompressed data
+ *
+ *  block headers are walked on the caller's thread, which is cheap;
+ *  the blocks themselves are inflated on the pool of the BamFile,
+ *  keeping up to "ahead" of them in flight ahead of the cursor
+ */
+final class BgzfInput
+{
+
+    /* seek
+     *  position the cursor at a virtual offset
+     */
+    void seek ( long voffset )
+        throws ErrorMsg
+    {
+        cancel ();
+
+        next = voffset >>> 16;
+        block = empty;
+        blockOffset = next;
+        pos = 0;
+
+        int within = ( int ) ( voffset & 0xffff );
+        if ( within > 0 )
+        {
+            if ( ! nextBlock () || within > block . length )
+                throw new ErrorMsg ( "virtual offset " + voffset + " is out of range" );
+            pos = within;
+        }
+    }
+
+    /* tell
+     *  the virtual offset of the next byte
+     */
+    long tell ()
+    {
+        if ( pos == block . length && block != empty )
+            return nextOffset << 16;
+        return blockOffset << 16 | pos;
+    }
+
+    /* readFully
+     *  copy the next "len" bytes into "dst"
+     *  returns false if the data ended before the first byte,
+     *  throws if it ended part way
+     */
+    boolean readFully ( byte [] dst, int off, int len )
+        throws ErrorMsg
+    {
+        boolean started = false;
+        while ( len > 0 )
+        {
+            if ( pos == block . length )
+            {
+                if ( ! nextBlock () )
+                {
+                    if ( started )
+                        throw new ErrorMsg ( "file is truncated" );
+                    return false;
+                }
+                continue;
+            }
+
+            int n = Math . min ( len, block . length - pos );
+            System . arraycopy ( block, pos, dst, off, n );
+            pos += n;
+            off += n;
+            len -= n;
+            started = true;
+        }
+        return true;
+    }
+
+    /* inPlace
+     *  consume the next "len" bytes if they lie within one block,
+     *  returning their position in "buffer ()"; otherwise consume
+     *  nothing and return -1, leaving them to "readFully"
+     */
+    int inPlace ( int len )
+        throws ErrorMsg
+    {
+        if ( pos == block . length && ! nextBlock () )
+            return -1;
+        if ( block . length - pos < len )
+            return -1;
+        int at = pos;
+        pos += len;
+        return at;
+    }
+
+    /* buffer
+     *  the uncompressed data of the current block, little-endian
+     */
+    ByteBuffer buffer ()
+    {
+        return buffer;
+    }
+
+    /* close
+     *  abandon blocks still being inflated
+     */
+    void close ()
+    {
+        cancel ();
+    }
+
+    BgzfInput ( BamFile file, int ahead )
+    {
+        this . file = file;
+        this . ahead = Math . max ( 1, ahead );
+        this . pending = new ArrayDeque <> ();
+        this . block = empty;
+    }
+
+    /* nextBlock
+     *  make the next block with data current
+     *  returns false at the end of the file
+     */
+    private boolean nextBlock ()
+        throws ErrorMsg
+    {
+        do
+        {
+            fill ();
+
+            Pending p = pending . poll ();
+            if ( p == null )
+                return false;
+
+            try
+            {
+                block = p . data . get ();
+            }
+            catch ( ExecutionException x )
+            {
+                Throwable cause = x . getCause ();
+                if ( cause instanceof ErrorMsg )
+                    throw ( ErrorMsg ) cause;
+                throw new ErrorMsg ( cause . toString () );
+            }
+            catch ( InterruptedException | CancellationException x )
+            {
+                Thread . currentThread () . interrupt ();
+                throw new ErrorMsg ( "interrupted while inflating" );
+            }
+
+            buffer = ByteBuffer . wrap ( block ) . order ( ByteOrder . LITTLE_ENDIAN );
+            blockOffset = p . offset;
+            nextOffset = p . offset + p . size;
+            pos = 0;
+        }
+        while ( block . length == 0 );
+
+        return true;
+    }
+
+    /* fill
+     *  walk block headers and submit blocks for inflation
+     */
+    private void fill ()
+        throws ErrorMsg
+    {
+        while ( pending . size () < ahead && next + headerSize <= file . size )
+        {
+            file . read ( next, header, 0, headerSize );
+            if ( ( header [ 0 ] & 0xff ) != 31 || ( header [ 1 ] & 0xff ) != 139 || header [ 12 ] != 'B' || header [ 13 ] != 'C' )
+                throw new ErrorMsg ( "file is corrupt: no BGZF block at offset " + next );
+
+            final long offset = next;
+            final int size = ( ( header [ 16 ] & 0xff ) | ( header [ 17 ] & 0xff ) << 8 ) + 1;
+            if ( size < headerSize + trailerSize )
+                throw new ErrorMsg ( "file is corrupt: BGZF block size " + size + " at offset " + offset );
+
+            Future < byte [] > data = file . pool . submit ( () -> inflate ( file, offset, size ) );
+            pending . add ( new Pending ( offset, size, data ) );
+            next += size;
+        }
+    }
+
+    private void cancel ()
+    {
+        for ( Pending p : pending )
+            p . data . cancel ( false );
+        pending . clear ();
+    }
+
+    /* inflate
+     *  decompress one block, on a thread of the pool
+     */
+    static byte [] inflate ( BamFile file, long offset, int size )
+        throws ErrorMsg
+    {
+        byte [] raw = new byte [ size ];
+        file . read ( offset, raw, 0, size );
+
+        int isize = BamRecordView . getInt ( raw, size - 4 );
+        if ( isize < 0 || isize > 0x10000 )
+            throw new ErrorMsg ( "file is corrupt: BGZF block at offset " + offset + " inflates to " + isize + " bytes" );
+
+        byte [] out = new byte [ isize ];
+        Inflater inflater = inflaters . get ();
+        inflater . reset ();
+        inflater . setInput ( raw, headerSize, size - headerSize - trailerSize );
+        try
+        {
+            int n = 0;
+            while ( n < isize && ! inflater . finished () )
+            {
+                int got = inflater . inflate ( out, n, isize - n );
+                if ( got == 0 && ( inflater . needsInput () || inflater . needsDictionary () ) )
+                    break;
+                n += got;
+            }
+            if ( n != isize )
+                throw new ErrorMsg ( "file is corrupt: BGZF block at offset " + offset + " is short" );
+        }
+        catch ( DataFormatException x )
+        {
+            throw new ErrorMsg ( "file is corrupt: BGZF block at offset " + offset + ": " + x . getMessage () );
+        }
+        return out;
+    }
+
+    private static class Pending
+    {
+        Pending ( long offset, int size, Future < byte [] > data )
+        {
+            this . offset = offset;
+            this . size = size;
+            this . data = data;
+        }
+
+        final long offset;
+        final int size;
+        final Future < byte [] > data;
+    }
+
+    private static final int headerSize = 18;
+    private static final int trailerSize = 8;
+    private static final byte [] empty = new byte [ 0 ];
+
+    // one raw inflater per pool thread
+    private static final ThreadLocal < Inflater > inflaters = ThreadLocal . withInitial ( () -> new Inflater ( true ) );
+
+    private final BamFile file;
+    private final int ahead;
+    private final ArrayDeque < Pending > pending;
+    private final byte [] header = new byte [ headerSize ];
+
+    private byte [] block;      // uncompressed data of the current block
+    private ByteBuffer buffer;  // the same, viewed little-endian
+    private long blockOffset;   // file offset of the current block
+    private long nextOffset;    // file offset of the block after it
+    private int pos;            // position within the current block
+    private long next;          // file offset of the next block to submit
+}
@@ -0,0 +1,222 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+
+/*==========================================================================
+ * SortedAlignmentIterator
+ *  merges runs of BAM records, each sorted by Reference and position,
+ *  viewing every record in place within its run
+ *
+ *  records equal in Reference and position come out in the order of
+ *  the runs, which is the order they were taken in; the ids of
+ *  Alignments are given back when the records keep them
+ */
+class SortedAlignmentIterator
+    extends BamRecordAlignment
+    implements AlignmentIterator
+{
+
+    public String getFragmentId ()
+        throws ErrorMsg
+    {
+        return id ( BamEncoder . fragmentIdTag, "fragment id" );
+    }
+
+    public String getAlignmentId ()
+        throws ErrorMsg
+    {
+        return id ( BamEncoder . alignmentIdTag, "alignment id" );
+    }
+
+    public String getMateAlignmentId ()
+        throws ErrorMsg
+    {
+        return id ( BamEncoder . mateIdTag, "mate alignment id" );
+    }
+
+    public boolean hasMate ()
+    {
+        if ( rec == null || ! ids )
+            return super . hasMate ();
+        return rec . stringTag ( BamEncoder . mateIdTag . charAt ( 0 ), BamEncoder . mateIdTag . charAt ( 1 ) ) != null;
+    }
+
+    public boolean nextAlignment ()
+        throws ErrorMsg
+    {
+        if ( done )
+            return false;
+
+        rec = null;
+        if ( run != null && run . advance () )
+            heap . add ( run );
+
+        run = heap . poll ();
+        if ( run == null )
+        {
+            finish ();
+            return false;
+        }
+
+        view . view ( run . buf, run . at + 4, run . size );
+        rec = view;
+        return true;
+    }
+
+    /* close
+     *  deletes the files of the runs
+     */
+    public void close ()
+    {
+        finish ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Run
+     *  a cursor over sorted records, each with its leading block_size:
+     *  in memory, in the order of "offsets", or in a mapped file,
+     *  one after another
+     */
+    static final class Run
+    {
+        /* advance
+         *  to the next record
+         *  returns false past the last one
+         */
+        boolean advance ()
+        {
+            if ( offsets != null )
+            {
+                if ( next == count )
+                    return false;
+                at = offsets [ next ++ ];
+            }
+            else
+            {
+                if ( next >= buf . limit () )
+                    return false;
+                at = next;
+                next += 4 + buf . getInt ( at );
+            }
+            size = buf . getInt ( at );
+            key = ( long ) buf . getInt ( at + 4 ) << 32 | ( buf . getInt ( at + 8 ) & 0xffffffffL );
+            return true;
+        }
+
+        Run ( int ordinal, ByteBuffer buf, int [] offsets, int count, Path file )
+        {
+            this . ordinal = ordinal;
+            this . buf = buf;
+            this . offsets = offsets;
+            this . count = count;
+            this . file = file;
+        }
+
+        final int ordinal;
+        final ByteBuffer buf;
+        final int [] offsets;
+        final int count;
+        final Path file;
+
+        long key;       // Reference << 32 | position, of the current record
+        int at;         // the position of the current record
+        int size;       // and its size, without block_size
+        private int next;
+    }
+
+    SortedAlignmentIterator ( String [] refNames, ArrayList < Run > runs, boolean ids )
+    {
+        super ( refNames );
+        this . runs = runs;
+        this . ids = ids;
+        for ( Run r : runs )
+        {
+            if ( r . advance () )
+                heap . add ( r );
+        }
+    }
+
+    /* delete
+     *  the files of runs, ignoring failures
+     */
+    static void delete ( ArrayList < Run > runs )
+    {
+        for ( Run r : runs )
+        {
+            if ( r . file == null )
+                continue;
+            try
+            {
+                Files . deleteIfExists ( r . file );
+            }
+            catch ( IOException x )
+            {
+                // left to the temporary directory
+            }
+        }
+    }
+
+    private String id ( String tag, String what )
+        throws ErrorMsg
+    {
+        BamRecordView r = current ();
+        String id = ids ? r . stringTag ( tag . charAt ( 0 ), tag . charAt ( 1 ) ) : null;
+        if ( id == null )
+            throw new ErrorMsg ( "The " + what + " is not available from sorted Alignments" );
+        return id;
+    }
+
+    private void finish ()
+    {
+        done = true;
+        rec = null;
+        run = null;
+        heap . clear ();
+        delete ( runs );
+        runs . clear ();
+    }
+
+    private final ArrayList < Run > runs;
+    private final boolean ids;
+    private final BamRecordView view = new BamRecordView ();
+    private final PriorityQueue < Run > heap = new PriorityQueue < Run > ( 16, ( a, b ) ->
+        a . key != b . key ? Long . compare ( a . key, b . key ) : Integer . compare ( a . ordinal, b . ordinal ) );
+    private Run run;    // the run of the current record, out of the heap
+}
@@ -0,0 +1,63 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.internal;
+
+
+/*==========================================================================
+ * Bounds
+ *  validates the destination arrays given to bulk accessors
+ *  by every implementation of the API; not part of the API
+ */
+public final class Bounds
+{
+
+    /* checkArray
+     *  validate a destination array and offset
+     */
+    public static void checkArray ( byte [] dst, int dstOffset )
+        throws IndexOutOfBoundsException
+    {
+        if ( dst == null )
+            throw new NullPointerException ( "destination array is null" );
+        if ( dstOffset < 0 || dstOffset > dst . length )
+            throw new IndexOutOfBoundsException ( "destination offset " + dstOffset + " is out of range" );
+    }
+
+    public static void checkArray ( int [] dst, int dstOffset )
+        throws IndexOutOfBoundsException
+    {
+        if ( dst == null )
+            throw new NullPointerException ( "destination array is null" );
+        if ( dstOffset < 0 || dstOffset > dst . length )
+            throw new IndexOutOfBoundsException ( "destination offset " + dstOffset + " is out of range" );
+    }
+
+    private Bounds ()
+    {
+    }
+}
@@ -0,0 +1,163 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.internal;
+
+import ngs.ErrorMsg;
+import ngs.UncheckedErrorMsg;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/*==========================================================================
+ * Tasks
+ *  helpers for the thread pools of the parallel tools: a pool of
+ *  daemon threads, waiting for a task while rethrowing what it threw,
+ *  and letting tasks finish after a failure; not part of the API
+ */
+public final class Tasks
+{
+
+    /* daemonPool
+     *  a fixed pool of threads that do not keep the JVM alive,
+     *  named by "prefix" followed by their number
+     */
+    public static ExecutorService daemonPool ( int threads, String prefix )
+    {
+        return Executors . newFixedThreadPool ( threads, new DaemonFactory ( prefix ) );
+    }
+
+    /* await
+     *  the result of a task, rethrowing what it threw;
+     *  an IOException is reported as an ErrorMsg.
+     *  "what" names the result upon interruption
+     */
+    public static < T > T await ( Future < T > f, String what )
+        throws ErrorMsg
+    {
+        try
+        {
+            return awaitIO ( f, what );
+        }
+        catch ( IOException x )
+        {
+            throw new ErrorMsg ( x . toString () );
+        }
+    }
+
+    /* awaitIO
+     *  as "await", passing on an IOException
+     */
+    public static < T > T awaitIO ( Future < T > f, String what )
+        throws ErrorMsg, IOException
+    {
+        try
+        {
+            return f . get ();
+        }
+        catch ( InterruptedException x )
+        {
+            Thread . currentThread () . interrupt ();
+            throw new ErrorMsg ( "interrupted while waiting for " + what );
+        }
+        catch ( ExecutionException x )
+        {
+            Throwable cause = x . getCause ();
+            if ( cause instanceof CompletionException && cause . getCause () != null )
+                cause = cause . getCause ();
+            if ( cause instanceof UncheckedErrorMsg )
+                throw ( ( UncheckedErrorMsg ) cause ) . getCause ();
+            if ( cause instanceof ErrorMsg )
+                throw ( ErrorMsg ) cause;
+            if ( cause instanceof IOException )
+                throw ( IOException ) cause;
+            if ( cause instanceof RuntimeException )
+                throw ( RuntimeException ) cause;
+            if ( cause instanceof Error )
+                throw ( Error ) cause;
+            throw new ErrorMsg ( String . valueOf ( cause ) );
+        }
+    }
+
+    /* abandon
+     *  let tasks finish after a failure, ignoring what they throw;
+     *  optionally cancel those that have not started
+     */
+    public static void abandon ( Iterable < ? extends Future < ? > > inflight, boolean cancel )
+    {
+        if ( cancel )
+        {
+            for ( Future < ? > f : inflight )
+                f . cancel ( false );
+        }
+        for ( Future < ? > f : inflight )
+        {
+            try
+            {
+                if ( ! f . isCancelled () )
+                    f . get ();
+            }
+            catch ( Exception x )
+            {
+                // already failing
+            }
+        }
+    }
+
+    /* DaemonFactory
+     *  pool threads do not keep the JVM alive
+     */
+    private static class DaemonFactory
+        implements ThreadFactory
+    {
+        public Thread newThread ( Runnable r )
+        {
+            Thread t = new Thread ( r, prefix + count . incrementAndGet () );
+            t . setDaemon ( true );
+            return t;
+        }
+
+        DaemonFactory ( String prefix )
+        {
+            this . prefix = prefix;
+        }
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger ();
+    }
+
+    private Tasks ()
+    {
+    }
+}
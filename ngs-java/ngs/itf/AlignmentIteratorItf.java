@@ -29,6 +29,7 @@ package ngs.itf;
 import ngs.ErrorMsg;
 import ngs.Fragment;
 import ngs.Alignment;
+import ngs.AlignmentBatch;
 import ngs.AlignmentIterator;
 
 
@@ -60,6 +61,52 @@ class AlignmentIteratorItf
         return this . NextAlignment ( self );
     }
 
+    /* nextAlignmentBatch
+     *  advance by up to "max" Alignments, copying each into "batch"
+     *  fills as many Alignments as possible in a single native call,
+     *  re-entering only to grow the batch when a CIGAR does not fit
+     *  returns the number of Alignments copied, 0 if no more are available
+     */
+    public int nextAlignmentBatch ( AlignmentBatch batch, int max )
+        throws ErrorMsg
+    {
+        if ( max < 0 )
+            throw new IllegalArgumentException ( "max " + max + " is negative" );
+
+        batch . clear ();
+        batch . ensureCapacity ( max, 0 );
+
+        // reference specs are returned once per distinct value and call
+        String [] specs = batch . getSpecBuffer ( max );
+        int [] status = batch . getStatusBuffer ();
+        int count = 0;
+        boolean resume = false;
+        while ( count < max )
+        {
+            int start = count;
+            int [] cigarOffsets = batch . getCigarOffsets ();
+            count = this . NextAlignmentBatch ( self, resume, batch . isClipped (), start, max, cigarOffsets [ start ],
+                batch . getPositions (), batch . getLengths (), batch . getMappingQualities (),
+                batch . getCategories (), batch . getFlags (), batch . getReferenceIndexes (),
+                cigarOffsets, batch . getCigarOps (), specs, status );
+            batch . setSize ( count );
+
+            // map per-call spec numbers onto the batch dictionary
+            int [] refIndexes = batch . getReferenceIndexes ();
+            for ( int i = start; i < count; ++ i )
+                refIndexes [ i ] = batch . internReferenceSpec ( specs [ refIndexes [ i ] ] );
+
+            // the current Alignment did not fit
+            if ( status [ 0 ] == 0 )
+                break;
+
+            batch . ensureCapacity ( max, batch . getCigarOffsets () [ count ] + status [ 0 ] );
+            resume = true;
+        }
+
+        return count;
+    }
+
 
     /***************************************
      * AlignmentIteratorItf Implementation *
@@ -79,7 +126,7 @@ class AlignmentIteratorItf
         try
         {
             AlignmentIteratorItf ref = ( AlignmentIteratorItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -90,4 +137,8 @@ class AlignmentIteratorItf
     // native interface
     private native boolean NextAlignment ( long self )
         throws ErrorMsg;
+    private native int NextAlignmentBatch ( long self, boolean resume, boolean clipped, int start, int max, int used,
+            long [] positions, long [] lengths, int [] mapq, int [] categories, int [] flags, int [] refIndexes,
+            int [] cigarOffsets, int [] cigarOps, String [] specs, int [] status )
+        throws ErrorMsg;
 }
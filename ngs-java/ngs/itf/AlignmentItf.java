@@ -26,7 +26,12 @@
 
 package ngs.itf;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import ngs.internal.Bounds;
 import ngs.ErrorMsg;
+import ngs.Phred;
 import ngs.Fragment;
 import ngs.Alignment;
 
@@ -117,6 +122,137 @@ class AlignmentItf
         return this . GetFragmentQualities ( self, offset, length );
     }
 
+    /* getFragmentBases
+     *  copy sequence bases into caller-supplied storage
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getFragmentBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentBasesBytes ( self, 0, -1, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentBasesBytes ( self, offset, length, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentBases ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return this . fragmentBases ( 0, -1, dst );
+    }
+
+    public int getFragmentBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . fragmentBases ( offset, length, dst );
+    }
+
+    /* getFragmentQualities
+     *  copy phred quality values using ASCII offset of 33 into caller-supplied storage
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getFragmentQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentQualitiesBytes ( self, 0, -1, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentQualitiesBytes ( self, offset, length, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualities ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return this . fragmentQualities ( 0, -1, dst );
+    }
+
+    public int getFragmentQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . fragmentQualities ( offset, length, dst );
+    }
+
+    /* getFragmentQualityScores
+     *  copy raw phred quality scores into caller-supplied storage,
+     *  binned natively
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getFragmentQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        return this . GetFragmentQualityScoresBytes ( self, 0, -1, binning, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        return this . GetFragmentQualityScoresBytes ( self, offset, length, binning, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualityScores ( ByteBuffer dst, int binning )
+        throws ErrorMsg
+    {
+        return this . fragmentQualityScores ( 0, -1, binning, dst );
+    }
+
+    public int getFragmentQualityScores ( long offset, long length, ByteBuffer dst, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . fragmentQualityScores ( offset, length, binning, dst );
+    }
+
     public boolean isPaired ()
         throws ErrorMsg
     {
@@ -155,6 +291,18 @@ class AlignmentItf
         return this . GetReferenceSpec ( self );
     }
 
+    /* getReferenceSpec
+     *  copy the name into caller-supplied storage
+     *  returns its full length, copying only as many bytes as fit
+     */
+    public int getReferenceSpec ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReferenceSpecBytes ( self, dst, dstOffset, dst . length - dstOffset );
+    }
+
     /* getMappingQuality 
      */
     public int getMappingQuality ()
@@ -185,6 +333,18 @@ class AlignmentItf
         return this . GetReadGroup ( self );
     }
 
+    /* getReadGroup
+     *  copy the name into caller-supplied storage
+     *  returns its full length, copying only as many bytes as fit
+     */
+    public int getReadGroup ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReadGroupBytes ( self, dst, dstOffset, dst . length - dstOffset );
+    }
+
     /* getReadId
      */
     public String getReadId ()
@@ -212,6 +372,20 @@ class AlignmentItf
         return this . GetClippedFragmentQualities ( self );
     }
 
+    /* getClippedFragmentQualityScores
+     *  copy raw phred quality scores into caller-supplied storage,
+     *  binned natively
+     */
+    public int getClippedFragmentQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        return this . GetClippedFragmentQualityScoresBytes ( self, binning, dst, dstOffset, dst . length - dstOffset );
+    }
+
     /* getAlignedFragmentBases
      *  return fragment bases in their aligned orientation
      */
@@ -296,6 +470,26 @@ class AlignmentItf
         return this . GetLongCigar ( self, clipped );
     }
 
+    /* getCigarOps
+     *  encoded natively into packed operations
+     *  returns the number of operations, storing only as many as fit
+     */
+    public int getCigarOps ( boolean clipped, int [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetCigarOps ( self, clipped, false, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getLongCigarOps ( boolean clipped, int [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetCigarOps ( self, clipped, true, dst, dstOffset, dst . length - dstOffset );
+    }
+
 
     /* getRNAOrientation
      */
@@ -351,6 +545,18 @@ class AlignmentItf
         return this . GetMateReferenceSpec ( self );
     }
 
+    /* getMateReferenceSpec
+     *  copy the name into caller-supplied storage
+     *  returns its full length, copying only as many bytes as fit
+     */
+    public int getMateReferenceSpec ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetMateReferenceSpecBytes ( self, dst, dstOffset, dst . length - dstOffset );
+    }
+
     /* getMateIsReversedOrientation
      */
     public boolean getMateIsReversedOrientation ()
@@ -378,7 +584,7 @@ class AlignmentItf
         try
         {
             AlignmentItf ref = ( AlignmentItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -386,6 +592,68 @@ class AlignmentItf
         }
     }
 
+    /* fragmentBases
+     *  copy into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int fragmentBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetFragmentBasesBuffer ( self, offset, length, dst, position, remaining )
+            : this . GetFragmentBasesBytes ( self, offset, length, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
+    /* fragmentQualities
+     *  copy into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int fragmentQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetFragmentQualitiesBuffer ( self, offset, length, dst, position, remaining )
+            : this . GetFragmentQualitiesBytes ( self, offset, length, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
+    /* fragmentQualityScores
+     *  copy raw phred scores into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int fragmentQualityScores ( long offset, long length, int binning, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetFragmentQualityScoresBuffer ( self, offset, length, binning, dst, position, remaining )
+            : this . GetFragmentQualityScoresBytes ( self, offset, length, binning, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
     // native interface
     private native String GetFragmentId ( long self )
         throws ErrorMsg;
@@ -393,24 +661,42 @@ class AlignmentItf
         throws ErrorMsg;
     private native String GetFragmentQualities ( long self, long offset, long length )
         throws ErrorMsg;
+    private native int GetFragmentBasesBytes ( long self, long offset, long length, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentBasesBuffer ( long self, long offset, long length, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualitiesBytes ( long self, long offset, long length, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualitiesBuffer ( long self, long offset, long length, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualityScoresBytes ( long self, long offset, long length, int binning, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualityScoresBuffer ( long self, long offset, long length, int binning, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native boolean IsPaired ( long self )
         throws ErrorMsg;
     private native String GetAlignmentId ( long self )
         throws ErrorMsg;
     private native String GetReferenceSpec ( long self )
         throws ErrorMsg;
+    private native int GetReferenceSpecBytes ( long self, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native int GetMappingQuality ( long self )
         throws ErrorMsg;
     private native String GetReferenceBases ( long self )
         throws ErrorMsg;
     private native String GetReadGroup ( long self )
         throws ErrorMsg;
+    private native int GetReadGroupBytes ( long self, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native String GetReadId ( long self )
         throws ErrorMsg;
     private native String GetClippedFragmentBases ( long self )
         throws ErrorMsg;
     private native String GetClippedFragmentQualities ( long self )
         throws ErrorMsg;
+    private native int GetClippedFragmentQualityScoresBytes ( long self, int binning, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native String GetAlignedFragmentBases ( long self )
         throws ErrorMsg;
     private native int GetAlignmentCategory ( long self )
@@ -429,6 +715,8 @@ class AlignmentItf
         throws ErrorMsg;
     private native String GetLongCigar ( long self, boolean clipped )
         throws ErrorMsg;
+    private native int GetCigarOps ( long self, boolean clipped, boolean longForm, int [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native char GetRNAOrientation ( long self )
         throws ErrorMsg;
     private native boolean HasMate ( long self );
@@ -438,6 +726,8 @@ class AlignmentItf
         throws ErrorMsg;
     private native String GetMateReferenceSpec ( long self )
         throws ErrorMsg;
+    private native int GetMateReferenceSpecBytes ( long self, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native boolean GetMateIsReversedOrientation ( long self )
         throws ErrorMsg;
 }
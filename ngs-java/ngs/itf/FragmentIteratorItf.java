@@ -75,7 +75,7 @@ class FragmentIteratorItf
         try
         {
             FragmentIteratorItf ref = ( FragmentIteratorItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -77,7 +77,7 @@ class PileupIteratorItf
         try
         {
             PileupIteratorItf ref = ( PileupIteratorItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -26,6 +26,7 @@
 
 package ngs.itf;
 
+import ngs.internal.Bounds;
 import ngs.ErrorMsg;
 import ngs.Pileup;
 import ngs.PileupEvent;
@@ -219,6 +220,18 @@ class PileupItf
         return this . GetReferenceSpec ( self );
     }
 
+    /* getReferenceSpec
+     *  copy the name into caller-supplied storage
+     *  returns its full length, copying only as many bytes as fit
+     */
+    public int getReferenceSpec ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReferenceSpecBytes ( self, dst, dstOffset, dst . length - dstOffset );
+    }
+
     /* getReferencePosition
      */
     public long getReferencePosition ()
@@ -269,7 +282,7 @@ class PileupItf
         try
         {
             PileupItf ref = ( PileupItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -308,6 +321,8 @@ class PileupItf
         throws ErrorMsg;
     private native String GetReferenceSpec ( long self )
         throws ErrorMsg;
+    private native int GetReferenceSpecBytes ( long self, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native long GetReferencePosition ( long self )
         throws ErrorMsg;
     private native char GetReferenceBase ( long self )
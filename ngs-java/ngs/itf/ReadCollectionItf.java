@@ -32,6 +32,7 @@ import ngs.ReadGroup;
 import ngs.ReadGroupIterator;
 import ngs.Read;
 import ngs.ReadIterator;
+import ngs.ReadFilter;
 import ngs.Reference;
 import ngs.ReferenceIterator;
 import ngs.Alignment;
@@ -302,6 +303,24 @@ public class ReadCollectionItf
         }
     }
 
+    /* getReads
+     *  Reads not accepted by "filter" are skipped natively
+     */
+    public ReadIterator getReads ( int categories, ReadFilter filter )
+        throws ErrorMsg
+    {
+        long ref = this . GetReads ( self, categories );
+        try
+        {
+            return new ReadIteratorItf ( ref, filter );
+        }
+        catch ( Exception x )
+        {
+            this . release ( ref );
+            throw new ErrorMsg ( x . toString () );
+        }
+    }
+
     /* getReadCount
      *  returns the number of reads in the collection
      *  of all combined categories
@@ -342,6 +361,21 @@ public class ReadCollectionItf
         }
     }
 
+    public ReadIterator getReadRange ( long first, long count, int categories, ReadFilter filter )
+        throws ErrorMsg
+    {
+        long ref = this . GetReadRange ( self, first, count, categories );
+        try
+        {
+            return new ReadIteratorItf ( ref, filter );
+        }
+        catch ( Exception x )
+        {
+            this . release ( ref );
+            throw new ErrorMsg ( x . toString () );
+        }
+    }
+
 
     /************************************
      * ReadCollectionItf Implementation *
@@ -353,14 +387,18 @@ public class ReadCollectionItf
         super ( ref );
     }
 
-    ReadCollectionItf ( ReadCollection obj )
+    /* duplicating constructor
+     *  takes a new reference to the native object of "obj",
+     *  which must itself be a ReadCollectionItf
+     */
+    protected ReadCollectionItf ( ReadCollection obj )
         throws ErrorMsg
     {
         super ( 0 );
         try
         {
             ReadCollectionItf ref = ( ReadCollectionItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -26,8 +26,12 @@
 
 package ngs.itf;
 
+import java.nio.charset.StandardCharsets;
+
 import ngs.ErrorMsg;
 import ngs.Read;
+import ngs.ReadBatch;
+import ngs.ReadFilter;
 import ngs.ReadIterator;
 
 
@@ -55,9 +59,52 @@ class ReadIteratorItf
     public boolean nextRead ()
         throws ErrorMsg
     {
+        if ( filtered )
+        {
+            return this . NextFilteredRead ( self, filterGroup, filterMinLength,
+                filterMinMeanQuality, filterMaxNFraction, filterPairedOnly );
+        }
         return this . NextRead ( self );
     }
 
+    /* nextReadBatch
+     *  advance by up to "max" Reads, copying each into "batch"
+     *  fills as many Reads as possible in a single native call,
+     *  re-entering only to grow the batch when a Read does not fit
+     *  returns the number of Reads copied, 0 if no more are available
+     */
+    public int nextReadBatch ( ReadBatch batch, int max )
+        throws ErrorMsg
+    {
+        if ( max < 0 )
+            throw new IllegalArgumentException ( "max " + max + " is negative" );
+
+        batch . clear ();
+        batch . ensureCapacity ( max, 0 );
+
+        int [] pending = batch . getStatusBuffer ();
+        int count = 0;
+        boolean resume = false;
+        while ( count < max )
+        {
+            int [] offsets = batch . getOffsets ();
+            count = this . NextReadBatch ( self, resume, count, max, offsets [ count ],
+                offsets, batch . getReadCategories (), batch . getFragmentCounts (),
+                batch . getBases (), batch . getQualities (), pending,
+                filtered, filterGroup, filterMinLength, filterMinMeanQuality, filterMaxNFraction, filterPairedOnly );
+            batch . setSize ( count );
+
+            // the current Read did not fit
+            if ( pending [ 0 ] == 0 )
+                break;
+
+            batch . ensureCapacity ( max, batch . getOffsets () [ count ] + pending [ 0 ] );
+            resume = true;
+        }
+
+        return count;
+    }
+
 
     /**********************************
      * ReadIteratorItf Implementation *
@@ -70,6 +117,22 @@ class ReadIteratorItf
         super ( ref );
     }
 
+    /* constructor
+     *  Reads not accepted by "filter" are skipped natively
+     */
+    ReadIteratorItf ( long ref, ReadFilter filter )
+    {
+        super ( ref );
+
+        String group = filter . getReadGroup ();
+        this . filtered = true;
+        this . filterGroup = group == null ? null : group . getBytes ( StandardCharsets . UTF_8 );
+        this . filterMinLength = filter . getMinLength ();
+        this . filterMinMeanQuality = filter . getMinMeanQuality ();
+        this . filterMaxNFraction = filter . getMaxNFraction ();
+        this . filterPairedOnly = filter . isPairedOnly ();
+    }
+
     ReadIteratorItf ( ReadIterator obj )
         throws ErrorMsg
     {
@@ -77,7 +140,7 @@ class ReadIteratorItf
         try
         {
             ReadIteratorItf ref = ( ReadIteratorItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -85,7 +148,22 @@ class ReadIteratorItf
         }
     }
 
+    // criteria of a ReadFilter, see ReadFilter
+    private boolean filtered;
+    private byte [] filterGroup;
+    private long filterMinLength;
+    private int filterMinMeanQuality;
+    private double filterMaxNFraction = 1;
+    private boolean filterPairedOnly;
+
     // native interface
     private native boolean NextRead ( long self )
         throws ErrorMsg;
+    private native boolean NextFilteredRead ( long self, byte [] group, long minLength,
+            int minMeanQuality, double maxNFraction, boolean pairedOnly )
+        throws ErrorMsg;
+    private native int NextReadBatch ( long self, boolean resume, int start, int max, int used,
+            int [] offsets, int [] categories, int [] fragments, byte [] bases, byte [] qualities, int [] pending,
+            boolean filtered, byte [] group, long minLength, int minMeanQuality, double maxNFraction, boolean pairedOnly )
+        throws ErrorMsg;
 }
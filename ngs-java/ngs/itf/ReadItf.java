@@ -26,7 +26,12 @@
 
 package ngs.itf;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import ngs.internal.Bounds;
 import ngs.ErrorMsg;
+import ngs.Phred;
 import ngs.Read;
 import ngs.Fragment;
 import ngs.FragmentIterator;
@@ -118,6 +123,137 @@ class ReadItf
         return this . GetFragmentQualities ( self, offset, length );
     }
 
+    /* getFragmentBases
+     *  copy sequence bases into caller-supplied storage
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getFragmentBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentBasesBytes ( self, 0, -1, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentBasesBytes ( self, offset, length, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentBases ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return this . fragmentBases ( 0, -1, dst );
+    }
+
+    public int getFragmentBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . fragmentBases ( offset, length, dst );
+    }
+
+    /* getFragmentQualities
+     *  copy phred quality values using ASCII offset of 33 into caller-supplied storage
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getFragmentQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentQualitiesBytes ( self, 0, -1, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetFragmentQualitiesBytes ( self, offset, length, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualities ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return this . fragmentQualities ( 0, -1, dst );
+    }
+
+    public int getFragmentQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . fragmentQualities ( offset, length, dst );
+    }
+
+    /* getFragmentQualityScores
+     *  copy raw phred quality scores into caller-supplied storage,
+     *  binned natively
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getFragmentQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        return this . GetFragmentQualityScoresBytes ( self, 0, -1, binning, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        return this . GetFragmentQualityScoresBytes ( self, offset, length, binning, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getFragmentQualityScores ( ByteBuffer dst, int binning )
+        throws ErrorMsg
+    {
+        return this . fragmentQualityScores ( 0, -1, binning, dst );
+    }
+
+    public int getFragmentQualityScores ( long offset, long length, ByteBuffer dst, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . fragmentQualityScores ( offset, length, binning, dst );
+    }
+
     public boolean isPaired ()
         throws ErrorMsg
     {
@@ -267,6 +403,137 @@ class ReadItf
         return this . GetReadQualities ( self, offset, length );
     }
 
+    /* getReadBases
+     *  copy sequence bases into caller-supplied storage
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getReadBases ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReadBasesBytes ( self, 0, -1, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getReadBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReadBasesBytes ( self, offset, length, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getReadBases ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return this . readBases ( 0, -1, dst );
+    }
+
+    public int getReadBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . readBases ( offset, length, dst );
+    }
+
+    /* getReadQualities
+     *  copy phred quality values using ASCII offset of 33 into caller-supplied storage
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getReadQualities ( byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReadQualitiesBytes ( self, 0, -1, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getReadQualities ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReadQualitiesBytes ( self, offset, length, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getReadQualities ( ByteBuffer dst )
+        throws ErrorMsg
+    {
+        return this . readQualities ( 0, -1, dst );
+    }
+
+    public int getReadQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . readQualities ( offset, length, dst );
+    }
+
+    /* getReadQualityScores
+     *  copy raw phred quality scores into caller-supplied storage,
+     *  binned natively
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getReadQualityScores ( byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        return this . GetReadQualityScoresBytes ( self, 0, -1, binning, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getReadQualityScores ( long offset, long length, byte [] dst, int dstOffset, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        return this . GetReadQualityScoresBytes ( self, offset, length, binning, dst, dstOffset, dst . length - dstOffset );
+    }
+
+    public int getReadQualityScores ( ByteBuffer dst, int binning )
+        throws ErrorMsg
+    {
+        return this . readQualityScores ( 0, -1, binning, dst );
+    }
+
+    public int getReadQualityScores ( long offset, long length, ByteBuffer dst, int binning )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+
+        return this . readQualityScores ( offset, length, binning, dst );
+    }
+
 
     /***************************
      * ReadItf Implementation *
@@ -286,7 +553,7 @@ class ReadItf
         try
         {
             ReadItf ref = ( ReadItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -294,6 +561,130 @@ class ReadItf
         }
     }
 
+    /* fragmentBases
+     *  copy into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int fragmentBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetFragmentBasesBuffer ( self, offset, length, dst, position, remaining )
+            : this . GetFragmentBasesBytes ( self, offset, length, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
+    /* fragmentQualities
+     *  copy into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int fragmentQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetFragmentQualitiesBuffer ( self, offset, length, dst, position, remaining )
+            : this . GetFragmentQualitiesBytes ( self, offset, length, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
+    /* fragmentQualityScores
+     *  copy raw phred scores into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int fragmentQualityScores ( long offset, long length, int binning, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetFragmentQualityScoresBuffer ( self, offset, length, binning, dst, position, remaining )
+            : this . GetFragmentQualityScoresBytes ( self, offset, length, binning, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
+    /* readBases
+     *  copy into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int readBases ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetReadBasesBuffer ( self, offset, length, dst, position, remaining )
+            : this . GetReadBasesBytes ( self, offset, length, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
+    /* readQualities
+     *  copy into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int readQualities ( long offset, long length, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetReadQualitiesBuffer ( self, offset, length, dst, position, remaining )
+            : this . GetReadQualitiesBytes ( self, offset, length, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
+    /* readQualityScores
+     *  copy raw phred scores into a ByteBuffer at its position,
+     *  directly when the buffer lives outside of the Java heap
+     */
+    private int readQualityScores ( long offset, long length, int binning, ByteBuffer dst )
+        throws ErrorMsg
+    {
+        if ( dst . isReadOnly () )
+            throw new ReadOnlyBufferException ();
+        if ( binning < Phred . raw || binning > Phred . illumina4 )
+            throw new IllegalArgumentException ( "unknown binning " + binning );
+
+        int position = dst . position ();
+        int remaining = dst . remaining ();
+        int size = dst . isDirect ()
+            ? this . GetReadQualityScoresBuffer ( self, offset, length, binning, dst, position, remaining )
+            : this . GetReadQualityScoresBytes ( self, offset, length, binning, dst . array (), dst . arrayOffset () + position, remaining );
+
+        dst . position ( position + Math . min ( size, remaining ) );
+        return size;
+    }
+
     // native interface
     private native String GetFragmentId ( long self )
         throws ErrorMsg;
@@ -301,6 +692,18 @@ class ReadItf
         throws ErrorMsg;
     private native String GetFragmentQualities ( long self, long offset, long length )
         throws ErrorMsg;
+    private native int GetFragmentBasesBytes ( long self, long offset, long length, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentBasesBuffer ( long self, long offset, long length, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualitiesBytes ( long self, long offset, long length, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualitiesBuffer ( long self, long offset, long length, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualityScoresBytes ( long self, long offset, long length, int binning, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetFragmentQualityScoresBuffer ( long self, long offset, long length, int binning, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native boolean IsPaired ( long self )
         throws ErrorMsg;
     private native boolean IsAligned ( long self )
@@ -323,4 +726,16 @@ class ReadItf
         throws ErrorMsg;
     private native String GetReadQualities ( long self, long offset, long length )
         throws ErrorMsg;
+    private native int GetReadBasesBytes ( long self, long offset, long length, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetReadBasesBuffer ( long self, long offset, long length, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetReadQualitiesBytes ( long self, long offset, long length, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetReadQualitiesBuffer ( long self, long offset, long length, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetReadQualityScoresBytes ( long self, long offset, long length, int binning, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
+    private native int GetReadQualityScoresBuffer ( long self, long offset, long length, int binning, ByteBuffer dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
 }
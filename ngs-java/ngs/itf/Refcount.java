@@ -26,19 +26,31 @@
 
 package ngs.itf;
 
+import java.lang.ref.Cleaner;
+
 import ngs.ErrorMsg;
 
 /*==========================================================================
  * Refcount
  *  manages reference in C heap
+ *
+ *  the reference is released upon "close", or by a shared Cleaner
+ *  once the object has become unreachable, whichever comes first
  */
 class Refcount
+    implements AutoCloseable
 {
 
     // constructors
     Refcount ( long ref )
     {
-        this . self = ref;
+        this . attach ( ref );
+    }
+
+    // AutoCloseable
+    public void close ()
+    {
+        this . invalidate ();
     }
 
     // implementation details
@@ -48,18 +60,25 @@ class Refcount
         return this . Duplicate ( self );
     }
 
-    synchronized void invalidate ()
+    /* attach
+     *  take ownership of "ref"
+     *  and register it with the Cleaner
+     */
+    final void attach ( long ref )
     {
-        this . Release ( self );
-        self = 0;
+        this . self = ref;
+        if ( ref != 0 )
+            this . cleanable = cleaner . register ( this, new Releaser ( ref ) );
     }
 
-    protected void finalize ()
+    synchronized void invalidate ()
     {
-        if ( self != 0 )
+        self = 0;
+        if ( cleanable != null )
         {
-            this . Release ( self );
-            self = 0;
+            // runs the Releaser at most once
+            cleanable . clean ();
+            cleanable = null;
         }
     }
 
@@ -68,6 +87,27 @@ class Refcount
         ReleaseRef ( ref );
     }
 
+    /* Releaser
+     *  cleaning action; must not refer to the Refcount itself
+     */
+    private static class Releaser
+        implements Runnable
+    {
+        Releaser ( long ref )
+        {
+            this . ref = ref;
+        }
+
+        public void run ()
+        {
+            ReleaseRef ( ref );
+        }
+
+        private final long ref;
+    }
+
+    private static final Cleaner cleaner = Cleaner . create ();
+
     // native interface
     private native long Duplicate ( long self )
         throws ErrorMsg;
@@ -75,4 +115,5 @@ class Refcount
     private native static void ReleaseRef ( long ref );
 
     protected long self;
+    private Cleaner . Cleanable cleanable;
 }
@@ -26,11 +26,13 @@
 
 package ngs.itf;
 
+import ngs.internal.Bounds;
 import ngs.ErrorMsg;
 import ngs.Reference;
 import ngs.Alignment;
 import ngs.AlignmentIterator;
 import ngs.PileupIterator;
+import ngs.PileupSummary;
 
 
 /*==========================================================================
@@ -134,6 +136,23 @@ class ReferenceItf
         return this . GetReferenceChunk ( self, offset, length );
     }
 
+    /* getReferenceBases
+     *  copy sequence bases into caller-supplied storage
+     *  returns the full length of the requested data,
+     *  copying only as many bytes as fit
+     */
+    public int getReferenceBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+        if ( length < 0 )
+            throw new IndexOutOfBoundsException ( "length " + length + " is negative");
+        Bounds . checkArray ( dst, dstOffset );
+
+        return this . GetReferenceBasesBytes ( self, offset, length, dst, dstOffset, dst . length - dstOffset );
+    }
+
 
     /*----------------------------------------------------------------------
      * ALIGNMENTS
@@ -322,6 +341,20 @@ class ReferenceItf
         }
     }
 
+    /* getPileupSummary
+     *  counts all events of a window in a single native call
+     */
+    public PileupSummary getPileupSummary ( long offset, long length, int categories, int filters, int minMapQ )
+        throws ErrorMsg
+    {
+        PileupSummary summary = new PileupSummary ( offset, length );
+        if ( minMapQ > 0 )
+            filters |= Alignment . minMapQuality;
+
+        this . GetPileupSummary ( self, offset, length, categories, filters, minMapQ, summary . getCounts () );
+        return summary;
+    }
+
     /*******************************
      * ReferenceItf Implementation *
      *******************************/
@@ -339,7 +372,7 @@ class ReferenceItf
         try
         {
             ReferenceItf ref = ( ReferenceItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -362,6 +395,8 @@ class ReferenceItf
         throws ErrorMsg;
     private native String GetReferenceChunk ( long self, long offset, long length )
         throws ErrorMsg;
+    private native int GetReferenceBasesBytes ( long self, long offset, long length, byte [] dst, int dstOffset, int dstSize )
+        throws ErrorMsg;
     private native long GetAlignmentCount ( long self, int categories )
         throws ErrorMsg;
     private native long GetAlignment ( long self, String alignmentId )
@@ -380,4 +415,6 @@ class ReferenceItf
         throws ErrorMsg;
     private native long GetFilteredPileupSlice ( long self, long offset, long count, int categories, int filters, int mappingQuality )
         throws ErrorMsg;
+    private native void GetPileupSummary ( long self, long offset, long count, int categories, int filters, int mappingQuality, int [] counts )
+        throws ErrorMsg;
 }
@@ -123,14 +123,18 @@ public class ReferenceSequenceItf
         super ( ref );
     }
 
-    ReferenceSequenceItf ( ReferenceSequence obj )
+    /* duplicating constructor
+     *  takes a new reference to the native object of "obj",
+     *  which must itself be a ReferenceSequenceItf
+     */
+    protected ReferenceSequenceItf ( ReferenceSequence obj )
         throws ErrorMsg
     {
         super ( 0 );
         try
         {
             ReferenceSequenceItf ref = ( ReferenceSequenceItf ) obj;
-            this . self = ref . duplicate ();
+            this . attach ( ref . duplicate () );
         }
         catch ( Exception x )
         {
@@ -0,0 +1,454 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.internal.Bounds;
+import ngs.Cigar;
+import ngs.ErrorMsg;
+
+import java.nio.charset.StandardCharsets;
+
+
+/*==========================================================================
+ * MemAlignmentIterator
+ *  iterates a range of Alignments of a MemReadCollection,
+ *  optionally restricted to those intersecting a slice of a Reference,
+ *  or stands for a single Alignment
+ */
+class MemAlignmentIterator
+    implements AlignmentIterator
+{
+
+    /*----------------------------------------------------------------------
+     * Fragment
+     */
+
+    public String getFragmentId ()
+        throws ErrorMsg
+    {
+        int al = current ();
+        int row = data . alRead [ al ];
+        return data . fragmentId ( row, data . alFragment [ al ] - data . readFrags [ row ] );
+    }
+
+    public String getFragmentBases ()
+        throws ErrorMsg
+    {
+        return getFragmentBases ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentBases ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        int frag = data . alFragment [ current () ];
+        return MemData . ascii ( data . bases, data . fragStart [ frag ], data . fragLength [ frag ], offset, length );
+    }
+
+    public String getFragmentQualities ()
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset, long length )
+        throws ErrorMsg
+    {
+        int frag = data . alFragment [ current () ];
+        return MemData . ascii ( data . qualities, data . fragStart [ frag ], data . fragLength [ frag ], offset, length );
+    }
+
+    public boolean isPaired ()
+        throws ErrorMsg
+    {
+        return data . numFragments ( data . alRead [ current () ] ) > 1;
+    }
+
+    public boolean isAligned ()
+        throws ErrorMsg
+    {
+        current ();
+        return true;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Alignment
+     */
+
+    public String getAlignmentId ()
+        throws ErrorMsg
+    {
+        return data . alignmentId ( current () );
+    }
+
+    public String getReferenceSpec ()
+        throws ErrorMsg
+    {
+        return data . refNames [ data . alRef [ current () ] ];
+    }
+
+    public int getMappingQuality ()
+        throws ErrorMsg
+    {
+        return data . alMapq [ current () ];
+    }
+
+    public String getReferenceBases ()
+        throws ErrorMsg
+    {
+        int al = current ();
+        byte [] ref = data . refBases [ data . alRef [ al ] ];
+        byte [] out = new byte [ data . alSpan [ al ] ];
+        for ( int i = 0; i < out . length; ++ i )
+            out [ i ] = ref [ ( int ) ( ( data . alPos [ al ] + i ) % ref . length ) ];
+        return new String ( out, StandardCharsets . US_ASCII );
+    }
+
+    public String getReadGroup ()
+        throws ErrorMsg
+    {
+        return data . groupNames [ data . readGroups [ data . alRead [ current () ] ] ];
+    }
+
+    public String getReadId ()
+        throws ErrorMsg
+    {
+        return data . readId ( data . alRead [ current () ] );
+    }
+
+    public String getClippedFragmentBases ()
+        throws ErrorMsg
+    {
+        return clipped ( data . alignedBases ( current () ) );
+    }
+
+    public String getClippedFragmentQualities ()
+        throws ErrorMsg
+    {
+        return clipped ( data . alignedQualities ( current () ) );
+    }
+
+    public String getAlignedFragmentBases ()
+        throws ErrorMsg
+    {
+        return new String ( data . alignedBases ( current () ), StandardCharsets . US_ASCII );
+    }
+
+    public int getAlignmentCategory ()
+        throws ErrorMsg
+    {
+        return data . alignmentCategory ( current () );
+    }
+
+    public long getAlignmentPosition ()
+        throws ErrorMsg
+    {
+        return data . alPos [ current () ];
+    }
+
+    public long getAlignmentLength ()
+        throws ErrorMsg
+    {
+        return data . alSpan [ current () ];
+    }
+
+    public boolean getIsReversedOrientation ()
+        throws ErrorMsg
+    {
+        return data . isReversed ( current () );
+    }
+
+    public int getSoftClip ( int edge )
+        throws ErrorMsg
+    {
+        return data . softClip ( current (), edge );
+    }
+
+    public long getTemplateLength ()
+        throws ErrorMsg
+    {
+        int al = current ();
+        int mate = data . alMate [ al ];
+        if ( mate < 0 || data . alRef [ mate ] != data . alRef [ al ] )
+            return 0;
+
+        long start = Math . min ( data . alPos [ al ], data . alPos [ mate ] );
+        long end = Math . max ( data . alPos [ al ] + data . alSpan [ al ], data . alPos [ mate ] + data . alSpan [ mate ] );
+
+        // positive for the leftmost mate
+        boolean leftmost = data . alPos [ al ] < data . alPos [ mate ] ||
+            ( data . alPos [ al ] == data . alPos [ mate ] && al < mate );
+        return leftmost ? end - start : start - end;
+    }
+
+    public String getShortCigar ( boolean clipped )
+        throws ErrorMsg
+    {
+        return cigar ( current (), clipped, false );
+    }
+
+    public String getLongCigar ( boolean clipped )
+        throws ErrorMsg
+    {
+        return cigar ( current (), clipped, true );
+    }
+
+    /* getCigarOps
+     *  copied straight from the stored operations
+     */
+    public int getCigarOps ( boolean clipped, int [] dst, int dstOffset )
+        throws ErrorMsg, IndexOutOfBoundsException
+    {
+        Bounds . checkArray ( dst, dstOffset );
+
+        int al = current ();
+        int stop = data . alCigarStart [ al + 1 ];
+        int count = 0;
+        for ( int i = data . alCigarStart [ al ]; i < stop; ++ i )
+        {
+            int packed = data . alCigar [ i ];
+            if ( clipped && Cigar . op ( packed ) == Cigar . softClip )
+                continue;
+            if ( dstOffset + count < dst . length )
+                dst [ dstOffset + count ] = packed;
+            ++ count;
+        }
+        return count;
+    }
+
+    public char getRNAOrientation ()
+        throws ErrorMsg
+    {
+        current ();
+        return '?';
+    }
+
+    public boolean hasMate ()
+    {
+        return idx >= first && idx < end && data . alMate [ idx ] >= 0;
+    }
+
+    public String getMateAlignmentId ()
+        throws ErrorMsg
+    {
+        return data . alignmentId ( mate () );
+    }
+
+    public Alignment getMateAlignment ()
+        throws ErrorMsg
+    {
+        return single ( data, mate () );
+    }
+
+    public String getMateReferenceSpec ()
+        throws ErrorMsg
+    {
+        return data . refNames [ data . alRef [ mate () ] ];
+    }
+
+    public boolean getMateIsReversedOrientation ()
+        throws ErrorMsg
+    {
+        return data . isReversed ( mate () );
+    }
+
+    public boolean nextAlignment ()
+    {
+        while ( idx < end )
+        {
+            ++ idx;
+            if ( idx < end && selected ( idx ) )
+                break;
+        }
+        return idx < end;
+    }
+
+    static MemAlignmentIterator single ( MemData data, int al )
+    {
+        MemAlignmentIterator it = new MemAlignmentIterator ( data, al, al + 1, Alignment . all );
+        it . idx = al;
+        return it;
+    }
+
+    MemAlignmentIterator ( MemData data, int first, int end, int categories )
+    {
+        this ( data, first, end, categories, 0, 0, Long . MIN_VALUE, Long . MAX_VALUE );
+    }
+
+    /* constructor
+     *  only Alignments intersecting [ sliceStart, sliceEnd ) are selected,
+     *  or starting within it when filters include startWithinSlice
+     */
+    MemAlignmentIterator ( MemData data, int first, int end, int categories,
+                           int filters, int mappingQuality, long sliceStart, long sliceEnd )
+    {
+        this . data = data;
+        this . first = first;
+        this . end = end;
+        this . categories = categories;
+        this . filters = filters;
+        this . mappingQuality = mappingQuality;
+        this . sliceStart = sliceStart;
+        this . sliceEnd = sliceEnd;
+        this . idx = first - 1;
+    }
+
+    private boolean selected ( int al )
+    {
+        if ( ! data . alignmentPasses ( al, categories, filters, mappingQuality ) )
+            return false;
+
+        long pos = data . alPos [ al ];
+        if ( pos >= sliceEnd )
+            return false;
+        if ( ( filters & Alignment . startWithinSlice ) != 0 )
+            return pos >= sliceStart;
+        return pos + data . alSpan [ al ] > sliceStart;
+    }
+
+    private int current ()
+        throws ErrorMsg
+    {
+        if ( idx < first )
+            throw new ErrorMsg ( "Alignment accessed before a call to AlignmentIterator.nextAlignment()" );
+        if ( idx >= end )
+            throw new ErrorMsg ( "No more rows available" );
+        return idx;
+    }
+
+    private int mate ()
+        throws ErrorMsg
+    {
+        int mate = data . alMate [ current () ];
+        if ( mate < 0 )
+            throw new ErrorMsg ( "Alignment does not have a mate" );
+        return mate;
+    }
+
+    private String clipped ( byte [] aligned )
+        throws ErrorMsg
+    {
+        int al = current ();
+        int left = data . softClip ( al, Alignment . clipLeft );
+        int right = data . softClip ( al, Alignment . clipRight );
+        return new String ( aligned, left, aligned . length - left - right, StandardCharsets . US_ASCII );
+    }
+
+    /* cigar
+     *  the long form splits matches into '=' and 'X' by comparing bases
+     */
+    private String cigar ( int al, boolean clipped, boolean longForm )
+    {
+        int start = data . alCigarStart [ al ];
+        int stop = data . alCigarStart [ al + 1 ];
+        byte [] seq = longForm ? data . alignedBases ( al ) : null;
+        byte [] ref = data . refBases [ data . alRef [ al ] ];
+        long refPos = data . alPos [ al ];
+        int seqPos = 0;
+
+        StringBuilder text = new StringBuilder ( ( stop - start ) * 4 );
+        for ( int i = start; i < stop; ++ i )
+        {
+            int op = Cigar . op ( data . alCigar [ i ] );
+            int len = Cigar . opLength ( data . alCigar [ i ] );
+
+            if ( op == Cigar . softClip )
+            {
+                seqPos += len;
+                if ( ! clipped )
+                    text . append ( len ) . append ( 'S' );
+            }
+            else if ( op == Cigar . match && longForm )
+            {
+                int run = 0;
+                boolean runEq = false;
+                for ( int j = 0; j < len; ++ j )
+                {
+                    byte r = ref [ ( int ) ( ( refPos + j ) % ref . length ) ];
+                    boolean eq = Character . toUpperCase ( ( char ) seq [ seqPos + j ] ) == Character . toUpperCase ( ( char ) r );
+                    if ( run > 0 && eq != runEq )
+                    {
+                        text . append ( run ) . append ( runEq ? '=' : 'X' );
+                        run = 0;
+                    }
+                    runEq = eq;
+                    ++ run;
+                }
+                if ( run > 0 )
+                    text . append ( run ) . append ( runEq ? '=' : 'X' );
+                seqPos += len;
+                refPos += len;
+            }
+            else
+            {
+                text . append ( len ) . append ( Cigar . opChar ( op ) );
+                switch ( op )
+                {
+                case Cigar . match:
+                case Cigar . seqMatch:
+                case Cigar . seqMismatch:
+                    seqPos += len;
+                    refPos += len;
+                    break;
+                case Cigar . insertion:
+                    seqPos += len;
+                    break;
+                case Cigar . deletion:
+                case Cigar . skip:
+                    refPos += len;
+                    break;
+                }
+            }
+        }
+        return text . toString ();
+    }
+
+    private final MemData data;
+    private final int first;
+    private final int end;
+    private final int categories;
+    private final int filters;
+    private final int mappingQuality;
+    private final long sliceStart;
+    private final long sliceEnd;
+    private int idx;
+}
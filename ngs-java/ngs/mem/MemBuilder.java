@@ -0,0 +1,489 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.Cigar;
+import ngs.ErrorMsg;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+
+/**
+ *<p>
+ * Assembles an in-memory ReadCollection from References, Reads and Alignments.
+ *</p>
+ *<p>
+ * Reads receive ids in the order they are added. Alignments are sorted
+ * by Reference and position when the collection is built, and receive ids
+ * in that order. The primary Alignments of the first two fragments
+ * of a Read become mates of each other.
+ * Fragment bases are given in the orientation in which they were sequenced;
+ * the bases of a reversed Alignment are their reverse complement.
+ *</p>
+ */
+public class MemBuilder
+{
+
+    /** name of the ReadGroup of Reads added without one */
+    public static final String defaultReadGroup = "default";
+
+    /**
+     * @param name the name of the ReadCollection, also the prefix of all ids
+     */
+    public MemBuilder ( String name )
+    {
+        this . name = name;
+    }
+
+    /**
+     * Add a linear Reference
+     * @param name canonical and common name of the Reference
+     * @param bases the Reference sequence
+     * @return the 0-based index of the Reference
+     * @throws ErrorMsg if a Reference of that name exists
+     */
+    public int addReference ( String name, String bases )
+        throws ErrorMsg
+    {
+        return addReference ( name, bases, false );
+    }
+
+    /**
+     * Add a Reference
+     * @param name canonical and common name of the Reference
+     * @param bases the Reference sequence
+     * @param circular whether the Reference is circular
+     * @return the 0-based index of the Reference
+     * @throws ErrorMsg if a Reference of that name exists
+     */
+    public int addReference ( String name, String bases, boolean circular )
+        throws ErrorMsg
+    {
+        if ( refIndex . containsKey ( name ) )
+            throw new ErrorMsg ( "duplicate Reference '" + name + "'" );
+
+        int idx = refNames . size ();
+        refIndex . put ( name, idx );
+        refNames . add ( name );
+        refBases . add ( bases . getBytes ( StandardCharsets . US_ASCII ) );
+        refCircular . add ( circular );
+        return idx;
+    }
+
+    /**
+     * Add a Read
+     * @param readName the name of the Read, or null
+     * @param readGroup the name of its ReadGroup, or null for defaultReadGroup
+     * @param fragmentBases the bases of each fragment
+     * @param fragmentQualities the phred qualities of each fragment using
+     *  ASCII offset of 33, or null to assign 30 to every base
+     * @return the 1-based id of the Read
+     * @throws ErrorMsg if bases and qualities do not match
+     */
+    public long addRead ( String readName, String readGroup, String [] fragmentBases, String [] fragmentQualities )
+        throws ErrorMsg
+    {
+        if ( fragmentQualities != null && fragmentQualities . length != fragmentBases . length )
+            throw new ErrorMsg ( "fragment bases and qualities differ in number" );
+
+        String group = readGroup == null ? defaultReadGroup : readGroup;
+        Integer g = groupIndex . get ( group );
+        if ( g == null )
+        {
+            g = groupNames . size ();
+            groupIndex . put ( group, g );
+            groupNames . add ( group );
+        }
+
+        int row = readCount ++;
+        readNames = grow ( readNames, row );
+        readNames [ row ] = readName;
+        readGroups = grow ( readGroups, row );
+        readGroups [ row ] = g;
+        readFrags = grow ( readFrags, row + 1 );
+        readFrags [ row ] = fragCount;
+
+        for ( int i = 0; i < fragmentBases . length; ++ i )
+        {
+            byte [] b = fragmentBases [ i ] . getBytes ( StandardCharsets . US_ASCII );
+            byte [] q;
+            if ( fragmentQualities == null )
+            {
+                q = new byte [ b . length ];
+                Arrays . fill ( q, ( byte ) ( 30 + 33 ) );
+            }
+            else
+            {
+                q = fragmentQualities [ i ] . getBytes ( StandardCharsets . US_ASCII );
+                if ( q . length != b . length )
+                    throw new ErrorMsg ( "fragment " + i + " has " + b . length + " bases but " + q . length + " qualities" );
+            }
+
+            int frag = fragCount ++;
+            fragStart = grow ( fragStart, frag );
+            fragStart [ frag ] = baseCount;
+            fragLength = grow ( fragLength, frag );
+            fragLength [ frag ] = b . length;
+            fragAlignment = grow ( fragAlignment, frag );
+            fragAlignment [ frag ] = -1;
+
+            if ( ( long ) baseCount + b . length > Integer . MAX_VALUE )
+                throw new ErrorMsg ( "too many bases for an in-memory ReadCollection" );
+            bases = grow ( bases, baseCount + b . length );
+            qualities = grow ( qualities, baseCount + b . length );
+            System . arraycopy ( b, 0, bases, baseCount, b . length );
+            System . arraycopy ( q, 0, qualities, baseCount, q . length );
+            baseCount += b . length;
+        }
+        readFrags [ row + 1 ] = fragCount;
+
+        return row + 1;
+    }
+
+    /**
+     * Add an Alignment of a fragment
+     * @param readId the 1-based id returned by addRead
+     * @param fragIdx the 0-based index of the fragment within the Read
+     * @param referenceSpec the name of a Reference added before
+     * @param position the 0-based position of the first aligned base
+     * @param cigar unclipped CIGAR text, in reference orientation;
+     *  soft clips are given as 'S', hard clips and padding are ignored
+     * @param mappingQuality the mapping quality
+     * @param reversed whether the fragment aligns to the reverse strand
+     * @param secondary whether the Alignment is a secondary one;
+     *  a fragment may have at most one primary Alignment
+     * @throws ErrorMsg if the Alignment is inconsistent with its Read or Reference
+     */
+    public void addAlignment ( long readId, int fragIdx, String referenceSpec, long position,
+                               String cigar, int mappingQuality, boolean reversed, boolean secondary )
+        throws ErrorMsg
+    {
+        if ( readId < 1 || readId > readCount )
+            throw new ErrorMsg ( "Read " + readId + " not found" );
+        int row = ( int ) ( readId - 1 );
+        if ( fragIdx < 0 || fragIdx >= readFrags [ row + 1 ] - readFrags [ row ] )
+            throw new ErrorMsg ( "Read " + readId + " has no fragment " + fragIdx );
+        int frag = readFrags [ row ] + fragIdx;
+
+        Integer ref = refIndex . get ( referenceSpec );
+        if ( ref == null )
+            throw new ErrorMsg ( "Reference not found: '" + referenceSpec + "'" );
+
+        int nops = Cigar . encode ( cigar, opScratch, 0 );
+        if ( nops > opScratch . length )
+        {
+            opScratch = new int [ nops * 2 ];
+            Cigar . encode ( cigar, opScratch, 0 );
+        }
+
+        // project onto reference and read
+        long span = 0;
+        long query = 0;
+        int kept = 0;
+        for ( int i = 0; i < nops; ++ i )
+        {
+            int op = Cigar . op ( opScratch [ i ] );
+            int len = Cigar . opLength ( opScratch [ i ] );
+            switch ( op )
+            {
+            case Cigar . match:
+            case Cigar . seqMatch:
+            case Cigar . seqMismatch:
+                span += len;
+                query += len;
+                break;
+            case Cigar . deletion:
+            case Cigar . skip:
+                span += len;
+                break;
+            case Cigar . insertion:
+            case Cigar . softClip:
+                query += len;
+                break;
+            default:
+                continue;
+            }
+            opScratch [ kept ++ ] = opScratch [ i ];
+        }
+
+        if ( query != fragLength [ frag ] )
+            throw new ErrorMsg ( "CIGAR '" + cigar + "' covers " + query + " bases of a fragment of " + fragLength [ frag ] );
+        byte [] rb = refBases . get ( ref );
+        if ( position < 0 || position + span > rb . length && ! refCircular . get ( ref ) )
+            throw new ErrorMsg ( "Alignment at " + position + " exceeds Reference '" + referenceSpec + "'" );
+
+        if ( ! secondary )
+        {
+            if ( fragAlignment [ frag ] >= 0 )
+                throw new ErrorMsg ( "fragment " + fragIdx + " of Read " + readId + " already has a primary Alignment" );
+            fragAlignment [ frag ] = alCount;
+        }
+
+        int al = alCount ++;
+        alRef = grow ( alRef, al );
+        alRef [ al ] = ref;
+        alPos = grow ( alPos, al );
+        alPos [ al ] = position;
+        alSpan = grow ( alSpan, al );
+        alSpan [ al ] = ( int ) span;
+        alFragment = grow ( alFragment, al );
+        alFragment [ al ] = frag;
+        alRead = grow ( alRead, al );
+        alRead [ al ] = row;
+        alMapq = grow ( alMapq, al );
+        alMapq [ al ] = mappingQuality;
+        alFlags = grow ( alFlags, al );
+        alFlags [ al ] = ( reversed ? MemData . reversed : 0 ) | ( secondary ? MemData . secondary : 0 );
+        alCigarStart = grow ( alCigarStart, al + 1 );
+        alCigarStart [ al ] = opCount;
+        alCigar = grow ( alCigar, opCount + kept );
+        System . arraycopy ( opScratch, 0, alCigar, opCount, kept );
+        opCount += kept;
+        alCigarStart [ al + 1 ] = opCount;
+    }
+
+    /**
+     * Create the ReadCollection.
+     * The builder must not be used afterward.
+     * @return an in-memory ReadCollection
+     */
+    public MemReadCollection build ()
+    {
+        MemData d = new MemData ();
+        d . name = name;
+
+        int refs = refNames . size ();
+        d . refNames = refNames . toArray ( new String [ refs ] );
+        d . refBases = refBases . toArray ( new byte [ refs ] [] );
+        d . refCircular = new boolean [ refs ];
+        for ( int i = 0; i < refs; ++ i )
+            d . refCircular [ i ] = refCircular . get ( i );
+        d . refIndex = refIndex;
+
+        d . groupNames = groupNames . toArray ( new String [ groupNames . size () ] );
+        d . groupIndex = groupIndex;
+
+        d . readCount = readCount;
+        d . readNames = Arrays . copyOf ( readNames, readCount );
+        d . readGroups = Arrays . copyOf ( readGroups, readCount );
+        d . readFrags = Arrays . copyOf ( readFrags, readCount + 1 );
+        d . bases = bases;
+        d . qualities = qualities;
+        d . fragStart = Arrays . copyOf ( fragStart, fragCount );
+        d . fragLength = Arrays . copyOf ( fragLength, fragCount );
+
+        // sort alignments by reference and position
+        int n = alCount;
+        int [] order = new int [ n ];
+        long [] keys = new long [ n ];
+        for ( int i = 0; i < n; ++ i )
+        {
+            order [ i ] = i;
+            keys [ i ] = ( ( long ) alRef [ i ] << 44 ) | alPos [ i ];
+        }
+        sort ( keys, order );
+
+        int [] rank = new int [ n ];
+        for ( int i = 0; i < n; ++ i )
+            rank [ order [ i ] ] = i;
+
+        d . alignmentCount = n;
+        d . alRef = new int [ n ];
+        d . alPos = new long [ n ];
+        d . alSpan = new int [ n ];
+        d . alFragment = new int [ n ];
+        d . alRead = new int [ n ];
+        d . alMapq = new int [ n ];
+        d . alFlags = new int [ n ];
+        d . alMate = new int [ n ];
+        d . alCigarStart = new int [ n + 1 ];
+        d . alCigar = new int [ opCount ];
+        d . refFirst = new int [ refs + 1 ];
+        d . refMaxSpan = new long [ refs ];
+
+        int op = 0;
+        for ( int i = 0; i < n; ++ i )
+        {
+            int src = order [ i ];
+            d . alRef [ i ] = alRef [ src ];
+            d . alPos [ i ] = alPos [ src ];
+            d . alSpan [ i ] = alSpan [ src ];
+            d . alFragment [ i ] = alFragment [ src ];
+            d . alRead [ i ] = alRead [ src ];
+            d . alMapq [ i ] = alMapq [ src ];
+            d . alFlags [ i ] = alFlags [ src ];
+            d . alMate [ i ] = -1;
+
+            int ops = alCigarStart [ src + 1 ] - alCigarStart [ src ];
+            System . arraycopy ( alCigar, alCigarStart [ src ], d . alCigar, op, ops );
+            d . alCigarStart [ i ] = op;
+            op += ops;
+
+            int ref = alRef [ src ];
+            ++ d . refFirst [ ref + 1 ];
+            d . refMaxSpan [ ref ] = Math . max ( d . refMaxSpan [ ref ], alSpan [ src ] );
+            if ( ( alFlags [ src ] & MemData . secondary ) == 0 )
+                ++ d . primaryCount;
+        }
+        d . alCigarStart [ n ] = op;
+        for ( int i = 0; i < refs; ++ i )
+            d . refFirst [ i + 1 ] += d . refFirst [ i ];
+
+        d . fragAlignment = new int [ fragCount ];
+        for ( int i = 0; i < fragCount; ++ i )
+            d . fragAlignment [ i ] = fragAlignment [ i ] < 0 ? -1 : rank [ fragAlignment [ i ] ];
+
+        // mates and categories
+        d . readCategories = new int [ readCount ];
+        for ( int row = 0; row < readCount; ++ row )
+        {
+            int first = d . readFrags [ row ];
+            if ( d . readFrags [ row + 1 ] - first >= 2 )
+            {
+                int a = d . fragAlignment [ first ];
+                int b = d . fragAlignment [ first + 1 ];
+                if ( a >= 0 && b >= 0 )
+                {
+                    d . alMate [ a ] = b;
+                    d . alMate [ b ] = a;
+                }
+            }
+            d . readCategories [ row ] = d . category ( row );
+        }
+
+        return new MemReadCollection ( d );
+    }
+
+    /* sort
+     *  stable merge sort of "order" by "keys", permuting both
+     */
+    private static void sort ( long [] keys, int [] order )
+    {
+        int n = keys . length;
+        long [] k2 = new long [ n ];
+        int [] o2 = new int [ n ];
+        for ( int width = 1; width < n; width *= 2 )
+        {
+            for ( int lo = 0; lo < n; lo += width * 2 )
+            {
+                int mid = Math . min ( lo + width, n );
+                int hi = Math . min ( lo + width * 2, n );
+                int i = lo, j = mid, k = lo;
+                while ( i < mid && j < hi )
+                {
+                    if ( keys [ j ] < keys [ i ] )
+                    {
+                        k2 [ k ] = keys [ j ];
+                        o2 [ k ++ ] = order [ j ++ ];
+                    }
+                    else
+                    {
+                        k2 [ k ] = keys [ i ];
+                        o2 [ k ++ ] = order [ i ++ ];
+                    }
+                }
+                while ( i < mid )
+                {
+                    k2 [ k ] = keys [ i ];
+                    o2 [ k ++ ] = order [ i ++ ];
+                }
+                while ( j < hi )
+                {
+                    k2 [ k ] = keys [ j ];
+                    o2 [ k ++ ] = order [ j ++ ];
+                }
+            }
+            System . arraycopy ( k2, 0, keys, 0, n );
+            System . arraycopy ( o2, 0, order, 0, n );
+        }
+    }
+
+    private static int [] grow ( int [] a, int idx )
+    {
+        return idx < a . length ? a : Arrays . copyOf ( a, Math . max ( idx + 1, a . length * 2 ) );
+    }
+
+    private static long [] grow ( long [] a, int idx )
+    {
+        return idx < a . length ? a : Arrays . copyOf ( a, Math . max ( idx + 1, a . length * 2 ) );
+    }
+
+    private static String [] grow ( String [] a, int idx )
+    {
+        return idx < a . length ? a : Arrays . copyOf ( a, Math . max ( idx + 1, a . length * 2 ) );
+    }
+
+    private static byte [] grow ( byte [] a, int size )
+    {
+        if ( size <= a . length )
+            return a;
+        long cap = Math . max ( size, ( long ) a . length * 2 );
+        return Arrays . copyOf ( a, ( int ) Math . min ( cap, Integer . MAX_VALUE - 8 ) );
+    }
+
+    private final String name;
+
+    private final ArrayList < String > refNames = new ArrayList < String > ();
+    private final ArrayList < byte [] > refBases = new ArrayList < byte [] > ();
+    private final ArrayList < Boolean > refCircular = new ArrayList < Boolean > ();
+    private final HashMap < String, Integer > refIndex = new HashMap < String, Integer > ();
+
+    private final ArrayList < String > groupNames = new ArrayList < String > ();
+    private final HashMap < String, Integer > groupIndex = new HashMap < String, Integer > ();
+
+    private int readCount;
+    private String [] readNames = new String [ 16 ];
+    private int [] readGroups = new int [ 16 ];
+    private int [] readFrags = new int [ 17 ];
+
+    private int fragCount;
+    private int [] fragStart = new int [ 16 ];
+    private int [] fragLength = new int [ 16 ];
+    private int [] fragAlignment = new int [ 16 ];
+
+    private int baseCount;
+    private byte [] bases = new byte [ 1024 ];
+    private byte [] qualities = new byte [ 1024 ];
+
+    private int alCount;
+    private int [] alRef = new int [ 16 ];
+    private long [] alPos = new long [ 16 ];
+    private int [] alSpan = new int [ 16 ];
+    private int [] alFragment = new int [ 16 ];
+    private int [] alRead = new int [ 16 ];
+    private int [] alMapq = new int [ 16 ];
+    private int [] alFlags = new int [ 16 ];
+    private int [] alCigarStart = new int [ 17 ];
+
+    private int opCount;
+    private int [] alCigar = new int [ 64 ];
+    private int [] opScratch = new int [ 64 ];
+}
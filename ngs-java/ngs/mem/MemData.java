@@ -0,0 +1,326 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.Alignment;
+import ngs.Cigar;
+import ngs.ErrorMsg;
+import ngs.Read;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+
+/*==========================================================================
+ * MemData
+ *  the immutable, columnar contents of an in-memory ReadCollection
+ *  filled in by MemBuilder and shared by all of its objects
+ *
+ *  rows and indexes are 0-based; the ids seen through the API are 1-based
+ */
+final class MemData
+{
+
+    /* size of the blocks returned by Reference.getReferenceChunk */
+    static final int chunkSize = 5000;
+
+    /* alignment flags */
+    static final int reversed  = 1;
+    static final int secondary = 2;
+
+    String name;
+
+    /* references, by index */
+    String [] refNames;
+    byte [] [] refBases;
+    boolean [] refCircular;
+    int [] refFirst;        // first alignment of each reference, plus one final entry
+    long [] refMaxSpan;     // longest projection of an alignment onto each reference
+    HashMap < String, Integer > refIndex;
+
+    /* read groups, by index */
+    String [] groupNames;
+    HashMap < String, Integer > groupIndex;
+
+    /* reads, by row */
+    int readCount;
+    String [] readNames;
+    int [] readGroups;
+    int [] readCategories;
+    int [] readFrags;       // first fragment of each read, plus one final entry
+    byte [] bases;
+    byte [] qualities;
+
+    /* fragments, by index */
+    int [] fragStart;       // offset into bases and qualities
+    int [] fragLength;
+    int [] fragAlignment;   // alignment index, or -1
+
+    /* alignments, sorted by reference and position */
+    int alignmentCount;
+    int primaryCount;
+    int [] alRef;
+    long [] alPos;
+    int [] alSpan;          // projection onto the reference
+    int [] alFragment;
+    int [] alRead;
+    int [] alMapq;
+    int [] alFlags;
+    int [] alMate;          // alignment index, or -1
+    int [] alCigarStart;    // first CIGAR operation, plus one final entry
+    int [] alCigar;         // packed unclipped operations, see ngs.Cigar
+
+
+    /*----------------------------------------------------------------------
+     * ids
+     */
+
+    String readId ( int row )
+    {
+        return name + ".R." + ( row + 1 );
+    }
+
+    String fragmentId ( int row, int fragIdx )
+    {
+        return name + ".FR" + fragIdx + "." + ( row + 1 );
+    }
+
+    String alignmentId ( int al )
+    {
+        return name + ( ( alFlags [ al ] & secondary ) != 0 ? ".SA." : ".PA." ) + ( al + 1 );
+    }
+
+    /* parseId
+     *  accepts either a full id or a bare 1-based row number
+     *  returns the 0-based row
+     */
+    static int parseId ( String id, int count, String what )
+        throws ErrorMsg
+    {
+        String num = id . substring ( id . lastIndexOf ( '.' ) + 1 );
+        try
+        {
+            long row = Long . parseLong ( num );
+            if ( row >= 1 && row <= count )
+                return ( int ) ( row - 1 );
+        }
+        catch ( NumberFormatException x )
+        {
+        }
+        throw new ErrorMsg ( what + " not found: '" + id + "'" );
+    }
+
+    int reference ( String spec )
+        throws ErrorMsg
+    {
+        Integer idx = refIndex . get ( spec );
+        if ( idx == null )
+            throw new ErrorMsg ( "Reference not found: '" + spec + "'" );
+        return idx;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * reads
+     */
+
+    int numFragments ( int row )
+    {
+        return readFrags [ row + 1 ] - readFrags [ row ];
+    }
+
+    int readStart ( int row )
+    {
+        return fragStart [ readFrags [ row ] ];
+    }
+
+    int readLength ( int row )
+    {
+        int first = readFrags [ row ];
+        int end = readFrags [ row + 1 ];
+        return end == first ? 0 : fragStart [ end - 1 ] + fragLength [ end - 1 ] - fragStart [ first ];
+    }
+
+    boolean readPasses ( int row, int categories )
+    {
+        return ( readCategories [ row ] & categories ) != 0;
+    }
+
+    /* category
+     *  of a read, from the alignment of its fragments
+     */
+    int category ( int row )
+    {
+        int aligned = 0;
+        int n = numFragments ( row );
+        for ( int i = 0; i < n; ++ i )
+        {
+            if ( fragAlignment [ readFrags [ row ] + i ] >= 0 )
+                ++ aligned;
+        }
+        if ( aligned == 0 )
+            return Read . unaligned;
+        return aligned == n ? Read . fullyAligned : Read . partiallyAligned;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * alignments
+     */
+
+    boolean isReversed ( int al )
+    {
+        return ( alFlags [ al ] & reversed ) != 0;
+    }
+
+    /* passes
+     *  apply categories and filters, as for getFilteredAlignmentSlice
+     *  passFailed, passDuplicates and noWraparound select nothing here
+     */
+    boolean alignmentPasses ( int al, int categories, int filters, int mappingQuality )
+    {
+        if ( ( alignmentCategory ( al ) & categories ) == 0 )
+            return false;
+        if ( ( filters & Alignment . minMapQuality ) != 0 && alMapq [ al ] < mappingQuality )
+            return false;
+        if ( ( filters & Alignment . maxMapQuality ) != 0 && alMapq [ al ] > mappingQuality )
+            return false;
+        return true;
+    }
+
+    int alignmentCategory ( int al )
+    {
+        return ( alFlags [ al ] & secondary ) != 0 ? Alignment . secondaryAlignment : Alignment . primaryAlignment;
+    }
+
+    /* firstAt
+     *  index of the first alignment of a reference starting at or after "pos"
+     */
+    int firstAt ( int ref, long pos )
+    {
+        int lo = refFirst [ ref ];
+        int hi = refFirst [ ref + 1 ];
+        while ( lo < hi )
+        {
+            int mid = ( lo + hi ) >>> 1;
+            if ( alPos [ mid ] < pos )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /* alignedBases
+     *  fragment bases in reference orientation, including soft clips
+     */
+    byte [] alignedBases ( int al )
+    {
+        int frag = alFragment [ al ];
+        int start = fragStart [ frag ];
+        int len = fragLength [ frag ];
+        byte [] out = new byte [ len ];
+        if ( isReversed ( al ) )
+        {
+            for ( int i = 0; i < len; ++ i )
+                out [ i ] = complement ( bases [ start + len - 1 - i ] );
+        }
+        else
+        {
+            System . arraycopy ( bases, start, out, 0, len );
+        }
+        return out;
+    }
+
+    /* alignedQualities
+     *  fragment qualities in reference orientation, including soft clips
+     */
+    byte [] alignedQualities ( int al )
+    {
+        int frag = alFragment [ al ];
+        int start = fragStart [ frag ];
+        int len = fragLength [ frag ];
+        byte [] out = new byte [ len ];
+        if ( isReversed ( al ) )
+        {
+            for ( int i = 0; i < len; ++ i )
+                out [ i ] = qualities [ start + len - 1 - i ];
+        }
+        else
+        {
+            System . arraycopy ( qualities, start, out, 0, len );
+        }
+        return out;
+    }
+
+    /* softClip
+     *  number of bases clipped at an edge, in reference orientation
+     */
+    int softClip ( int al, int edge )
+    {
+        int first = alCigarStart [ al ];
+        int end = alCigarStart [ al + 1 ];
+        int packed = alCigar [ edge == Alignment . clipLeft ? first : end - 1 ];
+        return Cigar . op ( packed ) == Cigar . softClip ? Cigar . opLength ( packed ) : 0;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * helpers
+     */
+
+    static byte complement ( byte base )
+    {
+        switch ( base )
+        {
+        case 'A': return 'T';
+        case 'C': return 'G';
+        case 'G': return 'C';
+        case 'T': return 'A';
+        case 'a': return 't';
+        case 'c': return 'g';
+        case 'g': return 'c';
+        case 't': return 'a';
+        }
+        return base;
+    }
+
+    /* ascii
+     *  a sub-range of "len" bytes starting at "start",
+     *  as selected by "offset" and "length" and clipped to the available range
+     */
+    static String ascii ( byte [] src, int start, int len, long offset, long length )
+    {
+        if ( offset < 0 || length < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " or length " + length + " is negative" );
+        if ( offset >= len )
+            return "";
+        long n = Math . min ( length, len - offset );
+        return new String ( src, start + ( int ) offset, ( int ) n, StandardCharsets . US_ASCII );
+    }
+}
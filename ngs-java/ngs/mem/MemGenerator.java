@@ -0,0 +1,417 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.ErrorMsg;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+
+/**
+ *<p>
+ * Generates a deterministic, synthetic in-memory ReadCollection.
+ *</p>
+ *<p>
+ * References are random sequences. Reads are sampled from them uniformly,
+ * with substitutions and short insertions and deletions applied at the
+ * configured rates, and are aligned where they were sampled.
+ * Paired Reads carry a forward first fragment and a reversed second one.
+ * Unaligned Reads are random sequences. The same settings and seed
+ * always produce the same collection.
+ *</p>
+ *<p>
+ * Settings may also be given as text, see {@link #parse parse}.
+ *</p>
+ */
+public class MemGenerator
+{
+
+    public MemGenerator ()
+    {
+    }
+
+    /**
+     * Create a generator from comma separated "key=value" settings,
+     * e.g. "references=2,referenceLength=1000000,coverage=30,paired=true".
+     * Keys are name, seed, references, referenceLength, reads, coverage,
+     * readLength, paired, insertSize, aligned, mismatchRate, indelRate and readGroups.
+     * @param settings the settings; empty for all defaults
+     * @return a configured generator
+     * @throws ErrorMsg upon an unknown key or invalid value
+     */
+    public static MemGenerator parse ( String settings )
+        throws ErrorMsg
+    {
+        MemGenerator gen = new MemGenerator ();
+        for ( String item : settings . split ( "," ) )
+        {
+            if ( item . trim () . isEmpty () )
+                continue;
+
+            int eq = item . indexOf ( '=' );
+            if ( eq < 0 )
+                throw new ErrorMsg ( "expected key=value instead of '" + item + "'" );
+            String key = item . substring ( 0, eq ) . trim ();
+            String value = item . substring ( eq + 1 ) . trim ();
+            try
+            {
+                switch ( key )
+                {
+                case "name":            gen . setName ( value ); break;
+                case "seed":            gen . setSeed ( Long . parseLong ( value ) ); break;
+                case "references":      gen . setReferences ( Integer . parseInt ( value ), gen . referenceLength ); break;
+                case "referenceLength": gen . setReferences ( gen . references, Integer . parseInt ( value ) ); break;
+                case "reads":           gen . setReads ( Integer . parseInt ( value ) ); break;
+                case "coverage":        gen . setCoverage ( Double . parseDouble ( value ) ); break;
+                case "readLength":      gen . setReadLength ( Integer . parseInt ( value ) ); break;
+                case "paired":          gen . setPaired ( Boolean . parseBoolean ( value ) ); break;
+                case "insertSize":      gen . setInsertSize ( Integer . parseInt ( value ) ); break;
+                case "aligned":         gen . setAlignedFraction ( Double . parseDouble ( value ) ); break;
+                case "mismatchRate":    gen . setMismatchRate ( Double . parseDouble ( value ) ); break;
+                case "indelRate":       gen . setIndelRate ( Double . parseDouble ( value ) ); break;
+                case "readGroups":      gen . setReadGroups ( Integer . parseInt ( value ) ); break;
+                default:
+                    throw new ErrorMsg ( "unknown setting '" + key + "'" );
+                }
+            }
+            catch ( IllegalArgumentException x )
+            {
+                throw new ErrorMsg ( "invalid setting '" + item + "': " + x . getMessage () );
+            }
+        }
+        return gen;
+    }
+
+    /**
+     * @param name the name of the ReadCollection
+     */
+    public void setName ( String name )
+    {
+        this . name = name;
+    }
+
+    /**
+     * @param seed the seed of the random number generator
+     */
+    public void setSeed ( long seed )
+    {
+        this . seed = seed;
+    }
+
+    /**
+     * @param count the number of References, named "chr1", "chr2" and so on
+     * @param length the length of each Reference
+     */
+    public void setReferences ( int count, int length )
+    {
+        if ( count < 1 || length < 1 )
+            throw new IllegalArgumentException ( "References need a positive count and length" );
+        this . references = count;
+        this . referenceLength = length;
+    }
+
+    /**
+     * @param reads the number of Reads; replaces any coverage set before
+     */
+    public void setReads ( int reads )
+    {
+        if ( reads < 0 )
+            throw new IllegalArgumentException ( "reads " + reads + " is negative" );
+        this . reads = reads;
+        this . coverage = 0;
+    }
+
+    /**
+     * @param coverage the mean depth of aligned bases over all References,
+     *  from which the number of Reads is derived upon generation
+     */
+    public void setCoverage ( double coverage )
+    {
+        if ( coverage <= 0 )
+            throw new IllegalArgumentException ( "coverage " + coverage + " is not positive" );
+        this . coverage = coverage;
+    }
+
+    /**
+     * @param readLength the number of bases in each fragment
+     */
+    public void setReadLength ( int readLength )
+    {
+        if ( readLength < 1 )
+            throw new IllegalArgumentException ( "readLength " + readLength + " is not positive" );
+        this . readLength = readLength;
+    }
+
+    /**
+     * @param paired whether each Read has two fragments
+     */
+    public void setPaired ( boolean paired )
+    {
+        this . paired = paired;
+    }
+
+    /**
+     * @param insertSize the distance from the start of the first fragment
+     *  to the end of the second, on the Reference
+     */
+    public void setInsertSize ( int insertSize )
+    {
+        if ( insertSize < 1 )
+            throw new IllegalArgumentException ( "insertSize " + insertSize + " is not positive" );
+        this . insertSize = insertSize;
+    }
+
+    /**
+     * @param fraction the fraction of Reads that are aligned, 0..1
+     */
+    public void setAlignedFraction ( double fraction )
+    {
+        if ( fraction < 0 || fraction > 1 )
+            throw new IllegalArgumentException ( "aligned fraction " + fraction + " is outside 0..1" );
+        this . alignedFraction = fraction;
+    }
+
+    /**
+     * @param rate the probability of a substitution at each aligned base
+     */
+    public void setMismatchRate ( double rate )
+    {
+        this . mismatchRate = rate;
+    }
+
+    /**
+     * @param rate the probability of an insertion or deletion after each aligned base
+     */
+    public void setIndelRate ( double rate )
+    {
+        this . indelRate = rate;
+    }
+
+    /**
+     * @param readGroups the number of ReadGroups, assigned round robin
+     */
+    public void setReadGroups ( int readGroups )
+    {
+        if ( readGroups < 1 )
+            throw new IllegalArgumentException ( "readGroups " + readGroups + " is not positive" );
+        this . readGroups = readGroups;
+    }
+
+    /**
+     * Generate the collection
+     * @return a new in-memory ReadCollection
+     * @throws ErrorMsg if the settings cannot be satisfied
+     */
+    public MemReadCollection generate ()
+        throws ErrorMsg
+    {
+        Random rnd = new Random ( seed );
+        MemBuilder builder = new MemBuilder ( name );
+
+        int frags = paired ? 2 : 1;
+        int window = paired ? Math . max ( insertSize, readLength * 2 ) : readLength;
+        if ( window * 2 > referenceLength )
+            throw new ErrorMsg ( "References of " + referenceLength + " bases are too short for Reads of " + window );
+
+        byte [] [] refs = new byte [ references ] [];
+        String [] refNames = new String [ references ];
+        for ( int r = 0; r < references; ++ r )
+        {
+            refs [ r ] = new byte [ referenceLength ];
+            for ( int i = 0; i < referenceLength; ++ i )
+                refs [ r ] [ i ] = acgt [ rnd . nextInt ( 4 ) ];
+            refNames [ r ] = "chr" + ( r + 1 );
+            builder . addReference ( refNames [ r ], new String ( refs [ r ], StandardCharsets . US_ASCII ) );
+        }
+
+        long count = reads;
+        if ( coverage > 0 )
+        {
+            double alignedBases = coverage * references * ( double ) referenceLength;
+            double perRead = ( double ) readLength * frags * Math . max ( alignedFraction, 1e-9 );
+            count = ( long ) Math . ceil ( alignedBases / perRead );
+        }
+        if ( count > Integer . MAX_VALUE )
+            throw new ErrorMsg ( "too many Reads for an in-memory ReadCollection: " + count );
+
+        String [] bases = new String [ frags ];
+        String [] quals = new String [ frags ];
+        String [] cigars = new String [ frags ];
+        long [] positions = new long [ frags ];
+        StringBuilder seq = new StringBuilder ();
+        StringBuilder cigar = new StringBuilder ();
+
+        for ( long n = 0; n < count; ++ n )
+        {
+            String group = readGroups > 1 ? "RG" + ( n % readGroups ) : null;
+            boolean aligned = rnd . nextDouble () < alignedFraction;
+            int ref = rnd . nextInt ( references );
+            long pos = rnd . nextInt ( referenceLength - window );
+
+            for ( int f = 0; f < frags; ++ f )
+            {
+                if ( aligned )
+                {
+                    // the second fragment ends the insert, on the reverse strand
+                    positions [ f ] = f == 0 ? pos : pos + window - readLength;
+                    sample ( rnd, refs [ ref ], ( int ) positions [ f ], seq, cigar );
+                    cigars [ f ] = cigar . toString ();
+                    bases [ f ] = f == 0 ? seq . toString () : reverseComplement ( seq );
+                }
+                else
+                {
+                    seq . setLength ( 0 );
+                    for ( int i = 0; i < readLength; ++ i )
+                        seq . append ( ( char ) acgt [ rnd . nextInt ( 4 ) ] );
+                    bases [ f ] = seq . toString ();
+                }
+                quals [ f ] = qualities ( rnd );
+            }
+
+            long id = builder . addRead ( null, group, bases, quals );
+            if ( aligned )
+            {
+                for ( int f = 0; f < frags; ++ f )
+                {
+                    int mapq = rnd . nextInt ( 10 ) == 0 ? rnd . nextInt ( 60 ) : 60;
+                    builder . addAlignment ( id, f, refNames [ ref ], positions [ f ], cigars [ f ], mapq, f == 1, false );
+                }
+            }
+        }
+
+        return builder . build ();
+    }
+
+    /* sample
+     *  copy "readLength" bases from a reference, applying substitutions
+     *  and indels; indels are kept away from both ends of the fragment
+     */
+    private void sample ( Random rnd, byte [] ref, int pos, StringBuilder seq, StringBuilder cigar )
+    {
+        seq . setLength ( 0 );
+        cigar . setLength ( 0 );
+
+        char op = 'M';
+        int run = 0;
+        int r = pos;
+        while ( seq . length () < readLength )
+        {
+            int remaining = readLength - seq . length ();
+            if ( seq . length () >= edge && remaining > edge && rnd . nextDouble () < indelRate )
+            {
+                int len = 1 + rnd . nextInt ( 3 );
+                if ( rnd . nextBoolean () )
+                {
+                    len = Math . min ( len, remaining - edge );
+                    run = flush ( cigar, op, run, 'I' );
+                    op = 'I';
+                    for ( int i = 0; i < len; ++ i )
+                        seq . append ( ( char ) acgt [ rnd . nextInt ( 4 ) ] );
+                    run += len;
+                    continue;
+                }
+                if ( r + len + remaining < ref . length )
+                {
+                    run = flush ( cigar, op, run, 'D' );
+                    op = 'D';
+                    r += len;
+                    run += len;
+                    continue;
+                }
+            }
+
+            run = flush ( cigar, op, run, 'M' );
+            op = 'M';
+            byte b = ref [ r ++ ];
+            if ( rnd . nextDouble () < mismatchRate )
+                b = acgt [ ( indexOf ( b ) + 1 + rnd . nextInt ( 3 ) ) % 4 ];
+            seq . append ( ( char ) b );
+            ++ run;
+        }
+        flush ( cigar, op, run, ' ' );
+    }
+
+    /* flush
+     *  append a run to the CIGAR text when the operation changes
+     */
+    private static int flush ( StringBuilder cigar, char op, int run, char next )
+    {
+        if ( run == 0 || op == next )
+            return run;
+        cigar . append ( run ) . append ( op );
+        return 0;
+    }
+
+    private String qualities ( Random rnd )
+    {
+        char [] q = new char [ readLength ];
+        for ( int i = 0; i < readLength; ++ i )
+            q [ i ] = ( char ) ( 33 + 2 + rnd . nextInt ( 40 ) );
+        return new String ( q );
+    }
+
+    private static String reverseComplement ( CharSequence seq )
+    {
+        int len = seq . length ();
+        char [] out = new char [ len ];
+        for ( int i = 0; i < len; ++ i )
+            out [ len - 1 - i ] = ( char ) MemData . complement ( ( byte ) seq . charAt ( i ) );
+        return new String ( out );
+    }
+
+    private static int indexOf ( byte base )
+    {
+        switch ( base )
+        {
+        case 'A': return 0;
+        case 'C': return 1;
+        case 'G': return 2;
+        }
+        return 3;
+    }
+
+    private static final byte [] acgt = { 'A', 'C', 'G', 'T' };
+
+    /* no indels within this many bases of either end of a fragment */
+    private static final int edge = 5;
+
+    private String name = "MEM";
+    private long seed = 1;
+    private int references = 1;
+    private int referenceLength = 1000000;
+    private int reads = 10000;
+    private double coverage;
+    private int readLength = 100;
+    private boolean paired = true;
+    private int insertSize = 300;
+    private double alignedFraction = 0.9;
+    private double mismatchRate = 0.01;
+    private double indelRate = 0.001;
+    private int readGroups = 1;
+}
@@ -0,0 +1,457 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.Cigar;
+import ngs.ErrorMsg;
+import ngs.PileupEvent;
+import ngs.PileupIterator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/*==========================================================================
+ * MemPileupIterator
+ *  visits every position of a window of a Reference,
+ *  stacking the Alignments that cover it
+ *
+ *  each Alignment in the stack carries a cursor into its CIGAR,
+ *  advanced by one reference position at a time
+ */
+class MemPileupIterator
+    implements PileupIterator
+{
+
+    /*----------------------------------------------------------------------
+     * Pileup
+     */
+
+    public String getReferenceSpec ()
+        throws ErrorMsg
+    {
+        position ();
+        return data . refNames [ ref ];
+    }
+
+    public long getReferencePosition ()
+        throws ErrorMsg
+    {
+        return position ();
+    }
+
+    public char getReferenceBase ()
+        throws ErrorMsg
+    {
+        return ( char ) refBases [ ( int ) position () ];
+    }
+
+    public int getPileupDepth ()
+        throws ErrorMsg
+    {
+        position ();
+        return depth;
+    }
+
+    public boolean nextPileup ()
+    {
+        if ( pos >= end )
+            return false;
+
+        ++ pos;
+        if ( pos >= end )
+        {
+            depth = 0;
+            return false;
+        }
+
+        // retire alignments that ended before this position
+        int kept = 0;
+        for ( int i = 0; i < depth; ++ i )
+        {
+            int al = stack [ i ];
+            if ( data . alPos [ al ] + data . alSpan [ al ] > pos )
+            {
+                if ( kept != i )
+                    move ( i, kept );
+                ++ kept;
+            }
+        }
+        depth = kept;
+
+        // admit alignments that reach this position
+        while ( next < last && data . alPos [ next ] <= pos )
+        {
+            int al = next ++;
+            if ( data . alPos [ al ] + data . alSpan [ al ] > pos &&
+                 data . alignmentPasses ( al, categories, filters, mappingQuality ) )
+            {
+                push ( al );
+            }
+        }
+
+        // produce one event for each stacked alignment
+        for ( int i = 0; i < depth; ++ i )
+            event ( i );
+
+        event = -1;
+        return true;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * PileupEvent
+     */
+
+    public int getMappingQuality ()
+        throws ErrorMsg
+    {
+        return data . alMapq [ stack [ current () ] ];
+    }
+
+    public String getAlignmentId ()
+        throws ErrorMsg
+    {
+        return data . alignmentId ( stack [ current () ] );
+    }
+
+    public long getAlignmentPosition ()
+        throws ErrorMsg
+    {
+        return evSeq [ current () ];
+    }
+
+    public long getFirstAlignmentPosition ()
+        throws ErrorMsg
+    {
+        return data . alPos [ stack [ current () ] ];
+    }
+
+    public long getLastAlignmentPosition ()
+        throws ErrorMsg
+    {
+        int al = stack [ current () ];
+        return data . alPos [ al ] + data . alSpan [ al ] - 1;
+    }
+
+    public int getEventType ()
+        throws ErrorMsg
+    {
+        return evType [ current () ];
+    }
+
+    public char getAlignmentBase ()
+        throws ErrorMsg
+    {
+        int i = current ();
+        int evt = evType [ i ] & 7;
+        if ( evt != PileupEvent . match && evt != PileupEvent . mismatch )
+            throw new ErrorMsg ( "no aligned base at a deletion" );
+        return ( char ) seqs [ i ] [ evSeq [ i ] ];
+    }
+
+    public char getAlignmentQuality ()
+        throws ErrorMsg
+    {
+        int i = current ();
+        int evt = evType [ i ] & 7;
+        if ( evt != PileupEvent . match && evt != PileupEvent . mismatch )
+            return '!';
+        return ( char ) quals [ i ] [ evSeq [ i ] ];
+    }
+
+    public String getInsertionBases ()
+        throws ErrorMsg
+    {
+        int i = current ();
+        return new String ( seqs [ i ], evInsStart [ i ], evInsLen [ i ], StandardCharsets . US_ASCII );
+    }
+
+    public String getInsertionQualities ()
+        throws ErrorMsg
+    {
+        int i = current ();
+        return new String ( quals [ i ], evInsStart [ i ], evInsLen [ i ], StandardCharsets . US_ASCII );
+    }
+
+    public int getEventRepeatCount ()
+        throws ErrorMsg
+    {
+        int i = current ();
+        int packed = data . alCigar [ evOp [ i ] ];
+        int op = Cigar . op ( packed );
+        int len = Cigar . opLength ( packed );
+        if ( op == Cigar . deletion || op == Cigar . skip )
+            return len - evOff [ i ];
+
+        // count following positions of the operation with the same outcome
+        int evt = evType [ i ] & 7;
+        long refPos = pos;
+        int seqPos = evSeq [ i ];
+        int count = 0;
+        for ( int off = evOff [ i ]; off < len; ++ off, ++ refPos, ++ seqPos )
+        {
+            if ( refPos >= refBases . length || outcome ( seqs [ i ] [ seqPos ], refBases [ ( int ) refPos ] ) != evt )
+                break;
+            ++ count;
+        }
+        return Math . max ( count, 1 );
+    }
+
+    public int getEventIndelType ()
+        throws ErrorMsg
+    {
+        int i = current ();
+        int op = Cigar . op ( data . alCigar [ evOp [ i ] ] );
+        return op == Cigar . skip ? PileupEvent . intron_unknown : PileupEvent . normal_indel;
+    }
+
+    public boolean nextPileupEvent ()
+        throws ErrorMsg
+    {
+        position ();
+        if ( event < depth )
+            ++ event;
+        return event < depth;
+    }
+
+    public void resetPileupEvent ()
+        throws ErrorMsg
+    {
+        position ();
+        event = -1;
+    }
+
+    MemPileupIterator ( MemData data, int ref, long start, long end, int categories, int filters, int mappingQuality )
+    {
+        this . data = data;
+        this . ref = ref;
+        this . refBases = data . refBases [ ref ];
+        this . start = Math . max ( start, 0 );
+        this . end = Math . min ( end, refBases . length );
+        this . categories = categories;
+        this . filters = filters;
+        this . mappingQuality = mappingQuality;
+        this . pos = this . start - 1;
+
+        this . next = data . firstAt ( ref, this . start - data . refMaxSpan [ ref ] );
+        this . last = data . firstAt ( ref, this . end );
+    }
+
+    /* push
+     *  place an alignment on the stack, with its cursor at "pos"
+     */
+    private void push ( int al )
+    {
+        if ( depth == stack . length )
+        {
+            int cap = depth * 2;
+            stack = Arrays . copyOf ( stack, cap );
+            seqs = Arrays . copyOf ( seqs, cap );
+            quals = Arrays . copyOf ( quals, cap );
+            curOp = Arrays . copyOf ( curOp, cap );
+            curOff = Arrays . copyOf ( curOff, cap );
+            curSeq = Arrays . copyOf ( curSeq, cap );
+            evType = Arrays . copyOf ( evType, cap );
+            evOp = Arrays . copyOf ( evOp, cap );
+            evOff = Arrays . copyOf ( evOff, cap );
+            evSeq = Arrays . copyOf ( evSeq, cap );
+            evInsStart = Arrays . copyOf ( evInsStart, cap );
+            evInsLen = Arrays . copyOf ( evInsLen, cap );
+        }
+
+        int i = depth ++;
+        stack [ i ] = al;
+        seqs [ i ] = data . alignedBases ( al );
+        quals [ i ] = data . alignedQualities ( al );
+        curOp [ i ] = data . alCigarStart [ al ];
+        curOff [ i ] = 0;
+        curSeq [ i ] = 0;
+
+        // an alignment entering mid-way, at the start of a slice
+        for ( long p = data . alPos [ al ]; p < pos; ++ p )
+        {
+            settle ( i );
+            advance ( i );
+        }
+    }
+
+    private void move ( int from, int to )
+    {
+        stack [ to ] = stack [ from ];
+        seqs [ to ] = seqs [ from ];
+        quals [ to ] = quals [ from ];
+        curOp [ to ] = curOp [ from ];
+        curOff [ to ] = curOff [ from ];
+        curSeq [ to ] = curSeq [ from ];
+    }
+
+    /* settle
+     *  move the cursor onto the operation consuming the current reference base,
+     *  collecting any insertion that precedes it
+     */
+    private void settle ( int i )
+    {
+        int stop = data . alCigarStart [ stack [ i ] + 1 ];
+        insStart = curSeq [ i ];
+        insLen = 0;
+        while ( curOp [ i ] < stop )
+        {
+            int packed = data . alCigar [ curOp [ i ] ];
+            int op = Cigar . op ( packed );
+            int len = Cigar . opLength ( packed );
+            switch ( op )
+            {
+            case Cigar . match:
+            case Cigar . seqMatch:
+            case Cigar . seqMismatch:
+            case Cigar . deletion:
+            case Cigar . skip:
+                if ( curOff [ i ] < len )
+                    return;
+                break;
+            case Cigar . insertion:
+                if ( insLen == 0 )
+                    insStart = curSeq [ i ];
+                insLen += len;
+                curSeq [ i ] += len;
+                break;
+            case Cigar . softClip:
+                curSeq [ i ] += len;
+                break;
+            }
+            ++ curOp [ i ];
+            curOff [ i ] = 0;
+        }
+    }
+
+    /* advance
+     *  step the cursor over the current reference base
+     */
+    private void advance ( int i )
+    {
+        int op = Cigar . op ( data . alCigar [ curOp [ i ] ] );
+        if ( op != Cigar . deletion && op != Cigar . skip )
+            ++ curSeq [ i ];
+        ++ curOff [ i ];
+    }
+
+    /* event
+     *  record the event of stacked alignment "i" at "pos"
+     */
+    private void event ( int i )
+    {
+        int al = stack [ i ];
+        settle ( i );
+
+        int op = Cigar . op ( data . alCigar [ curOp [ i ] ] );
+        int type;
+        if ( op == Cigar . deletion || op == Cigar . skip )
+            type = PileupEvent . deletion;
+        else
+            type = outcome ( seqs [ i ] [ curSeq [ i ] ], refBases [ ( int ) pos ] );
+
+        if ( insLen != 0 )
+            type |= PileupEvent . insertion;
+        if ( pos == data . alPos [ al ] )
+            type |= PileupEvent . alignment_start;
+        if ( pos == data . alPos [ al ] + data . alSpan [ al ] - 1 )
+            type |= PileupEvent . alignment_stop;
+        if ( data . isReversed ( al ) )
+            type |= PileupEvent . alignment_minus_strand;
+
+        evType [ i ] = type;
+        evOp [ i ] = curOp [ i ];
+        evOff [ i ] = curOff [ i ];
+        evSeq [ i ] = curSeq [ i ];
+        evInsStart [ i ] = insStart;
+        evInsLen [ i ] = insLen;
+
+        advance ( i );
+    }
+
+    private static int outcome ( byte base, byte refBase )
+    {
+        return Character . toUpperCase ( ( char ) base ) == Character . toUpperCase ( ( char ) refBase ) ?
+            PileupEvent . match : PileupEvent . mismatch;
+    }
+
+    private long position ()
+        throws ErrorMsg
+    {
+        if ( pos < start )
+            throw new ErrorMsg ( "Pileup accessed before a call to PileupIterator.nextPileup()" );
+        if ( pos >= end )
+            throw new ErrorMsg ( "No more rows available" );
+        return pos;
+    }
+
+    private int current ()
+        throws ErrorMsg
+    {
+        position ();
+        if ( event < 0 )
+            throw new ErrorMsg ( "PileupEvent accessed before a call to PileupEventIterator.nextPileupEvent()" );
+        if ( event >= depth )
+            throw new ErrorMsg ( "No more events available" );
+        return event;
+    }
+
+    private final MemData data;
+    private final int ref;
+    private final byte [] refBases;
+    private final long start;
+    private final long end;
+    private final int categories;
+    private final int filters;
+    private final int mappingQuality;
+
+    private long pos;
+    private int next;
+    private final int last;
+    private int event;
+
+    // scratch of settle
+    private int insStart;
+    private int insLen;
+
+    // stacked alignments, with their cursors and current events
+    private int depth;
+    private int [] stack = new int [ 16 ];
+    private byte [] [] seqs = new byte [ 16 ] [];
+    private byte [] [] quals = new byte [ 16 ] [];
+    private int [] curOp = new int [ 16 ];
+    private int [] curOff = new int [ 16 ];
+    private int [] curSeq = new int [ 16 ];
+    private int [] evType = new int [ 16 ];
+    private int [] evOp = new int [ 16 ];
+    private int [] evOff = new int [ 16 ];
+    private int [] evSeq = new int [ 16 ];
+    private int [] evInsStart = new int [ 16 ];
+    private int [] evInsLen = new int [ 16 ];
+}
@@ -0,0 +1,216 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.ReadGroup;
+import ngs.ReadGroupIterator;
+import ngs.Reference;
+import ngs.ReferenceIterator;
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.Read;
+import ngs.ReadIterator;
+
+
+/**
+ *<p>
+ * A ReadCollection held entirely in Java memory, requiring no native library.
+ * It is created by {@link MemBuilder} from given data,
+ * or by {@link MemGenerator} from synthetic data.
+ *</p>
+ *<p>
+ * Its contents are immutable, so objects obtained from it
+ * may be used concurrently from different threads;
+ * each iterator must still be used by one thread at a time.
+ * Closing any of its objects has no effect.
+ *</p>
+ */
+public class MemReadCollection
+    implements ReadCollection
+{
+
+    public String getName ()
+    {
+        return data . name;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * READ GROUPS
+     */
+
+    public ReadGroupIterator getReadGroups ()
+    {
+        return new MemReadGroupIterator ( data, 0, data . groupNames . length );
+    }
+
+    public boolean hasReadGroup ( String spec )
+    {
+        return data . groupIndex . containsKey ( spec );
+    }
+
+    public ReadGroup getReadGroup ( String spec )
+        throws ErrorMsg
+    {
+        Integer idx = data . groupIndex . get ( spec );
+        if ( idx == null )
+            throw new ErrorMsg ( "ReadGroup not found: '" + spec + "'" );
+        return MemReadGroupIterator . single ( data, idx );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * REFERENCES
+     */
+
+    public ReferenceIterator getReferences ()
+    {
+        return new MemReferenceIterator ( data, 0, data . refNames . length );
+    }
+
+    public boolean hasReference ( String spec )
+    {
+        return data . refIndex . containsKey ( spec );
+    }
+
+    public Reference getReference ( String spec )
+        throws ErrorMsg
+    {
+        return MemReferenceIterator . single ( data, data . reference ( spec ) );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * ALIGNMENTS
+     */
+
+    public Alignment getAlignment ( String alignmentId )
+        throws ErrorMsg
+    {
+        int al = MemData . parseId ( alignmentId, data . alignmentCount, "Alignment" );
+        return MemAlignmentIterator . single ( data, al );
+    }
+
+    public AlignmentIterator getAlignments ( int categories )
+    {
+        return new MemAlignmentIterator ( data, 0, data . alignmentCount, categories );
+    }
+
+    public long getAlignmentCount ()
+    {
+        return data . alignmentCount;
+    }
+
+    public long getAlignmentCount ( int categories )
+    {
+        long count = 0;
+        if ( ( categories & Alignment . primaryAlignment ) != 0 )
+            count += data . primaryCount;
+        if ( ( categories & Alignment . secondaryAlignment ) != 0 )
+            count += data . alignmentCount - data . primaryCount;
+        return count;
+    }
+
+    public AlignmentIterator getAlignmentRange ( long first, long count )
+    {
+        return getAlignmentRange ( first, count, Alignment . all );
+    }
+
+    public AlignmentIterator getAlignmentRange ( long first, long count, int categories )
+    {
+        int [] range = range ( first, count, data . alignmentCount );
+        return new MemAlignmentIterator ( data, range [ 0 ], range [ 1 ], categories );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * READS
+     */
+
+    public Read getRead ( String readId )
+        throws ErrorMsg
+    {
+        int row = MemData . parseId ( readId, data . readCount, "Read" );
+        return MemReadIterator . single ( data, row );
+    }
+
+    public ReadIterator getReads ( int categories )
+    {
+        return new MemReadIterator ( data, 0, data . readCount, categories );
+    }
+
+    public long getReadCount ()
+    {
+        return data . readCount;
+    }
+
+    public long getReadCount ( int categories )
+    {
+        if ( ( categories & Read . all ) == Read . all )
+            return data . readCount;
+
+        long count = 0;
+        for ( int row = 0; row < data . readCount; ++ row )
+        {
+            if ( data . readPasses ( row, categories ) )
+                ++ count;
+        }
+        return count;
+    }
+
+    public ReadIterator getReadRange ( long first, long count )
+    {
+        return getReadRange ( first, count, Read . all );
+    }
+
+    public ReadIterator getReadRange ( long first, long count, int categories )
+    {
+        int [] range = range ( first, count, data . readCount );
+        return new MemReadIterator ( data, range [ 0 ], range [ 1 ], categories );
+    }
+
+    MemReadCollection ( MemData data )
+    {
+        this . data = data;
+    }
+
+    /* range
+     *  convert 1-based "first" and "count" into clipped 0-based [ start, end )
+     */
+    private static int [] range ( long first, long count, int total )
+    {
+        long start = Math . max ( first - 1, 0 );
+        long end = count < 0 ? start : Math . min ( start + count, total );
+        start = Math . min ( start, total );
+        return new int [] { ( int ) start, ( int ) Math . max ( start, end ) };
+    }
+
+    private final MemData data;
+}
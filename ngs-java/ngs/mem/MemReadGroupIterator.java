@@ -0,0 +1,107 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.ErrorMsg;
+import ngs.ReadGroupIterator;
+import ngs.Statistics;
+
+
+/*==========================================================================
+ * MemReadGroupIterator
+ *  iterates the ReadGroups of a MemReadCollection,
+ *  or stands for a single ReadGroup
+ */
+class MemReadGroupIterator
+    implements ReadGroupIterator
+{
+
+    public String getName ()
+        throws ErrorMsg
+    {
+        return data . groupNames [ current () ];
+    }
+
+    public Statistics getStatistics ()
+        throws ErrorMsg
+    {
+        int g = current ();
+        long spots = 0;
+        long bases = 0;
+        for ( int row = 0; row < data . readCount; ++ row )
+        {
+            if ( data . readGroups [ row ] == g )
+            {
+                ++ spots;
+                bases += data . readLength ( row );
+            }
+        }
+
+        MemStatistics stats = new MemStatistics ();
+        stats . put ( "BASE_COUNT", bases );
+        stats . put ( "SPOT_COUNT", spots );
+        return stats;
+    }
+
+    public boolean nextReadGroup ()
+    {
+        if ( idx < end )
+            ++ idx;
+        return idx < end;
+    }
+
+    static MemReadGroupIterator single ( MemData data, int idx )
+    {
+        MemReadGroupIterator it = new MemReadGroupIterator ( data, idx, idx + 1 );
+        it . idx = idx;
+        return it;
+    }
+
+    MemReadGroupIterator ( MemData data, int first, int end )
+    {
+        this . data = data;
+        this . idx = first - 1;
+        this . first = first;
+        this . end = end;
+    }
+
+    private int current ()
+        throws ErrorMsg
+    {
+        if ( idx < first )
+            throw new ErrorMsg ( "ReadGroup accessed before a call to ReadGroupIterator.nextReadGroup()" );
+        if ( idx >= end )
+            throw new ErrorMsg ( "No more rows available" );
+        return idx;
+    }
+
+    private final MemData data;
+    private final int first;
+    private final int end;
+    private int idx;
+}
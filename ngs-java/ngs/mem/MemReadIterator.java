@@ -0,0 +1,257 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.ErrorMsg;
+import ngs.ReadIterator;
+
+
+/*==========================================================================
+ * MemReadIterator
+ *  iterates a range of Reads of a MemReadCollection,
+ *  or stands for a single Read; also iterates the fragments of each Read
+ */
+class MemReadIterator
+    implements ReadIterator
+{
+
+    /*----------------------------------------------------------------------
+     * Fragment
+     */
+
+    public String getFragmentId ()
+        throws ErrorMsg
+    {
+        return data . fragmentId ( row (), fragment () - data . readFrags [ row ] );
+    }
+
+    public String getFragmentBases ()
+        throws ErrorMsg
+    {
+        return getFragmentBases ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentBases ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        int frag = fragment ();
+        return MemData . ascii ( data . bases, data . fragStart [ frag ], data . fragLength [ frag ], offset, length );
+    }
+
+    public String getFragmentQualities ()
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( 0, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset )
+        throws ErrorMsg
+    {
+        return getFragmentQualities ( offset, Long . MAX_VALUE );
+    }
+
+    public String getFragmentQualities ( long offset, long length )
+        throws ErrorMsg
+    {
+        int frag = fragment ();
+        return MemData . ascii ( data . qualities, data . fragStart [ frag ], data . fragLength [ frag ], offset, length );
+    }
+
+    public boolean isPaired ()
+        throws ErrorMsg
+    {
+        return data . numFragments ( row () ) > 1;
+    }
+
+    public boolean isAligned ()
+        throws ErrorMsg
+    {
+        return data . fragAlignment [ fragment () ] >= 0;
+    }
+
+    public boolean nextFragment ()
+        throws ErrorMsg
+    {
+        int end = data . readFrags [ row () + 1 ];
+        if ( frag < end )
+            ++ frag;
+        return frag < end;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Read
+     */
+
+    public String getReadId ()
+        throws ErrorMsg
+    {
+        return data . readId ( row () );
+    }
+
+    public int getNumFragments ()
+        throws ErrorMsg
+    {
+        return data . numFragments ( row () );
+    }
+
+    public boolean fragmentIsAligned ( int fragIdx )
+        throws ErrorMsg
+    {
+        int r = row ();
+        if ( fragIdx < 0 || fragIdx >= data . numFragments ( r ) )
+            throw new ErrorMsg ( "Fragment index " + fragIdx + " is out of range" );
+        return data . fragAlignment [ data . readFrags [ r ] + fragIdx ] >= 0;
+    }
+
+    public int getReadCategory ()
+        throws ErrorMsg
+    {
+        return data . readCategories [ row () ];
+    }
+
+    public String getReadGroup ()
+        throws ErrorMsg
+    {
+        return data . groupNames [ data . readGroups [ row () ] ];
+    }
+
+    public String getReadName ()
+        throws ErrorMsg
+    {
+        String name = data . readNames [ row () ];
+        return name != null ? name : Integer . toString ( row + 1 );
+    }
+
+    public String getReadBases ()
+        throws ErrorMsg
+    {
+        return getReadBases ( 0, Long . MAX_VALUE );
+    }
+
+    public String getReadBases ( long offset )
+        throws ErrorMsg
+    {
+        return getReadBases ( offset, Long . MAX_VALUE );
+    }
+
+    public String getReadBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        int r = row ();
+        int len = data . readLength ( r );
+        return MemData . ascii ( data . bases, len == 0 ? 0 : data . readStart ( r ), len, offset, length );
+    }
+
+    public String getReadQualities ()
+        throws ErrorMsg
+    {
+        return getReadQualities ( 0, Long . MAX_VALUE );
+    }
+
+    public String getReadQualities ( long offset )
+        throws ErrorMsg
+    {
+        return getReadQualities ( offset, Long . MAX_VALUE );
+    }
+
+    public String getReadQualities ( long offset, long length )
+        throws ErrorMsg
+    {
+        int r = row ();
+        int len = data . readLength ( r );
+        return MemData . ascii ( data . qualities, len == 0 ? 0 : data . readStart ( r ), len, offset, length );
+    }
+
+    public boolean nextRead ()
+    {
+        while ( row < end )
+        {
+            ++ row;
+            if ( row < end && data . readPasses ( row, categories ) )
+                break;
+        }
+        if ( row >= end )
+            return false;
+
+        frag = data . readFrags [ row ] - 1;
+        return true;
+    }
+
+    static MemReadIterator single ( MemData data, int row )
+    {
+        MemReadIterator it = new MemReadIterator ( data, row, row + 1, ngs . Read . all );
+        it . row = row;
+        it . frag = data . readFrags [ row ] - 1;
+        return it;
+    }
+
+    MemReadIterator ( MemData data, int first, int end, int categories )
+    {
+        this . data = data;
+        this . first = first;
+        this . end = end;
+        this . categories = categories;
+        this . row = first - 1;
+        this . frag = -1;
+    }
+
+    private int row ()
+        throws ErrorMsg
+    {
+        if ( row < first )
+            throw new ErrorMsg ( "Read accessed before a call to ReadIterator.nextRead()" );
+        if ( row >= end )
+            throw new ErrorMsg ( "No more rows available" );
+        return row;
+    }
+
+    private int fragment ()
+        throws ErrorMsg
+    {
+        int r = row ();
+        if ( frag < data . readFrags [ r ] )
+            throw new ErrorMsg ( "Fragment accessed before a call to FragmentIterator.nextFragment()" );
+        if ( frag >= data . readFrags [ r + 1 ] )
+            throw new ErrorMsg ( "No more fragments available" );
+        return frag;
+    }
+
+    private final MemData data;
+    private final int first;
+    private final int end;
+    private final int categories;
+    private int row;
+    private int frag;
+}
@@ -0,0 +1,267 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.internal.Bounds;
+import ngs.ErrorMsg;
+import ngs.PileupIterator;
+import ngs.ReferenceIterator;
+
+
+/*==========================================================================
+ * MemReferenceIterator
+ *  iterates the References of a MemReadCollection,
+ *  or stands for a single Reference
+ */
+class MemReferenceIterator
+    implements ReferenceIterator
+{
+
+    public String getCommonName ()
+        throws ErrorMsg
+    {
+        return data . refNames [ current () ];
+    }
+
+    public String getCanonicalName ()
+        throws ErrorMsg
+    {
+        return data . refNames [ current () ];
+    }
+
+    public boolean getIsCircular ()
+        throws ErrorMsg
+    {
+        return data . refCircular [ current () ];
+    }
+
+    public boolean getIsLocal ()
+        throws ErrorMsg
+    {
+        current ();
+        return true;
+    }
+
+    public long getLength ()
+        throws ErrorMsg
+    {
+        return data . refBases [ current () ] . length;
+    }
+
+    public String getReferenceBases ( long offset )
+        throws ErrorMsg
+    {
+        return getReferenceBases ( offset, Long . MAX_VALUE );
+    }
+
+    public String getReferenceBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        byte [] bases = data . refBases [ current () ];
+        return MemData . ascii ( bases, 0, bases . length, offset, length );
+    }
+
+    public int getReferenceBases ( long offset, long length, byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        byte [] bases = data . refBases [ current () ];
+        if ( offset < 0 || length < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " or length " + length + " is negative" );
+        Bounds . checkArray ( dst, dstOffset );
+
+        int n = ( int ) Math . max ( 0, Math . min ( length, bases . length - offset ) );
+        if ( n > 0 )
+            System . arraycopy ( bases, ( int ) offset, dst, dstOffset, Math . min ( n, dst . length - dstOffset ) );
+        return n;
+    }
+
+    public String getReferenceChunk ( long offset )
+        throws ErrorMsg
+    {
+        return getReferenceChunk ( offset, Long . MAX_VALUE );
+    }
+
+    public String getReferenceChunk ( long offset, long length )
+        throws ErrorMsg
+    {
+        byte [] bases = data . refBases [ current () ];
+        if ( offset < 0 )
+            throw new IndexOutOfBoundsException ( "offset " + offset + " is negative" );
+
+        // a chunk ends at the next multiple of chunkSize
+        long chunkEnd = Math . min ( ( offset / MemData . chunkSize + 1 ) * MemData . chunkSize, bases . length );
+        return MemData . ascii ( bases, 0, bases . length, offset, Math . min ( length, chunkEnd - offset ) );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * ALIGNMENTS
+     */
+
+    public long getAlignmentCount ()
+        throws ErrorMsg
+    {
+        int ref = current ();
+        return data . refFirst [ ref + 1 ] - data . refFirst [ ref ];
+    }
+
+    public long getAlignmentCount ( int categories )
+        throws ErrorMsg
+    {
+        int ref = current ();
+        long count = 0;
+        for ( int al = data . refFirst [ ref ]; al < data . refFirst [ ref + 1 ]; ++ al )
+        {
+            if ( ( data . alignmentCategory ( al ) & categories ) != 0 )
+                ++ count;
+        }
+        return count;
+    }
+
+    public Alignment getAlignment ( String alignmentId )
+        throws ErrorMsg
+    {
+        int ref = current ();
+        int al = MemData . parseId ( alignmentId, data . alignmentCount, "Alignment" );
+        if ( data . alRef [ al ] != ref )
+            throw new ErrorMsg ( "Alignment '" + alignmentId + "' is not part of Reference '" + data . refNames [ ref ] + "'" );
+        return MemAlignmentIterator . single ( data, al );
+    }
+
+    public AlignmentIterator getAlignments ( int categories )
+        throws ErrorMsg
+    {
+        int ref = current ();
+        return new MemAlignmentIterator ( data, data . refFirst [ ref ], data . refFirst [ ref + 1 ], categories );
+    }
+
+    public AlignmentIterator getAlignmentSlice ( long start, long length )
+        throws ErrorMsg
+    {
+        return getFilteredAlignmentSlice ( start, length, Alignment . all, 0, 0 );
+    }
+
+    public AlignmentIterator getAlignmentSlice ( long start, long length, int categories )
+        throws ErrorMsg
+    {
+        return getFilteredAlignmentSlice ( start, length, categories, 0, 0 );
+    }
+
+    public AlignmentIterator getFilteredAlignmentSlice ( long start, long length, int categories, int filters, int mappingQuality )
+        throws ErrorMsg
+    {
+        int ref = current ();
+        long end = start + length;
+
+        // alignments starting before the slice may still reach into it
+        int first = data . firstAt ( ref, start - data . refMaxSpan [ ref ] );
+        int last = data . firstAt ( ref, end );
+        return new MemAlignmentIterator ( data, first, last, categories, filters, mappingQuality, start, end );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * PILEUP
+     */
+
+    public PileupIterator getPileups ( int categories )
+        throws ErrorMsg
+    {
+        return getFilteredPileups ( categories, 0, 0 );
+    }
+
+    public PileupIterator getFilteredPileups ( int categories, int filters, int mappingQuality )
+        throws ErrorMsg
+    {
+        int ref = current ();
+        return new MemPileupIterator ( data, ref, 0, data . refBases [ ref ] . length, categories, filters, mappingQuality );
+    }
+
+    public PileupIterator getPileupSlice ( long start, long length )
+        throws ErrorMsg
+    {
+        return getFilteredPileupSlice ( start, length, Alignment . all, 0, 0 );
+    }
+
+    public PileupIterator getPileupSlice ( long start, long length, int categories )
+        throws ErrorMsg
+    {
+        return getFilteredPileupSlice ( start, length, categories, 0, 0 );
+    }
+
+    public PileupIterator getFilteredPileupSlice ( long start, long length, int categories, int filters, int mappingQuality )
+        throws ErrorMsg
+    {
+        int ref = current ();
+        return new MemPileupIterator ( data, ref, start, start + length, categories, filters, mappingQuality );
+    }
+
+
+    /*----------------------------------------------------------------------
+     * iteration
+     */
+
+    public boolean nextReference ()
+    {
+        if ( idx < end )
+            ++ idx;
+        return idx < end;
+    }
+
+    static MemReferenceIterator single ( MemData data, int ref )
+    {
+        MemReferenceIterator it = new MemReferenceIterator ( data, ref, ref + 1 );
+        it . idx = ref;
+        return it;
+    }
+
+    MemReferenceIterator ( MemData data, int first, int end )
+    {
+        this . data = data;
+        this . first = first;
+        this . end = end;
+        this . idx = first - 1;
+    }
+
+    private int current ()
+        throws ErrorMsg
+    {
+        if ( idx < first )
+            throw new ErrorMsg ( "Reference accessed before a call to ReferenceIterator.nextReference()" );
+        if ( idx >= end )
+            throw new ErrorMsg ( "No more rows available" );
+        return idx;
+    }
+
+    private final MemData data;
+    private final int first;
+    private final int end;
+    private int idx;
+}
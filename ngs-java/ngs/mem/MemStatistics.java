@@ -0,0 +1,126 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.mem;
+
+import ngs.ErrorMsg;
+import ngs.Statistics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/*==========================================================================
+ * MemStatistics
+ *  Statistics held in a sorted map of Long, Double or String values
+ */
+class MemStatistics
+    implements Statistics
+{
+
+    public int getValueType ( String path )
+    {
+        Object value = values . get ( path );
+        if ( value instanceof String )
+            return string;
+        if ( value instanceof Long )
+            return int64;
+        if ( value instanceof Double )
+            return real;
+        return none;
+    }
+
+    public String getAsString ( String path )
+        throws ErrorMsg
+    {
+        return String . valueOf ( get ( path ) );
+    }
+
+    public long getAsI64 ( String path )
+        throws ErrorMsg
+    {
+        Object value = get ( path );
+        if ( value instanceof Number )
+            return ( ( Number ) value ) . longValue ();
+        try
+        {
+            return Long . parseLong ( ( String ) value );
+        }
+        catch ( NumberFormatException x )
+        {
+            throw new ErrorMsg ( "Statistics '" + path + "' is not numeric" );
+        }
+    }
+
+    public long getAsU64 ( String path )
+        throws ErrorMsg
+    {
+        long value = getAsI64 ( path );
+        if ( value < 0 )
+            throw new ErrorMsg ( "Statistics '" + path + "' is negative" );
+        return value;
+    }
+
+    public double getAsDouble ( String path )
+        throws ErrorMsg
+    {
+        Object value = get ( path );
+        if ( value instanceof Number )
+            return ( ( Number ) value ) . doubleValue ();
+        try
+        {
+            return Double . parseDouble ( ( String ) value );
+        }
+        catch ( NumberFormatException x )
+        {
+            throw new ErrorMsg ( "Statistics '" + path + "' is not numeric" );
+        }
+    }
+
+    public String nextPath ( String path )
+    {
+        Map . Entry < String, Object > next = path == null || path . isEmpty () ?
+            values . firstEntry () : values . higherEntry ( path );
+        return next == null ? "" : next . getKey ();
+    }
+
+    void put ( String path, Object value )
+    {
+        values . put ( path, value );
+    }
+
+    private Object get ( String path )
+        throws ErrorMsg
+    {
+        Object value = values . get ( path );
+        if ( value == null )
+            throw new ErrorMsg ( "Statistics not found: '" + path + "'" );
+        return value;
+    }
+
+    private final TreeMap < String, Object > values = new TreeMap < String, Object > ();
+}
@@ -0,0 +1,157 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/**
+ * Writes blocks of the BGZF format used by BAM and tabix:
+ * a series of gzip members, each holding at most 64KB of data
+ * and recording its own compressed size, followed by an empty
+ * member marking the end of the file.
+ * A BGZF file is also a valid multi-member gzip file.
+ */
+public final class Bgzf
+{
+
+    /** the largest compressed block, header and trailer included */
+    public static final int maxBlockSize = 64 * 1024;
+
+    /** the most data placed into a single block */
+    public static final int maxInputSize = maxBlockSize - 256;
+
+    /**
+     * @return a copy of the empty block terminating a BGZF file
+     */
+    public static byte [] eof ()
+    {
+        return eof . clone ();
+    }
+
+    /**
+     * Compress up to maxInputSize bytes into a single block.
+     * Data that does not shrink is stored uncompressed.
+     * @param deflater a raw ( "nowrap" ) Deflater, reset before use
+     * @param crc is reset before use
+     * @param src the data
+     * @param off the zero-based position of the data in src
+     * @param len the number of bytes of data, at most maxInputSize
+     * @param dst receives the block
+     * @param dstOff the zero-based position in dst of the block;
+     *  at least maxBlockSize bytes must be available
+     * @return the size of the block
+     */
+    public static int compress ( Deflater deflater, CRC32 crc, byte [] src, int off, int len, byte [] dst, int dstOff )
+    {
+        if ( len < 0 || len > maxInputSize )
+            throw new IllegalArgumentException ( "block data size " + len + " is out of range" );
+
+        deflater . reset ();
+        deflater . setInput ( src, off, len );
+        deflater . finish ();
+
+        int room = maxBlockSize - headerSize - trailerSize;
+        int size = deflater . deflate ( dst, dstOff + headerSize, room );
+        if ( ! deflater . finished () )
+        {
+            // a final stored deflate block
+            int p = dstOff + headerSize;
+            dst [ p ] = 1;
+            putShort ( dst, p + 1, len );
+            putShort ( dst, p + 3, ~ len );
+            System . arraycopy ( src, off, dst, p + 5, len );
+            size = len + 5;
+        }
+
+        crc . reset ();
+        crc . update ( src, off, len );
+
+        int total = headerSize + size + trailerSize;
+        System . arraycopy ( header, 0, dst, dstOff, headerSize );
+        putShort ( dst, dstOff + 16, total - 1 );
+        putInt ( dst, dstOff + headerSize + size, ( int ) crc . getValue () );
+        putInt ( dst, dstOff + headerSize + size + 4, len );
+        return total;
+    }
+
+    /**
+     * The bound on the size of compressing "len" bytes as BGZF blocks
+     * @param len the number of bytes of data
+     * @return the most space the blocks may take
+     */
+    public static long bound ( long len )
+    {
+        return ( len + maxInputSize - 1 ) / maxInputSize * maxBlockSize;
+    }
+
+    /**
+     * @param block a BGZF block, as from compress
+     * @param off the zero-based position of the block
+     * @return the size of the block, read from its header
+     */
+    public static int blockSize ( byte [] block, int off )
+    {
+        return ( ( block [ off + 16 ] & 0xff ) | ( block [ off + 17 ] & 0xff ) << 8 ) + 1;
+    }
+
+    static void putShort ( byte [] dst, int off, int v )
+    {
+        dst [ off ] = ( byte ) v;
+        dst [ off + 1 ] = ( byte ) ( v >>> 8 );
+    }
+
+    static void putInt ( byte [] dst, int off, int v )
+    {
+        dst [ off ] = ( byte ) v;
+        dst [ off + 1 ] = ( byte ) ( v >>> 8 );
+        dst [ off + 2 ] = ( byte ) ( v >>> 16 );
+        dst [ off + 3 ] = ( byte ) ( v >>> 24 );
+    }
+
+    private static final int headerSize = 18;
+    private static final int trailerSize = 8;
+
+    // ID1 ID2 CM FLG MTIME XFL OS XLEN, then subfield 'B' 'C' SLEN BSIZE
+    private static final byte [] header =
+    {
+        0x1f, ( byte ) 0x8b, 8, 4, 0, 0, 0, 0, 0, ( byte ) 0xff, 6, 0,
+        'B', 'C', 2, 0, 0, 0
+    };
+
+    private static final byte [] eof =
+    {
+        0x1f, ( byte ) 0x8b, 8, 4, 0, 0, 0, 0, 0, ( byte ) 0xff, 6, 0,
+        'B', 'C', 2, 0, 0x1b, 0, 3, 0, 0, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private Bgzf ()
+    {
+    }
+}
@@ -0,0 +1,182 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import ngs.ErrorMsg;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Random access to the bases of a Reference or ReferenceSequence
+ * through a {@link ReferenceCache}.
+ * A CachedReference may be used from several threads at once.
+ */
+public final class CachedReference
+{
+
+    /**
+     * @return the canonical name of the Reference
+     */
+    public String getCanonicalName ()
+    {
+        return name;
+    }
+
+    /**
+     * @return the number of bases
+     */
+    public long getLength ()
+    {
+        return length;
+    }
+
+    /**
+     * @return true if the Reference is circular
+     */
+    public boolean getIsCircular ()
+    {
+        return circular;
+    }
+
+    /**
+     * @param pos a 0-based position, less than getLength
+     * @return the base at "pos" as an upper case ASCII byte
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if pos is outside of the Reference
+     */
+    public byte baseAt ( long pos )
+        throws ErrorMsg
+    {
+        if ( pos < 0 || pos >= length )
+            throw new IndexOutOfBoundsException ( "position " + pos + " is outside of " + name );
+
+        int size = cache . chunkSize ();
+        return chunk ( pos / size ) . baseAt ( ( int ) ( pos % size ) );
+    }
+
+    /**
+     * Copy bases into an array
+     * @param pos the 0-based position of the first base
+     * @param len the number of bases requested
+     * @param dst receives upper case ASCII bases
+     * @param dstOffset is the zero-based position in dst of the first base
+     * @return the number of bases copied, fewer than "len" at the end of the Reference
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IndexOutOfBoundsException if the arguments are invalid
+     */
+    public int copyBases ( long pos, int len, byte [] dst, int dstOffset )
+        throws ErrorMsg
+    {
+        if ( pos < 0 || len < 0 || dstOffset < 0 || dstOffset + ( long ) len > dst . length )
+            throw new IndexOutOfBoundsException ( "invalid range " + pos + "/" + len + " into " + dstOffset + "/" + dst . length );
+
+        int size = cache . chunkSize ();
+        int count = ( int ) Math . max ( 0, Math . min ( len, length - pos ) );
+        int done = 0;
+        while ( done < count )
+        {
+            long p = pos + done;
+            int within = ( int ) ( p % size );
+            int n = Math . min ( count - done, size - within );
+            chunk ( p / size ) . copy ( within, n, dst, dstOffset + done );
+            done += n;
+        }
+        return count;
+    }
+
+    /**
+     * @param offset the 0-based position of the first base
+     * @param length the number of bases requested
+     * @return the bases, fewer than "length" at the end of the Reference
+     * @throws ErrorMsg upon an error accessing data
+     */
+    public String getReferenceBases ( long offset, long length )
+        throws ErrorMsg
+    {
+        int n = ( int ) Math . max ( 0, Math . min ( length, this . length - offset ) );
+        byte [] bases = new byte [ n ];
+        copyBases ( offset, n, bases, 0 );
+        return new String ( bases, StandardCharsets . US_ASCII );
+    }
+
+    CachedReference ( ReferenceCache cache, Object source, String name, long length, boolean circular, ReferenceCache . Fetch fetch )
+    {
+        this . cache = cache;
+        this . source = source;
+        this . name = name;
+        this . length = length;
+        this . circular = circular;
+        this . fetch = fetch;
+    }
+
+    /* chunk
+     *  the most recently used chunk is remembered to spare
+     *  a cache lookup for consecutive accesses to the same locus
+     */
+    private PackedBases chunk ( long index )
+        throws ErrorMsg
+    {
+        Recent r = recent;
+        if ( r != null && r . index == index )
+            return r . chunk;
+
+        PackedBases chunk = cache . chunk ( source, name, index, length, this :: fetch );
+        recent = new Recent ( index, chunk );
+        return chunk;
+    }
+
+    /* fetch
+     *  the source object is not used by two threads at once
+     */
+    private synchronized String fetch ( long offset, long length )
+        throws ErrorMsg
+    {
+        return fetch . fetch ( offset, length );
+    }
+
+    private static final class Recent
+    {
+        Recent ( long index, PackedBases chunk )
+        {
+            this . index = index;
+            this . chunk = chunk;
+        }
+
+        final long index;
+        final PackedBases chunk;
+    }
+
+    private final ReferenceCache cache;
+    private final Object source;
+    private final String name;
+    private final long length;
+    private final boolean circular;
+    private final ReferenceCache . Fetch fetch;
+    private volatile Recent recent;
+}
@@ -0,0 +1,563 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.Reference;
+import ngs.ReferenceIterator;
+import ngs.internal.Tasks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/**
+ * Writes References in FASTA format, optionally with a samtools-style
+ * ".fai" index alongside.
+ * <p>
+ * Bases are copied through Reference.getReferenceBases into a per-thread
+ * byte array, laid out into lines in a direct buffer and written with
+ * a single channel call per block, so no String is created per line.
+ * <p>
+ * The size of every record is known from the length of its Reference,
+ * so blocks of bases are formatted on a pool of threads and written
+ * to their final positions in the file in any order. Several References
+ * of a ReadCollection are written concurrently; a Reference's own bases
+ * are fetched by one thread at a time.
+ */
+public class FastaWriter
+    implements AutoCloseable
+{
+
+    /** default number of bases per line */
+    public static final int defaultLineWidth = 70;
+
+    /** default number of bases formatted by a single task */
+    public static final int defaultBlockSize = 1024 * 1024;
+
+    /**
+     * Create a writer with its own pool of daemon threads,
+     * shut down by "close".
+     * @param threads the number of pool threads, &gt; 0
+     */
+    public FastaWriter ( int threads )
+    {
+        if ( threads <= 0 )
+            throw new IllegalArgumentException ( "threads " + threads + " is not positive" );
+
+        this . pool = Tasks . daemonPool ( threads, "ngs-fasta-" );
+        this . owned = true;
+        this . parallelism = threads;
+    }
+
+    /**
+     * Create a writer that formats its blocks on an existing pool,
+     * which is left running by "close".
+     * @param pool executes the blocks
+     * @param parallelism the number of threads expected to serve the writer, &gt; 0
+     */
+    public FastaWriter ( ExecutorService pool, int parallelism )
+    {
+        if ( parallelism <= 0 )
+            throw new IllegalArgumentException ( "parallelism " + parallelism + " is not positive" );
+
+        this . pool = pool;
+        this . owned = false;
+        this . parallelism = parallelism;
+    }
+
+    /**
+     * @param lineWidth the number of bases per line, &gt; 0
+     */
+    public void setLineWidth ( int lineWidth )
+    {
+        if ( lineWidth <= 0 )
+            throw new IllegalArgumentException ( "line width " + lineWidth + " is not positive" );
+        this . lineWidth = lineWidth;
+    }
+
+    /**
+     * @param blockSize the number of bases formatted by a single task,
+     *  rounded down to a whole number of lines
+     */
+    public void setBlockSize ( int blockSize )
+    {
+        if ( blockSize <= 0 )
+            throw new IllegalArgumentException ( "block size " + blockSize + " is not positive" );
+        this . blockSize = blockSize;
+    }
+
+    /**
+     * @param index true to write "fasta.fai" next to every file written
+     *  to a Path; the default
+     */
+    public void setIndex ( boolean index )
+    {
+        this . index = index;
+    }
+
+    /**
+     * Write a single Reference to a file
+     * @param ref the Reference; read by one thread at a time
+     * @param fasta the file to create or replace
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public void write ( Reference ref, Path fasta )
+        throws ErrorMsg, IOException
+    {
+        try ( FileChannel out = open ( fasta ) )
+        {
+            Target t = new Target ( ref . getCanonicalName (), ref . getLength (), 0 );
+            t . ref = ref;
+            t . out = out;
+
+            ArrayList < Target > targets = new ArrayList < Target > ();
+            targets . add ( t );
+            pump ( targets, null );
+            writeIndex ( fasta, targets );
+        }
+    }
+
+    /**
+     * Write the remaining References of an iterator to a single file,
+     * one after the other, leaving the iterator past its last Reference
+     * @param refs the iterator
+     * @param fasta the file to create or replace
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public void write ( ReferenceIterator refs, Path fasta )
+        throws ErrorMsg, IOException
+    {
+        try ( FileChannel out = open ( fasta ) )
+        {
+            ArrayList < Target > written = new ArrayList < Target > ();
+            ArrayList < Target > targets = new ArrayList < Target > ();
+            long offset = 0;
+            while ( refs . nextReference () )
+            {
+                Target t = new Target ( refs . getCanonicalName (), refs . getLength (), offset );
+                t . ref = refs;
+                t . out = out;
+                offset = t . end ( lineWidth );
+
+                // the iterator cannot advance until its blocks are done
+                targets . clear ();
+                targets . add ( t );
+                pump ( targets, null );
+                written . add ( t );
+            }
+            writeIndex ( fasta, written );
+        }
+    }
+
+    /**
+     * Write every Reference of a ReadCollection to a single file,
+     * in the order of getReferences
+     * @param coll the ReadCollection
+     * @param fasta the file to create or replace
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public void write ( ReadCollection coll, Path fasta )
+        throws ErrorMsg, IOException
+    {
+        try ( FileChannel out = open ( fasta ) )
+        {
+            ArrayList < Target > targets = plan ( coll );
+            long offset = 0;
+            for ( Target t : targets )
+            {
+                t . offset = offset;
+                t . out = out;
+                offset = t . end ( lineWidth );
+            }
+            pump ( targets, coll );
+            writeIndex ( fasta, targets );
+        }
+    }
+
+    /**
+     * Write every Reference of a ReadCollection to a file of its own,
+     * named for its canonical name with the extension ".fa"
+     * @param coll the ReadCollection
+     * @param directory an existing directory to receive the files
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public void writeEach ( ReadCollection coll, Path directory )
+        throws ErrorMsg, IOException
+    {
+        ArrayList < Target > targets = plan ( coll );
+        for ( Target t : targets )
+            t . path = directory . resolve ( t . name + ".fa" );
+
+        pump ( targets, coll );
+        for ( Target t : targets )
+        {
+            ArrayList < Target > one = new ArrayList < Target > ();
+            one . add ( t );
+            writeIndex ( t . path, one );
+        }
+    }
+
+    /**
+     * Stream a single Reference to a channel on the calling thread
+     * @param ref the Reference
+     * @param out receives the record, and is left open
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public void write ( Reference ref, WritableByteChannel out )
+        throws ErrorMsg, IOException
+    {
+        Target t = new Target ( ref . getCanonicalName (), ref . getLength (), 0 );
+        t . ref = ref;
+
+        int size = lines ();
+        long first = 0;
+        do
+        {
+            int count = ( int ) Math . min ( size, t . length - first );
+            ByteBuffer buf = format ( t, first, count );
+            while ( buf . hasRemaining () )
+                out . write ( buf );
+            first += count;
+        }
+        while ( first < t . length );
+    }
+
+    /**
+     * Shut down the pool, if it was created by this writer.
+     */
+    public void close ()
+    {
+        if ( owned )
+            pool . shutdown ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Target
+     *  a FASTA record and where it goes
+     */
+    private static class Target
+    {
+        /* end
+         *  offset just past the record
+         */
+        long end ( int lineWidth )
+        {
+            return bodyOffset () + length + ( length + lineWidth - 1 ) / lineWidth;
+        }
+
+        /* bodyOffset
+         *  offset of the first base, following ">name\n"
+         */
+        long bodyOffset ()
+        {
+            return offset + header . length;
+        }
+
+        Target ( String name, long length, long offset )
+        {
+            this . name = name;
+            this . header = ( ">" + name + "\n" ) . getBytes ( StandardCharsets . UTF_8 );
+            this . length = length;
+            this . offset = offset;
+        }
+
+        final String name;
+        final byte [] header;
+        final long length;
+        long offset;
+        Path path;
+        Reference ref;
+        boolean closeReference;
+        FileChannel out;
+        int blocksLeft;
+    }
+
+    /*----------------------------------------------------------------------
+     * Block
+     *  a task formatting and writing a run of whole lines
+     */
+    private class Block
+        implements Callable < Block >
+    {
+        public Block call ()
+            throws ErrorMsg, IOException
+        {
+            ByteBuffer buf = format ( target, first, count );
+
+            long pos = target . bodyOffset () + first + first / lineWidth;
+            if ( first == 0 )
+                pos = target . offset;
+            while ( buf . hasRemaining () )
+                pos += target . out . write ( buf, pos );
+            return this;
+        }
+
+        Block ( Target target, long first, int count )
+        {
+            this . target = target;
+            this . first = first;
+            this . count = count;
+        }
+
+        final Target target;
+        final long first;
+        final int count;
+    }
+
+    /* Scratch
+     *  per-thread buffers, grown as needed
+     */
+    private static class Scratch
+    {
+        byte [] bases = new byte [ 0 ];
+        ByteBuffer out = ByteBuffer . allocateDirect ( 0 );
+    }
+
+    /* format
+     *  lay out "count" bases starting at "first" into lines,
+     *  preceded by the header for the first block
+     */
+    private ByteBuffer format ( Target t, long first, int count )
+        throws ErrorMsg
+    {
+        int width = lineWidth;
+        int capacity = t . header . length + count + ( count + width - 1 ) / width;
+
+        Scratch s = scratch . get ();
+        if ( s . bases . length < count )
+            s . bases = new byte [ count ];
+        if ( s . out . capacity () < capacity )
+            s . out = ByteBuffer . allocateDirect ( capacity );
+
+        if ( count > 0 )
+        {
+            int fetched;
+            synchronized ( t )
+            {
+                fetched = t . ref . getReferenceBases ( first, count, s . bases, 0 );
+            }
+            if ( fetched != count )
+                throw new ErrorMsg ( t . name + ": expected " + count + " bases at " + first + ", got " + fetched );
+        }
+
+        ByteBuffer buf = s . out;
+        buf . clear ();
+        if ( first == 0 )
+            buf . put ( t . header );
+        for ( int i = 0; i < count; i += width )
+        {
+            buf . put ( s . bases, i, Math . min ( width, count - i ) );
+            buf . put ( ( byte ) '\n' );
+        }
+        buf . flip ();
+        return buf;
+    }
+
+    /* lines
+     *  bases per block, a whole number of lines
+     */
+    private int lines ()
+    {
+        return Math . max ( lineWidth, blockSize / lineWidth * lineWidth );
+    }
+
+    /* plan
+     *  list the References of a ReadCollection
+     */
+    private ArrayList < Target > plan ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        ArrayList < Target > targets = new ArrayList < Target > ();
+        ReferenceIterator refs = coll . getReferences ();
+        try
+        {
+            while ( refs . nextReference () )
+                targets . add ( new Target ( refs . getCanonicalName (), refs . getLength (), 0 ) );
+        }
+        finally
+        {
+            refs . close ();
+        }
+        return targets;
+    }
+
+    /* pump
+     *  keep up to 2 * parallelism blocks in flight; References of "coll"
+     *  and per-target files are opened as their first block is reached
+     *  and closed when their last block completes
+     */
+    private void pump ( ArrayList < Target > targets, ReadCollection coll )
+        throws ErrorMsg, IOException
+    {
+        int size = lines ();
+        int depth = parallelism * 2;
+        ArrayList < Target > opened = new ArrayList < Target > ();
+        ArrayDeque < Future < Block > > inflight = new ArrayDeque < Future < Block > > ();
+        Iterator < Target > next = targets . iterator ();
+        Target current = null;
+        long first = 0;
+        try
+        {
+            while ( true )
+            {
+                while ( inflight . size () < depth )
+                {
+                    if ( current == null || submitted ( current, first ) )
+                    {
+                        if ( ! next . hasNext () )
+                            break;
+
+                        current = next . next ();
+                        first = 0;
+                        opened . add ( current );
+                        if ( current . ref == null )
+                        {
+                            current . ref = coll . getReference ( current . name );
+                            current . closeReference = true;
+                        }
+                        if ( current . out == null )
+                            current . out = open ( current . path );
+                    }
+
+                    int count = ( int ) Math . min ( size, current . length - first );
+                    ++ current . blocksLeft;
+                    inflight . add ( pool . submit ( new Block ( current, first, count ) ) );
+                    first += Math . max ( count, 1 );
+                }
+
+                Future < Block > f = inflight . poll ();
+                if ( f == null )
+                    break;
+
+                Target t = Tasks . awaitIO ( f, "FASTA block" ) . target;
+                if ( -- t . blocksLeft == 0 && ( t != current || submitted ( t, first ) ) )
+                {
+                    opened . remove ( t );
+                    release ( t );
+                }
+            }
+        }
+        finally
+        {
+            // let running blocks finish before their References are closed
+            Tasks . abandon ( inflight, true );
+            for ( Target t : opened )
+                release ( t );
+        }
+    }
+
+    /* submitted
+     *  true once the last block of "t" is in flight;
+     *  an empty Reference still has a block for its header
+     */
+    private static boolean submitted ( Target t, long first )
+    {
+        return first > 0 && first >= t . length;
+    }
+
+    /* release
+     *  close what was opened for a target
+     */
+    private static void release ( Target t )
+        throws IOException
+    {
+        if ( t . closeReference )
+        {
+            t . ref . close ();
+            t . ref = null;
+            t . closeReference = false;
+        }
+        if ( t . path != null && t . out != null )
+        {
+            t . out . close ();
+            t . out = null;
+        }
+    }
+
+    private static FileChannel open ( Path path )
+        throws IOException
+    {
+        return FileChannel . open ( path, StandardOpenOption . CREATE,
+            StandardOpenOption . WRITE, StandardOpenOption . TRUNCATE_EXISTING );
+    }
+
+    /* writeIndex
+     *  NAME, LENGTH, OFFSET, LINEBASES, LINEWIDTH
+     */
+    private void writeIndex ( Path fasta, ArrayList < Target > targets )
+        throws IOException
+    {
+        if ( ! index )
+            return;
+
+        StringBuilder sb = new StringBuilder ();
+        for ( Target t : targets )
+        {
+            sb . append ( t . name ) . append ( '\t' )
+                . append ( t . length ) . append ( '\t' )
+                . append ( t . bodyOffset () ) . append ( '\t' )
+                . append ( lineWidth ) . append ( '\t' )
+                . append ( lineWidth + 1 ) . append ( '\n' );
+        }
+
+        Path fai = fasta . resolveSibling ( fasta . getFileName () + ".fai" );
+        try ( FileChannel out = open ( fai ) )
+        {
+            ByteBuffer buf = ByteBuffer . wrap ( sb . toString () . getBytes ( StandardCharsets . UTF_8 ) );
+            while ( buf . hasRemaining () )
+                out . write ( buf );
+        }
+    }
+
+    private final ExecutorService pool;
+    private final boolean owned;
+    private final int parallelism;
+    private final ThreadLocal < Scratch > scratch = ThreadLocal . withInitial ( Scratch :: new );
+    private int lineWidth = defaultLineWidth;
+    private int blockSize = defaultBlockSize;
+    private boolean index = true;
+}
@@ -0,0 +1,483 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import ngs.ErrorMsg;
+import ngs.Read;
+import ngs.ReadCollection;
+import ngs.ReadIterator;
+import ngs.UncheckedErrorMsg;
+import ngs.internal.Tasks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/**
+ * Exports the Reads of a ReadCollection as FASTQ.
+ * <p>
+ * Reads are divided into chunks of consecutive ids. Each chunk is
+ * formatted on a pool thread through its own iterator, copying bases and
+ * qualities straight into a reusable byte buffer. Formatted chunks are
+ * optionally compressed on a second pool, then written by the calling
+ * thread in Read order. At most twice as many chunks as formatting
+ * threads are in flight, which bounds both memory and reordering.
+ * <p>
+ * Every record is written as "@id", bases, "+id" and qualities,
+ * with the id of the Read, or of the Fragment when splitting.
+ */
+public class FastqExporter
+    implements AutoCloseable
+{
+
+    /** compression: none */
+    public static final int plain = 0;
+
+    /** compression: a gzip member per chunk */
+    public static final int gzip = 1;
+
+    /** compression: BGZF blocks, readable as gzip */
+    public static final int bgzf = 2;
+
+    /** default number of Reads formatted by a single task */
+    public static final int defaultChunkSize = 16 * 1024;
+
+    /**
+     * Create an exporter with its own pools of daemon threads,
+     * shut down by "close".
+     * @param threads the number of formatting threads, &gt; 0
+     * @param compressionThreads the number of compressing threads, &gt; 0
+     */
+    public FastqExporter ( int threads, int compressionThreads )
+    {
+        if ( threads <= 0 )
+            throw new IllegalArgumentException ( "threads " + threads + " is not positive" );
+        if ( compressionThreads <= 0 )
+            throw new IllegalArgumentException ( "compression threads " + compressionThreads + " is not positive" );
+
+        this . pool = Tasks . daemonPool ( threads, "ngs-fastq-" );
+        this . compressionPool = Tasks . daemonPool ( compressionThreads, "ngs-fastq-gz-" );
+        this . owned = true;
+        this . parallelism = threads;
+    }
+
+    /**
+     * Create an exporter that runs on existing pools,
+     * which are left running by "close".
+     * @param pool formats chunks
+     * @param compressionPool compresses chunks
+     * @param parallelism the number of threads expected to serve the exporter, &gt; 0
+     */
+    public FastqExporter ( ExecutorService pool, ExecutorService compressionPool, int parallelism )
+    {
+        if ( parallelism <= 0 )
+            throw new IllegalArgumentException ( "parallelism " + parallelism + " is not positive" );
+
+        this . pool = pool;
+        this . compressionPool = compressionPool;
+        this . owned = false;
+        this . parallelism = parallelism;
+    }
+
+    /**
+     * @param chunkSize the number of Reads formatted by a single task, &gt; 0
+     */
+    public void setChunkSize ( int chunkSize )
+    {
+        if ( chunkSize <= 0 )
+            throw new IllegalArgumentException ( "chunk size " + chunkSize + " is not positive" );
+        this . chunkSize = chunkSize;
+    }
+
+    /**
+     * @param categories provides a means of filtering by ReadCategory
+     */
+    public void setCategories ( int categories )
+    {
+        this . categories = categories;
+    }
+
+    /**
+     * @param split true to write a record per biological Fragment
+     *  rather than per Read
+     */
+    public void setSplit ( boolean split )
+    {
+        this . split = split;
+    }
+
+    /**
+     * @param compression one of plain, gzip or bgzf
+     * @param level a Deflater compression level, 0 through 9
+     */
+    public void setCompression ( int compression, int level )
+    {
+        if ( compression < plain || compression > bgzf )
+            throw new IllegalArgumentException ( "unknown compression " + compression );
+        if ( level < 0 || level > 9 )
+            throw new IllegalArgumentException ( "compression level " + level + " is out of range" );
+        this . compression = compression;
+        this . level = level;
+    }
+
+    /**
+     * Export all Reads into a file
+     * @param coll the ReadCollection
+     * @param fastq the file to create or replace
+     * @return the number of records written
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public long export ( ReadCollection coll, Path fastq )
+        throws ErrorMsg, IOException
+    {
+        return export ( coll, 1, coll . getReadCount (), fastq );
+    }
+
+    /**
+     * Export a range of Reads into a file
+     * @param coll the ReadCollection
+     * @param first the 1-based id of the first Read
+     * @param count the number of Read ids
+     * @param fastq the file to create or replace
+     * @return the number of records written
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public long export ( ReadCollection coll, long first, long count, Path fastq )
+        throws ErrorMsg, IOException
+    {
+        try ( FileChannel out = FileChannel . open ( fastq, StandardOpenOption . CREATE,
+                StandardOpenOption . WRITE, StandardOpenOption . TRUNCATE_EXISTING ) )
+        {
+            return export ( coll, first, count, out );
+        }
+    }
+
+    /**
+     * Export a range of Reads into a channel
+     * @param coll the ReadCollection; ranges are opened concurrently
+     * @param first the 1-based id of the first Read
+     * @param count the number of Read ids
+     * @param out receives the records, and is left open
+     * @return the number of records written
+     * @throws ErrorMsg upon an error accessing data
+     * @throws IOException upon an error writing
+     */
+    public long export ( ReadCollection coll, long first, long count, WritableByteChannel out )
+        throws ErrorMsg, IOException
+    {
+        if ( first < 1 || count < 0 )
+            throw new IllegalArgumentException ( "invalid read range " + first + "/" + count );
+
+        long records = 0;
+        long end = first + count;
+        long next = first;
+        int depth = parallelism * 2;
+        ArrayDeque < CompletableFuture < Chunk > > inflight = new ArrayDeque < CompletableFuture < Chunk > > ();
+        try
+        {
+            while ( true )
+            {
+                while ( inflight . size () < depth && next < end )
+                {
+                    Chunk c = take ();
+                    c . first = next;
+                    c . count = ( int ) Math . min ( chunkSize, end - next );
+                    next += c . count;
+                    inflight . add ( submit ( coll, c ) );
+                }
+
+                CompletableFuture < Chunk > f = inflight . poll ();
+                if ( f == null )
+                    break;
+
+                Chunk c = Tasks . awaitIO ( f, "FASTQ chunk" );
+                write ( out, c . output (), c . outputSize () );
+                records += c . records;
+                free . add ( c );
+            }
+
+            if ( compression == bgzf )
+            {
+                byte [] eof = Bgzf . eof ();
+                write ( out, eof, eof . length );
+            }
+        }
+        finally
+        {
+            // let running chunks finish before their iterators are abandoned
+            Tasks . abandon ( inflight, false );
+        }
+        return records;
+    }
+
+    /**
+     * Shut down the pools, if they were created by this exporter.
+     */
+    public void close ()
+    {
+        if ( owned )
+        {
+            pool . shutdown ();
+            compressionPool . shutdown ();
+        }
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Chunk
+     *  a range of Read ids, with buffers reused from chunk to chunk
+     */
+    private static class Chunk
+    {
+        byte [] output ()
+        {
+            return packedSize < 0 ? text : packed;
+        }
+
+        int outputSize ()
+        {
+            return packedSize < 0 ? textSize : packedSize;
+        }
+
+        void ensure ( int more )
+        {
+            if ( textSize + more > text . length )
+                text = Arrays . copyOf ( text, Math . max ( text . length * 2, textSize + more ) );
+        }
+
+        void put ( byte b )
+        {
+            text [ textSize ++ ] = b;
+        }
+
+        void put ( String ascii )
+        {
+            int len = ascii . length ();
+            for ( int i = 0; i < len; ++ i )
+                text [ textSize + i ] = ( byte ) ascii . charAt ( i );
+            textSize += len;
+        }
+
+        long first;
+        int count;
+        long records;
+        byte [] text = new byte [ 64 * 1024 ];
+        int textSize;
+        byte [] packed = new byte [ 0 ];
+        int packedSize = -1;
+    }
+
+    private Chunk take ()
+    {
+        Chunk c = free . poll ();
+        return c != null ? c : new Chunk ();
+    }
+
+    private CompletableFuture < Chunk > submit ( ReadCollection coll, Chunk c )
+    {
+        final boolean split = this . split;
+        final int categories = this . categories;
+        final int compression = this . compression;
+        final int level = this . level;
+
+        CompletableFuture < Chunk > f = CompletableFuture . supplyAsync ( () ->
+        {
+            try
+            {
+                return format ( coll, c, categories, split );
+            }
+            catch ( ErrorMsg x )
+            {
+                throw new UncheckedErrorMsg ( x );
+            }
+        }, pool );
+
+        if ( compression == plain )
+            return f;
+        return f . thenApplyAsync ( chunk -> compress ( chunk, compression, level ), compressionPool );
+    }
+
+    /* format
+     *  the records of one chunk
+     */
+    private static Chunk format ( ReadCollection coll, Chunk c, int categories, boolean split )
+        throws ErrorMsg
+    {
+        c . textSize = 0;
+        c . packedSize = -1;
+        c . records = 0;
+
+        ReadIterator it = coll . getReadRange ( c . first, c . count, categories );
+        try
+        {
+            while ( it . nextRead () )
+            {
+                if ( ! split )
+                {
+                    record ( c, it, it . getReadId (), false );
+                    continue;
+                }
+                while ( it . nextFragment () )
+                    record ( c, it, it . getFragmentId (), true );
+            }
+        }
+        finally
+        {
+            it . close ();
+        }
+        return c;
+    }
+
+    /* record
+     *  "@id\nBASES\n+id\nQUALITIES\n"
+     */
+    private static void record ( Chunk c, ReadIterator it, String id, boolean fragment )
+        throws ErrorMsg
+    {
+        c . ensure ( id . length () + 2 );
+        c . put ( ( byte ) '@' );
+        c . put ( id );
+        c . put ( ( byte ) '\n' );
+        sequence ( c, it, fragment, false );
+        c . ensure ( id . length () + 2 );
+        c . put ( ( byte ) '+' );
+        c . put ( id );
+        c . put ( ( byte ) '\n' );
+        sequence ( c, it, fragment, true );
+        ++ c . records;
+    }
+
+    /* sequence
+     *  copy bases or qualities and a newline,
+     *  growing the buffer if they did not fit
+     */
+    private static void sequence ( Chunk c, ReadIterator it, boolean fragment, boolean qualities )
+        throws ErrorMsg
+    {
+        while ( true )
+        {
+            int size = fragment ?
+                ( qualities ? it . getFragmentQualities ( c . text, c . textSize ) : it . getFragmentBases ( c . text, c . textSize ) ) :
+                ( qualities ? it . getReadQualities ( c . text, c . textSize ) : it . getReadBases ( c . text, c . textSize ) );
+
+            if ( c . textSize + size < c . text . length )
+            {
+                c . textSize += size;
+                c . put ( ( byte ) '\n' );
+                return;
+            }
+            c . ensure ( size + 1 );
+        }
+    }
+
+    /* compress
+     *  replaces the formatted text of a chunk
+     *  by a gzip member or by BGZF blocks
+     */
+    private Chunk compress ( Chunk c, int compression, int level )
+    {
+        Deflater d = deflater . get ();
+        CRC32 crc = crc32 . get ();
+        d . setLevel ( level );
+
+        if ( compression == bgzf )
+        {
+            long bound = Bgzf . bound ( c . textSize );
+            if ( c . packed . length < bound )
+                c . packed = new byte [ ( int ) bound ];
+
+            int size = 0;
+            for ( int off = 0; off < c . textSize; off += Bgzf . maxInputSize )
+            {
+                int len = Math . min ( Bgzf . maxInputSize, c . textSize - off );
+                size += Bgzf . compress ( d, crc, c . text, off, len, c . packed, size );
+            }
+            c . packedSize = size;
+            return c;
+        }
+
+        d . reset ();
+        d . setInput ( c . text, 0, c . textSize );
+        d . finish ();
+        crc . reset ();
+        crc . update ( c . text, 0, c . textSize );
+
+        if ( c . packed . length < gzipHeader . length + 8 + c . textSize / 2 )
+            c . packed = new byte [ gzipHeader . length + 8 + c . textSize / 2 ];
+        System . arraycopy ( gzipHeader, 0, c . packed, 0, gzipHeader . length );
+
+        int size = gzipHeader . length;
+        while ( ! d . finished () )
+        {
+            if ( size + 8 >= c . packed . length )
+                c . packed = Arrays . copyOf ( c . packed, c . packed . length * 2 );
+            size += d . deflate ( c . packed, size, c . packed . length - 8 - size );
+        }
+        Bgzf . putInt ( c . packed, size, ( int ) crc . getValue () );
+        Bgzf . putInt ( c . packed, size + 4, c . textSize );
+        c . packedSize = size + 8;
+        return c;
+    }
+
+    private static void write ( WritableByteChannel out, byte [] data, int size )
+        throws IOException
+    {
+        ByteBuffer buf = ByteBuffer . wrap ( data, 0, size );
+        while ( buf . hasRemaining () )
+            out . write ( buf );
+    }
+
+    // ID1 ID2 CM FLG MTIME XFL OS
+    private static final byte [] gzipHeader = { 0x1f, ( byte ) 0x8b, 8, 0, 0, 0, 0, 0, 0, ( byte ) 0xff };
+
+    private final ExecutorService pool;
+    private final ExecutorService compressionPool;
+    private final boolean owned;
+    private final int parallelism;
+    private final ConcurrentLinkedQueue < Chunk > free = new ConcurrentLinkedQueue < Chunk > ();
+    private final ThreadLocal < Deflater > deflater = ThreadLocal . withInitial ( () -> new Deflater ( Deflater . DEFAULT_COMPRESSION, true ) );
+    private final ThreadLocal < CRC32 > crc32 = ThreadLocal . withInitial ( CRC32 :: new );
+    private int chunkSize = defaultChunkSize;
+    private int categories = Read . all;
+    private boolean split;
+    private int compression = plain;
+    private int level = Deflater . DEFAULT_COMPRESSION;
+}
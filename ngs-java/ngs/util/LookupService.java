@@ -0,0 +1,397 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import ngs.Alignment;
+import ngs.ErrorMsg;
+import ngs.Read;
+import ngs.ReadCollection;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Resolves Read and Alignment ids concurrently against one accession.
+ * <p>
+ * A native ReadCollection caches the cursors behind its lookups, and
+ * threads sharing a single collection contend for them. The service
+ * instead keeps a pool of collections, each with its own warm cursors,
+ * opened on demand up to a limit. A lookup borrows one
+ * collection, runs on it without contention, and returns it; the pool
+ * hands out the most recently returned collection first, so that busy
+ * threads keep reusing warm cursors. Every Read or Alignment is closed
+ * as soon as its callback returns, so no native references accumulate.
+ * <p>
+ * The latency of every lookup, including any wait for a collection,
+ * is recorded in a histogram available through getMetrics.
+ */
+public class LookupService
+    implements AutoCloseable
+{
+
+    /**
+     * Opens a new ReadCollection onto the accession being served,
+     * e.g. () -&gt; NGS.openReadCollection ( accession )
+     */
+    public interface Opener
+    {
+        /**
+         * @return a new ReadCollection
+         * @throws ErrorMsg upon an error opening
+         */
+        ReadCollection open ()
+            throws ErrorMsg;
+    }
+
+    /**
+     * Consumes a looked-up object; it is only valid for the duration of the call
+     */
+    public interface Lookup < T, R >
+    {
+        /**
+         * @param obj the Read or Alignment found
+         * @return a result to hand back to the caller
+         * @throws ErrorMsg upon an error accessing data
+         */
+        R apply ( T obj )
+            throws ErrorMsg;
+    }
+
+    /**
+     * Create a service
+     * @param opener opens the collections of the pool
+     * @param maxOpen the most collections open at once, &gt; 0;
+     *  lookups wait for a collection when all are in use
+     */
+    public LookupService ( Opener opener, int maxOpen )
+    {
+        if ( maxOpen <= 0 )
+            throw new IllegalArgumentException ( "maxOpen " + maxOpen + " is not positive" );
+
+        this . opener = opener;
+        this . maxOpen = maxOpen;
+    }
+
+    /**
+     * Look up a Read
+     * @param readId the ID of the Read
+     * @param lookup consumes the Read
+     * @param <R> the result type
+     * @return the result of lookup
+     * @throws ErrorMsg if the Read does not exist or upon an error accessing data
+     */
+    public < R > R read ( String readId, Lookup < ? super Read, R > lookup )
+        throws ErrorMsg
+    {
+        long start = System . nanoTime ();
+        ReadCollection coll = borrow ();
+        boolean ok = false;
+        try
+        {
+            Read read = coll . getRead ( readId );
+            try
+            {
+                R result = lookup . apply ( read );
+                ok = true;
+                return result;
+            }
+            finally
+            {
+                read . close ();
+            }
+        }
+        finally
+        {
+            giveBack ( coll );
+            reads . record ( System . nanoTime () - start, ok );
+        }
+    }
+
+    /**
+     * Look up an Alignment
+     * @param alignmentId the ID of the Alignment
+     * @param lookup consumes the Alignment
+     * @param <R> the result type
+     * @return the result of lookup
+     * @throws ErrorMsg if the Alignment does not exist or upon an error accessing data
+     */
+    public < R > R alignment ( String alignmentId, Lookup < ? super Alignment, R > lookup )
+        throws ErrorMsg
+    {
+        long start = System . nanoTime ();
+        ReadCollection coll = borrow ();
+        boolean ok = false;
+        try
+        {
+            Alignment al = coll . getAlignment ( alignmentId );
+            try
+            {
+                R result = lookup . apply ( al );
+                ok = true;
+                return result;
+            }
+            finally
+            {
+                al . close ();
+            }
+        }
+        finally
+        {
+            giveBack ( coll );
+            alignments . record ( System . nanoTime () - start, ok );
+        }
+    }
+
+    /**
+     * @return latency of Read lookups
+     */
+    public Metrics getReadMetrics ()
+    {
+        return reads;
+    }
+
+    /**
+     * @return latency of Alignment lookups
+     */
+    public Metrics getAlignmentMetrics ()
+    {
+        return alignments;
+    }
+
+    /**
+     * @return the number of collections currently open
+     */
+    public int getOpenCount ()
+    {
+        synchronized ( idle )
+        {
+            return open;
+        }
+    }
+
+    /**
+     * Close idle collections, and those in use as they are returned.
+     */
+    public void close ()
+    {
+        synchronized ( idle )
+        {
+            closed = true;
+            ReadCollection coll;
+            while ( ( coll = idle . pollFirst () ) != null )
+            {
+                -- open;
+                coll . close ();
+            }
+
+            // waiting lookups fail rather than wait for collections in use
+            idle . notifyAll ();
+        }
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Metrics
+     *  lookup latency, with a histogram of power-of-two buckets
+     */
+    public static class Metrics
+    {
+        /**
+         * @return the number of lookups that completed
+         */
+        public long getCount ()
+        {
+            return count . sum ();
+        }
+
+        /**
+         * @return the number of lookups that failed
+         */
+        public long getErrors ()
+        {
+            return errors . sum ();
+        }
+
+        /**
+         * @return the mean latency in nanoseconds, including failures
+         */
+        public double getMeanNanos ()
+        {
+            long n = count . sum () + errors . sum ();
+            return n == 0 ? 0 : ( double ) total . sum () / n;
+        }
+
+        /**
+         * @return the largest latency in nanoseconds
+         */
+        public long getMaxNanos ()
+        {
+            return max . get ();
+        }
+
+        /**
+         * @param fraction between 0 and 1, e.g. 0.99
+         * @return an upper bound, within a factor of 2, on the latency
+         *  in nanoseconds that "fraction" of lookups did not exceed
+         */
+        public long getPercentileNanos ( double fraction )
+        {
+            if ( fraction < 0 || fraction > 1 )
+                throw new IllegalArgumentException ( "fraction " + fraction + " is out of range" );
+
+            long n = 0;
+            for ( int i = 0; i < buckets . length (); ++ i )
+                n += buckets . get ( i );
+            long rank = ( long ) Math . ceil ( fraction * n );
+
+            long seen = 0;
+            for ( int i = 0; i < buckets . length (); ++ i )
+            {
+                seen += buckets . get ( i );
+                if ( seen >= rank && seen > 0 )
+                    return Math . min ( ( 1L << i ) - 1, max . get () );
+            }
+            return 0;
+        }
+
+        /**
+         * Clear all counts
+         */
+        public void reset ()
+        {
+            count . reset ();
+            errors . reset ();
+            total . reset ();
+            max . set ( 0 );
+            for ( int i = 0; i < buckets . length (); ++ i )
+                buckets . set ( i, 0 );
+        }
+
+        void record ( long nanos, boolean ok )
+        {
+            ( ok ? count : errors ) . increment ();
+            total . add ( nanos );
+            buckets . incrementAndGet ( 64 - Long . numberOfLeadingZeros ( nanos ) );
+
+            long m = max . get ();
+            while ( nanos > m && ! max . compareAndSet ( m, nanos ) )
+                m = max . get ();
+        }
+
+        Metrics ()
+        {
+        }
+
+        private final LongAdder count = new LongAdder ();
+        private final LongAdder errors = new LongAdder ();
+        private final LongAdder total = new LongAdder ();
+        private final AtomicLong max = new AtomicLong ();
+
+        // bucket i holds latencies below 2^i nanoseconds
+        private final AtomicLongArray buckets = new AtomicLongArray ( 65 );
+    }
+
+    /* borrow
+     *  the most recently returned idle collection,
+     *  else a new one while under the limit, else wait
+     */
+    private ReadCollection borrow ()
+        throws ErrorMsg
+    {
+        synchronized ( idle )
+        {
+            if ( closed )
+                throw new IllegalStateException ( "lookup service is closed" );
+
+            ReadCollection coll = idle . pollFirst ();
+            if ( coll != null )
+                return coll;
+
+            while ( open >= maxOpen )
+            {
+                try
+                {
+                    idle . wait ();
+                }
+                catch ( InterruptedException x )
+                {
+                    Thread . currentThread () . interrupt ();
+                    throw new ErrorMsg ( "interrupted while waiting for a collection" );
+                }
+
+                if ( closed )
+                    throw new IllegalStateException ( "lookup service is closed" );
+                coll = idle . pollFirst ();
+                if ( coll != null )
+                    return coll;
+            }
+            ++ open;
+        }
+
+        try
+        {
+            return opener . open ();
+        }
+        catch ( ErrorMsg | RuntimeException | Error x )
+        {
+            synchronized ( idle )
+            {
+                -- open;
+                idle . notify ();
+            }
+            throw x;
+        }
+    }
+
+    private void giveBack ( ReadCollection coll )
+    {
+        synchronized ( idle )
+        {
+            if ( ! closed )
+            {
+                idle . offerFirst ( coll );
+                idle . notify ();
+                return;
+            }
+            -- open;
+            idle . notifyAll ();
+        }
+        coll . close ();
+    }
+
+    private final Opener opener;
+    private final int maxOpen;
+    private final ArrayDeque < ReadCollection > idle = new ArrayDeque < ReadCollection > ();
+    private final Metrics reads = new Metrics ();
+    private final Metrics alignments = new Metrics ();
+    private int open;
+    private boolean closed;
+}
@@ -0,0 +1,159 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import java.nio.ByteBuffer;
+
+
+/*==========================================================================
+ * PackedBases
+ *  an immutable run of reference bases held off-heap,
+ *  packed 2 bits per base as A=0, C=1, G=2, T=3
+ *
+ *  any other base is recorded in a mask following the packed bases
+ *  and reads back as 'N'; the mask is omitted when there are none
+ */
+final class PackedBases
+{
+
+    PackedBases ( String bases )
+    {
+        int len = bases . length ();
+        int packedBytes = ( len + 3 ) >>> 2;
+
+        boolean ambiguous = false;
+        for ( int i = 0; i < len && ! ambiguous; ++ i )
+            ambiguous = code ( bases . charAt ( i ) ) < 0;
+
+        int maskBytes = ambiguous ? ( len + 7 ) >>> 3 : 0;
+        ByteBuffer buf = ByteBuffer . allocateDirect ( packedBytes + maskBytes );
+
+        int acc = 0;
+        for ( int i = 0; i < len; ++ i )
+        {
+            int c = code ( bases . charAt ( i ) );
+            if ( c < 0 )
+            {
+                int m = packedBytes + ( i >>> 3 );
+                buf . put ( m, ( byte ) ( buf . get ( m ) | ( 1 << ( i & 7 ) ) ) );
+                c = 0;
+            }
+            acc |= c << ( ( i & 3 ) * 2 );
+            if ( ( i & 3 ) == 3 || i == len - 1 )
+            {
+                buf . put ( i >>> 2, ( byte ) acc );
+                acc = 0;
+            }
+        }
+
+        this . buf = buf;
+        this . length = len;
+        this . maskOffset = ambiguous ? packedBytes : -1;
+    }
+
+    /* baseAt
+     *  "i" is a 0-based index within the run
+     */
+    byte baseAt ( int i )
+    {
+        if ( maskOffset >= 0 && ( buf . get ( maskOffset + ( i >>> 3 ) ) & ( 1 << ( i & 7 ) ) ) != 0 )
+            return 'N';
+        return acgt [ ( buf . get ( i >>> 2 ) >>> ( ( i & 3 ) * 2 ) ) & 3 ];
+    }
+
+    /* copy
+     *  unpack "count" bases starting at index "from"
+     */
+    void copy ( int from, int count, byte [] dst, int dstOffset )
+    {
+        int i = from;
+        int end = from + count;
+
+        // whole bytes at a time where possible
+        while ( i < end && ( i & 3 ) != 0 )
+            dst [ dstOffset ++ ] = baseAt ( i ++ );
+        while ( i + 4 <= end )
+        {
+            int packed = buf . get ( i >>> 2 );
+            dst [ dstOffset ] = acgt [ packed & 3 ];
+            dst [ dstOffset + 1 ] = acgt [ ( packed >>> 2 ) & 3 ];
+            dst [ dstOffset + 2 ] = acgt [ ( packed >>> 4 ) & 3 ];
+            dst [ dstOffset + 3 ] = acgt [ ( packed >>> 6 ) & 3 ];
+            if ( maskOffset >= 0 )
+            {
+                for ( int j = 0; j < 4; ++ j )
+                {
+                    if ( ( buf . get ( maskOffset + ( ( i + j ) >>> 3 ) ) & ( 1 << ( ( i + j ) & 7 ) ) ) != 0 )
+                        dst [ dstOffset + j ] = 'N';
+                }
+            }
+            i += 4;
+            dstOffset += 4;
+        }
+        while ( i < end )
+            dst [ dstOffset ++ ] = baseAt ( i ++ );
+    }
+
+    /* length
+     *  number of bases
+     */
+    int length ()
+    {
+        return length;
+    }
+
+    /* footprint
+     *  bytes of off-heap memory held
+     */
+    int footprint ()
+    {
+        return buf . capacity ();
+    }
+
+    private static int code ( char base )
+    {
+        switch ( base )
+        {
+        case 'A': case 'a':
+            return 0;
+        case 'C': case 'c':
+            return 1;
+        case 'G': case 'g':
+            return 2;
+        case 'T': case 't':
+            return 3;
+        }
+        return -1;
+    }
+
+    private static final byte [] acgt = { 'A', 'C', 'G', 'T' };
+
+    private final ByteBuffer buf;
+    private final int length;
+    private final int maskOffset;
+}
@@ -0,0 +1,446 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import ngs.ErrorMsg;
+import ngs.Pileup;
+import ngs.PileupIterator;
+import ngs.ReadCollection;
+import ngs.Reference;
+import ngs.ReferenceIterator;
+import ngs.Alignment;
+import ngs.internal.Tasks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/**
+ * Computes Pileups across a Reference, or across every Reference
+ * of a ReadCollection, on a pool of threads.
+ * <p>
+ * The requested range is tiled into windows that are walked concurrently,
+ * each through its own PileupIterator. A window opens its slice
+ * "overlap" bases before its first position, so that Alignments straddling
+ * the window boundary are stacked no matter how the engine selects them,
+ * and keeps only the positions that fall within the window.
+ * <p>
+ * Each Pileup is handed to a Mapper on a pool thread while its iterator is
+ * positioned on it. The results are then delivered to a Sink on the calling
+ * thread in coordinate order. A null result is not delivered.
+ * At most twice as many windows as threads are in flight at any time.
+ */
+public class PileupEngine
+    implements AutoCloseable
+{
+
+    /**
+     * Reduces a Pileup to a result; called concurrently from pool threads.
+     * The Pileup is only valid for the duration of the call.
+     */
+    public interface Mapper < R >
+    {
+        /**
+         * @param pileup the current Pileup, including its PileupEvents
+         * @return the result for the position, or null to skip it
+         * @throws ErrorMsg upon an error accessing data
+         */
+        R map ( Pileup pileup )
+            throws ErrorMsg;
+    }
+
+    /**
+     * Receives results in coordinate order on the thread that called "run".
+     */
+    public interface Sink < R >
+    {
+        /**
+         * @param referenceSpec canonical name of the Reference
+         * @param position 0-based position on the Reference
+         * @param result the value produced by the Mapper
+         * @throws ErrorMsg to abort the run
+         */
+        void accept ( String referenceSpec, long position, R result )
+            throws ErrorMsg;
+    }
+
+    /** default number of bases in a window */
+    public static final long defaultWindowSize = 256 * 1024;
+
+    /** default number of bases opened before each window */
+    public static final long defaultOverlap = 4 * 1024;
+
+    /**
+     * Create an engine with its own pool of daemon threads,
+     * shut down by "close".
+     * @param threads the number of pool threads, &gt; 0
+     */
+    public PileupEngine ( int threads )
+    {
+        if ( threads <= 0 )
+            throw new IllegalArgumentException ( "threads " + threads + " is not positive" );
+
+        this . pool = Tasks . daemonPool ( threads, "ngs-pileup-" );
+        this . owned = true;
+        this . parallelism = threads;
+    }
+
+    /**
+     * Create an engine that runs its windows on an existing pool,
+     * which is left running by "close".
+     * @param pool executes the windows
+     * @param parallelism the number of threads expected to serve the engine, &gt; 0
+     */
+    public PileupEngine ( ExecutorService pool, int parallelism )
+    {
+        if ( parallelism <= 0 )
+            throw new IllegalArgumentException ( "parallelism " + parallelism + " is not positive" );
+
+        this . pool = pool;
+        this . owned = false;
+        this . parallelism = parallelism;
+    }
+
+    /**
+     * @param windowSize the number of positions walked by a single task, &gt; 0
+     */
+    public void setWindowSize ( long windowSize )
+    {
+        if ( windowSize <= 0 )
+            throw new IllegalArgumentException ( "windowSize " + windowSize + " is not positive" );
+        this . windowSize = windowSize;
+    }
+
+    /**
+     * @param overlap the number of bases to open before each window,
+     *  at least the longest reference span of an Alignment in the data
+     */
+    public void setOverlap ( long overlap )
+    {
+        if ( overlap < 0 )
+            throw new IllegalArgumentException ( "overlap " + overlap + " is negative" );
+        this . overlap = overlap;
+    }
+
+    /**
+     * Select the Alignments that are stacked, as in Reference.getFilteredPileupSlice
+     * @param categories is a bitfield of AlignmentCategory
+     * @param filters is a set of filter bits defined in Alignment
+     * @param mappingQuality is a cutoff to be used according to bits in "filters"
+     */
+    public void setFilter ( int categories, int filters, int mappingQuality )
+    {
+        this . categories = categories;
+        this . filters = filters;
+        this . mappingQuality = mappingQuality;
+    }
+
+    /**
+     * Walk a range of a Reference.
+     * @param ref the Reference; its slices are opened concurrently
+     * @param start is the signed starting position on reference
+     * @param length is the unsigned number of bases in the range
+     * @param mapper reduces each Pileup to a result
+     * @param sink receives the results in coordinate order
+     * @throws ErrorMsg upon an error accessing data, or from mapper or sink
+     */
+    public < R > void run ( Reference ref, long start, long length, Mapper < R > mapper, Sink < R > sink )
+        throws ErrorMsg
+    {
+        Tiles < R > tiles = new Tiles < R > ( mapper );
+        tiles . add ( ref, ref . getCanonicalName (), start, length, false );
+        pump ( tiles, sink );
+    }
+
+    /**
+     * Walk a whole Reference.
+     * @param ref the Reference; its slices are opened concurrently
+     * @param mapper reduces each Pileup to a result
+     * @param sink receives the results in coordinate order
+     * @throws ErrorMsg upon an error accessing data, or from mapper or sink
+     */
+    public < R > void run ( Reference ref, Mapper < R > mapper, Sink < R > sink )
+        throws ErrorMsg
+    {
+        run ( ref, 0, ref . getLength (), mapper, sink );
+    }
+
+    /**
+     * Walk every Reference of a ReadCollection, in the order of getReferences.
+     * Windows of consecutive References are kept in flight together.
+     * @param coll the ReadCollection
+     * @param mapper reduces each Pileup to a result
+     * @param sink receives the results in coordinate order
+     * @throws ErrorMsg upon an error accessing data, or from mapper or sink
+     */
+    public < R > void run ( ReadCollection coll, Mapper < R > mapper, Sink < R > sink )
+        throws ErrorMsg
+    {
+        ArrayList < String > names = new ArrayList < String > ();
+        ReferenceIterator refs = coll . getReferences ();
+        try
+        {
+            while ( refs . nextReference () )
+                names . add ( refs . getCanonicalName () );
+        }
+        finally
+        {
+            refs . close ();
+        }
+
+        Tiles < R > tiles = new Tiles < R > ( mapper );
+        tiles . collection = coll;
+        tiles . names = names;
+        pump ( tiles, sink );
+    }
+
+    /**
+     * Shut down the pool, if it was created by this engine.
+     */
+    public void close ()
+    {
+        if ( owned )
+            pool . shutdown ();
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Window
+     *  a task walking one tile; it buffers its results until delivered
+     */
+    private class Window < R >
+        implements Callable < Window < R > >
+    {
+        public Window < R > call ()
+            throws ErrorMsg
+        {
+            long from = start - overlap;
+            if ( start >= 0 && from < 0 )
+                from = 0;
+
+            PileupIterator it = filters == 0 ?
+                ref . getPileupSlice ( from, end - from, categories ) :
+                ref . getFilteredPileupSlice ( from, end - from, categories, filters, mappingQuality );
+            try
+            {
+                while ( it . nextPileup () )
+                {
+                    long pos = it . getReferencePosition ();
+                    if ( pos < start )
+                        continue;
+                    if ( pos >= end )
+                        break;
+
+                    R result = mapper . map ( it );
+                    if ( result != null )
+                        append ( pos, result );
+                }
+            }
+            finally
+            {
+                it . close ();
+            }
+            return this;
+        }
+
+        void deliver ( Sink < R > sink )
+            throws ErrorMsg
+        {
+            for ( int i = 0; i < size; ++ i )
+            {
+                @SuppressWarnings ( "unchecked" )
+                R result = ( R ) results [ i ];
+                sink . accept ( spec, positions [ i ], result );
+            }
+            positions = null;
+            results = null;
+
+            if ( last && closeReference )
+                ref . close ();
+        }
+
+        private void append ( long pos, R result )
+        {
+            if ( size == positions . length )
+            {
+                int cap = size * 2;
+                positions = Arrays . copyOf ( positions, cap );
+                results = Arrays . copyOf ( results, cap );
+            }
+            positions [ size ] = pos;
+            results [ size ] = result;
+            ++ size;
+        }
+
+        Window ( Mapper < R > mapper, Reference ref, String spec, long start, long end )
+        {
+            this . mapper = mapper;
+            this . ref = ref;
+            this . spec = spec;
+            this . start = start;
+            this . end = end;
+
+            int cap = ( int ) Math . min ( end - start, 1024 );
+            this . positions = new long [ Math . max ( cap, 1 ) ];
+            this . results = new Object [ positions . length ];
+        }
+
+        final Mapper < R > mapper;
+        final Reference ref;
+        final String spec;
+        final long start;
+        final long end;
+        boolean last;
+        boolean closeReference;
+        long [] positions;
+        Object [] results;
+        int size;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * Tiles
+     *  produces windows in coordinate order, opening the References
+     *  of a ReadCollection one at a time as they are reached
+     */
+    private class Tiles < R >
+    {
+        Window < R > next ()
+            throws ErrorMsg
+        {
+            while ( pending . isEmpty () )
+            {
+                if ( collection == null || names == null || nextName >= names . size () )
+                    return null;
+
+                String name = names . get ( nextName ++ );
+                Reference ref = collection . getReference ( name );
+                opened . add ( ref );
+                add ( ref, name, 0, ref . getLength (), true );
+            }
+            return pending . poll ();
+        }
+
+        void add ( Reference ref, String spec, long start, long length, boolean closeReference )
+        {
+            Window < R > w = null;
+            long end = start + length;
+            for ( long pos = start; pos < end; pos += windowSize )
+            {
+                w = new Window < R > ( mapper, ref, spec, pos, Math . min ( end, pos + windowSize ) );
+                pending . add ( w );
+            }
+
+            // the last window of a Reference releases it once delivered
+            if ( w != null )
+            {
+                w . last = true;
+                w . closeReference = closeReference;
+            }
+            else if ( closeReference )
+            {
+                opened . remove ( ref );
+                ref . close ();
+            }
+        }
+
+        /* release
+         *  close any Reference whose windows were not all delivered
+         */
+        void release ()
+        {
+            for ( Reference ref : opened )
+                ref . close ();
+            opened . clear ();
+        }
+
+        Tiles ( Mapper < R > mapper )
+        {
+            this . mapper = mapper;
+        }
+
+        final Mapper < R > mapper;
+        final ArrayDeque < Window < R > > pending = new ArrayDeque < Window < R > > ();
+        final ArrayList < Reference > opened = new ArrayList < Reference > ();
+        ReadCollection collection;
+        ArrayList < String > names;
+        int nextName;
+    }
+
+    /* pump
+     *  keep up to 2 * parallelism windows in flight,
+     *  delivering each in turn as the oldest completes
+     */
+    private < R > void pump ( Tiles < R > tiles, Sink < R > sink )
+        throws ErrorMsg
+    {
+        int depth = parallelism * 2;
+        ArrayDeque < Future < Window < R > > > inflight = new ArrayDeque < Future < Window < R > > > ();
+        try
+        {
+            while ( true )
+            {
+                while ( inflight . size () < depth )
+                {
+                    Window < R > w = tiles . next ();
+                    if ( w == null )
+                        break;
+                    inflight . add ( pool . submit ( w ) );
+                }
+
+                Future < Window < R > > f = inflight . poll ();
+                if ( f == null )
+                    break;
+
+                Window < R > w = Tasks . await ( f, "pileup window" );
+                if ( w . last && w . closeReference )
+                    tiles . opened . remove ( w . ref );
+                w . deliver ( sink );
+            }
+        }
+        finally
+        {
+            // let running windows finish before their References are closed
+            Tasks . abandon ( inflight, true );
+            tiles . release ();
+        }
+    }
+
+    private final ExecutorService pool;
+    private final boolean owned;
+    private final int parallelism;
+    private long windowSize = defaultWindowSize;
+    private long overlap = defaultOverlap;
+    private int categories = Alignment . all;
+    private int filters;
+    private int mappingQuality;
+}
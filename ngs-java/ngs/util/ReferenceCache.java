@@ -0,0 +1,343 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.util;
+
+import ngs.ErrorMsg;
+import ngs.Reference;
+import ngs.ReferenceSequence;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ *<p>
+ * A bounded, thread-safe cache of reference bases shared by all
+ * References and ReferenceSequences with the same canonical name
+ * and length.
+ *</p>
+ *<p>
+ * Canonical names such as accessions identify a sequence wherever it
+ * is found. Names that do not, such as "chr1" in files aligned to
+ * different assemblies, are told apart by giving the source of each
+ * Reference, e.g. its ReadCollection; chunks are then only shared
+ * among References of the same source. The cache does not keep a source
+ * reachable; chunks of a source that was collected are evicted.
+ *</p>
+ *<p>
+ * Bases are fetched in fixed-size chunks, packed 2 bits per base
+ * off-heap, with a mask for bases other than A, C, G and T,
+ * which read back as 'N'. Lower case bases read back in upper case.
+ * When the packed chunks exceed the capacity of the cache,
+ * the least recently used chunks are evicted. Each CachedReference keeps
+ * the chunk it used last, so that memory may exceed the capacity by
+ * one chunk per CachedReference in use.
+ *</p>
+ *<p>
+ * Repeated lookups near the same locus are served from memory
+ * without crossing into native code or creating Strings.
+ *</p>
+ */
+public class ReferenceCache
+{
+
+    /** default number of bases fetched at once */
+    public static final int defaultChunkSize = 64 * 1024;
+
+    /**
+     * Create a cache with default chunk size
+     * @param capacity bytes of off-heap memory that chunks may occupy
+     */
+    public ReferenceCache ( long capacity )
+    {
+        this ( capacity, defaultChunkSize );
+    }
+
+    /**
+     * Create a cache
+     * @param capacity bytes of off-heap memory that chunks may occupy
+     * @param chunkSize number of bases fetched at once, a multiple of 8
+     */
+    public ReferenceCache ( long capacity, int chunkSize )
+    {
+        if ( capacity <= 0 )
+            throw new IllegalArgumentException ( "capacity " + capacity + " is not positive" );
+        if ( chunkSize <= 0 || chunkSize % 8 != 0 )
+            throw new IllegalArgumentException ( "chunk size " + chunkSize + " is not a positive multiple of 8" );
+
+        this . capacity = capacity;
+        this . chunkSize = chunkSize;
+    }
+
+    /**
+     * Access the bases of a Reference through the cache.
+     * The Reference is used to fetch missing chunks,
+     * and must remain open while the result is in use.
+     * @param ref the Reference
+     * @return a cached view of its bases
+     * @throws ErrorMsg upon an error accessing data
+     */
+    public CachedReference get ( Reference ref )
+        throws ErrorMsg
+    {
+        return get ( ref, null );
+    }
+
+    /**
+     * Access the bases of a Reference of a given source through the cache.
+     * @param ref the Reference
+     * @param source identifies the origin of the Reference by identity,
+     *  or null for a Reference whose canonical name identifies its bases
+     * @return a cached view of its bases
+     * @throws ErrorMsg upon an error accessing data
+     */
+    public CachedReference get ( Reference ref, Object source )
+        throws ErrorMsg
+    {
+        return new CachedReference ( this, source, ref . getCanonicalName (), ref . getLength (),
+            ref . getIsCircular (), ref :: getReferenceBases );
+    }
+
+    /**
+     * Access the bases of a ReferenceSequence through the cache.
+     * The ReferenceSequence is used to fetch missing chunks,
+     * and must remain open while the result is in use.
+     * @param seq the ReferenceSequence
+     * @return a cached view of its bases
+     * @throws ErrorMsg upon an error accessing data
+     */
+    public CachedReference get ( ReferenceSequence seq )
+        throws ErrorMsg
+    {
+        return get ( seq, null );
+    }
+
+    /**
+     * Access the bases of a ReferenceSequence of a given source through the cache.
+     * @param seq the ReferenceSequence
+     * @param source identifies the origin of the ReferenceSequence by identity,
+     *  or null for one whose canonical name identifies its bases
+     * @return a cached view of its bases
+     * @throws ErrorMsg upon an error accessing data
+     */
+    public CachedReference get ( ReferenceSequence seq, Object source )
+        throws ErrorMsg
+    {
+        return new CachedReference ( this, source, seq . getCanonicalName (), seq . getLength (),
+            seq . getIsCircular (), seq :: getReferenceBases );
+    }
+
+    /**
+     * @return bytes of off-heap memory occupied by cached chunks,
+     *  not counting those only kept by CachedReferences
+     */
+    public synchronized long getSize ()
+    {
+        return size;
+    }
+
+    /**
+     * @return the capacity given upon creation
+     */
+    public long getCapacity ()
+    {
+        return capacity;
+    }
+
+    /**
+     * @return the number of chunk lookups satisfied from the cache
+     */
+    public synchronized long getHits ()
+    {
+        return hits;
+    }
+
+    /**
+     * @return the number of chunks fetched
+     */
+    public synchronized long getMisses ()
+    {
+        return misses;
+    }
+
+    /**
+     * Evict all chunks, releasing the sources they were fetched for
+     */
+    public synchronized void clear ()
+    {
+        chunks . clear ();
+        size = 0;
+    }
+
+
+    /*----------------------------------------------------------------------
+     * package access for CachedReference
+     */
+
+    /* Fetch
+     *  retrieves bases, as Reference.getReferenceBases does
+     */
+    interface Fetch
+    {
+        String fetch ( long offset, long length )
+            throws ErrorMsg;
+    }
+
+    int chunkSize ()
+    {
+        return chunkSize;
+    }
+
+    /* chunk
+     *  look up chunk "index" of "name" from "source", fetching it upon
+     *  a miss; the fetch happens outside of the cache lock
+     */
+    PackedBases chunk ( Object source, String name, long index, long refLength, Fetch fetch )
+        throws ErrorMsg
+    {
+        Key key = new Key ( source, collected, name, refLength, index );
+        synchronized ( this )
+        {
+            PackedBases chunk = chunks . get ( key );
+            if ( chunk != null )
+            {
+                ++ hits;
+                return chunk;
+            }
+            ++ misses;
+        }
+
+        long offset = index * chunkSize;
+        String bases = fetch . fetch ( offset, Math . min ( chunkSize, refLength - offset ) );
+        PackedBases chunk = new PackedBases ( bases );
+
+        synchronized ( this )
+        {
+            // another thread may have fetched the same chunk meanwhile
+            PackedBases prior = chunks . get ( key );
+            if ( prior != null )
+                return prior;
+
+            purge ();
+
+            chunks . put ( key, chunk );
+            size += chunk . footprint ();
+
+            Iterator < Map . Entry < Key, PackedBases > > lru = chunks . entrySet () . iterator ();
+            while ( size > capacity && lru . hasNext () )
+            {
+                PackedBases eldest = lru . next () . getValue ();
+                if ( eldest == chunk )
+                    break;
+                size -= eldest . footprint ();
+                lru . remove ();
+            }
+        }
+        return chunk;
+    }
+
+    /* purge
+     *  evict the chunks of sources that were collected
+     */
+    private void purge ()
+    {
+        for ( Object gone = collected . poll (); gone != null; gone = collected . poll () )
+        {
+            Iterator < Map . Entry < Key, PackedBases > > it = chunks . entrySet () . iterator ();
+            while ( it . hasNext () )
+            {
+                Map . Entry < Key, PackedBases > e = it . next ();
+                if ( e . getKey () . source == gone )
+                {
+                    size -= e . getValue () . footprint ();
+                    it . remove ();
+                }
+            }
+        }
+    }
+
+    /* Key
+     *  a chunk of a named reference of a given length, from a source
+     *  compared by identity; the source is only weakly referenced
+     */
+    private static final class Key
+    {
+        Key ( Object source, ReferenceQueue < Object > collected, String name, long length, long index )
+        {
+            this . source = source == null ? null : new WeakReference < Object > ( source, collected );
+            this . sourceHash = System . identityHashCode ( source );
+            this . name = name;
+            this . length = length;
+            this . index = index;
+        }
+
+        public boolean equals ( Object obj )
+        {
+            if ( ! ( obj instanceof Key ) )
+                return false;
+            Key k = ( Key ) obj;
+            return index == k . index && length == k . length && sameSource ( k ) && name . equals ( k . name );
+        }
+
+        public int hashCode ()
+        {
+            return ( ( sourceHash * 31 + name . hashCode () ) * 31
+                + Long . hashCode ( length ) ) * 31 + Long . hashCode ( index );
+        }
+
+        /* sameSource
+         *  a collected source only matches its own key
+         */
+        private boolean sameSource ( Key k )
+        {
+            if ( source == k . source )
+                return true;
+            if ( source == null || k . source == null || sourceHash != k . sourceHash )
+                return false;
+            Object s = source . get ();
+            return s != null && s == k . source . get ();
+        }
+
+        private final WeakReference < Object > source;
+        private final int sourceHash;
+        private final String name;
+        private final long length;
+        private final long index;
+    }
+
+    private final long capacity;
+    private final int chunkSize;
+    private final ReferenceQueue < Object > collected = new ReferenceQueue < Object > ();
+    private final LinkedHashMap < Key, PackedBases > chunks = new LinkedHashMap < Key, PackedBases > ( 64, 0.75f, true );
+    private long size;
+    private long hits;
+    private long misses;
+}
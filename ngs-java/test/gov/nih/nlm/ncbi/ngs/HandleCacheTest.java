@@ -0,0 +1,134 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package gov.nih.nlm.ncbi.ngs;
+
+import java.lang.ref.Cleaner;
+
+
+/*==========================================================================
+ * HandleCacheTest
+ *  counts leases on cache entries without opening native objects:
+ *  entries are acquired directly, and plain objects stand in for
+ *  the handles given to callers
+ */
+public class HandleCacheTest
+{
+
+    /* closedLease
+     *  closing a lease returns it once, however often it is closed
+     */
+    static void closedLease ()
+    {
+        HandleCache cache = new HandleCache ( null );
+        HandleCache . Entry e = cache . acquire ( "R:closed" );
+        Object lease = new Object ();
+        Cleaner . Cleanable returner = cache . register ( lease, e );
+        check ( cache . getLeaseCount () == 1, "lease not counted" );
+
+        returner . clean ();
+        check ( cache . getLeaseCount () == 0, "closed lease not returned" );
+        returner . clean ();
+        check ( cache . getLeaseCount () == 0, "lease returned twice" );
+        check ( cache . getOpenCount () == 1, "entry dropped with its last lease" );
+    }
+
+    /* droppedLease
+     *  a lease dropped without being closed is returned once collected
+     */
+    static void droppedLease ()
+        throws Exception
+    {
+        HandleCache cache = new HandleCache ( null );
+        cache . register ( new Object (), cache . acquire ( "R:dropped" ) );
+        for ( int i = 0; i < 100 && cache . getLeaseCount () > 0; ++ i )
+        {
+            System . gc ();
+            Thread . sleep ( 20 );
+        }
+        check ( cache . getLeaseCount () == 0, "dropped lease not returned" );
+    }
+
+    /* evicted
+     *  beyond maxOpen, idle entries go first; the leases of an evicted
+     *  entry are still returned
+     */
+    static void evicted ()
+    {
+        HandleCache cache = new HandleCache ( null );
+        cache . setMaxOpen ( 2 );
+
+        HandleCache . Entry busy = cache . acquire ( "R:busy" );
+        Cleaner . Cleanable busyLease = cache . register ( new Object (), busy );
+        cache . register ( new Object (), cache . acquire ( "R:idle" ) ) . clean ();
+        cache . register ( new Object (), cache . acquire ( "R:busy" ) ) . clean ();
+        check ( cache . getHits () == 1 && cache . getMisses () == 2, "hits and misses" );
+
+        cache . acquire ( "R:new" );
+        check ( cache . getOpenCount () == 2, "maxOpen exceeded" );
+        check ( cache . getLeaseCount () == 2, "leases of remaining entries" );
+
+        cache . setMaxOpen ( 1 );
+        check ( cache . getOpenCount () == 1, "setMaxOpen did not evict" );
+        busyLease . clean ();
+        check ( cache . getLeaseCount () == 1, "lease of an evicted entry not returned" );
+    }
+
+    /* sweep
+     *  entries without leases are evicted once idle
+     */
+    static void sweep ()
+        throws Exception
+    {
+        HandleCache cache = new HandleCache ( null );
+        cache . register ( new Object (), cache . acquire ( "S:idle" ) ) . clean ();
+        HandleCache . Entry busy = cache . acquire ( "S:busy" );
+        cache . setIdleTimeout ( 1 );
+        Thread . sleep ( 10 );
+        cache . sweep ();
+        check ( cache . getOpenCount () == 1, "idle entry not swept, or busy one swept" );
+        cache . returned ( busy );
+        Thread . sleep ( 10 );
+        cache . sweep ();
+        check ( cache . getOpenCount () == 0, "returned entry not swept" );
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        closedLease ();
+        droppedLease ();
+        evicted ();
+        sweep ();
+        System . out . println ( "HandleCacheTest: ok" );
+    }
+}
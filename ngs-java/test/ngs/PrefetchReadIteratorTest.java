@@ -0,0 +1,169 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs;
+
+import ngs.mem.MemGenerator;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/*==========================================================================
+ * PrefetchReadIteratorTest
+ *  Reads come through the producer in order, and closing or dropping
+ *  the iterator stops the producer
+ */
+public class PrefetchReadIteratorTest
+{
+
+    /* ordered
+     *  every property matches that of a plain iterator
+     */
+    static void ordered ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        PrefetchOptions options = new PrefetchOptions ();
+        options . setBatchSize ( 37 );
+        options . setDepth ( 2 );
+
+        for ( int categories : new int [] { Read . all, Read . unaligned } )
+        {
+            ReadIterator plain = coll . getReads ( categories );
+            long n = 0;
+            try ( ReadIterator it = coll . getReads ( categories, options ) )
+            {
+                while ( plain . nextRead () )
+                {
+                    check ( it . nextRead (), "prefetched Reads end after " + n );
+                    check ( it . getReadId () . equals ( plain . getReadId () ), "Read " + plain . getReadId () + " out of order" );
+                    check ( it . getReadName () . equals ( plain . getReadName () ), "name of Read " + n );
+                    check ( it . getReadGroup () . equals ( plain . getReadGroup () ), "group of Read " + n );
+                    check ( it . getReadBases () . equals ( plain . getReadBases () ), "bases of Read " + n );
+                    check ( it . getReadQualities ( 2, 5 ) . equals ( plain . getReadQualities ( 2, 5 ) ), "qualities of Read " + n );
+                    check ( it . getNumFragments () == plain . getNumFragments (), "fragments of Read " + n );
+                    while ( plain . nextFragment () )
+                    {
+                        check ( it . nextFragment (), "prefetched Fragments end early" );
+                        check ( it . getFragmentId () . equals ( plain . getFragmentId () ), "Fragment id" );
+                        check ( it . getFragmentBases () . equals ( plain . getFragmentBases () ), "Fragment bases" );
+                        check ( it . isAligned () == plain . isAligned (), "Fragment alignment" );
+                    }
+                    check ( ! it . nextFragment (), "more prefetched Fragments" );
+                    ++ n;
+                }
+                check ( ! it . nextRead (), "more prefetched Reads" );
+                check ( ! it . nextRead (), "Reads after the end" );
+            }
+        }
+    }
+
+    /* fields
+     *  String properties not asked for are not captured
+     */
+    static void fields ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        PrefetchOptions options = new PrefetchOptions ();
+        options . setFields ( PrefetchOptions . readId );
+        try ( ReadIterator it = coll . getReads ( Read . all, options ) )
+        {
+            check ( it . nextRead (), "no Reads" );
+            check ( it . getReadId () . length () > 0, "id not captured" );
+            check ( it . getReadBases () . length () > 0, "bases not captured" );
+            try
+            {
+                it . getReadName ();
+                check ( false, "name was captured" );
+            }
+            catch ( ErrorMsg x )
+            {
+            }
+        }
+    }
+
+    /* closed
+     *  the producer leaves its thread, uninterrupted, when the
+     *  consumer is closed part way or dropped without being closed
+     */
+    static void closed ( ReadCollection coll )
+        throws Exception
+    {
+        ExecutorService pool = Executors . newSingleThreadExecutor ();
+        try
+        {
+            PrefetchOptions options = new PrefetchOptions ();
+            options . setBatchSize ( 10 );
+            options . setDepth ( 1 );
+            options . setExecutor ( pool );
+
+            ReadIterator it = coll . getReads ( Read . all, options );
+            check ( it . nextRead (), "no Reads" );
+            it . close ();
+            check ( ! it . nextRead (), "Reads after close" );
+            check ( ! idle ( pool ) . get ( 10, TimeUnit . SECONDS ), "producer left its thread interrupted" );
+
+            coll . getReads ( Read . all, options ) . nextRead ();
+            Future < Boolean > after = idle ( pool );
+            for ( int i = 0; i < 100 && ! after . isDone (); ++ i )
+            {
+                System . gc ();
+                Thread . sleep ( 50 );
+            }
+            check ( after . isDone (), "producer of a dropped iterator still runs" );
+        }
+        finally
+        {
+            pool . shutdownNow ();
+        }
+    }
+
+    /* idle
+     *  a task that runs once the producer has left the pool
+     */
+    private static Future < Boolean > idle ( ExecutorService pool )
+    {
+        return pool . submit ( () -> Thread . currentThread () . isInterrupted () );
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        ReadCollection coll = MemGenerator . parse ( "references=2,referenceLength=50000,reads=3000,paired=true,aligned=0.7" ) . generate ();
+        ordered ( coll );
+        fields ( coll );
+        closed ( coll );
+        System . out . println ( "PrefetchReadIteratorTest: ok" );
+    }
+}
@@ -0,0 +1,172 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs;
+
+import ngs.mem.MemBuilder;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+
+/*==========================================================================
+ * ReadFilterTest
+ *  filtered iterators pass exactly the Reads that meet the criteria,
+ *  as judged from an unfiltered pass
+ */
+public class ReadFilterTest
+{
+
+    /* criteria
+     *  each criterion alone, and all of them together
+     */
+    static void criteria ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        ReadFilter group = new ReadFilter ();
+        group . setReadGroup ( "g1" );
+        ReadFilter length = new ReadFilter ();
+        length . setMinLength ( 40 );
+        ReadFilter quality = new ReadFilter ();
+        quality . setMinMeanQuality ( 25 );
+        ReadFilter ns = new ReadFilter ();
+        ns . setMaxNFraction ( 0.05 );
+        ReadFilter paired = new ReadFilter ();
+        paired . setPairedOnly ( true );
+        ReadFilter all = new ReadFilter ();
+        all . setReadGroup ( "g0" );
+        all . setMinLength ( 30 );
+        all . setMinMeanQuality ( 20 );
+        all . setMaxNFraction ( 0.1 );
+
+        for ( ReadFilter f : new ReadFilter [] { group, length, quality, ns, paired, all } )
+        {
+            ArrayList < String > expected = accepted ( coll, 1, coll . getReadCount (), f );
+            check ( ! expected . isEmpty () && expected . size () < coll . getReadCount (), "criteria select nothing or everything" );
+            check ( ids ( coll . getReads ( Read . all, f ) ) . equals ( expected ), "getReads passed the wrong Reads" );
+            check ( ids ( coll . getReadRange ( 11, 50, Read . all, f ) ) . equals ( accepted ( coll, 11, 50, f ) ), "getReadRange passed the wrong Reads" );
+        }
+    }
+
+    /* captured
+     *  changing a ReadFilter does not affect iterators created before
+     */
+    static void captured ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        ReadFilter f = new ReadFilter ();
+        f . setMinLength ( 45 );
+        ArrayList < String > expected = accepted ( coll, 1, coll . getReadCount (), f );
+        ReadIterator it = coll . getReads ( Read . all, f );
+        f . setMinLength ( 0 );
+        check ( ids ( it ) . equals ( expected ), "iterator follows later changes of its filter" );
+        check ( ! f . needsSequence (), "no criterion needs the sequence" );
+    }
+
+    /* accepted
+     *  ids of the Reads of a range that meet the criteria
+     */
+    private static ArrayList < String > accepted ( ReadCollection coll, long first, long count, ReadFilter f )
+        throws ErrorMsg
+    {
+        ArrayList < String > ids = new ArrayList < String > ();
+        ReadIterator it = coll . getReadRange ( first, count, Read . all );
+        while ( it . nextRead () )
+        {
+            String bases = it . getReadBases ();
+            String qualities = it . getReadQualities ();
+            long qsum = 0;
+            long n = 0;
+            for ( int i = 0; i < bases . length (); ++ i )
+            {
+                qsum += qualities . charAt ( i ) - 33;
+                if ( bases . charAt ( i ) == 'N' )
+                    ++ n;
+            }
+            if ( f . accepts ( it . getReadGroup (), bases . length (), qsum, n, it . getNumFragments () ) )
+                ids . add ( it . getReadId () );
+        }
+        return ids;
+    }
+
+    private static ArrayList < String > ids ( ReadIterator it )
+        throws ErrorMsg
+    {
+        ArrayList < String > ids = new ArrayList < String > ();
+        while ( it . nextRead () )
+            ids . add ( it . getReadId () );
+        return ids;
+    }
+
+    /* collection
+     *  unaligned Reads of varying group, length, quality and N content,
+     *  single and paired
+     */
+    private static ReadCollection collection ()
+        throws ErrorMsg
+    {
+        Random rnd = new Random ( 7 );
+        MemBuilder b = new MemBuilder ( "filtered" );
+        for ( int r = 0; r < 200; ++ r )
+        {
+            int frags = 1 + rnd . nextInt ( 2 );
+            String [] bases = new String [ frags ];
+            String [] qualities = new String [ frags ];
+            for ( int f = 0; f < frags; ++ f )
+            {
+                int len = 10 + rnd . nextInt ( 20 );
+                double nRate = rnd . nextInt ( 3 ) * 0.05;
+                int q = 10 + rnd . nextInt ( 25 );
+                StringBuilder sb = new StringBuilder ();
+                StringBuilder qb = new StringBuilder ();
+                for ( int i = 0; i < len; ++ i )
+                {
+                    sb . append ( rnd . nextDouble () < nRate ? 'N' : "ACGT" . charAt ( rnd . nextInt ( 4 ) ) );
+                    qb . append ( ( char ) ( 33 + q + rnd . nextInt ( 5 ) - 2 ) );
+                }
+                bases [ f ] = sb . toString ();
+                qualities [ f ] = qb . toString ();
+            }
+            b . addRead ( "r" + r, "g" + rnd . nextInt ( 3 ), bases, qualities );
+        }
+        return b . build ();
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        ReadCollection coll = collection ();
+        criteria ( coll );
+        captured ( coll );
+        System . out . println ( "ReadFilterTest: ok" );
+    }
+}
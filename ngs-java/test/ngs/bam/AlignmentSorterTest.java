@@ -0,0 +1,159 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ReadCollection;
+import ngs.mem.MemGenerator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+
+
+/*==========================================================================
+ * AlignmentSorterTest
+ *  sorts spilling runs to disk and merging them back, keeping
+ *  Alignments equal in Reference and position in their input order
+ */
+public class AlignmentSorterTest
+{
+
+    /* spilled
+     *  long Alignments in random order, on few positions so that many
+     *  tie, overflowing the smallest memory budget several times
+     */
+    static void spilled ( Path dir )
+        throws Exception
+    {
+        Random rnd = new Random ( 11 );
+        ArrayList < BamFixture . Rec > recs = new ArrayList < BamFixture . Rec > ();
+        for ( int i = 0; i < 3000; ++ i )
+        {
+            BamFixture . Rec r = new BamFixture . Rec ();
+            r . name = "s" + i;
+            r . ref = rnd . nextInt ( BamFixture . refNames . length );
+            r . pos = rnd . nextInt ( 50 );
+            r . cigar = "4000M";
+            r . end = r . pos + 4000;
+            r . mapq = 60;
+            StringBuilder sb = new StringBuilder ();
+            for ( int j = 0; j < 4000; ++ j )
+                sb . append ( "ACGT" . charAt ( rnd . nextInt ( 4 ) ) );
+            r . seq = sb . toString ();
+            recs . add ( r );
+        }
+        Path bam = dir . resolve ( "unsorted.bam" );
+        BamFixture . of ( recs ) . write ( bam, 60000 );
+
+        // a stable sort is the expected order
+        ArrayList < BamFixture . Rec > expected = new ArrayList < BamFixture . Rec > ( recs );
+        expected . sort ( Comparator . comparingInt ( ( BamFixture . Rec r ) -> r . ref ) . thenComparingInt ( r -> r . pos ) );
+
+        Path tmp = Files . createDirectory ( dir . resolve ( "runs" ) );
+        try ( BamReadCollection coll = new BamReadCollection ( bam, 2 );
+              AlignmentSorter sorter = new AlignmentSorter ( 2 ) )
+        {
+            sorter . setMemoryBudget ( 16L << 20 );
+            sorter . setTempDirectory ( tmp );
+
+            AlignmentIterator it = sorter . sort ( coll, Alignment . all );
+            try
+            {
+                check ( tmp . toFile () . list () . length >= 2, "too few runs spilled" );
+                for ( BamFixture . Rec r : expected )
+                {
+                    check ( it . nextAlignment (), "sorted Alignments end early" );
+                    check ( it . getReadId () . equals ( r . name ), "expected " + r . name + ", found " + it . getReadId () );
+                    check ( it . getReferenceSpec () . equals ( BamFixture . refNames [ r . ref ] ), "Reference of " + r . name );
+                    check ( it . getAlignmentPosition () == r . pos, "position of " + r . name );
+                    check ( it . getFragmentBases () . equals ( r . seq ), "bases of " + r . name );
+                }
+                check ( ! it . nextAlignment (), "more Alignments sorted than given" );
+            }
+            finally
+            {
+                it . close ();
+            }
+        }
+        check ( tmp . toFile () . list () . length == 0, "runs left behind" );
+        Files . delete ( tmp );
+    }
+
+    /* ids
+     *  Alignments sorted from memory keep their ids, and input that is
+     *  already sorted comes back unchanged
+     */
+    static void ids ()
+        throws Exception
+    {
+        ReadCollection coll = MemGenerator . parse ( "references=2,referenceLength=20000,reads=2000,paired=true" ) . generate ();
+        try ( AlignmentSorter sorter = new AlignmentSorter ( 2 ) )
+        {
+            AlignmentIterator sorted = sorter . sort ( coll, Alignment . all );
+            AlignmentIterator it = coll . getAlignments ( Alignment . all );
+            while ( it . nextAlignment () )
+            {
+                check ( sorted . nextAlignment (), "sorted Alignments end early" );
+                check ( sorted . getAlignmentId () . equals ( it . getAlignmentId () ), "Alignment " + it . getAlignmentId () + " moved" );
+                check ( sorted . getAlignmentPosition () == it . getAlignmentPosition (), "position of " + it . getAlignmentId () );
+                check ( sorted . hasMate () == it . hasMate (), "mate of " + it . getAlignmentId () );
+                if ( it . hasMate () )
+                    check ( sorted . getMateAlignmentId () . equals ( it . getMateAlignmentId () ), "mate id of " + it . getAlignmentId () );
+            }
+            check ( ! sorted . nextAlignment (), "more Alignments sorted than given" );
+            sorted . close ();
+        }
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        Path dir = Files . createTempDirectory ( "ngs-test-" );
+        try
+        {
+            spilled ( dir );
+            ids ();
+            System . out . println ( "AlignmentSorterTest: ok" );
+        }
+        finally
+        {
+            for ( String f : dir . toFile () . list () )
+                Files . delete ( dir . resolve ( f ) );
+            Files . delete ( dir );
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.bam;
+
+import ngs.util.Bgzf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/*==========================================================================
+ * BamFixture
+ *  assembles a small BAM file record by record, independently of
+ *  the encoder under test, and writes it in BGZF blocks of a chosen
+ *  size so that records straddle block boundaries; a random sample
+ *  of records is provided as well
+ */
+class BamFixture
+{
+
+    /* Rec
+     *  what was written for a record
+     */
+    static final class Rec
+    {
+        String name;
+        int flag;
+        int ref;
+        int pos;
+        int end;
+        int mapq;
+        String cigar;
+        String seq;
+        String group;
+    }
+
+    /* sample
+     *  coordinate-sorted records on both References of a sample
+     *  header, followed by unmapped ones
+     */
+    static ArrayList < Rec > sample ( int count, long seed )
+    {
+        Random rnd = new Random ( seed );
+        String [] cigars = { "50M", "5S45M", "20M2I28M", "25M3D25M", "40M10S" };
+        String [] groups = { "g1", "g2", null };
+        ArrayList < Rec > recs = new ArrayList < Rec > ();
+        for ( int ref = 0; ref < refNames . length; ++ ref )
+        {
+            int [] pos = new int [ count / 2 ];
+            for ( int i = 0; i < pos . length; ++ i )
+                pos [ i ] = rnd . nextInt ( refLengths [ ref ] - 60 );
+            Arrays . sort ( pos );
+            for ( int p : pos )
+            {
+                Rec r = new Rec ();
+                r . name = "r" + recs . size ();
+                r . flag = new int [] { 0, 16, 256 } [ rnd . nextInt ( 3 ) ];
+                r . ref = ref;
+                r . pos = p;
+                r . mapq = rnd . nextInt ( 61 );
+                r . cigar = cigars [ rnd . nextInt ( cigars . length ) ];
+                r . end = p;
+                for ( int op : cigar ( r . cigar ) )
+                {
+                    if ( "MDN=X" . indexOf ( "MIDNSHP=X" . charAt ( op & 0xf ) ) >= 0 )
+                        r . end += op >>> 4;
+                }
+                r . seq = bases ( rnd, 50 );
+                r . group = groups [ rnd . nextInt ( groups . length ) ];
+                recs . add ( r );
+            }
+        }
+        for ( int i = 0; i < 5; ++ i )
+        {
+            Rec r = new Rec ();
+            r . name = "u" + i;
+            r . flag = 4;
+            r . ref = -1;
+            r . pos = -1;
+            r . cigar = "";
+            r . seq = bases ( rnd, 30 );
+            recs . add ( r );
+        }
+        return recs;
+    }
+
+    /* of
+     *  the header and records of a sample, ready to be written
+     */
+    static BamFixture of ( ArrayList < Rec > recs )
+    {
+        String text = "@HD\tVN:1.6\tSO:coordinate\n"
+            + "@SQ\tSN:chr1\tLN:" + refLengths [ 0 ] + "\n"
+            + "@SQ\tSN:chrM\tLN:" + refLengths [ 1 ] + "\tTP:circular\n"
+            + "@RG\tID:g1\n@RG\tID:g2\n";
+        BamFixture f = new BamFixture ( text, refNames, refLengths );
+        for ( Rec r : recs )
+        {
+            char [] qual = new char [ r . seq . length () ];
+            Arrays . fill ( qual, ( char ) ( 33 + 30 ) );
+            f . add ( r . name, r . flag, r . ref, r . pos, r . mapq, r . cigar, r . seq, new String ( qual ), r . group );
+        }
+        return f;
+    }
+
+    /* add
+     *  append a record; "ref" and "pos" are -1 for an unmapped one,
+     *  and "readGroup" may be null
+     */
+    void add ( String name, int flag, int ref, int pos, int mapq, String cigar,
+               String seq, String qual, String readGroup )
+    {
+        int [] ops = cigar ( cigar );
+        int end = pos;
+        for ( int op : ops )
+        {
+            if ( "MDN=X" . indexOf ( "MIDNSHP=X" . charAt ( op & 0xf ) ) >= 0 )
+                end += op >>> 4;
+        }
+
+        ByteBuffer b = ByteBuffer . allocate ( 1024 + seq . length () * 2 ) . order ( ByteOrder . LITTLE_ENDIAN );
+        b . putInt ( 0 );
+        b . putInt ( ref );
+        b . putInt ( pos );
+        b . put ( ( byte ) ( name . length () + 1 ) );
+        b . put ( ( byte ) mapq );
+        b . putShort ( ( short ) reg2bin ( pos, Math . max ( end, pos + 1 ) ) );
+        b . putShort ( ( short ) ops . length );
+        b . putShort ( ( short ) flag );
+        b . putInt ( seq . length () );
+        b . putInt ( -1 );
+        b . putInt ( -1 );
+        b . putInt ( 0 );
+        b . put ( name . getBytes ( StandardCharsets . US_ASCII ) ) . put ( ( byte ) 0 );
+        for ( int op : ops )
+            b . putInt ( op );
+        for ( int i = 0; i < seq . length (); i += 2 )
+        {
+            int hi = "=ACMGRSVTWYHKDBN" . indexOf ( seq . charAt ( i ) );
+            int lo = i + 1 < seq . length () ? "=ACMGRSVTWYHKDBN" . indexOf ( seq . charAt ( i + 1 ) ) : 0;
+            b . put ( ( byte ) ( hi << 4 | lo ) );
+        }
+        for ( int i = 0; i < qual . length (); ++ i )
+            b . put ( ( byte ) ( qual . charAt ( i ) - 33 ) );
+        if ( readGroup != null )
+            b . put ( ( byte ) 'R' ) . put ( ( byte ) 'G' ) . put ( ( byte ) 'Z' ) . put ( readGroup . getBytes ( StandardCharsets . US_ASCII ) ) . put ( ( byte ) 0 );
+        b . putInt ( 0, b . position () - 4 );
+
+        starts = Arrays . copyOf ( starts, records + 1 );
+        starts [ records ++ ] = data . size ();
+        data . write ( b . array (), 0, b . position () );
+    }
+
+    /* write
+     *  the header and records, in blocks holding at most "blockData"
+     *  bytes, followed by the end-of-file block; returns the virtual
+     *  offset of every record
+     */
+    long [] write ( Path path, int blockData )
+        throws IOException
+    {
+        byte [] all = data . toByteArray ();
+        byte [] block = new byte [ Bgzf . maxBlockSize ];
+        Deflater deflater = new Deflater ( 6, true );
+        CRC32 crc = new CRC32 ();
+        long [] offsets = new long [ records ];
+        try ( OutputStream out = Files . newOutputStream ( path ) )
+        {
+            long filePos = 0;
+            int r = 0;
+            for ( int at = 0; at < all . length; at += blockData )
+            {
+                int len = Math . min ( blockData, all . length - at );
+                for ( ; r < records && starts [ r ] < at + len; ++ r )
+                    offsets [ r ] = filePos << 16 | ( starts [ r ] - at );
+                int size = Bgzf . compress ( deflater, crc, all, at, len, block, 0 );
+                out . write ( block, 0, size );
+                filePos += size;
+            }
+            out . write ( Bgzf . eof () );
+        }
+        deflater . end ();
+        return offsets;
+    }
+
+    /* cigar
+     *  encoded operations of CIGAR text
+     */
+    static int [] cigar ( String text )
+    {
+        int [] ops = new int [ text . length () ];
+        int n = 0;
+        int len = 0;
+        for ( char c : text . toCharArray () )
+        {
+            if ( Character . isDigit ( c ) )
+                len = len * 10 + c - '0';
+            else
+            {
+                ops [ n ++ ] = len << 4 | "MIDNSHP=X" . indexOf ( c );
+                len = 0;
+            }
+        }
+        return Arrays . copyOf ( ops, n );
+    }
+
+    /* reg2bin
+     *  as in the SAM specification
+     */
+    static int reg2bin ( int beg, int end )
+    {
+        -- end;
+        if ( beg >> 14 == end >> 14 ) return ( ( 1 << 15 ) - 1 ) / 7 + ( beg >> 14 );
+        if ( beg >> 17 == end >> 17 ) return ( ( 1 << 12 ) - 1 ) / 7 + ( beg >> 17 );
+        if ( beg >> 20 == end >> 20 ) return ( ( 1 << 9 ) - 1 ) / 7 + ( beg >> 20 );
+        if ( beg >> 23 == end >> 23 ) return ( ( 1 << 6 ) - 1 ) / 7 + ( beg >> 23 );
+        if ( beg >> 26 == end >> 26 ) return ( ( 1 << 3 ) - 1 ) / 7 + ( beg >> 26 );
+        return 0;
+    }
+
+    private static String bases ( Random rnd, int len )
+    {
+        char [] c = new char [ len ];
+        for ( int i = 0; i < len; ++ i )
+            c [ i ] = "ACGTN" . charAt ( rnd . nextInt ( 5 ) );
+        return new String ( c );
+    }
+
+    BamFixture ( String text, String [] refNames, int [] refLengths )
+    {
+        ByteBuffer b = ByteBuffer . allocate ( 1024 + text . length () ) . order ( ByteOrder . LITTLE_ENDIAN );
+        b . put ( new byte [] { 'B', 'A', 'M', 1 } );
+        b . putInt ( text . length () );
+        b . put ( text . getBytes ( StandardCharsets . US_ASCII ) );
+        b . putInt ( refNames . length );
+        for ( int i = 0; i < refNames . length; ++ i )
+        {
+            b . putInt ( refNames [ i ] . length () + 1 );
+            b . put ( refNames [ i ] . getBytes ( StandardCharsets . US_ASCII ) ) . put ( ( byte ) 0 );
+            b . putInt ( refLengths [ i ] );
+        }
+        data . write ( b . array (), 0, b . position () );
+    }
+
+    /* the References of a sample */
+    static final String [] refNames = { "chr1", "chrM" };
+    static final int [] refLengths = { 20000, 16569 };
+
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream ();
+    private int [] starts = new int [ 0 ];
+    private int records;
+}
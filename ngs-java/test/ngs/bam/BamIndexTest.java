@@ -0,0 +1,293 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.bam;
+
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+import ngs.util.Bgzf;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+
+/*==========================================================================
+ * BamIndexTest
+ *  binning schemes, and slices served from .bai and .csi indexes
+ *  built by hand for a sample BAM file
+ */
+public class BamIndexTest
+{
+
+    /* bins
+     *  reg2bins follows the SAM specification for either scheme
+     */
+    static void bins ( Path dir )
+        throws Exception
+    {
+        Path bai = dir . resolve ( "empty.bai" );
+        Files . write ( bai, index ( false, 14, 5, new ArrayList < BamFixture . Rec > (), new long [ 0 ] ) );
+        BamIndex b = BamIndex . load ( bai, BamFixture . refNames . length );
+        check ( Arrays . equals ( b . reg2bins ( 0, 1 ), new long [] { 0, 1, 9, 73, 585, 4681 } ), "bins of the first base" );
+        check ( Arrays . equals ( b . reg2bins ( 16384, 16385 ), new long [] { 0, 1, 9, 73, 585, 4682 } ), "bins of the second window" );
+        check ( b . reg2bins ( 0, 1L << 29 ) . length == 37449, "bins of the whole range" );
+        check ( b . slice ( 0, 0, 1000 ) . length == 0, "slice of an empty index" );
+
+        Path csi = dir . resolve ( "empty.csi" );
+        Files . write ( csi, index ( true, 12, 6, new ArrayList < BamFixture . Rec > (), new long [ 0 ] ) );
+        BamIndex c = BamIndex . load ( csi, BamFixture . refNames . length );
+        long [] first = c . reg2bins ( 4096, 4097 );
+        check ( Arrays . equals ( first, new long [] { 0, 1, 9, 73, 585, 4681, 37450 } ), "CSI bins of the second window" );
+
+        try
+        {
+            BamIndex . load ( csi, 3 );
+            check ( false, "index of another file accepted" );
+        }
+        catch ( ErrorMsg x )
+        {
+        }
+    }
+
+    /* slices
+     *  indexed slices find the records overlapping them, under either
+     *  scheme, and the index counts the mapped records
+     */
+    static void slices ( Path dir )
+        throws Exception
+    {
+        ArrayList < BamFixture . Rec > recs = BamFixture . sample ( 2000, 5 );
+        Path bam = dir . resolve ( "indexed.bam" );
+        long [] offsets = BamFixture . of ( recs ) . write ( bam, 2500 );
+
+        Path bai = dir . resolve ( "indexed.bam.bai" );
+        Files . write ( bai, index ( false, 14, 5, recs, offsets ) );
+        check ( slices ( bam, null, recs ), "slices through the .bai index" );
+
+        // a .csi is found next to the file when there is no .bai
+        Files . delete ( bai );
+        Path csi = dir . resolve ( "indexed.bam.csi" );
+        Files . write ( csi, bgzf ( index ( true, 10, 7, recs, offsets ) ) );
+        check ( slices ( bam, null, recs ), "slices through the .csi index" );
+
+        Path plain = dir . resolve ( "plain.csi" );
+        Files . write ( plain, index ( true, 14, 5, recs, offsets ) );
+        check ( slices ( bam, plain, recs ), "slices through an uncompressed .csi index" );
+    }
+
+    private static boolean slices ( Path bam, Path index, ArrayList < BamFixture . Rec > recs )
+        throws Exception
+    {
+        Random rnd = new Random ( 9 );
+        try ( BamReadCollection coll = new BamReadCollection ( bam, 2 ) )
+        {
+            if ( index != null )
+                coll . setIndex ( index );
+            check ( coll . hasIndex (), "index not found" );
+
+            long mapped = 0;
+            for ( BamFixture . Rec r : recs )
+                mapped += r . ref >= 0 ? 1 : 0;
+            check ( coll . getAlignmentCount () == mapped, "mapped records counted by the index" );
+
+            for ( int i = 0; i < 200; ++ i )
+            {
+                int ref = rnd . nextInt ( BamFixture . refNames . length );
+                int start = rnd . nextInt ( BamFixture . refLengths [ ref ] );
+                int len = 1 + rnd . nextInt ( i < 100 ? 300 : 40000 );
+                ArrayList < String > expected = new ArrayList < String > ();
+                for ( BamFixture . Rec r : recs )
+                {
+                    if ( r . ref == ref && r . pos < start + len && r . end > start )
+                        expected . add ( r . name );
+                }
+                ArrayList < String > found = new ArrayList < String > ();
+                AlignmentIterator it = coll . getReference ( BamFixture . refNames [ ref ] ) . getAlignmentSlice ( start, len );
+                while ( it . nextAlignment () )
+                    found . add ( it . getReadId () );
+                if ( ! found . equals ( expected ) )
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /* index
+     *  a .bai, or a .csi of the given scheme, for the sample records
+     *  starting at "offsets"; each record ends where the next begins
+     */
+    private static byte [] index ( boolean csi, int minShift, int depth, ArrayList < BamFixture . Rec > recs, long [] offsets )
+    {
+        ByteBuffer b = ByteBuffer . allocate ( 1 << 22 ) . order ( ByteOrder . LITTLE_ENDIAN );
+        if ( csi )
+            b . put ( new byte [] { 'C', 'S', 'I', 1 } ) . putInt ( minShift ) . putInt ( depth ) . putInt ( 0 );
+        else
+            b . put ( new byte [] { 'B', 'A', 'I', 1 } );
+        b . putInt ( BamFixture . refNames . length );
+
+        long metaBin = ( ( 1L << ( depth * 3 + 3 ) ) - 1 ) / 7 + 1;
+        for ( int ref = 0; ref < BamFixture . refNames . length; ++ ref )
+        {
+            // chunks of each bin, and the first record of each 16 kbp window
+            TreeMap < Long, ArrayList < long [] > > bins = new TreeMap < Long, ArrayList < long [] > > ();
+            long [] linear = new long [ ( BamFixture . refLengths [ ref ] >> 14 ) + 1 ];
+            long mapped = 0;
+            for ( int i = 0; i < recs . size (); ++ i )
+            {
+                BamFixture . Rec r = recs . get ( i );
+                if ( r . ref != ref )
+                    continue;
+                ++ mapped;
+                long bin = bin ( r . pos, r . end, minShift, depth );
+                bins . computeIfAbsent ( bin, k -> new ArrayList < long [] > () ) . add ( new long [] { offsets [ i ], offsets [ i + 1 ] } );
+                for ( int w = r . pos >> 14; w <= ( r . end - 1 ) >> 14; ++ w )
+                {
+                    if ( linear [ w ] == 0 )
+                        linear [ w ] = offsets [ i ];
+                }
+            }
+
+            b . putInt ( bins . size () + ( mapped > 0 ? 1 : 0 ) );
+            for ( long bin : bins . keySet () )
+            {
+                ArrayList < long [] > chunks = bins . get ( bin );
+                b . putInt ( ( int ) bin );
+                if ( csi )
+                    b . putLong ( firstOverlapping ( recs, offsets, ref, bin, minShift, depth ) );
+                b . putInt ( chunks . size () );
+                for ( long [] c : chunks )
+                    b . putLong ( c [ 0 ] ) . putLong ( c [ 1 ] );
+            }
+            if ( mapped > 0 )
+            {
+                b . putInt ( ( int ) metaBin );
+                if ( csi )
+                    b . putLong ( 0 );
+                b . putInt ( 2 ) . putLong ( 0 ) . putLong ( 0 ) . putLong ( mapped ) . putLong ( 0 );
+            }
+            if ( ! csi )
+            {
+                b . putInt ( linear . length );
+                for ( long l : linear )
+                    b . putLong ( l );
+            }
+        }
+        return Arrays . copyOf ( b . array (), b . position () );
+    }
+
+    /* bin
+     *  the smallest bin holding [ beg, end ) under a scheme
+     */
+    private static long bin ( long beg, long end, int minShift, int depth )
+    {
+        -- end;
+        int shift = minShift;
+        for ( int level = depth; level > 0; -- level, shift += 3 )
+        {
+            if ( beg >> shift == end >> shift )
+                return ( ( 1L << ( level * 3 ) ) - 1 ) / 7 + ( beg >> shift );
+        }
+        return 0;
+    }
+
+    /* firstOverlapping
+     *  the offset of the first record overlapping the region of a bin,
+     *  the loffset of a .csi bin
+     */
+    private static long firstOverlapping ( ArrayList < BamFixture . Rec > recs, long [] offsets, int ref, long bin, int minShift, int depth )
+    {
+        int level = 0;
+        long first = 0;
+        while ( bin >= first + ( 1L << ( level * 3 ) ) )
+        {
+            first += 1L << ( level * 3 );
+            ++ level;
+        }
+        int shift = minShift + ( depth - level ) * 3;
+        long beg = ( bin - first ) << shift;
+        long end = beg + ( 1L << shift );
+        for ( int i = 0; i < recs . size (); ++ i )
+        {
+            BamFixture . Rec r = recs . get ( i );
+            if ( r . ref == ref && r . pos < end && r . end > beg )
+                return offsets [ i ];
+        }
+        return 0;
+    }
+
+    /* bgzf
+     *  compress an index, as .csi files usually are
+     */
+    private static byte [] bgzf ( byte [] data )
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        byte [] block = new byte [ Bgzf . maxBlockSize ];
+        Deflater deflater = new Deflater ( 6, true );
+        CRC32 crc = new CRC32 ();
+        for ( int at = 0; at < data . length; at += Bgzf . maxInputSize )
+        {
+            int size = Bgzf . compress ( deflater, crc, data, at, Math . min ( Bgzf . maxInputSize, data . length - at ), block, 0 );
+            out . write ( block, 0, size );
+        }
+        deflater . end ();
+        byte [] eof = Bgzf . eof ();
+        out . write ( eof, 0, eof . length );
+        return out . toByteArray ();
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        Path dir = Files . createTempDirectory ( "ngs-test-" );
+        try
+        {
+            bins ( dir );
+            slices ( dir );
+            System . out . println ( "BamIndexTest: ok" );
+        }
+        finally
+        {
+            for ( String f : dir . toFile () . list () )
+                Files . delete ( dir . resolve ( f ) );
+            Files . delete ( dir );
+        }
+    }
+}
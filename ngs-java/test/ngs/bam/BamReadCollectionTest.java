@@ -0,0 +1,171 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ReadGroupIterator;
+import ngs.ReferenceIterator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+
+
+/*==========================================================================
+ * BamReadCollectionTest
+ *  reads back a BAM file assembled by hand, in blocks small enough
+ *  for records to straddle them
+ */
+public class BamReadCollectionTest
+{
+
+    /* header
+     *  References, their lengths and topology, and ReadGroups
+     */
+    static void header ( Path bam )
+        throws Exception
+    {
+        try ( BamReadCollection coll = new BamReadCollection ( bam, 2 ) )
+        {
+            ReferenceIterator refs = coll . getReferences ();
+            for ( int i = 0; i < BamFixture . refNames . length; ++ i )
+            {
+                check ( refs . nextReference (), "References end early" );
+                check ( refs . getCanonicalName () . equals ( BamFixture . refNames [ i ] ), "Reference name" );
+                check ( refs . getLength () == BamFixture . refLengths [ i ], "Reference length" );
+                check ( refs . getIsCircular () == ( i == 1 ), "Reference topology" );
+            }
+            check ( ! refs . nextReference (), "too many References" );
+
+            ReadGroupIterator groups = coll . getReadGroups ();
+            check ( groups . nextReadGroup () && groups . getName () . equals ( "g1" ), "first ReadGroup" );
+            check ( groups . nextReadGroup () && groups . getName () . equals ( "g2" ), "second ReadGroup" );
+            check ( ! groups . nextReadGroup (), "too many ReadGroups" );
+            check ( coll . hasReference ( "chrM" ) && ! coll . hasReference ( "chr2" ), "hasReference" );
+            check ( ! coll . hasIndex (), "index found where there is none" );
+        }
+    }
+
+    /* alignments
+     *  every mapped record, in file order, with its properties
+     */
+    static void alignments ( Path bam, ArrayList < BamFixture . Rec > recs )
+        throws Exception
+    {
+        try ( BamReadCollection coll = new BamReadCollection ( bam, 3 ) )
+        {
+            AlignmentIterator it = coll . getAlignments ( Alignment . all );
+            int primary = 0;
+            for ( BamFixture . Rec r : recs )
+            {
+                if ( r . ref < 0 )
+                    continue;
+                check ( it . nextAlignment (), "Alignments end early" );
+                String what = "record " + r . name;
+                check ( it . getReadId () . equals ( r . name ), what + " out of order" );
+                check ( it . getReferenceSpec () . equals ( BamFixture . refNames [ r . ref ] ), what + " Reference" );
+                check ( it . getAlignmentPosition () == r . pos && it . getAlignmentLength () == r . end - r . pos, what + " placement" );
+                check ( it . getShortCigar ( false ) . equals ( r . cigar ), what + " CIGAR" );
+                check ( it . getAlignedFragmentBases () . equals ( r . seq ), what + " bases" );
+                check ( it . getMappingQuality () == r . mapq, what + " mapping quality" );
+                check ( it . getIsReversedOrientation () == ( ( r . flag & 16 ) != 0 ), what + " orientation" );
+                check ( it . getReadGroup () . equals ( r . group == null ? "" : r . group ), what + " ReadGroup" );
+                boolean secondary = ( r . flag & 256 ) != 0;
+                check ( it . getAlignmentCategory () == ( secondary ? Alignment . secondaryAlignment : Alignment . primaryAlignment ), what + " category" );
+                if ( ! secondary )
+                    ++ primary;
+            }
+            check ( ! it . nextAlignment (), "unmapped records given as Alignments" );
+
+            it = coll . getAlignments ( Alignment . primaryAlignment );
+            int n = 0;
+            while ( it . nextAlignment () )
+                ++ n;
+            check ( n == primary, "primary Alignments" );
+        }
+    }
+
+    /* slices
+     *  without an index, slices scan the file for overlapping records
+     */
+    static void slices ( Path bam, ArrayList < BamFixture . Rec > recs )
+        throws Exception
+    {
+        Random rnd = new Random ( 3 );
+        try ( BamReadCollection coll = new BamReadCollection ( bam, 2 ) )
+        {
+            for ( int i = 0; i < 20; ++ i )
+            {
+                int ref = rnd . nextInt ( BamFixture . refNames . length );
+                int start = rnd . nextInt ( BamFixture . refLengths [ ref ] );
+                int len = 1 + rnd . nextInt ( 2000 );
+                ArrayList < String > expected = new ArrayList < String > ();
+                for ( BamFixture . Rec r : recs )
+                {
+                    if ( r . ref == ref && r . pos < start + len && r . end > start )
+                        expected . add ( r . name );
+                }
+                ArrayList < String > found = new ArrayList < String > ();
+                AlignmentIterator it = coll . getReference ( BamFixture . refNames [ ref ] ) . getAlignmentSlice ( start, len );
+                while ( it . nextAlignment () )
+                    found . add ( it . getReadId () );
+                check ( found . equals ( expected ), "slice " + BamFixture . refNames [ ref ] + ":" + start + "+" + len );
+            }
+        }
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        Path dir = Files . createTempDirectory ( "ngs-test-" );
+        try
+        {
+            ArrayList < BamFixture . Rec > recs = BamFixture . sample ( 600, 1 );
+            Path bam = dir . resolve ( "sample.bam" );
+            BamFixture . of ( recs ) . write ( bam, 3000 );
+
+            header ( bam );
+            alignments ( bam, recs );
+            slices ( bam, recs );
+            System . out . println ( "BamReadCollectionTest: ok" );
+        }
+        finally
+        {
+            for ( String f : dir . toFile () . list () )
+                Files . delete ( dir . resolve ( f ) );
+            Files . delete ( dir );
+        }
+    }
+}
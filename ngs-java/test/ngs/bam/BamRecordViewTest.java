@@ -0,0 +1,170 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.bam;
+
+import ngs.ErrorMsg;
+import ngs.internal.Tasks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+
+/*==========================================================================
+ * BamRecordViewTest
+ *  records viewed in place or copied when they straddle blocks,
+ *  and a BgzfInput positioned by virtual offsets across block edges
+ */
+public class BamRecordViewTest
+{
+
+    /* scan
+     *  every record in order, with the cursor at its virtual offset
+     */
+    static void scan ( BamFile file, ArrayList < BamFixture . Rec > recs, long [] offsets )
+        throws Exception
+    {
+        BgzfInput in = new BgzfInput ( file, 3 );
+        BamRecordView view = new BamRecordView ();
+        try
+        {
+            in . seek ( file . firstRecord );
+            for ( int i = 0; i < recs . size (); ++ i )
+            {
+                check ( in . tell () == offsets [ i ], "offset of record " + i );
+                check ( view . read ( in ), "records end early" );
+                same ( view, recs . get ( i ) );
+            }
+            check ( ! view . read ( in ), "records past the last" );
+        }
+        finally
+        {
+            in . close ();
+        }
+    }
+
+    /* seeks
+     *  records found at their virtual offsets in any order, and
+     *  offsets past the end of a block refused
+     */
+    static void seeks ( BamFile file, ArrayList < BamFixture . Rec > recs, long [] offsets )
+        throws Exception
+    {
+        ArrayList < Integer > order = new ArrayList < Integer > ();
+        for ( int i = 0; i < recs . size (); ++ i )
+            order . add ( i );
+        Collections . shuffle ( order, new Random ( 3 ) );
+
+        BgzfInput in = new BgzfInput ( file, 2 );
+        BamRecordView view = new BamRecordView ();
+        try
+        {
+            int straddling = 0;
+            for ( int i : order )
+            {
+                in . seek ( offsets [ i ] );
+                check ( in . tell () == offsets [ i ], "offset after a seek" );
+                check ( view . read ( in ), "record at a seek" );
+                same ( view, recs . get ( i ) );
+                if ( i + 1 < recs . size () )
+                {
+                    check ( in . tell () == offsets [ i + 1 ], "offset after record " + i );
+                    straddling += offsets [ i ] >>> 16 != offsets [ i + 1 ] >>> 16 && ( offsets [ i + 1 ] & 0xffff ) != 0 ? 1 : 0;
+                }
+            }
+            check ( straddling > 10, "too few records straddle blocks" );
+
+            try
+            {
+                in . seek ( offsets [ 0 ] | 0xffff );
+                check ( false, "offset past the end of a block accepted" );
+            }
+            catch ( ErrorMsg x )
+            {
+            }
+        }
+        finally
+        {
+            in . close ();
+        }
+    }
+
+    private static void same ( BamRecordView view, BamFixture . Rec r )
+    {
+        check ( view . readName () . equals ( r . name ), "name of " + r . name );
+        check ( view . refId () == r . ref && view . pos () == r . pos, "position of " + r . name );
+        check ( view . flag () == r . flag, "flags of " + r . name );
+        check ( r . ref < 0 || view . pos () + view . refLength () == r . end, "extent of " + r . name );
+
+        int [] ops = BamFixture . cigar ( r . cigar );
+        check ( view . cigarCount () == ops . length, "CIGAR of " + r . name );
+        for ( int i = 0; i < ops . length; ++ i )
+            check ( view . cigar ( i ) == ops [ i ], "CIGAR of " + r . name );
+
+        check ( view . seqLength () == r . seq . length (), "length of " + r . name );
+        for ( int i = 0; i < r . seq . length (); ++ i )
+            check ( view . seq ( i ) == r . seq . charAt ( i ), "bases of " + r . name );
+        check ( view . hasQualities () && view . qual ( 0 ) == 30, "qualities of " + r . name );
+
+        String group = view . stringTag ( 'R', 'G' );
+        check ( r . group == null ? group == null : r . group . equals ( group ), "ReadGroup of " + r . name );
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        Path dir = Files . createTempDirectory ( "ngs-test-" );
+        ExecutorService pool = Tasks . daemonPool ( 2, "ngs-test-" );
+        try
+        {
+            ArrayList < BamFixture . Rec > recs = BamFixture . sample ( 600, 2 );
+            Path bam = dir . resolve ( "view.bam" );
+            long [] offsets = BamFixture . of ( recs ) . write ( bam, 1000 );
+
+            BamFile file = new BamFile ( bam, pool, 2 );
+            scan ( file, recs, offsets );
+            seeks ( file, recs, offsets );
+            System . out . println ( "BamRecordViewTest: ok" );
+        }
+        finally
+        {
+            pool . shutdownNow ();
+            for ( String f : dir . toFile () . list () )
+                Files . delete ( dir . resolve ( f ) );
+            Files . delete ( dir );
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+
+package ngs.bam;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.mem.MemBuilder;
+import ngs.util.Bgzf;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+
+/*==========================================================================
+ * BamWriterTest
+ *  writes BAM files and their indexes, and reads them back
+ */
+public class BamWriterTest
+{
+
+    /* blockAlignedLastRecord
+     *  the last record exactly fills its BGZF block, so that its end
+     *  points at the block after the last one written
+     */
+    static void blockAlignedLastRecord ( Path dir )
+        throws Exception
+    {
+        // measure the records, then lengthen two Reads to fill the block
+        int [] lengths = new int [ 9 ];
+        Arrays . fill ( lengths, 4800 );
+        int [] sizes = sizes ( build ( lengths ) );
+        long total = 0;
+        for ( int s : sizes )
+            total += s;
+        total -= encoded ( lengths [ 7 ] ) + encoded ( lengths [ 8 ] );
+        int [] fill = fill ( Bgzf . maxInputSize - total );
+        lengths [ 7 ] = fill [ 0 ];
+        lengths [ 8 ] = fill [ 1 ];
+
+        ReadCollection coll = build ( lengths );
+        total = 0;
+        for ( int s : sizes ( coll ) )
+            total += s;
+        check ( total == Bgzf . maxInputSize, "records fill " + total + " bytes instead of a block" );
+
+        Path bam = dir . resolve ( "aligned.bam" );
+        try ( BamWriter w = new BamWriter ( 2 ) )
+        {
+            check ( w . export ( coll, bam ) == lengths . length, "wrong number of records written" );
+        }
+        check ( Files . exists ( dir . resolve ( "aligned.bam.bai" ) ), "index not written" );
+
+        try ( BamReadCollection in = new BamReadCollection ( bam, 2 ) )
+        {
+            check ( in . hasIndex (), "index not found" );
+            check ( in . getAlignmentCount () == lengths . length, "wrong number of records read" );
+            AlignmentIterator it = in . getReference ( "chr1" ) . getAlignmentSlice ( 0, referenceLength );
+            int n = 0;
+            while ( it . nextAlignment () )
+                ++ n;
+            check ( n == lengths . length, "slice gives " + n + " of " + lengths . length + " records" );
+        }
+    }
+
+    /* build
+     *  one Reference, with a Read of each length aligned along it
+     */
+    private static ReadCollection build ( int [] lengths )
+        throws ErrorMsg
+    {
+        Random rnd = new Random ( 1 );
+        char [] ref = new char [ referenceLength ];
+        for ( int i = 0; i < ref . length; ++ i )
+            ref [ i ] = "ACGT" . charAt ( rnd . nextInt ( 4 ) );
+        String bases = new String ( ref );
+
+        MemBuilder b = new MemBuilder ( "aligned" );
+        b . addReference ( "chr1", bases );
+        for ( int i = 0; i < lengths . length; ++ i )
+        {
+            int pos = i * 4000;
+            long read = b . addRead ( "r" + i, null, new String [] { bases . substring ( pos, pos + lengths [ i ] ) }, null );
+            b . addAlignment ( read, 0, "chr1", pos, lengths [ i ] + "M", 60, false, false );
+        }
+        return b . build ();
+    }
+
+    /* sizes
+     *  of the records encoding the Alignments
+     */
+    private static int [] sizes ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        BamEncoder enc = new BamEncoder ( coll );
+        AlignmentIterator it = coll . getAlignments ( Alignment . all );
+        int [] sizes = new int [ 0 ];
+        while ( it . nextAlignment () )
+        {
+            sizes = Arrays . copyOf ( sizes, sizes . length + 1 );
+            sizes [ sizes . length - 1 ] = enc . encode ( it );
+        }
+        return sizes;
+    }
+
+    /* encoded
+     *  bytes taken by the bases and qualities of "length" bases
+     */
+    private static int encoded ( int length )
+    {
+        return ( length + 1 ) / 2 + length;
+    }
+
+    /* fill
+     *  two lengths whose bases and qualities take "bytes"
+     */
+    private static int [] fill ( long bytes )
+    {
+        for ( int a = 4000; a <= 5000; ++ a )
+        {
+            for ( int b = a; b <= 5000; ++ b )
+            {
+                if ( encoded ( a ) + encoded ( b ) == bytes )
+                    return new int [] { a, b };
+            }
+        }
+        throw new IllegalStateException ( "no lengths fill " + bytes + " bytes" );
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        Path dir = Files . createTempDirectory ( "ngs-test-" );
+        try
+        {
+            blockAlignedLastRecord ( dir );
+            System . out . println ( "BamWriterTest: ok" );
+        }
+        finally
+        {
+            for ( String f : dir . toFile () . list () )
+                Files . delete ( dir . resolve ( f ) );
+            Files . delete ( dir );
+        }
+    }
+
+    private static final int referenceLength = 40000;
+}
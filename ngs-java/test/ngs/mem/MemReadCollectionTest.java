@@ -0,0 +1,162 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.mem;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+import ngs.PileupIterator;
+import ngs.Read;
+import ngs.ReadCollection;
+import ngs.ReadIterator;
+import ngs.Reference;
+
+
+/*==========================================================================
+ * MemReadCollectionTest
+ *  builds and generates in-memory collections and reads them back
+ */
+public class MemReadCollectionTest
+{
+
+    /* builtCollection
+     *  a paired Read aligned to both strands and an unaligned one
+     */
+    static void builtCollection ()
+        throws ErrorMsg
+    {
+        MemBuilder b = new MemBuilder ( "built" );
+        b . addReference ( "chr1", referenceBases );
+        String first = referenceBases . substring ( 10, 30 );
+        String second = reverseComplement ( referenceBases . substring ( 50, 70 ) );
+        long paired = b . addRead ( "pair", "g1", new String [] { first, second }, null );
+        b . addAlignment ( paired, 0, "chr1", 10, "20M", 60, false, false );
+        b . addAlignment ( paired, 1, "chr1", 50, "20M", 60, true, false );
+        b . addRead ( "single", null, new String [] { "ACGTACGTAC" }, new String [] { "##########" } );
+        ReadCollection coll = b . build ();
+
+        check ( coll . getReadCount () == 2, "wrong number of Reads" );
+        check ( coll . getReadCount ( Read . fullyAligned ) == 1, "wrong number of aligned Reads" );
+        check ( coll . getReadCount ( Read . unaligned ) == 1, "wrong number of unaligned Reads" );
+        check ( coll . getAlignmentCount () == 2, "wrong number of Alignments" );
+
+        ReadIterator reads = coll . getReads ( Read . all );
+        check ( reads . nextRead (), "no first Read" );
+        check ( reads . getReadName () . equals ( "pair" ) && reads . getReadGroup () . equals ( "g1" ), "first Read is wrong" );
+        check ( reads . getReadBases () . equals ( first + second ), "first Read has the wrong bases" );
+        check ( reads . nextRead (), "no second Read" );
+        check ( reads . getReadGroup () . equals ( MemBuilder . defaultReadGroup ), "default ReadGroup not assigned" );
+        check ( reads . getReadQualities () . equals ( "##########" ), "second Read has the wrong qualities" );
+        check ( ! reads . nextRead (), "more than two Reads" );
+
+        Reference ref = coll . getReference ( "chr1" );
+        check ( ref . getLength () == referenceBases . length (), "wrong Reference length" );
+        check ( ref . getReferenceBases ( 10, 20 ) . equals ( first ), "wrong Reference bases" );
+
+        AlignmentIterator it = ref . getAlignmentSlice ( 0, 40 );
+        check ( it . nextAlignment (), "slice misses the forward Alignment" );
+        check ( it . getAlignmentPosition () == 10 && ! it . getIsReversedOrientation (), "wrong forward Alignment" );
+        check ( it . hasMate (), "forward Alignment has no mate" );
+        String mate = it . getMateAlignmentId ();
+        check ( ! it . nextAlignment (), "slice holds an Alignment outside of it" );
+
+        Alignment rev = coll . getAlignment ( mate );
+        check ( rev . getAlignmentPosition () == 50 && rev . getIsReversedOrientation (), "wrong mate Alignment" );
+        check ( rev . getAlignedFragmentBases () . equals ( referenceBases . substring ( 50, 70 ) ), "reversed bases not in reference orientation" );
+        check ( rev . getFragmentBases () . equals ( second ), "fragment bases not as sequenced" );
+
+        PileupIterator p = ref . getPileupSlice ( 25, 30 );
+        while ( p . nextPileup () )
+        {
+            long pos = p . getReferencePosition ();
+            int expected = pos < 30 || pos >= 50 && pos < 70 ? 1 : 0;
+            check ( p . getPileupDepth () == expected, "depth " + p . getPileupDepth () + " at " + pos );
+        }
+    }
+
+    /* generatedIsDeterministic
+     *  the same settings produce the same Reads and Alignments
+     */
+    static void generatedIsDeterministic ()
+        throws ErrorMsg
+    {
+        String settings = "references=2,referenceLength=20000,reads=500,paired=true,aligned=0.8";
+        ReadCollection a = MemGenerator . parse ( settings ) . generate ();
+        ReadCollection b = MemGenerator . parse ( settings ) . generate ();
+
+        check ( a . getReadCount () == 500, "wrong number of Reads generated" );
+        check ( a . getAlignmentCount () == b . getAlignmentCount (), "Alignment counts differ" );
+
+        ReadIterator x = a . getReads ( Read . all );
+        ReadIterator y = b . getReads ( Read . all );
+        while ( x . nextRead () )
+        {
+            check ( y . nextRead (), "second collection ends early" );
+            check ( x . getReadBases () . equals ( y . getReadBases () ), "Read " + x . getReadId () + " differs" );
+            check ( x . getNumFragments () == 2, "Read " + x . getReadId () + " is not paired" );
+        }
+        check ( ! y . nextRead (), "second collection is longer" );
+
+        // Alignments come sorted by Reference and position
+        AlignmentIterator it = a . getAlignments ( Alignment . all );
+        String spec = "";
+        long pos = -1;
+        while ( it . nextAlignment () )
+        {
+            String s = it . getReferenceSpec ();
+            long p = it . getAlignmentPosition ();
+            check ( s . compareTo ( spec ) > 0 || s . equals ( spec ) && p >= pos, "Alignments out of order at " + it . getAlignmentId () );
+            spec = s;
+            pos = p;
+        }
+    }
+
+    private static String reverseComplement ( String bases )
+    {
+        StringBuilder sb = new StringBuilder ( bases . length () );
+        for ( int i = bases . length () - 1; i >= 0; -- i )
+            sb . append ( "TGCA" . charAt ( "ACGT" . indexOf ( bases . charAt ( i ) ) ) );
+        return sb . toString ();
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        builtCollection ();
+        generatedIsDeterministic ();
+        System . out . println ( "MemReadCollectionTest: ok" );
+    }
+
+    private static final String referenceBases =
+        "GATTACAGGCTTACGATCGATCGGATCCATGCAAGTCGATCGTAGCTAGCTAGGCTTAACGGATCCATGCTAGCTAGGATCGATCGATTTACGGCATCGA";
+}
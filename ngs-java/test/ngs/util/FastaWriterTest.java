@@ -0,0 +1,183 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.util;
+
+import ngs.ReadCollection;
+import ngs.mem.MemBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+
+/*==========================================================================
+ * FastaWriterTest
+ *  writes References in parallel blocks and checks the layout
+ *  of the file against its .fai index
+ */
+public class FastaWriterTest
+{
+
+    /* indexedFile
+     *  every base is found where the .fai index says it is
+     */
+    static void indexedFile ( Path dir )
+        throws Exception
+    {
+        ReadCollection coll = collection ();
+        Path fasta = dir . resolve ( "all.fa" );
+        try ( FastaWriter w = new FastaWriter ( 3 ) )
+        {
+            w . setLineWidth ( lineWidth );
+            w . setBlockSize ( 2 * lineWidth + 7 );
+            w . write ( coll, fasta );
+        }
+
+        byte [] file = Files . readAllBytes ( fasta );
+        check ( new String ( file, StandardCharsets . US_ASCII ) . equals ( expected () ), "file layout" );
+
+        List < String > fai = Files . readAllLines ( dir . resolve ( "all.fa.fai" ), StandardCharsets . US_ASCII );
+        check ( fai . size () == names . length, "index has " + fai . size () + " lines" );
+        for ( int r = 0; r < names . length; ++ r )
+        {
+            String [] f = fai . get ( r ) . split ( "\t" );
+            check ( f . length == 5 && f [ 0 ] . equals ( names [ r ] ), "index line " + r );
+            long length = Long . parseLong ( f [ 1 ] );
+            long offset = Long . parseLong ( f [ 2 ] );
+            int lineBases = Integer . parseInt ( f [ 3 ] );
+            int lineBytes = Integer . parseInt ( f [ 4 ] );
+            check ( length == bases [ r ] . length () && lineBases == lineWidth && lineBytes == lineWidth + 1, "index line " + r + " fields" );
+
+            String header = ">" + names [ r ] + "\n";
+            check ( new String ( file, ( int ) offset - header . length (), header . length (), StandardCharsets . US_ASCII ) . equals ( header ),
+                "no header before offset of " + names [ r ] );
+            for ( int pos = 0; pos < length; ++ pos )
+            {
+                long at = offset + pos / lineBases * lineBytes + pos % lineBases;
+                check ( file [ ( int ) at ] == bases [ r ] . charAt ( pos ), names [ r ] + " base " + pos + " misplaced" );
+            }
+        }
+    }
+
+    /* sameLayout
+     *  writing through an iterator, or each Reference on its own,
+     *  gives the same records
+     */
+    static void sameLayout ( Path dir )
+        throws Exception
+    {
+        ReadCollection coll = collection ();
+        Path fasta = dir . resolve ( "iterated.fa" );
+        Path each = Files . createDirectory ( dir . resolve ( "each" ) );
+        try ( FastaWriter w = new FastaWriter ( 2 ) )
+        {
+            w . setLineWidth ( lineWidth );
+            w . setBlockSize ( lineWidth );
+            w . write ( coll . getReferences (), fasta );
+            w . writeEach ( coll, each );
+        }
+
+        check ( new String ( Files . readAllBytes ( fasta ), StandardCharsets . US_ASCII ) . equals ( expected () ), "iterated layout" );
+        StringBuilder joined = new StringBuilder ();
+        for ( String name : names )
+            joined . append ( new String ( Files . readAllBytes ( each . resolve ( name + ".fa" ) ), StandardCharsets . US_ASCII ) );
+        check ( joined . toString () . equals ( expected () ), "layout of separate files" );
+        check ( Files . exists ( each . resolve ( names [ 0 ] + ".fa.fai" ) ), "index of a separate file" );
+    }
+
+    /* collection
+     *  References whose lengths end mid-line, at a line end and early
+     */
+    private static ReadCollection collection ()
+        throws Exception
+    {
+        MemBuilder b = new MemBuilder ( "fasta" );
+        for ( int r = 0; r < names . length; ++ r )
+            b . addReference ( names [ r ], bases [ r ] );
+        return b . build ();
+    }
+
+    private static String expected ()
+    {
+        StringBuilder sb = new StringBuilder ();
+        for ( int r = 0; r < names . length; ++ r )
+        {
+            sb . append ( '>' ) . append ( names [ r ] ) . append ( '\n' );
+            for ( int i = 0; i < bases [ r ] . length (); i += lineWidth )
+                sb . append ( bases [ r ], i, Math . min ( bases [ r ] . length (), i + lineWidth ) ) . append ( '\n' );
+        }
+        return sb . toString ();
+    }
+
+    private static String random ( int length, long seed )
+    {
+        Random rnd = new Random ( seed );
+        char [] c = new char [ length ];
+        for ( int i = 0; i < length; ++ i )
+            c [ i ] = "ACGTN" . charAt ( rnd . nextInt ( 5 ) );
+        return new String ( c );
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    private static void delete ( Path p )
+        throws Exception
+    {
+        if ( Files . isDirectory ( p ) )
+        {
+            for ( String f : p . toFile () . list () )
+                delete ( p . resolve ( f ) );
+        }
+        Files . delete ( p );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        Path dir = Files . createTempDirectory ( "ngs-test-" );
+        try
+        {
+            indexedFile ( dir );
+            sameLayout ( dir );
+            System . out . println ( "FastaWriterTest: ok" );
+        }
+        finally
+        {
+            delete ( dir );
+        }
+    }
+
+    private static final int lineWidth = 60;
+    private static final String [] names = { "chr1", "chr2", "chrM", "tiny" };
+    private static final String [] bases = { random ( 1001, 1 ), random ( 6 * lineWidth, 2 ), random ( 2 * lineWidth + 1, 3 ), "ACG" };
+}
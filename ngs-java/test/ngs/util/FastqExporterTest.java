@@ -0,0 +1,160 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.util;
+
+import ngs.ErrorMsg;
+import ngs.Read;
+import ngs.ReadCollection;
+import ngs.ReadIterator;
+import ngs.mem.MemGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+
+/*==========================================================================
+ * FastqExporterTest
+ *  exports chunks in parallel and expects the records of a single
+ *  sequential pass, in Read order
+ */
+public class FastqExporterTest
+{
+
+    /* ordered
+     *  plain, gzip and BGZF output hold the same records in order
+     */
+    static void ordered ( Path dir, ReadCollection coll )
+        throws Exception
+    {
+        String expected = sequential ( coll, 1, coll . getReadCount (), Read . all, false );
+        int [] modes = { FastqExporter . plain, FastqExporter . gzip, FastqExporter . bgzf };
+        for ( int mode : modes )
+        {
+            Path fastq = dir . resolve ( "reads." + mode + ".fastq" );
+            try ( FastqExporter e = new FastqExporter ( 3, 2 ) )
+            {
+                e . setChunkSize ( 97 );
+                e . setCompression ( mode, 1 );
+                check ( e . export ( coll, fastq ) == coll . getReadCount (), "wrong number of records, compression " + mode );
+            }
+            check ( read ( fastq, mode != FastqExporter . plain ) . equals ( expected ), "records differ, compression " + mode );
+        }
+    }
+
+    /* selected
+     *  a range of Reads of one category, split into Fragments
+     */
+    static void selected ( Path dir, ReadCollection coll )
+        throws Exception
+    {
+        long first = 101;
+        long count = 777;
+        String expected = sequential ( coll, first, count, Read . unaligned, true );
+        Path fastq = dir . resolve ( "split.fastq" );
+        try ( FastqExporter e = new FastqExporter ( 2, 1 ) )
+        {
+            e . setChunkSize ( 50 );
+            e . setCategories ( Read . unaligned );
+            e . setSplit ( true );
+            long n = e . export ( coll, first, count, fastq );
+            check ( n * 4 == expected . split ( "\n" ) . length, "wrong number of Fragment records" );
+        }
+        check ( read ( fastq, false ) . equals ( expected ), "Fragment records differ" );
+    }
+
+    /* sequential
+     *  the records of a range, formatted one Read at a time
+     */
+    private static String sequential ( ReadCollection coll, long first, long count, int categories, boolean split )
+        throws ErrorMsg
+    {
+        StringBuilder sb = new StringBuilder ();
+        ReadIterator it = coll . getReadRange ( first, count, categories );
+        while ( it . nextRead () )
+        {
+            if ( ! split )
+            {
+                record ( sb, it . getReadId (), it . getReadBases (), it . getReadQualities () );
+                continue;
+            }
+            while ( it . nextFragment () )
+                record ( sb, it . getFragmentId (), it . getFragmentBases (), it . getFragmentQualities () );
+        }
+        return sb . toString ();
+    }
+
+    private static void record ( StringBuilder sb, String id, String bases, String qualities )
+    {
+        sb . append ( '@' ) . append ( id ) . append ( '\n' ) . append ( bases ) . append ( '\n' )
+            . append ( '+' ) . append ( id ) . append ( '\n' ) . append ( qualities ) . append ( '\n' );
+    }
+
+    private static String read ( Path fastq, boolean compressed )
+        throws Exception
+    {
+        if ( ! compressed )
+            return new String ( Files . readAllBytes ( fastq ), StandardCharsets . US_ASCII );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream ();
+        try ( InputStream in = new GZIPInputStream ( Files . newInputStream ( fastq ) ) )
+        {
+            byte [] buf = new byte [ 1 << 16 ];
+            for ( int n; ( n = in . read ( buf ) ) > 0; )
+                out . write ( buf, 0, n );
+        }
+        return new String ( out . toByteArray (), StandardCharsets . US_ASCII );
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        ReadCollection coll = MemGenerator . parse ( "references=2,referenceLength=50000,reads=2000,paired=true,aligned=0.7" ) . generate ();
+        Path dir = Files . createTempDirectory ( "ngs-test-" );
+        try
+        {
+            ordered ( dir, coll );
+            selected ( dir, coll );
+            System . out . println ( "FastqExporterTest: ok" );
+        }
+        finally
+        {
+            for ( String f : dir . toFile () . list () )
+                Files . delete ( dir . resolve ( f ) );
+            Files . delete ( dir );
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.util;
+
+import ngs.Alignment;
+import ngs.AlignmentIterator;
+import ngs.ErrorMsg;
+import ngs.Read;
+import ngs.ReadCollection;
+import ngs.ReadIterator;
+import ngs.mem.MemGenerator;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/*==========================================================================
+ * LookupServiceTest
+ *  concurrent lookups share a bounded pool of collections
+ */
+public class LookupServiceTest
+{
+
+    /* concurrent
+     *  lookups from many threads find their objects, opening no
+     *  more collections than allowed
+     */
+    static void concurrent ( ReadCollection coll )
+        throws Exception
+    {
+        ArrayList < String > ids = new ArrayList < String > ();
+        ArrayList < String > bases = new ArrayList < String > ();
+        ReadIterator reads = coll . getReads ( Read . all );
+        while ( reads . nextRead () )
+        {
+            ids . add ( reads . getReadId () );
+            bases . add ( reads . getReadBases () );
+        }
+        AlignmentIterator aligns = coll . getAlignments ( Alignment . all );
+        check ( aligns . nextAlignment (), "no Alignments" );
+        String alignmentId = aligns . getAlignmentId ();
+        long alignmentPos = aligns . getAlignmentPosition ();
+
+        AtomicInteger opened = new AtomicInteger ();
+        ExecutorService pool = Executors . newFixedThreadPool ( 8 );
+        try ( LookupService service = new LookupService ( () -> { opened . incrementAndGet (); return coll; }, 2 ) )
+        {
+            ArrayList < Future < Boolean > > results = new ArrayList < Future < Boolean > > ();
+            for ( int t = 0; t < 8; ++ t )
+            {
+                Random rnd = new Random ( t );
+                results . add ( pool . submit ( () ->
+                    {
+                        for ( int i = 0; i < 200; ++ i )
+                        {
+                            int r = rnd . nextInt ( ids . size () );
+                            if ( ! service . read ( ids . get ( r ), Read :: getReadBases ) . equals ( bases . get ( r ) ) )
+                                return false;
+                        }
+                        return service . alignment ( alignmentId, Alignment :: getAlignmentPosition ) == alignmentPos;
+                    } ) );
+            }
+            for ( Future < Boolean > f : results )
+                check ( f . get (), "a lookup found the wrong object" );
+
+            try
+            {
+                service . read ( "no such Read", Read :: getReadBases );
+                check ( false, "missing Read found" );
+            }
+            catch ( ErrorMsg x )
+            {
+            }
+
+            check ( opened . get () <= 2 && service . getOpenCount () == opened . get (), "opened " + opened . get () + " collections" );
+            check ( service . getReadMetrics () . getCount () == 8 * 200, "lookups not counted" );
+            check ( service . getReadMetrics () . getErrors () == 1, "failed lookup not counted" );
+            check ( service . getAlignmentMetrics () . getCount () == 8, "Alignment lookups not counted" );
+        }
+        finally
+        {
+            pool . shutdownNow ();
+        }
+    }
+
+    /* closeWakesWaiters
+     *  a lookup waiting for a collection in use fails upon close,
+     *  and the collection is closed once returned
+     */
+    static void closeWakesWaiters ( ReadCollection coll )
+        throws Exception
+    {
+        String id = first ( coll );
+        LookupService service = new LookupService ( () -> coll, 1 );
+        CountDownLatch holding = new CountDownLatch ( 1 );
+        CountDownLatch release = new CountDownLatch ( 1 );
+        ExecutorService pool = Executors . newFixedThreadPool ( 2 );
+        try
+        {
+            Future < String > holder = pool . submit ( () -> service . read ( id, r ->
+                {
+                    holding . countDown ();
+                    await ( release );
+                    return r . getReadId ();
+                } ) );
+            check ( holding . await ( 10, TimeUnit . SECONDS ), "first lookup did not start" );
+
+            Future < String > waiter = pool . submit ( () -> service . read ( id, Read :: getReadId ) );
+            Thread . sleep ( 100 );
+            check ( ! waiter . isDone (), "second lookup did not wait" );
+
+            service . close ();
+            try
+            {
+                waiter . get ( 10, TimeUnit . SECONDS );
+                check ( false, "waiting lookup succeeded after close" );
+            }
+            catch ( ExecutionException x )
+            {
+                check ( x . getCause () instanceof IllegalStateException, "waiting lookup failed with " + x . getCause () );
+            }
+
+            release . countDown ();
+            check ( holder . get ( 10, TimeUnit . SECONDS ) . equals ( id ), "lookup in progress was disturbed" );
+            check ( service . getOpenCount () == 0, "collection in use not closed when returned" );
+        }
+        finally
+        {
+            release . countDown ();
+            pool . shutdownNow ();
+        }
+    }
+
+    private static String first ( ReadCollection coll )
+        throws ErrorMsg
+    {
+        ReadIterator it = coll . getReads ( Read . all );
+        check ( it . nextRead (), "no Reads" );
+        return it . getReadId ();
+    }
+
+    private static void await ( CountDownLatch latch )
+        throws ErrorMsg
+    {
+        try
+        {
+            latch . await ();
+        }
+        catch ( InterruptedException x )
+        {
+            throw new ErrorMsg ( "interrupted" );
+        }
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        ReadCollection coll = MemGenerator . parse ( "references=1,referenceLength=20000,reads=500" ) . generate ();
+        concurrent ( coll );
+        closeWakesWaiters ( coll );
+        System . out . println ( "LookupServiceTest: ok" );
+    }
+}
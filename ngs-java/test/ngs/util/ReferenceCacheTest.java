@@ -0,0 +1,196 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+package ngs.util;
+
+import ngs.ErrorMsg;
+import ngs.ReadCollection;
+import ngs.Reference;
+import ngs.mem.MemBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+
+/*==========================================================================
+ * ReferenceCacheTest
+ *  packs bases into chunks and evicts them in LRU order
+ */
+public class ReferenceCacheTest
+{
+
+    /* packedBases
+     *  lower case reads back in upper case, anything else as 'N'
+     */
+    static void packedBases ()
+    {
+        String bases = "acgTNRYacgtACGTAcGtnACGTACGTACGTA";
+        String expected = bases . toUpperCase () . replaceAll ( "[^ACGT]", "N" );
+        PackedBases p = new PackedBases ( bases );
+        check ( p . length () == bases . length (), "wrong length" );
+        for ( int from = 0; from < bases . length (); ++ from )
+        {
+            for ( int count = 0; from + count <= bases . length (); ++ count )
+            {
+                byte [] dst = new byte [ count + 2 ];
+                p . copy ( from, count, dst, 1 );
+                check ( new String ( dst, 1, count, StandardCharsets . US_ASCII ) . equals ( expected . substring ( from, from + count ) ),
+                    "copy of " + count + " from " + from );
+            }
+            check ( p . baseAt ( from ) == expected . charAt ( from ), "base at " + from );
+        }
+
+        PackedBases plain = new PackedBases ( "ACGTACGTA" );
+        check ( plain . footprint () == 3, "footprint " + plain . footprint () + " of 9 unambiguous bases" );
+    }
+
+    /* chunkBoundaries
+     *  ranges spanning several chunks read back whole
+     */
+    static void chunkBoundaries ()
+        throws ErrorMsg
+    {
+        String bases = random ( 10000, 1 );
+        Reference ref = reference ( "chr1", bases );
+        ReferenceCache cache = new ReferenceCache ( 1 << 20, 64 );
+        CachedReference c = cache . get ( ref );
+        Random rnd = new Random ( 2 );
+        for ( int i = 0; i < 1000; ++ i )
+        {
+            int pos = rnd . nextInt ( bases . length () );
+            int len = rnd . nextInt ( 300 );
+            String expected = bases . substring ( pos, Math . min ( bases . length (), pos + len ) );
+            check ( c . getReferenceBases ( pos, len ) . equals ( expected ), "bases " + pos + "/" + len );
+            check ( c . baseAt ( pos ) == bases . charAt ( pos ), "base at " + pos );
+        }
+        check ( cache . getMisses () == ( bases . length () + 63 ) / 64, "chunks fetched more than once" );
+    }
+
+    /* leastRecentlyUsed
+     *  capacity for 4 chunks: the 5th evicts the one used longest ago
+     */
+    static void leastRecentlyUsed ()
+        throws ErrorMsg
+    {
+        Reference ref = reference ( "chr1", random ( 1024, 3 ) );
+        ReferenceCache cache = new ReferenceCache ( 4 * 16, 64 );
+
+        for ( int chunk = 0; chunk < 4; ++ chunk )
+            cache . get ( ref ) . baseAt ( chunk * 64 );
+        check ( cache . getSize () == 64 && cache . getMisses () == 4, "4 chunks not cached" );
+
+        // touch chunk 0, so that chunk 1 is the eldest
+        cache . get ( ref ) . baseAt ( 0 );
+        cache . get ( ref ) . baseAt ( 4 * 64 );
+        check ( cache . getSize () == 64, "capacity exceeded: " + cache . getSize () );
+        check ( cache . getHits () == 1 && cache . getMisses () == 5, "chunk 0 not served from the cache" );
+
+        cache . get ( ref ) . baseAt ( 0 );
+        check ( cache . getHits () == 2, "chunk 0 was evicted" );
+        cache . get ( ref ) . baseAt ( 64 );
+        check ( cache . getMisses () == 6, "chunk 1 was not evicted" );
+
+        cache . clear ();
+        check ( cache . getSize () == 0, "clear left chunks" );
+    }
+
+    /* sources
+     *  References of the same name are only shared within a source
+     */
+    static void sources ()
+        throws ErrorMsg
+    {
+        String a = random ( 256, 4 );
+        String b = random ( 256, 5 );
+        Reference refA = reference ( "chr1", a );
+        Reference refB = reference ( "chr1", b );
+        Object sourceA = new Object ();
+        Object sourceB = new Object ();
+
+        ReferenceCache cache = new ReferenceCache ( 1 << 20, 64 );
+        check ( cache . get ( refA, sourceA ) . getReferenceBases ( 0, 256 ) . equals ( a ), "bases of source A" );
+        check ( cache . get ( refB, sourceB ) . getReferenceBases ( 0, 256 ) . equals ( b ), "bases of source B" );
+        check ( cache . get ( refB, sourceA ) . getReferenceBases ( 0, 256 ) . equals ( a ), "chunks not shared within a source" );
+        check ( cache . getMisses () == 8, "wrong number of chunks fetched" );
+    }
+
+    /* collectedSource
+     *  chunks of a source that is no longer reachable are evicted
+     */
+    static void collectedSource ()
+        throws Exception
+    {
+        Reference ref = reference ( "chr1", random ( 64 * 64, 6 ) );
+        ReferenceCache cache = new ReferenceCache ( 1 << 20, 64 );
+        cache . get ( ref, new Object () ) . getReferenceBases ( 0, 64 * 32 );
+        check ( cache . getSize () == 32 * 16, "chunks of the dropped source not cached" );
+
+        // eviction happens when another chunk is added
+        Object live = new Object ();
+        for ( int i = 0; i < 32 && cache . getSize () > i * 16; ++ i )
+        {
+            System . gc ();
+            Thread . sleep ( 20 );
+            cache . get ( ref, live ) . baseAt ( i * 64 );
+        }
+        check ( cache . getSize () < 32 * 16, "chunks of a collected source kept" );
+    }
+
+    private static Reference reference ( String name, String bases )
+        throws ErrorMsg
+    {
+        MemBuilder b = new MemBuilder ( "cache" );
+        b . addReference ( name, bases );
+        ReadCollection coll = b . build ();
+        return coll . getReference ( name );
+    }
+
+    private static String random ( int length, long seed )
+    {
+        Random rnd = new Random ( seed );
+        char [] c = new char [ length ];
+        for ( int i = 0; i < length; ++ i )
+            c [ i ] = "ACGT" . charAt ( rnd . nextInt ( 4 ) );
+        return new String ( c );
+    }
+
+    private static void check ( boolean ok, String what )
+    {
+        if ( ! ok )
+            throw new AssertionError ( what );
+    }
+
+    public static void main ( String [] args )
+        throws Exception
+    {
+        packedBases ();
+        chunkBoundaries ();
+        leastRecentlyUsed ();
+        sources ();
+        collectedSource ();
+        System . out . println ( "ReferenceCacheTest: ok" );
+    }
+}
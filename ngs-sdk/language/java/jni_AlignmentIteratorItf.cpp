@@ -27,11 +27,15 @@
 #include "jni_AlignmentIteratorItf.h"
 #include "jni_ErrorMsg.hpp"
 #include "jni_String.hpp"
+#include "jni_Cigar.hpp"
 
 #include <ngs/itf/FragmentItf.hpp>
 #include <ngs/itf/AlignmentItf.hpp>
 #include <ngs/itf/StringItf.hpp>
 
+#include <string>
+#include <vector>
+
 using namespace ngs;
 
 static
@@ -70,3 +74,144 @@ JNIEXPORT jboolean JNICALL Java_ngs_itf_AlignmentIteratorItf_NextAlignment
 
     return false;
 }
+
+/* InternSpec
+ *  return the number of "spec" within "specs", adding it if new
+ *  alignments are usually grouped by reference, so check the last one first
+ *  releases "spec"
+ */
+static
+jint InternSpec ( StringItf * spec, std :: vector < std :: string > & specs )
+{
+    std :: string value ( spec -> data (), spec -> size () );
+    spec -> Release ();
+
+    if ( ! specs . empty () && specs . back () == value )
+        return ( jint ) specs . size () - 1;
+
+    for ( size_t i = 0; i < specs . size (); ++ i )
+    {
+        if ( specs [ i ] == value )
+            return ( jint ) i;
+    }
+
+    specs . push_back ( value );
+    return ( jint ) specs . size () - 1;
+}
+
+/*
+ * Class:     ngs_itf_AlignmentIteratorItf
+ * Method:    NextAlignmentBatch
+ * Signature: (JZZIII[J[J[I[I[I[I[I[I[Ljava/lang/String;[I)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentIteratorItf_NextAlignmentBatch
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jboolean resume, jboolean clipped, jint start, jint max, jint used,
+      jlongArray jpositions, jlongArray jlengths, jintArray jmapq, jintArray jcategories, jintArray jflags,
+      jintArray jref_indexes, jintArray jcigar_offsets, jintArray jcigar_ops, jobjectArray jspecs, jintArray jstatus )
+{
+    try
+    {
+        AlignmentItf * self = Self ( ( size_t ) jself );
+
+        jint capacity = jenv -> GetArrayLength ( jcigar_ops );
+        jint first_op = used;
+        jint status [ 2 ] = { 0, 0 };
+
+        /* gather all columns locally and
+           copy them back to Java once at the end */
+        std :: vector < jlong > positions;
+        std :: vector < jlong > lengths;
+        std :: vector < jint > mapq;
+        std :: vector < jint > categories;
+        std :: vector < jint > flags;
+        std :: vector < jint > ref_indexes;
+        std :: vector < jint > cigar_offsets;
+        std :: vector < jint > cigar_ops;
+        std :: vector < std :: string > specs;
+
+        jint count = start;
+        bool advance = ! resume;
+        while ( count < max )
+        {
+            if ( advance && ! self -> nextAlignment () )
+                break;
+            advance = true;
+
+            size_t ops_before = cigar_ops . size ();
+            CigarConvertFromStringItf ( self -> getShortCigar ( clipped != 0 ), cigar_ops );
+            size_t num_ops = cigar_ops . size () - ops_before;
+            if ( num_ops > ( size_t ) ( capacity - used ) )
+            {
+                /* leave the cursor on this Alignment
+                   and have the caller make room for it */
+                cigar_ops . resize ( ops_before );
+                status [ 0 ] = ( jint ) num_ops;
+                break;
+            }
+
+            /* AlignmentBatch flags: reversed, hasMate, mateReversed */
+            jint bits = 0;
+            if ( self -> getIsReversedOrientation () )
+                bits |= 1;
+            if ( self -> hasMate () )
+            {
+                bits |= 2;
+                if ( self -> getMateIsReversedOrientation () )
+                    bits |= 4;
+            }
+
+            positions . push_back ( ( jlong ) self -> getAlignmentPosition () );
+            lengths . push_back ( ( jlong ) self -> getAlignmentLength () );
+            mapq . push_back ( ( jint ) self -> getMappingQuality () );
+            categories . push_back ( ( jint ) self -> getAlignmentCategory () );
+            flags . push_back ( bits );
+            ref_indexes . push_back ( InternSpec ( self -> getReferenceSpec (), specs ) );
+
+            used += ( jint ) num_ops;
+            cigar_offsets . push_back ( used );
+            ++ count;
+        }
+
+        jint filled = count - start;
+        if ( filled > 0 )
+        {
+            jenv -> SetLongArrayRegion ( jpositions, start, filled, & positions [ 0 ] );
+            jenv -> SetLongArrayRegion ( jlengths, start, filled, & lengths [ 0 ] );
+            jenv -> SetIntArrayRegion ( jmapq, start, filled, & mapq [ 0 ] );
+            jenv -> SetIntArrayRegion ( jcategories, start, filled, & categories [ 0 ] );
+            jenv -> SetIntArrayRegion ( jflags, start, filled, & flags [ 0 ] );
+            jenv -> SetIntArrayRegion ( jref_indexes, start, filled, & ref_indexes [ 0 ] );
+            jenv -> SetIntArrayRegion ( jcigar_offsets, start + 1, filled, & cigar_offsets [ 0 ] );
+            if ( ! cigar_ops . empty () )
+                jenv -> SetIntArrayRegion ( jcigar_ops, first_op, ( jsize ) cigar_ops . size (), & cigar_ops [ 0 ] );
+        }
+
+        for ( size_t i = 0; i < specs . size (); ++ i )
+        {
+            jstring jspec = jenv -> NewStringUTF ( specs [ i ] . c_str () );
+            if ( jspec == 0 )
+                return 0;
+            jenv -> SetObjectArrayElement ( jspecs, ( jsize ) i, jspec );
+            jenv -> DeleteLocalRef ( jspec );
+        }
+
+        status [ 1 ] = ( jint ) specs . size ();
+        jenv -> SetIntArrayRegion ( jstatus, 0, 2, status );
+
+        return count;
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
@@ -15,6 +15,14 @@ extern "C" {
 JNIEXPORT jboolean JNICALL Java_ngs_itf_AlignmentIteratorItf_NextAlignment
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     ngs_itf_AlignmentIteratorItf
+ * Method:    NextAlignmentBatch
+ * Signature: (JZZIII[J[J[I[I[I[I[I[I[Ljava/lang/String;[I)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentIteratorItf_NextAlignmentBatch
+  (JNIEnv *, jobject, jlong, jboolean, jboolean, jint, jint, jint, jlongArray, jlongArray, jintArray, jintArray, jintArray, jintArray, jintArray, jintArray, jobjectArray, jintArray);
+
 #ifdef __cplusplus
 }
 #endif
@@ -27,6 +27,7 @@
 #include "jni_AlignmentItf.h"
 #include "jni_ErrorMsg.hpp"
 #include "jni_String.hpp"
+#include "jni_Cigar.hpp"
 
 #include <ngs/itf/FragmentItf.hpp>
 #include <ngs/itf/AlignmentItf.hpp>
@@ -134,6 +135,186 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualities
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentBasesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentBases ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentBasesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentBases ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualitiesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualitiesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualityScoresBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertQualitiesToJByteArray ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualityScoresBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertQualitiesToJBuffer ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    IsPaired
@@ -239,6 +420,35 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetReferenceSpec
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetReferenceSpecBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetReferenceSpecBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        StringItf * new_ref = Self ( jself ) -> getReferenceSpec ();
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetMappingQuality
@@ -325,6 +535,35 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetReadGroup
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetReadGroupBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetReadGroupBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        StringItf * new_ref = Self ( jself ) -> getReadGroup ();
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetReadId
@@ -412,6 +651,35 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetClippedFragmentQualities
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetClippedFragmentQualityScoresBytes
+ * Signature: (JI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetClippedFragmentQualityScoresBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jint binning, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        StringItf * new_ref = Self ( jself ) -> getClippedFragmentQualities ();
+        return StringItfConvertQualitiesToJByteArray ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetAlignedFragmentBases
@@ -667,6 +935,37 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetLongCigar
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetCigarOps
+ * Signature: (JZZ[III)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetCigarOps
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jboolean clipped, jboolean long_form, jintArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        StringItf * new_ref = long_form ?
+            Self ( jself ) -> getLongCigar ( clipped ? true : false ) :
+            Self ( jself ) -> getShortCigar ( clipped ? true : false );
+        return CigarCopyToJIntArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetRNAOrientation
@@ -801,6 +1100,35 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetMateReferenceSpec
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetMateReferenceSpecBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetMateReferenceSpecBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        StringItf * new_ref = Self ( jself ) -> getMateReferenceSpec ();
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetMateIsReversedOrientation
@@ -31,6 +31,54 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetFragmentBases
 JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualities
   (JNIEnv *, jobject, jlong, jlong, jlong);
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentBasesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentBasesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualitiesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualitiesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualityScoresBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetFragmentQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetFragmentQualityScoresBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jobject, jint, jint);
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    IsPaired
@@ -55,6 +103,14 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetAlignmentId
 JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetReferenceSpec
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetReferenceSpecBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetReferenceSpecBytes
+  (JNIEnv *, jobject, jlong, jbyteArray, jint, jint);
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetMappingQuality
@@ -79,6 +135,14 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetReferenceBases
 JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetReadGroup
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetReadGroupBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetReadGroupBytes
+  (JNIEnv *, jobject, jlong, jbyteArray, jint, jint);
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetReadId
@@ -103,6 +167,14 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetClippedFragmentBases
 JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetClippedFragmentQualities
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetClippedFragmentQualityScoresBytes
+ * Signature: (JI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetClippedFragmentQualityScoresBytes
+  (JNIEnv *, jobject, jlong, jint, jbyteArray, jint, jint);
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetAlignedFragmentBases
@@ -175,6 +247,14 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetShortCigar
 JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetLongCigar
   (JNIEnv *, jobject, jlong, jboolean);
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetCigarOps
+ * Signature: (JZZ[III)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetCigarOps
+  (JNIEnv *, jobject, jlong, jboolean, jboolean, jintArray, jint, jint);
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetRNAOrientation
@@ -215,6 +295,14 @@ JNIEXPORT jlong JNICALL Java_ngs_itf_AlignmentItf_GetMateAlignment
 JNIEXPORT jstring JNICALL Java_ngs_itf_AlignmentItf_GetMateReferenceSpec
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     ngs_itf_AlignmentItf
+ * Method:    GetMateReferenceSpecBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_AlignmentItf_GetMateReferenceSpecBytes
+  (JNIEnv *, jobject, jlong, jbyteArray, jint, jint);
+
 /*
  * Class:     ngs_itf_AlignmentItf
  * Method:    GetMateIsReversedOrientation
@@ -0,0 +1,112 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+#include "jni_Cigar.hpp"
+
+#include <ngs/itf/ErrorMsg.hpp>
+#include <ngs/itf/StringItf.hpp>
+
+#include <string>
+
+using namespace ngs;
+
+
+/*--------------------------------------------------------------------------
+ * Cigar
+ */
+
+
+/* Encode
+ *  append the packed operations of a CIGAR text to "ops"
+ */
+void CigarEncode ( const char * text, size_t size, std :: vector < jint > & ops )
+{
+    static const char op_chars [] = "MIDNSHP=X";
+
+    jint length = 0;
+    bool have_length = false;
+    for ( size_t i = 0; i < size; ++ i )
+    {
+        char ch = text [ i ];
+        if ( ch >= '0' && ch <= '9' )
+        {
+            length = length * 10 + ( ch - '0' );
+            have_length = true;
+            continue;
+        }
+
+        jint op = 0;
+        while ( op_chars [ op ] != 0 && op_chars [ op ] != ch )
+            ++ op;
+
+        if ( op_chars [ op ] == 0 || ! have_length )
+            throw ErrorMsg ( "invalid CIGAR string '" + std :: string ( text, size ) + "'" );
+
+        ops . push_back ( ( length << 4 ) | op );
+
+        length = 0;
+        have_length = false;
+    }
+
+    if ( have_length )
+        throw ErrorMsg ( "invalid CIGAR string '" + std :: string ( text, size ) + "'" );
+}
+
+
+/* ConvertFromStringItf
+ *  append the packed operations of a StringItf holding CIGAR text to "ops"
+ */
+void CigarConvertFromStringItf ( StringItf * self, std :: vector < jint > & ops )
+{
+    try
+    {
+        CigarEncode ( self -> data (), self -> size (), ops );
+    }
+    catch ( ... )
+    {
+        self -> Release ();
+        throw;
+    }
+
+    self -> Release ();
+}
+
+
+/* CopyToJIntArray
+ *  store packed operations into a Java int []
+ */
+jint CigarCopyToJIntArray ( StringItf * self, JNIEnv * jenv, jintArray jdst, jint dst_offset, jint dst_size )
+{
+    std :: vector < jint > ops;
+    CigarConvertFromStringItf ( self, ops );
+
+    jint count = ( jint ) ops . size ();
+    jint copy = count < dst_size ? count : dst_size;
+    if ( copy > 0 )
+        jenv -> SetIntArrayRegion ( jdst, dst_offset, copy, & ops [ 0 ] );
+
+    return count;
+}
@@ -0,0 +1,76 @@
+/*===========================================================================
+*
+*                            PUBLIC DOMAIN NOTICE
+*               National Center for Biotechnology Information
+*
+*  This software/database is a "United States Government Work" under the
+*  terms of the United States Copyright Act.  It was written as part of
+*  the author's official duties as a United States Government employee and
+*  thus cannot be copyrighted.  This software/database is freely available
+*  to the public for use. The National Library of Medicine and the U.S.
+*  Government have not placed any restriction on its use or reproduction.
+*
+*  Although all reasonable efforts have been taken to ensure the accuracy
+*  and reliability of the software and data, the NLM and the U.S.
+*  Government do not and cannot warrant the performance or results that
+*  may be obtained by using this software or data. The NLM and the U.S.
+*  Government disclaim all warranties, express or implied, including
+*  warranties of performance, merchantability or fitness for any particular
+*  purpose.
+*
+*  Please cite the author in any work or product based on this material.
+*
+* ===========================================================================
+*
+*/
+
+#ifndef _hpp_jni_Cigar_
+#define _hpp_jni_Cigar_
+
+#ifndef _h_ngs_itf_defs_
+#include <ngs/itf/defs.h>
+#endif
+
+#include "jni.h"
+
+#include <vector>
+
+
+/*--------------------------------------------------------------------------
+ * forwards
+ */
+namespace ngs
+{
+    class StringItf;
+}
+
+/*--------------------------------------------------------------------------
+ * Cigar
+ *  CIGAR text encoded as BAM-style packed operations ( len << 4 ) | op
+ */
+
+
+/* Encode
+ *  append the packed operations of a CIGAR text to "ops"
+ *  throws ngs :: ErrorMsg upon an invalid CIGAR
+ */
+void CigarEncode ( const char * text, size_t size, :: std :: vector < jint > & ops );
+
+
+/* ConvertFromStringItf
+ *  append the packed operations of a StringItf holding CIGAR text to "ops"
+ *  releases "self"
+ */
+void CigarConvertFromStringItf ( ngs :: StringItf * self, :: std :: vector < jint > & ops );
+
+
+/* CopyToJIntArray
+ *  store the packed operations of a StringItf holding CIGAR text
+ *  into "jdst" starting at "dst_offset", at most "dst_size" of them
+ *  returns the total number of operations
+ *  releases "self"
+ */
+jint CigarCopyToJIntArray ( ngs :: StringItf * self, JNIEnv * jenv, jintArray jdst, jint dst_offset, jint dst_size );
+
+
+#endif /* _hpp_jni_Cigar_ */
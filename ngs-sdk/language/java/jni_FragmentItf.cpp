@@ -131,6 +131,186 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualities
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentBasesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentBases ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentBasesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentBases ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualitiesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualitiesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualityScoresBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertQualitiesToJByteArray ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualityScoresBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertQualitiesToJBuffer ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_FragmentItf
  * Method:    IsPaired
@@ -31,6 +31,54 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_FragmentItf_GetFragmentBases
 JNIEXPORT jstring JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualities
   (JNIEnv *, jobject, jlong, jlong, jlong);
 
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentBasesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentBasesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualitiesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualitiesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualityScoresBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_FragmentItf
+ * Method:    GetFragmentQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_FragmentItf_GetFragmentQualityScoresBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jobject, jint, jint);
+
 /*
  * Class:     ngs_itf_FragmentItf
  * Method:    IsPaired
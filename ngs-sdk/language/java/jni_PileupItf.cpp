@@ -487,6 +487,35 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_PileupItf_GetReferenceSpec
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_PileupItf
+ * Method:    GetReferenceSpecBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_PileupItf_GetReferenceSpecBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        StringItf * new_ref = Self ( jself ) -> getReferenceSpec ();
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_PileupItf
  * Method:    GetReferencePosition
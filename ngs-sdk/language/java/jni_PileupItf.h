@@ -127,6 +127,14 @@ JNIEXPORT void JNICALL Java_ngs_itf_PileupItf_ResetPileupEvent
 JNIEXPORT jstring JNICALL Java_ngs_itf_PileupItf_GetReferenceSpec
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     ngs_itf_PileupItf
+ * Method:    GetReferenceSpecBytes
+ * Signature: (J[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_PileupItf_GetReferenceSpecBytes
+  (JNIEnv *, jobject, jlong, jbyteArray, jint, jint);
+
 /*
  * Class:     ngs_itf_PileupItf
  * Method:    GetReferencePosition
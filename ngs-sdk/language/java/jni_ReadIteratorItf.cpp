@@ -29,6 +29,12 @@
 #include "jni_String.hpp"
 
 #include <ngs/itf/ReadItf.hpp>
+#include <ngs/itf/StringItf.hpp>
+
+#include <string>
+#include <vector>
+
+#include <string.h>
 
 using namespace ngs;
 
@@ -68,3 +74,234 @@ JNIEXPORT jboolean JNICALL Java_ngs_itf_ReadIteratorItf_NextRead
 
     return false;
 }
+
+/* ReadFilter
+ *  criteria of an ngs.ReadFilter, evaluated without
+ *  crossing back into Java for rejected Reads
+ */
+class ReadFilter
+{
+public:
+
+    ReadFilter ( JNIEnv * jenv, jboolean filtered, jbyteArray jgroup, jlong min_length,
+                 jint min_mean_quality, jdouble max_n_fraction, jboolean paired_only )
+        : active ( filtered != 0 )
+        , has_group ( jgroup != 0 )
+        , min_length ( min_length )
+        , min_mean_quality ( min_mean_quality )
+        , max_n_fraction ( max_n_fraction )
+        , paired_only ( paired_only != 0 )
+    {
+        if ( has_group )
+        {
+            jsize size = jenv -> GetArrayLength ( jgroup );
+            group . resize ( size );
+            if ( size > 0 )
+                jenv -> GetByteArrayRegion ( jgroup, 0, size, ( jbyte* ) & group [ 0 ] );
+        }
+    }
+
+    /* Next
+     *  advance to the next Read accepted by the criteria
+     */
+    bool Next ( ReadItf * self ) const
+    {
+        while ( self -> nextRead () )
+        {
+            if ( ! active || Accepts ( self ) )
+                return true;
+        }
+        return false;
+    }
+
+private:
+
+    /* Accepts
+     *  fetch only those properties the criteria look at, cheapest first
+     */
+    bool Accepts ( ReadItf * self ) const
+    {
+        if ( paired_only && self -> getNumFragments () < 2 )
+            return false;
+
+        if ( has_group )
+        {
+            StringItf * name = self -> getReadGroup ();
+            bool same = name -> size () == group . size () &&
+                memcmp ( name -> data (), group . data (), group . size () ) == 0;
+            name -> Release ();
+            if ( ! same )
+                return false;
+        }
+
+        if ( min_length <= 0 && min_mean_quality <= 0 && max_n_fraction >= 1 )
+            return true;
+
+        StringItf * bases = self -> getReadBases ();
+        size_t size = bases -> size ();
+        const char * data = bases -> data ();
+        jlong n_count = 0;
+        for ( size_t i = 0; i < size; ++ i )
+        {
+            if ( data [ i ] == 'N' || data [ i ] == 'n' )
+                ++ n_count;
+        }
+        bases -> Release ();
+
+        jlong length = ( jlong ) size;
+        if ( length < min_length || n_count > max_n_fraction * length )
+            return false;
+
+        if ( min_mean_quality > 0 )
+        {
+            StringItf * qualities = self -> getReadQualities ();
+            const char * q = qualities -> data ();
+            jlong sum = 0;
+            for ( size_t i = 0, end = qualities -> size (); i < end; ++ i )
+                sum += q [ i ] - 33;
+            qualities -> Release ();
+
+            if ( sum < ( jlong ) min_mean_quality * length )
+                return false;
+        }
+
+        return true;
+    }
+
+    bool active;
+    bool has_group;
+    std :: string group;
+    jlong min_length;
+    jint min_mean_quality;
+    jdouble max_n_fraction;
+    bool paired_only;
+};
+
+/*
+ * Class:     ngs_itf_ReadIteratorItf
+ * Method:    NextFilteredRead
+ * Signature: (J[BJIDZ)Z
+ */
+JNIEXPORT jboolean JNICALL Java_ngs_itf_ReadIteratorItf_NextFilteredRead
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jbyteArray jgroup, jlong min_length,
+      jint min_mean_quality, jdouble max_n_fraction, jboolean paired_only )
+{
+    try
+    {
+        ReadFilter filter ( jenv, true, jgroup, min_length, min_mean_quality, max_n_fraction, paired_only );
+        return filter . Next ( Self ( jself ) );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return false;
+}
+
+/* CopyToBatch
+ *  copy a StringItf into a batch array at "offset"
+ *  copies no more than "size" bytes
+ *  releases "str"
+ */
+static
+void CopyToBatch ( JNIEnv * jenv, StringItf * str, jbyteArray jdst, jint offset, jint size )
+{
+    size_t str_size = str -> size ();
+    if ( str_size < ( size_t ) size )
+        size = ( jint ) str_size;
+    if ( size > 0 )
+        jenv -> SetByteArrayRegion ( jdst, offset, size, ( const jbyte* ) str -> data () );
+    str -> Release ();
+}
+
+/*
+ * Class:     ngs_itf_ReadIteratorItf
+ * Method:    NextReadBatch
+ * Signature: (JZIII[I[I[I[B[B[IZ[BJIDZ)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadIteratorItf_NextReadBatch
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jboolean resume, jint start, jint max, jint used,
+      jintArray joffsets, jintArray jcategories, jintArray jfragments,
+      jbyteArray jbases, jbyteArray jqualities, jintArray jpending,
+      jboolean filtered, jbyteArray jgroup, jlong min_length,
+      jint min_mean_quality, jdouble max_n_fraction, jboolean paired_only )
+{
+    try
+    {
+        ReadItf * self = Self ( jself );
+        ReadFilter filter ( jenv, filtered, jgroup, min_length, min_mean_quality, max_n_fraction, paired_only );
+
+        jint capacity = jenv -> GetArrayLength ( jbases );
+        jint pending = 0;
+
+        /* gather the numeric columns locally and
+           copy them back to Java once at the end */
+        std :: vector < jint > offsets;
+        std :: vector < jint > categories;
+        std :: vector < jint > fragments;
+
+        jint count = start;
+        bool advance = ! resume;
+        while ( count < max )
+        {
+            if ( advance && ! filter . Next ( self ) )
+                break;
+            advance = true;
+
+            StringItf * bases = self -> getReadBases ();
+            size_t size = bases -> size ();
+            if ( size > ( size_t ) ( capacity - used ) )
+            {
+                /* leave the cursor on this Read
+                   and have the caller make room for it */
+                bases -> Release ();
+                pending = size > 0x7FFFFFFF ? 0x7FFFFFFF : ( jint ) size;
+                break;
+            }
+
+            CopyToBatch ( jenv, bases, jbases, used, ( jint ) size );
+            CopyToBatch ( jenv, self -> getReadQualities (), jqualities, used, ( jint ) size );
+
+            categories . push_back ( ( jint ) self -> getReadCategory () );
+            fragments . push_back ( ( jint ) self -> getNumFragments () );
+
+            used += ( jint ) size;
+            offsets . push_back ( used );
+            ++ count;
+        }
+
+        jint filled = count - start;
+        if ( filled > 0 )
+        {
+            jenv -> SetIntArrayRegion ( joffsets, start + 1, filled, & offsets [ 0 ] );
+            jenv -> SetIntArrayRegion ( jcategories, start, filled, & categories [ 0 ] );
+            jenv -> SetIntArrayRegion ( jfragments, start, filled, & fragments [ 0 ] );
+        }
+        jenv -> SetIntArrayRegion ( jpending, 0, 1, & pending );
+
+        return count;
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
@@ -15,6 +15,22 @@ extern "C" {
 JNIEXPORT jboolean JNICALL Java_ngs_itf_ReadIteratorItf_NextRead
   (JNIEnv *, jobject, jlong);
 
+/*
+ * Class:     ngs_itf_ReadIteratorItf
+ * Method:    NextFilteredRead
+ * Signature: (J[BJIDZ)Z
+ */
+JNIEXPORT jboolean JNICALL Java_ngs_itf_ReadIteratorItf_NextFilteredRead
+  (JNIEnv *, jobject, jlong, jbyteArray, jlong, jint, jdouble, jboolean);
+
+/*
+ * Class:     ngs_itf_ReadIteratorItf
+ * Method:    NextReadBatch
+ * Signature: (JZIII[I[I[I[B[B[IZ[BJIDZ)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadIteratorItf_NextReadBatch
+  (JNIEnv *, jobject, jlong, jboolean, jint, jint, jint, jintArray, jintArray, jintArray, jbyteArray, jbyteArray, jintArray, jboolean, jbyteArray, jlong, jint, jdouble, jboolean);
+
 #ifdef __cplusplus
 }
 #endif
@@ -134,6 +134,186 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_ReadItf_GetFragmentQualities
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentBasesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentBases ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentBasesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentBases ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualitiesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualitiesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualityScoresBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertQualitiesToJByteArray ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualityScoresBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getFragmentQualities ( offset, length );
+        return StringItfConvertQualitiesToJBuffer ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_ReadItf
  * Method:    IsPaired
@@ -463,4 +643,184 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_ReadItf_GetReadQualities
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadBasesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getReadBases ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadBasesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getReadBases ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualitiesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getReadQualities ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualitiesBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getReadQualities ( offset, length );
+        return StringItfConvertToJBuffer ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualityScoresBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getReadQualities ( offset, length );
+        return StringItfConvertQualitiesToJByteArray ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualityScoresBuffer
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint binning, jobject jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getReadQualities ( offset, length );
+        return StringItfConvertQualitiesToJBuffer ( new_ref, jenv, binning, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 #undef Self
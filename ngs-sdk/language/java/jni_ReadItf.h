@@ -31,6 +31,54 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_ReadItf_GetFragmentBases
 JNIEXPORT jstring JNICALL Java_ngs_itf_ReadItf_GetFragmentQualities
   (JNIEnv *, jobject, jlong, jlong, jlong);
 
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentBasesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentBasesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualitiesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualitiesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualityScoresBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetFragmentQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetFragmentQualityScoresBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jobject, jint, jint);
+
 /*
  * Class:     ngs_itf_ReadItf
  * Method:    IsPaired
@@ -119,6 +167,54 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_ReadItf_GetReadBases
 JNIEXPORT jstring JNICALL Java_ngs_itf_ReadItf_GetReadQualities
   (JNIEnv *, jobject, jlong, jlong, jlong);
 
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadBasesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadBasesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadBasesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualitiesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualitiesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualitiesBuffer
+ * Signature: (JJJLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualitiesBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jobject, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualityScoresBytes
+ * Signature: (JJJI[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualityScoresBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jbyteArray, jint, jint);
+
+/*
+ * Class:     ngs_itf_ReadItf
+ * Method:    GetReadQualityScoresBuffer
+ * Signature: (JJJILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReadItf_GetReadQualityScoresBuffer
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jobject, jint, jint);
+
 #ifdef __cplusplus
 }
 #endif
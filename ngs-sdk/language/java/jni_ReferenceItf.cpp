@@ -28,9 +28,13 @@
 #include "jni_ErrorMsg.hpp"
 #include "jni_String.hpp"
 
+#include <vector>
+#include <algorithm>
+
 #include <ngs/itf/ReferenceItf.hpp>
 #include <ngs/itf/AlignmentItf.hpp>
 #include <ngs/itf/PileupItf.hpp>
+#include <ngs/itf/PileupEventItf.hpp>
 #include <ngs/itf/StringItf.hpp>
 
 using namespace ngs;
@@ -228,6 +232,36 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_ReferenceItf_GetReferenceBases
     return 0;
 }
 
+/*
+ * Class:     ngs_itf_ReferenceItf
+ * Method:    GetReferenceBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReferenceItf_GetReferenceBasesBytes
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    try
+    {
+        ErrorMsgAssertUnsignedLong ( jenv, offset );
+        StringItf * new_ref = Self ( jself ) -> getReferenceBases ( offset, length );
+        return StringItfConvertToJByteArray ( new_ref, jenv, jdst, dst_offset, dst_size );
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    return 0;
+}
+
 /*
  * Class:     ngs_itf_ReferenceItf
  * Method:    GetReferenceChunk
@@ -528,3 +562,129 @@ JNIEXPORT jlong JNICALL Java_ngs_itf_ReferenceItf_GetFilteredPileupSlice
     return 0;
 }
 
+
+/* PileupSummary column layout, see ngs.PileupSummary */
+enum
+{
+    col_A, col_C, col_G, col_T, col_N,
+    col_deletion, col_insertion, col_depth,
+    summary_columns
+};
+
+/* rows accumulated before being copied to the Java array */
+static const jsize summary_chunk_rows = 64 * 1024;
+
+static
+int SummaryColumn ( char base )
+{
+    switch ( base )
+    {
+    case 'A': case 'a':
+        return col_A;
+    case 'C': case 'c':
+        return col_C;
+    case 'G': case 'g':
+        return col_G;
+    case 'T': case 't':
+        return col_T;
+    }
+    return col_N;
+}
+
+/* FlushSummary
+ *  copy the rows of the current chunk that lie within the window
+ */
+static
+void FlushSummary ( JNIEnv * jenv, jintArray jcounts, jsize rows, jsize first_row, std :: vector < jint > & chunk )
+{
+    jsize count = rows - first_row;
+    if ( count > summary_chunk_rows )
+        count = summary_chunk_rows;
+    if ( count > 0 )
+        jenv -> SetIntArrayRegion ( jcounts, first_row * summary_columns, count * summary_columns, & chunk [ 0 ] );
+    std :: fill ( chunk . begin (), chunk . end (), 0 );
+}
+
+/*
+ * Class:     ngs_itf_ReferenceItf
+ * Method:    GetPileupSummary
+ * Signature: (JJJIII[I)V
+ */
+JNIEXPORT void JNICALL Java_ngs_itf_ReferenceItf_GetPileupSummary
+    ( JNIEnv * jenv, jobject jthis, jlong jself, jlong offset, jlong length, jint categories, jint filters, jint map_qual, jintArray jcounts )
+{
+    PileupItf * pileup = 0;
+    try
+    {
+        jsize rows = jenv -> GetArrayLength ( jcounts ) / summary_columns;
+        if ( length < 0 || length > rows )
+            throw ErrorMsg ( "counts array is too small for window" );
+
+        std :: vector < jint > chunk ( summary_chunk_rows * summary_columns );
+        jsize first_row = 0;
+        bool dirty = false;
+
+        pileup = Self ( jself ) -> getFilteredPileupSlice ( offset, length, categories, filters, map_qual );
+
+        // the pileup is also its own event iterator
+        PileupEventItf * event = ( PileupEventItf * ) pileup;
+        while ( pileup -> nextPileup () )
+        {
+            int64_t index = pileup -> getReferencePosition () - offset;
+            if ( index < 0 || index >= length )
+                continue;
+
+            // positions only move forward, so a completed chunk is never revisited
+            if ( index >= ( int64_t ) first_row + summary_chunk_rows )
+            {
+                if ( dirty )
+                    FlushSummary ( jenv, jcounts, ( jsize ) length, first_row, chunk );
+                first_row = ( jsize ) ( index - index % summary_chunk_rows );
+                dirty = false;
+            }
+
+            jint * row = & chunk [ ( size_t ) ( index - first_row ) * summary_columns ];
+            row [ col_depth ] = ( jint ) pileup -> getPileupDepth ();
+            dirty = true;
+
+            while ( event -> nextPileupEvent () )
+            {
+                uint32_t e = event -> getEventType ();
+                if ( ( e & 0x08 ) != 0 )
+                    ++ row [ col_insertion ];
+
+                switch ( e & 7 )
+                {
+                case 0: // match
+                case 1: // mismatch
+                    ++ row [ SummaryColumn ( event -> getAlignmentBase () ) ];
+                    break;
+                case 2: // deletion
+                    ++ row [ col_deletion ];
+                    break;
+                }
+            }
+        }
+
+        if ( dirty )
+            FlushSummary ( jenv, jcounts, ( jsize ) length, first_row, chunk );
+
+        pileup -> Release ();
+        return;
+    }
+    catch ( ErrorMsg & x )
+    {
+        ErrorMsgThrow ( jenv, xt_error_msg, x . what () );
+    }
+    catch ( std :: exception & x )
+    {
+        ErrorMsgThrow ( jenv, xt_runtime, x . what () );
+    }
+    catch ( ... )
+    {
+        JNI_INTERNAL_ERROR ( jenv, "%s", __func__ );
+    }
+
+    if ( pileup != 0 )
+        pileup -> Release ();
+}
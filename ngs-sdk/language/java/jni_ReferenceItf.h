@@ -63,6 +63,14 @@ JNIEXPORT jstring JNICALL Java_ngs_itf_ReferenceItf_GetReferenceBases
 JNIEXPORT jstring JNICALL Java_ngs_itf_ReferenceItf_GetReferenceChunk
   (JNIEnv *, jobject, jlong, jlong, jlong);
 
+/*
+ * Class:     ngs_itf_ReferenceItf
+ * Method:    GetReferenceBasesBytes
+ * Signature: (JJJ[BII)I
+ */
+JNIEXPORT jint JNICALL Java_ngs_itf_ReferenceItf_GetReferenceBasesBytes
+  (JNIEnv *, jobject, jlong, jlong, jlong, jbyteArray, jint, jint);
+
 /*
  * Class:     ngs_itf_ReferenceItf
  * Method:    GetAlignmentCount
@@ -135,6 +143,14 @@ JNIEXPORT jlong JNICALL Java_ngs_itf_ReferenceItf_GetPileupSlice
 JNIEXPORT jlong JNICALL Java_ngs_itf_ReferenceItf_GetFilteredPileupSlice
   (JNIEnv *, jobject, jlong, jlong, jlong, jint, jint, jint);
 
+/*
+ * Class:     ngs_itf_ReferenceItf
+ * Method:    GetPileupSummary
+ * Signature: (JJJIII[I)V
+ */
+JNIEXPORT void JNICALL Java_ngs_itf_ReferenceItf_GetPileupSummary
+  (JNIEnv *, jobject, jlong, jlong, jlong, jint, jint, jint, jintArray);
+
 #ifdef __cplusplus
 }
 #endif
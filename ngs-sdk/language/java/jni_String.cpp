@@ -167,3 +167,215 @@ jstring StringItfConvertToJString ( ngs :: StringItf * self, JNIEnv * jenv )
     self -> Release ();
     return jstr;
 }
+
+/* CopyToJByteArray
+ *  copy StringItf data into a region of a Java byte[]
+ */
+static
+jint StringItfCopyToJByteArray ( const ngs :: StringItf * self, JNIEnv * jenv,
+    jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    assert ( jenv != 0 );
+
+    if ( self == 0 )
+        return 0;
+
+    size_t size = self -> size ();
+    if ( size > 0x7FFFFFFF )
+    {
+        RuntimeExceptionThrow ( jenv, "failed to copy a String ( string too long )" );
+        return 0;
+    }
+
+    jint to_copy = ( jint ) size;
+    if ( to_copy > dst_size )
+        to_copy = dst_size;
+
+    if ( to_copy > 0 )
+    {
+        jenv -> SetByteArrayRegion ( jdst, dst_offset, to_copy,
+            ( const jbyte* ) self -> data () );
+    }
+
+    return ( jint ) size;
+}
+
+/* ConvertToJByteArray
+ *  copy StringItf data into a region of a Java byte[]
+ */
+jint StringItfConvertToJByteArray ( ngs :: StringItf * self, JNIEnv * jenv,
+    jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    jint size = StringItfCopyToJByteArray ( self, jenv, jdst, dst_offset, dst_size );
+    self -> Release ();
+    return size;
+}
+
+/* CopyToJBuffer
+ *  copy StringItf data into a direct java.nio.ByteBuffer
+ */
+static
+jint StringItfCopyToJBuffer ( const ngs :: StringItf * self, JNIEnv * jenv,
+    jobject jdst, jint dst_offset, jint dst_size )
+{
+    assert ( jenv != 0 );
+
+    if ( self == 0 )
+        return 0;
+
+    size_t size = self -> size ();
+    if ( size > 0x7FFFFFFF )
+    {
+        RuntimeExceptionThrow ( jenv, "failed to copy a String ( string too long )" );
+        return 0;
+    }
+
+    jint to_copy = ( jint ) size;
+    if ( to_copy > dst_size )
+        to_copy = dst_size;
+
+    if ( to_copy > 0 )
+    {
+        char * dst = ( char* ) jenv -> GetDirectBufferAddress ( jdst );
+        if ( dst == 0 )
+        {
+            RuntimeExceptionThrow ( jenv, "failed to copy a String ( buffer is not direct )" );
+            return 0;
+        }
+
+        memmove ( dst + dst_offset, self -> data (), to_copy );
+    }
+
+    return ( jint ) size;
+}
+
+/* ConvertToJBuffer
+ *  copy StringItf data into a direct java.nio.ByteBuffer
+ */
+jint StringItfConvertToJBuffer ( ngs :: StringItf * self, JNIEnv * jenv,
+    jobject jdst, jint dst_offset, jint dst_size )
+{
+    jint size = StringItfCopyToJBuffer ( self, jenv, jdst, dst_offset, dst_size );
+    self -> Release ();
+    return size;
+}
+
+/* PhredTable
+ *  map every ASCII quality character to its binned phred score
+ *  binning values match ngs.Phred: 0 raw, 1 Illumina 8-level, 2 Illumina 4-level
+ *  scores below 3 mark no-calls and are never binned
+ */
+static
+void PhredTable ( jint binning, jbyte table [ 256 ] )
+{
+    static const jbyte bin8 [] = { 6, 6, 6, 6, 6, 6, 6, 15, 15, 15, 15, 15, 15, 15, 15, 15, 15,
+                                   22, 22, 22, 22, 22, 27, 27, 27, 27, 27,
+                                   33, 33, 33, 33, 33, 37, 37, 37, 37, 37 };
+
+    for ( int ch = 0; ch < 256; ++ ch )
+    {
+        int score = ch - 33;
+        if ( score >= 3 )
+        {
+            if ( binning == 1 )
+                score = score < 40 ? bin8 [ score - 3 ] : 40;
+            else if ( binning == 2 )
+                score = score < 15 ? 12 : score < 31 ? 23 : 37;
+        }
+        table [ ch ] = ( jbyte ) score;
+    }
+}
+
+/* CopyQualities
+ *  translate up to "to_copy" ASCII qualities into "dst"
+ */
+static
+void StringItfCopyQualities ( const ngs :: StringItf * self, jint binning, jbyte * dst, jint to_copy )
+{
+    jbyte table [ 256 ];
+    PhredTable ( binning, table );
+
+    const unsigned char * src = ( const unsigned char * ) self -> data ();
+    for ( jint i = 0; i < to_copy; ++ i )
+        dst [ i ] = table [ src [ i ] ];
+}
+
+/* ConvertQualitiesToJByteArray
+ *  copy ASCII qualities as raw phred scores into a region of a Java byte[]
+ */
+jint StringItfConvertQualitiesToJByteArray ( ngs :: StringItf * self, JNIEnv * jenv,
+    jint binning, jbyteArray jdst, jint dst_offset, jint dst_size )
+{
+    assert ( jenv != 0 );
+
+    if ( self == 0 )
+        return 0;
+
+    size_t size = self -> size ();
+    if ( size > 0x7FFFFFFF )
+    {
+        self -> Release ();
+        RuntimeExceptionThrow ( jenv, "failed to copy a String ( string too long )" );
+        return 0;
+    }
+
+    jint to_copy = ( jint ) size;
+    if ( to_copy > dst_size )
+        to_copy = dst_size;
+
+    if ( to_copy > 0 )
+    {
+        jbyte * dst = ( jbyte* ) jenv -> GetPrimitiveArrayCritical ( jdst, 0 );
+        if ( dst == 0 )
+        {
+            self -> Release ();
+            return 0;
+        }
+
+        StringItfCopyQualities ( self, binning, dst + dst_offset, to_copy );
+        jenv -> ReleasePrimitiveArrayCritical ( jdst, dst, 0 );
+    }
+
+    self -> Release ();
+    return ( jint ) size;
+}
+
+/* ConvertQualitiesToJBuffer
+ *  copy ASCII qualities as raw phred scores into a direct java.nio.ByteBuffer
+ */
+jint StringItfConvertQualitiesToJBuffer ( ngs :: StringItf * self, JNIEnv * jenv,
+    jint binning, jobject jdst, jint dst_offset, jint dst_size )
+{
+    assert ( jenv != 0 );
+
+    if ( self == 0 )
+        return 0;
+
+    size_t size = self -> size ();
+    if ( size > 0x7FFFFFFF )
+    {
+        self -> Release ();
+        RuntimeExceptionThrow ( jenv, "failed to copy a String ( string too long )" );
+        return 0;
+    }
+
+    jint to_copy = ( jint ) size;
+    if ( to_copy > dst_size )
+        to_copy = dst_size;
+
+    if ( to_copy > 0 )
+    {
+        jbyte * dst = ( jbyte* ) jenv -> GetDirectBufferAddress ( jdst );
+        if ( dst == 0 )
+        {
+            self -> Release ();
+            RuntimeExceptionThrow ( jenv, "failed to copy a String ( buffer is not direct )" );
+            return 0;
+        }
+
+        StringItfCopyQualities ( self, binning, dst + dst_offset, to_copy );
+    }
+
+    self -> Release ();
+    return ( jint ) size;
+}
@@ -81,4 +81,44 @@ jstring StringItfCopyToJString ( const ngs :: StringItf * self, JNIEnv * jenv  )
 jstring StringItfConvertToJString ( ngs :: StringItf * self, JNIEnv * jenv );
 
 
+/* ConvertToJByteArray
+ *  copy StringItf data into a region of a Java byte[]
+ *  copies no more than "dst_size" bytes starting at "dst_offset"
+ *  returns the full size of the string, which may exceed "dst_size"
+ *  releases "self"
+ */
+jint StringItfConvertToJByteArray ( ngs :: StringItf * self, JNIEnv * jenv,
+    jbyteArray jdst, jint dst_offset, jint dst_size );
+
+
+/* ConvertToJBuffer
+ *  copy StringItf data into a direct java.nio.ByteBuffer
+ *  copies no more than "dst_size" bytes starting at "dst_offset"
+ *  returns the full size of the string, which may exceed "dst_size"
+ *  releases "self"
+ */
+jint StringItfConvertToJBuffer ( ngs :: StringItf * self, JNIEnv * jenv,
+    jobject jdst, jint dst_offset, jint dst_size );
+
+
+/* ConvertQualitiesToJByteArray
+ *  copy ASCII qualities from StringItf data as raw phred scores
+ *  into a region of a Java byte[], binned as selected by "binning"
+ *  ( see ngs.Phred ). same rules as ConvertToJByteArray
+ *  releases "self"
+ */
+jint StringItfConvertQualitiesToJByteArray ( ngs :: StringItf * self, JNIEnv * jenv,
+    jint binning, jbyteArray jdst, jint dst_offset, jint dst_size );
+
+
+/* ConvertQualitiesToJBuffer
+ *  copy ASCII qualities from StringItf data as raw phred scores
+ *  into a direct java.nio.ByteBuffer, binned as selected by "binning"
+ *  same rules as ConvertToJBuffer
+ *  releases "self"
+ */
+jint StringItfConvertQualitiesToJBuffer ( ngs :: StringItf * self, JNIEnv * jenv,
+    jint binning, jobject jdst, jint dst_offset, jint dst_size );
+
+
 #endif /* _hpp_jni_ErrorMsg_ */